@@ -0,0 +1,36 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Deterministic datasets shared by the benchmarks, shaped like generateSampleData output
+ */
+final class BenchmarkData {
+
+    private static final String[] CATEGORIES = {"A", "B", "C"};
+
+    private BenchmarkData() {
+    }
+
+    static List<BigDataProcessingSystem.DataRecord> records(int count) {
+        Random random = new Random(42L);
+        LocalDateTime now = LocalDateTime.now();
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("category", CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            metadata.put("priority", random.nextInt(5) + 1);
+            metadata.put("source", "generated");
+            records.add(new BigDataProcessingSystem.DataRecord(
+                    "record-" + (i + 1), now.minusHours(random.nextInt(24)), random.nextDouble() * 1000, metadata));
+        }
+        return records;
+    }
+
+    static RecordStore columnarStore(List<BigDataProcessingSystem.DataRecord> records) {
+        RecordStore store = new ColumnarRecordStore(records.size());
+        store.appendAll(records);
+        return store;
+    }
+}
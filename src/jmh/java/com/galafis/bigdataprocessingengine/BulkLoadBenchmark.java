@@ -0,0 +1,63 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parsing a local export file with the parallel memory-mapped BulkFileLoader and with the
+ * streaming DataImporter; records are counted and dropped, so only reading and parsing are measured
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BulkLoadBenchmark {
+
+    @Param({"1000000"})
+    public int recordCount;
+
+    @Param({"CSV", "JSONL"})
+    public ExportFormat format;
+
+    private ExecutionBackend backend;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        backend = ExecutionBackend.create(ExecutionBackend.Type.WORK_STEALING, 0);
+        file = Files.createTempFile("bulk-load", "." + format.name().toLowerCase());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            new DataExporter(backend, DataExporter.DEFAULT_CHUNK_SIZE)
+                    .export(BenchmarkData.columnarStore(BenchmarkData.records(recordCount)), format, false, out);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        backend.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long bulkLoad() throws IOException {
+        LongAdder records = new LongAdder();
+        new BulkFileLoader(backend).load(file, format, batch -> records.add(batch.size()));
+        return records.sum();
+    }
+
+    @Benchmark
+    public long streamImport() throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return new DataImporter(backend, DataExporter.DEFAULT_CHUNK_SIZE).importFrom(in, format, batch -> { });
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append throughput of the synchronized ColumnarRecordStore and the range-reserving SegmentedRecordStore
+ * with concurrent writers, alone and while a reader keeps analyzing snapshots; iterations are short
+ * because each one fills a fresh store
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class ConcurrentStoreBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"columnar", "segmented"})
+    public String storeType;
+
+    private RecordStore store;
+
+    /**
+     * Each writer appends its own prebuilt batch
+     */
+    @State(Scope.Thread)
+    public static class WriterBatch {
+        List<BigDataProcessingSystem.DataRecord> records;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            records = BenchmarkData.records(BATCH_SIZE);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        store = "segmented".equals(storeType) ? new SegmentedRecordStore() : new ColumnarRecordStore();
+    }
+
+    @Benchmark
+    @Group("append")
+    @GroupThreads(4)
+    public long appendBatch(WriterBatch batch) {
+        return store.appendAll(batch.records);
+    }
+
+    @Benchmark
+    @Group("appendWhileAnalyzing")
+    @GroupThreads(3)
+    public long appendBatchWhileAnalyzing(WriterBatch batch) {
+        return store.appendAll(batch.records);
+    }
+
+    @Benchmark
+    @Group("appendWhileAnalyzing")
+    @GroupThreads(1)
+    public long analyzeSnapshot() {
+        RecordStore snapshot = store.snapshot();
+        return RecordAccumulator.scan(snapshot, 0, snapshot.size(), Long.MIN_VALUE).getCount();
+    }
+}
@@ -0,0 +1,52 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of exporting the full dataset, as the in-memory map and streamed in each format
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ExportBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int recordCount;
+
+    @Param({"JSONL", "CSV", "BINARY"})
+    public ExportFormat format;
+
+    @Param({"false", "true"})
+    public boolean compress;
+
+    private BigDataProcessingSystem system;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        system = new BigDataProcessingSystem();
+        system.ingestBatch(BenchmarkData.records(recordCount)).join();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        system.shutdown();
+    }
+
+    @Benchmark
+    public Map<String, Object> exportData() {
+        return system.exportData();
+    }
+
+    @Benchmark
+    public long exportStream() throws IOException {
+        return system.exportData(OutputStream.nullOutputStream(), format, compress);
+    }
+}
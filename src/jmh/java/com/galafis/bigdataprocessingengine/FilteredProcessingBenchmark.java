@@ -0,0 +1,86 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtered analysis through the SecondaryIndex compared with filtering the record list by hand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class FilteredProcessingBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int recordCount;
+
+    @Param({"category", "priority", "time", "combined"})
+    public String filterKind;
+
+    private List<BigDataProcessingSystem.DataRecord> records;
+    private RecordStore store;
+    private SecondaryIndex index;
+    private RecordFilter filter;
+    private ForkJoinPool forkJoinPool;
+    private ParallelDataProcessor processor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        records = BenchmarkData.records(recordCount);
+        store = BenchmarkData.columnarStore(records);
+        index = new SecondaryIndex(Duration.ofHours(1), new EngineMetrics());
+        index.catchUp(store);
+        LocalDateTime now = LocalDateTime.now();
+        switch (filterKind) {
+            case "category":
+                filter = RecordFilter.all().withCategories("A");
+                break;
+            case "priority":
+                filter = RecordFilter.all().withPriorityBetween(5, 5);
+                break;
+            case "time":
+                filter = RecordFilter.all().withTimeRange(now.minusHours(6).minusMinutes(30), now.minusHours(3));
+                break;
+            default:
+                filter = RecordFilter.all().withCategories("B").withPriorityBetween(1, 2)
+                        .withTimeRange(now.minusHours(12), null);
+        }
+        forkJoinPool = new ForkJoinPool();
+        processor = new ParallelDataProcessor(forkJoinPool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        forkJoinPool.shutdown();
+    }
+
+    @Benchmark
+    public RecordBitmap select() {
+        return index.select(store, filter);
+    }
+
+    @Benchmark
+    public BigDataProcessingSystem.AnalysisResult indexedProcess() {
+        return processor.process(store, index.select(store, filter)).join();
+    }
+
+    @Benchmark
+    public BigDataProcessingSystem.AnalysisResult filterListThenProcess() {
+        List<BigDataProcessingSystem.DataRecord> matching = new ArrayList<>();
+        for (BigDataProcessingSystem.DataRecord record : records) {
+            if (filter.matches(record)) {
+                matching.add(record);
+            }
+        }
+        return processor.process(matching).join();
+    }
+}
@@ -0,0 +1,89 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingestion throughput: sample data generation and the batched ingestion API with concurrent producers.
+ * One system serves a whole iteration, so invocations append to a store that keeps growing, as it
+ * does under continuous ingestion, and system start-up stays out of the measured loop.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class IngestionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Dataset {
+        @Param({"1000", "1000000"})
+        public int recordCount;
+
+        private List<BigDataProcessingSystem.DataRecord> records;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            records = BenchmarkData.records(recordCount);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Target {
+        private BigDataProcessingSystem system;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            system = new BigDataProcessingSystem();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            system.shutdown();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Producers {
+        @Param({"1", "4"})
+        public int producerThreads;
+
+        private ExecutorService pool;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            pool = Executors.newFixedThreadPool(producerThreads);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long generateSampleData(Dataset data, Target target) {
+        target.system.generateSampleData(data.recordCount);
+        return target.system.getRecordStore().size();
+    }
+
+    @Benchmark
+    public long ingestBatches(Dataset data, Target target, Producers producers) {
+        List<BigDataProcessingSystem.DataRecord> records = data.records;
+        int slice = (records.size() + producers.producerThreads - 1) / producers.producerThreads;
+        List<CompletableFuture<Integer>> acknowledgements = new ArrayList<>(producers.producerThreads);
+        for (int from = 0; from < records.size(); from += slice) {
+            List<BigDataProcessingSystem.DataRecord> part = records.subList(from, Math.min(records.size(), from + slice));
+            acknowledgements.add(CompletableFuture.supplyAsync(() -> target.system.ingestBatch(part), producers.pool)
+                    .thenCompose(acknowledgement -> acknowledgement));
+        }
+        CompletableFuture.allOf(acknowledgements.toArray(new CompletableFuture[0])).join();
+        return target.system.getRecordStore().size();
+    }
+}
@@ -0,0 +1,136 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end analysis cost and per-phase cost of DefaultDataProcessor, compared with the
+ * columnar, fork/join, sketch-based and pipeline engines on the same dataset.
+ * DefaultDataProcessor runs each analysis as a single task, so only the parallel engines are
+ * measured across pool sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class ProcessingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Dataset {
+        @Param({"1000", "1000000", "10000000"})
+        public int recordCount;
+
+        private List<BigDataProcessingSystem.DataRecord> records;
+        private RecordStore store;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            records = BenchmarkData.records(recordCount);
+            store = BenchmarkData.columnarStore(records);
+        }
+    }
+
+    /**
+     * DefaultDataProcessor on a single worker thread
+     */
+    @State(Scope.Benchmark)
+    public static class Sequential {
+        private ExecutorService executorService;
+        private DefaultDataProcessor processor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            executorService = Executors.newSingleThreadExecutor();
+            processor = new DefaultDataProcessor(executorService);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Engines that split the scan across a fork/join pool; threads = 0 uses one per core
+     */
+    @State(Scope.Benchmark)
+    public static class Parallel {
+        @Param({"1", "4", "0"})
+        public int threads;
+
+        private ForkJoinPool forkJoinPool;
+        private ParallelDataProcessor parallelProcessor;
+        private ApproximateDataProcessor approximateProcessor;
+        private PipelineDataProcessor pipelineProcessor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            forkJoinPool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+            parallelProcessor = new ParallelDataProcessor(forkJoinPool);
+            approximateProcessor = new ApproximateDataProcessor(ExecutionBackend.wrap(forkJoinPool), ApproximationSpec.defaults());
+            pipelineProcessor = new PipelineDataProcessor(ExecutionBackend.wrap(forkJoinPool));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public BigDataProcessingSystem.AnalysisResult defaultProcessList(Dataset data, Sequential engine) {
+        return engine.processor.process(data.records).join();
+    }
+
+    @Benchmark
+    public BigDataProcessingSystem.AnalysisResult defaultProcessColumnar(Dataset data, Sequential engine) {
+        return engine.processor.process(data.store).join();
+    }
+
+    @Benchmark
+    public BigDataProcessingSystem.AnalysisResult parallelProcessList(Dataset data, Parallel engine) {
+        return engine.parallelProcessor.process(data.records).join();
+    }
+
+    @Benchmark
+    public BigDataProcessingSystem.AnalysisResult parallelProcessColumnar(Dataset data, Parallel engine) {
+        return engine.parallelProcessor.process(data.store).join();
+    }
+
+    @Benchmark
+    public BigDataProcessingSystem.AnalysisResult approximateProcessColumnar(Dataset data, Parallel engine) {
+        return engine.approximateProcessor.process(data.store).join();
+    }
+
+    @Benchmark
+    public BigDataProcessingSystem.AnalysisResult pipelineProcessList(Dataset data, Parallel engine) {
+        return engine.pipelineProcessor.process(data.records).join();
+    }
+
+    @Benchmark
+    public BigDataProcessingSystem.AnalysisResult pipelineProcessColumnar(Dataset data, Parallel engine) {
+        return engine.pipelineProcessor.process(data.store).join();
+    }
+
+    @Benchmark
+    public Map<String, Double> phaseCalculateSummary(Dataset data, Sequential engine) {
+        return engine.processor.calculateSummary(data.records);
+    }
+
+    @Benchmark
+    public List<String> phaseGenerateInsights(Dataset data, Sequential engine) {
+        return engine.processor.generateInsights(data.records);
+    }
+
+    @Benchmark
+    public List<String> phaseGenerateRecommendations(Dataset data, Sequential engine) {
+        return engine.processor.generateRecommendations(data.records);
+    }
+}
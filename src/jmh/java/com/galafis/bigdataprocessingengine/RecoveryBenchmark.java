@@ -0,0 +1,74 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Restart-to-ready time of the WriteAheadLog: recovery from the log alone, and from a snapshot
+ * followed by a 10% log tail
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class RecoveryBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int recordCount;
+
+    @Param({"log", "snapshot"})
+    public String layout;
+
+    private Path directory;
+    private ExecutionBackend backend;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<BigDataProcessingSystem.DataRecord> records = BenchmarkData.records(recordCount);
+        directory = Files.createTempDirectory("wal-benchmark");
+        backend = ExecutionBackend.create(ExecutionBackend.Type.WORK_STEALING, 0);
+        int snapshotAt = "snapshot".equals(layout) ? recordCount / 10 * 9 : 0;
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend, Duration.ofMillis(-1),
+                WriteAheadLog.DEFAULT_SEGMENT_BYTES, 0)) {
+            log.recover(store);
+            for (int from = 0; from < recordCount; from += 5_000) {
+                List<BigDataProcessingSystem.DataRecord> batch = records.subList(from, Math.min(recordCount, from + 5_000));
+                log.beforeAppend(store, store.size(), batch);
+                long first = store.appendAll(batch);
+                log.onAppend(store, first, batch);
+                if (snapshotAt > 0 && store.size() == snapshotAt) {
+                    log.snapshot(store);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        backend.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long recover() throws IOException {
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend)) {
+            return log.recover(store);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.time.Duration;
+
+/**
+ * Batch size controller aiming at a target latency per batch.
+ * The cost per record is an exponentially weighted moving average over completed batches, and
+ * the next batch gets as many records as fit in the target, within [min, max]. The size moves by
+ * at most a factor of two per observation, so a single outlier cannot swing it.
+ */
+public final class AdaptiveBatchSizer {
+
+    private static final double SMOOTHING = 0.25;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long targetNanos;
+    private volatile int size;
+    private double nanosPerRecord = -1;
+
+    /**
+     * @param initialSize size used until the first batch completes
+     * @param target      latency aimed at for each batch; zero keeps the size fixed
+     */
+    public AdaptiveBatchSizer(int initialSize, int minSize, int maxSize, Duration target) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("Invalid batch size bounds: [" + minSize + ", " + maxSize + "]");
+        }
+        if (target.isNegative()) {
+            throw new IllegalArgumentException("target must not be negative: " + target);
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetNanos = target.toNanos();
+        this.size = clamp(initialSize);
+    }
+
+    /**
+     * Sizer that always returns the same size
+     */
+    public static AdaptiveBatchSizer fixed(int size) {
+        return new AdaptiveBatchSizer(size, size, size, Duration.ZERO);
+    }
+
+    /**
+     * Size for the next batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Feed back a completed batch of the given number of records
+     */
+    public synchronized void record(int records, long nanos) {
+        if (records <= 0 || targetNanos == 0) {
+            return;
+        }
+        double observed = Math.max(1.0, nanos) / records;
+        nanosPerRecord = nanosPerRecord < 0 ? observed : nanosPerRecord + SMOOTHING * (observed - nanosPerRecord);
+        double ideal = targetNanos / nanosPerRecord;
+        int current = size;
+        size = clamp((long) Math.max(current / 2.0, Math.min(current * 2.0, ideal)));
+    }
+
+    private int clamp(long value) {
+        return (int) Math.max(minSize, Math.min(maxSize, value));
+    }
+
+    // Getters
+    public int getMinSize() { return minSize; }
+    public int getMaxSize() { return maxSize; }
+    public Duration getTarget() { return Duration.ofNanos(targetNanos); }
+
+    /**
+     * Smoothed cost of one record, or -1 before the first observation
+     */
+    public synchronized double getNanosPerRecord() { return nanosPerRecord; }
+
+    @Override
+    public String toString() {
+        return "AdaptiveBatchSizer{size=" + size + ", bounds=[" + minSize + ", " + maxSize + "], targetMs="
+                + targetNanos / 1_000_000 + "}";
+    }
+}
@@ -0,0 +1,116 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Approximate implementation of IDataProcessor for exploratory analysis of very large datasets.
+ * Each chunk partitioned across the ExecutionBackend builds a {@link DatasetSketch} sized by the
+ * {@link ApproximationSpec}; the partial sketches are merged, so memory per sketch stays fixed
+ * however many records are analyzed. Summary count, average, min and max remain exact; quantiles,
+ * distinct ids, the dominant category share and the high-value count are estimates within the
+ * configured error bounds.
+ */
+public class ApproximateDataProcessor implements IDataProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApproximateDataProcessor.class);
+    // Every chunk allocates a full sketch, so chunks are much larger than for exact processing
+    static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    private final ExecutionBackend executionBackend;
+    private final ApproximationSpec spec;
+    private final EngineMetrics metrics;
+
+    public ApproximateDataProcessor(ExecutionBackend executionBackend, ApproximationSpec spec) {
+        this(executionBackend, spec, new EngineMetrics());
+    }
+
+    public ApproximateDataProcessor(ExecutionBackend executionBackend, ApproximationSpec spec, EngineMetrics metrics) {
+        this.executionBackend = executionBackend;
+        this.spec = spec;
+        this.metrics = metrics;
+    }
+
+    public ApproximationSpec getSpec() {
+        return spec;
+    }
+
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sketch of the records, for callers that need more than the AnalysisResult (quantiles, top categories, sample)
+     */
+    public CompletableFuture<DatasetSketch> sketch(List<BigDataProcessingSystem.DataRecord> records) {
+        long recentCutoff = recentCutoff();
+        return executionBackend.mapReduce(records.size(), DEFAULT_CHUNK_SIZE, (from, to) -> {
+            DatasetSketch sketch = spec.newSketch();
+            for (int i = (int) from; i < to; i++) {
+                sketch.accept(records.get(i), recentCutoff);
+            }
+            return sketch;
+        }, DatasetSketch::merge);
+    }
+
+    public CompletableFuture<DatasetSketch> sketch(RecordStore store) {
+        long recentCutoff = recentCutoff();
+        return executionBackend.mapReduce(store.size(), DEFAULT_CHUNK_SIZE, (from, to) -> {
+            DatasetSketch sketch = spec.newSketch();
+            for (long i = from; i < to; i++) {
+                sketch.accept(store, i, recentCutoff);
+            }
+            return sketch;
+        }, DatasetSketch::merge);
+    }
+
+    /**
+     * Sketch of the selected positions; bitmap containers are the unit of partitioning
+     */
+    public CompletableFuture<DatasetSketch> sketch(RecordStore store, RecordBitmap selection) {
+        long recentCutoff = recentCutoff();
+        return executionBackend.mapReduce(selection.containerCount(), 1, (from, to) -> {
+            DatasetSketch sketch = spec.newSketch();
+            selection.forEach((int) from, (int) to, position -> sketch.accept(store, position, recentCutoff));
+            return sketch;
+        }, DatasetSketch::merge);
+    }
+
+    @Override
+    public CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(List<BigDataProcessingSystem.DataRecord> records) {
+        return analyze(System.nanoTime(), sketch(records));
+    }
+
+    @Override
+    public CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(RecordStore store) {
+        return analyze(System.nanoTime(), sketch(store));
+    }
+
+    @Override
+    public CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(RecordStore store, RecordBitmap selection) {
+        return analyze(System.nanoTime(), sketch(store, selection));
+    }
+
+    private CompletableFuture<BigDataProcessingSystem.AnalysisResult> analyze(long startNanos, CompletableFuture<DatasetSketch> sketch) {
+        logger.info("Starting approximate data processing with {}...", spec);
+        return sketch.thenApply(merged -> {
+            long nanos = System.nanoTime() - startNanos;
+            BigDataProcessingSystem.AnalysisResult result = merged.toAnalysisResult(nanos / 1_000_000);
+            metrics.recordAnalysis(merged.getCount(), System.nanoTime() - startNanos, -1);
+            logger.info("Approximate data processing of {} records completed in {}ms", merged.getCount(), nanos / 1_000_000);
+            return result;
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                logger.error("Data processing failed in ApproximateDataProcessor", error);
+            }
+        });
+    }
+
+    private static long recentCutoff() {
+        return RecordStore.toEpochNanos(LocalDateTime.now().minusDays(1));
+    }
+}
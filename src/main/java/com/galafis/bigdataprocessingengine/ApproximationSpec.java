@@ -0,0 +1,107 @@
+package com.galafis.bigdataprocessingengine;
+
+/**
+ * Error bounds for the ApproximateDataProcessor, from which the size of every sketch is derived.
+ * Each with* method returns a new spec. Sketch memory depends only on these bounds, never on the
+ * number of records.
+ */
+public final class ApproximationSpec {
+
+    private static final ApproximationSpec DEFAULTS = new ApproximationSpec(0.01, 0.01, 0.001, 0.01, 16, 0);
+
+    private final double quantileError;
+    private final double distinctError;
+    private final double frequencyError;
+    private final double frequencyFailureProbability;
+    private final int heavyHitters;
+    private final int sampleSize;
+
+    private ApproximationSpec(double quantileError, double distinctError, double frequencyError,
+                              double frequencyFailureProbability, int heavyHitters, int sampleSize) {
+        this.quantileError = quantileError;
+        this.distinctError = distinctError;
+        this.frequencyError = frequencyError;
+        this.frequencyFailureProbability = frequencyFailureProbability;
+        this.heavyHitters = heavyHitters;
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * 1% rank error for quantiles, 1% relative error for distinct ids, frequencies within 0.1% of
+     * the record count with 99% confidence, 16 heavy hitters and no sample
+     */
+    public static ApproximationSpec defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Normalized rank error of the value quantiles, e.g. 0.01 for +/-1% of the rank
+     */
+    public ApproximationSpec withQuantileError(double rankError) {
+        QuantileSketch.kFor(rankError);
+        return new ApproximationSpec(rankError, distinctError, frequencyError, frequencyFailureProbability, heavyHitters, sampleSize);
+    }
+
+    /**
+     * Relative standard error of the distinct id count
+     */
+    public ApproximationSpec withDistinctError(double relativeError) {
+        HyperLogLog.precisionFor(relativeError);
+        return new ApproximationSpec(quantileError, relativeError, frequencyError, frequencyFailureProbability, heavyHitters, sampleSize);
+    }
+
+    /**
+     * Category frequencies overestimated by at most epsilon * records, with probability 1 - delta
+     */
+    public ApproximationSpec withFrequencyError(double epsilon, double delta) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("epsilon and delta must be in (0, 1): " + epsilon + ", " + delta);
+        }
+        return new ApproximationSpec(quantileError, distinctError, epsilon, delta, heavyHitters, sampleSize);
+    }
+
+    /**
+     * Number of most frequent categories tracked
+     */
+    public ApproximationSpec withHeavyHitters(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one heavy hitter must be tracked: " + count);
+        }
+        return new ApproximationSpec(quantileError, distinctError, frequencyError, frequencyFailureProbability, count, sampleSize);
+    }
+
+    /**
+     * Size of the uniform record sample kept alongside the sketches; 0 disables sampling
+     */
+    public ApproximationSpec withSampleSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Sample size must not be negative: " + size);
+        }
+        return new ApproximationSpec(quantileError, distinctError, frequencyError, frequencyFailureProbability, heavyHitters, size);
+    }
+
+    /**
+     * Empty sketch set sized for this spec
+     */
+    public DatasetSketch newSketch() {
+        return new DatasetSketch(
+                new QuantileSketch(QuantileSketch.kFor(quantileError)),
+                new HyperLogLog(HyperLogLog.precisionFor(distinctError)),
+                new CountMinSketch(frequencyError, frequencyFailureProbability, heavyHitters),
+                sampleSize > 0 ? new ReservoirSample<>(sampleSize) : null);
+    }
+
+    // Getters
+    public double getQuantileError() { return quantileError; }
+    public double getDistinctError() { return distinctError; }
+    public double getFrequencyError() { return frequencyError; }
+    public double getFrequencyFailureProbability() { return frequencyFailureProbability; }
+    public int getHeavyHitters() { return heavyHitters; }
+    public int getSampleSize() { return sampleSize; }
+
+    @Override
+    public String toString() {
+        return String.format("ApproximationSpec{quantileError=%s, distinctError=%s, frequencyError=%s, delta=%s, heavyHitters=%d, sampleSize=%d}",
+                quantileError, distinctError, frequencyError, frequencyFailureProbability, heavyHitters, sampleSize);
+    }
+}
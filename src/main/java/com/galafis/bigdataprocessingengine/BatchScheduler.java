@@ -0,0 +1,343 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+
+/**
+ * Fair-share, adaptive scheduler for range work on the compute executor.
+ * Every {@link #mapReduce} call is a job whose range is cut into batches. Batches of all active jobs
+ * are dispatched round-robin, one per job in turn, with at most {@link #getParallelism()} in flight,
+ * so a large analysis cannot starve a small one that arrives while it runs.
+ * Batch sizes follow each job's observed cost per record (see {@link AdaptiveBatchSizer}). The
+ * in-flight limit follows the executor's queueing delay: it grows by one while every slot is busy
+ * and batches start at once, and shrinks by a quarter when batches wait for a thread.
+ * A batch that fails or exceeds the timeout is retried up to retryAttempts times before its job
+ * fails; a timed-out attempt is abandoned, not interrupted, and keeps its slot until its task ends,
+ * so abandoned work cannot push the executor past the in-flight limit. While attempts are abandoned
+ * the limit stays above their number (up to the maximum), so retries can still run.
+ */
+public class BatchScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchScheduler.class);
+
+    static final int MAX_BATCH_SIZE = 1 << 20;
+    /** Queueing delay tolerated as a fraction of a batch's run time before the limit shrinks */
+    private static final double QUEUE_DELAY_TOLERANCE = 0.25;
+    private static final long MIN_QUEUE_DELAY_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final ExecutorService executor;
+    private final int maxParallelism;
+    private final int initialBatchSize;
+    private final Duration targetBatchLatency;
+    private final long batchTimeoutNanos;
+    private final int retryAttempts;
+
+    // Guarded by this
+    private final Deque<Job<?>> ready = new ArrayDeque<>();
+    private int parallelism;
+    private int inFlight;
+    private int abandoned;
+    private int activeJobs;
+    private long decreases;
+
+    private volatile int lastBatchSize;
+    private final LongAdder completedBatches = new LongAdder();
+    private final LongAdder retriedBatches = new LongAdder();
+    private final LongAdder timedOutBatches = new LongAdder();
+    private final LongAdder failedJobs = new LongAdder();
+
+    /**
+     * @param maxParallelism     upper bound of batches in flight; the limit starts at the backend's parallelism
+     * @param initialBatchSize   records per batch until a job's first batch has been measured
+     * @param targetBatchLatency run time aimed at for each batch
+     * @param batchTimeout       time from dispatch after which an attempt counts as failed
+     * @param retryAttempts      attempts after the first one before a job fails
+     */
+    public BatchScheduler(ExecutionBackend backend, int maxParallelism, int initialBatchSize, Duration targetBatchLatency,
+                          Duration batchTimeout, int retryAttempts) {
+        if (maxParallelism < 1 || initialBatchSize < 1 || retryAttempts < 0) {
+            throw new IllegalArgumentException("Invalid scheduler settings: maxParallelism=" + maxParallelism
+                    + ", initialBatchSize=" + initialBatchSize + ", retryAttempts=" + retryAttempts);
+        }
+        if (batchTimeout.isNegative() || batchTimeout.isZero()) {
+            throw new IllegalArgumentException("batchTimeout must be positive: " + batchTimeout);
+        }
+        this.executor = backend.computeExecutor();
+        this.maxParallelism = maxParallelism;
+        this.initialBatchSize = initialBatchSize;
+        this.targetBatchLatency = targetBatchLatency;
+        this.batchTimeoutNanos = batchTimeout.toNanos();
+        this.retryAttempts = retryAttempts;
+        this.parallelism = Math.max(1, Math.min(maxParallelism, backend.parallelism()));
+        this.lastBatchSize = initialBatchSize;
+    }
+
+    /**
+     * Run the task over [0, size) in batches of at least minChunk records and combine the partial
+     * results in range order, with the same contract as {@link ExecutionBackend#mapReduce}
+     */
+    public <T> CompletableFuture<T> mapReduce(long size, long minChunk, ExecutionBackend.RangeTask<T> task,
+                                              BinaryOperator<T> combiner) {
+        int minSize = (int) Math.max(1, Math.min(MAX_BATCH_SIZE, minChunk));
+        Job<T> job;
+        synchronized (this) {
+            // Before anything is measured, split the job at least once per slot
+            long perSlot = Math.max(1, (size + parallelism - 1) / parallelism);
+            AdaptiveBatchSizer sizer = new AdaptiveBatchSizer((int) Math.min(initialBatchSize, perSlot), minSize,
+                    Math.max(minSize, MAX_BATCH_SIZE), targetBatchLatency);
+            job = new Job<>(size, task, combiner, sizer);
+            activeJobs++;
+            job.queued = true;
+            ready.addLast(job);
+        }
+        dispatch();
+        return job.result;
+    }
+
+    /**
+     * Start batches round-robin across jobs while slots are free; launching happens outside the lock
+     */
+    private void dispatch() {
+        List<Runnable> launches = new ArrayList<>();
+        synchronized (this) {
+            while (inFlight < parallelism && !ready.isEmpty()) {
+                Job<?> job = ready.pollFirst();
+                launches.add(job.dispatchNext());
+                if (job.hasPending()) {
+                    ready.addLast(job);
+                } else {
+                    job.queued = false;
+                }
+                inFlight++;
+            }
+        }
+        launches.forEach(Runnable::run);
+    }
+
+    /**
+     * Additive increase while the limit is what holds work back, multiplicative decrease once per
+     * round of dispatches when batches queue in the executor
+     */
+    private void adjustParallelism(Batch batch, long waitNanos, long runNanos) {
+        if (waitNanos > MIN_QUEUE_DELAY_NANOS && waitNanos > runNanos * QUEUE_DELAY_TOLERANCE) {
+            if (batch.decreasesAtDispatch == decreases && parallelism > minParallelism()) {
+                parallelism = Math.max(minParallelism(), parallelism - Math.max(1, parallelism / 4));
+                decreases++;
+            }
+        } else if (inFlight + 1 >= parallelism && !ready.isEmpty() && parallelism < maxParallelism) {
+            parallelism++;
+        }
+    }
+
+    /**
+     * Lowest limit that still leaves a slot besides the abandoned attempts
+     */
+    private int minParallelism() {
+        return Math.min(maxParallelism, abandoned + 1);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // Getters
+    public synchronized int getParallelism() { return parallelism; }
+    public int getMaxParallelism() { return maxParallelism; }
+    public synchronized int getActiveJobs() { return activeJobs; }
+    /** Batches holding a slot, including timed-out attempts whose task is still running */
+    public synchronized int getInFlightBatches() { return inFlight; }
+    /** Timed-out attempts whose task is still running */
+    public synchronized int getAbandonedBatches() { return abandoned; }
+    public int getInitialBatchSize() { return initialBatchSize; }
+    public Duration getBatchTimeout() { return Duration.ofNanos(batchTimeoutNanos); }
+    public int getRetryAttempts() { return retryAttempts; }
+    /** Size chosen for the next batch of the most recently measured job */
+    public int getBatchSize() { return lastBatchSize; }
+    public long getCompletedBatches() { return completedBatches.sum(); }
+    public long getRetriedBatches() { return retriedBatches.sum(); }
+    public long getTimedOutBatches() { return timedOutBatches.sum(); }
+    public long getFailedJobs() { return failedJobs.sum(); }
+
+    /**
+     * One attempt at the range [from, to) of a job
+     */
+    private static final class Batch {
+        private final int sequence;
+        private final long from;
+        private final long to;
+        private final int attempt;
+        private long decreasesAtDispatch;
+        private boolean settled; // guarded by the scheduler; set by the first of completion and timeout
+        private volatile long startNanos;
+
+        Batch(int sequence, long from, long to, int attempt) {
+            this.sequence = sequence;
+            this.from = from;
+            this.to = to;
+            this.attempt = attempt;
+        }
+    }
+
+    /**
+     * State of one mapReduce call; every field except result is guarded by the scheduler
+     */
+    private final class Job<T> {
+        private final long size;
+        private final ExecutionBackend.RangeTask<T> task;
+        private final BinaryOperator<T> combiner;
+        private final AdaptiveBatchSizer sizer;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final List<T> partials = new ArrayList<>();
+        private final Deque<Batch> retries = new ArrayDeque<>();
+        private long next;
+        private boolean started;
+        private int outstanding;
+        private boolean queued;
+        private boolean failed;
+
+        Job(long size, ExecutionBackend.RangeTask<T> task, BinaryOperator<T> combiner, AdaptiveBatchSizer sizer) {
+            this.size = size;
+            this.task = task;
+            this.combiner = combiner;
+            this.sizer = sizer;
+        }
+
+        boolean hasPending() {
+            return !failed && (!retries.isEmpty() || next < size || !started);
+        }
+
+        /**
+         * Take the next batch (retries first) and return the action that launches it
+         */
+        Runnable dispatchNext() {
+            Batch batch = retries.pollFirst();
+            if (batch == null) {
+                started = true;
+                long from = next;
+                next = Math.min(size, from + sizer.size());
+                batch = new Batch(partials.size(), from, next, 0);
+                partials.add(null);
+            }
+            batch.decreasesAtDispatch = decreases;
+            outstanding++;
+            Batch dispatched = batch;
+            return () -> launch(dispatched);
+        }
+
+        private void launch(Batch batch) {
+            long dispatchNanos = System.nanoTime();
+            CompletableFuture<T> running;
+            try {
+                running = CompletableFuture.supplyAsync(() -> {
+                    batch.startNanos = System.nanoTime();
+                    return task.apply(batch.from, batch.to);
+                }, executor);
+            } catch (RejectedExecutionException e) {
+                running = CompletableFuture.failedFuture(e);
+            }
+            // The slot is released when the task itself ends; the timeout only settles the attempt
+            running.whenComplete((value, error) -> complete(batch, dispatchNanos, value, error, true));
+            running.copy().orTimeout(batchTimeoutNanos, TimeUnit.NANOSECONDS).whenComplete((value, error) -> {
+                if (error != null && unwrap(error) instanceof TimeoutException) {
+                    complete(batch, dispatchNanos, null, error, false);
+                }
+            });
+        }
+
+        /**
+         * Settle the attempt on whichever of task end and timeout comes first
+         *
+         * @param taskEnded whether the task has returned, which frees its slot; false for a timeout
+         */
+        private void complete(Batch batch, long dispatchNanos, T value, Throwable error, boolean taskEnded) {
+            long now = System.nanoTime();
+            Throwable failure = null;
+            boolean finished = false;
+            synchronized (BatchScheduler.this) {
+                if (taskEnded) {
+                    inFlight--;
+                    if (batch.settled) {
+                        abandoned--;
+                    }
+                } else if (!batch.settled) {
+                    abandoned++;
+                }
+                if (!batch.settled) {
+                    batch.settled = true;
+                    outstanding--;
+                    if (error == null) {
+                        completedBatches.increment();
+                        long startNanos = batch.startNanos;
+                        sizer.record((int) (batch.to - batch.from), now - startNanos);
+                        lastBatchSize = sizer.size();
+                        adjustParallelism(batch, startNanos - dispatchNanos, now - startNanos);
+                        partials.set(batch.sequence, value);
+                    } else if (!failed) {
+                        Throwable cause = unwrap(error);
+                        if (cause instanceof TimeoutException) {
+                            timedOutBatches.increment();
+                            parallelism = Math.max(minParallelism(), parallelism / 2);
+                        }
+                        if (batch.attempt < retryAttempts && !(cause instanceof RejectedExecutionException)) {
+                            retriedBatches.increment();
+                            logger.warn("Batch [{}, {}) failed (attempt {} of {}), retrying: {}", batch.from, batch.to,
+                                    batch.attempt + 1, retryAttempts + 1, cause.toString());
+                            retries.addLast(new Batch(batch.sequence, batch.from, batch.to, batch.attempt + 1));
+                            if (!queued) {
+                                queued = true;
+                                ready.addLast(this);
+                            }
+                        } else {
+                            failed = true;
+                            failure = cause;
+                            ready.remove(this);
+                            queued = false;
+                            activeJobs--;
+                            failedJobs.increment();
+                        }
+                    }
+                    if (!failed && !hasPending() && outstanding == 0) {
+                        finished = true;
+                        activeJobs--;
+                    }
+                }
+            }
+            if (failure != null) {
+                logger.error("Batch [{}, {}) failed after {} attempts", batch.from, batch.to, batch.attempt + 1, failure);
+                result.completeExceptionally(failure);
+            } else if (finished) {
+                combine();
+            }
+            dispatch();
+        }
+
+        /**
+         * Fold the partial results in range order; no batch is running once this is called
+         */
+        private void combine() {
+            try {
+                T combined = partials.get(0);
+                for (int i = 1; i < partials.size(); i++) {
+                    combined = combiner.apply(combined, partials.get(i));
+                }
+                result.complete(combined);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -1,8 +1,19 @@
 package com.galafis.bigdataprocessingengine;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
@@ -19,29 +30,283 @@ public class BigDataProcessingSystem {
     
     private static final Logger logger = LoggerFactory.getLogger(BigDataProcessingSystem.class);
     
-    private final List<DataRecord> dataRecords;
-    private final ExecutorService executorService;
+    private final RecordStore recordStore;
+    private final ExecutionBackend executionBackend;
+    private final BatchScheduler batchScheduler;
     private final Map<String, Object> configuration;
     private final IDataProcessor dataProcessor;
+    private final CachingDataProcessor resultCache;
+    private final RecordIngestor recordIngestor;
+    private final WriteAheadLog writeAheadLog;
+    private final SecondaryIndex secondaryIndex;
+    private final RollupCube rollupCube;
+    private final EngineMetrics metrics = new EngineMetrics();
+    private final MetricsEndpoint metricsEndpoint;
+    private volatile ClusterCoordinator clusterCoordinator;
 
-    // Getter for testing purposes
+    // Getter for testing purposes; records are materialized lazily from the columnar store
     public List<DataRecord> getDataRecords() {
-        return dataRecords;
+        return recordStore.asList();
+    }
+
+    public RecordStore getRecordStore() {
+        return recordStore;
     }
 
     // Method to check if the executor service is shut down
     public boolean isShutdown() {
-        return executorService.isShutdown();
+        return executionBackend.isShutdown();
+    }
+
+    public ExecutionBackend getExecutionBackend() {
+        return executionBackend;
+    }
+
+    /**
+     * Scheduler of the analysis batches, or null when scheduler.enabled is false
+     */
+    public BatchScheduler getBatchScheduler() {
+        return batchScheduler;
+    }
+
+    public CachingDataProcessor getResultCache() {
+        return resultCache;
+    }
+
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public SecondaryIndex getSecondaryIndex() {
+        return secondaryIndex;
+    }
+
+    public RollupCube getRollupCube() {
+        return rollupCube;
+    }
+
+    /**
+     * Write-ahead log of ingested records, or null when wal.directory is not set
+     */
+    public WriteAheadLog getWriteAheadLog() {
+        return writeAheadLog;
+    }
+
+    /**
+     * Coordinator of the connected worker nodes, or null when running single-node
+     */
+    public ClusterCoordinator getClusterCoordinator() {
+        return clusterCoordinator;
+    }
+
+    /**
+     * Current values of every engine metric
+     */
+    public EngineMetrics.Snapshot getMetricsSnapshot() {
+        return metrics.snapshot();
     }
     
     public BigDataProcessingSystem() {
-        this.dataRecords = new CopyOnWriteArrayList<>();
-        this.executorService = Executors.newFixedThreadPool(10);
+        this(new SegmentedRecordStore());
+    }
+
+    /**
+     * Create the system on top of an existing record store, e.g. a reopened MappedSegmentRecordStore
+     */
+    public BigDataProcessingSystem(RecordStore recordStore) {
+        this.recordStore = recordStore;
         this.configuration = new ConcurrentHashMap<>();
-        this.dataProcessor = new DefaultDataProcessor(executorService); // Injetando a implementação
         initializeConfiguration();
+        this.executionBackend = ExecutionBackend.create(
+                ExecutionBackend.Type.fromConfig(getStringSetting("execution.backend", "work-stealing")),
+                getIntSetting("data.processing.threads", 10));
+        this.batchScheduler = createBatchScheduler();
+        ExecutionBackend analysisBackend = batchScheduler != null ? executionBackend.scheduled(batchScheduler) : executionBackend;
+        this.writeAheadLog = openWriteAheadLog(getStringSetting("wal.directory", "").trim());
+        this.resultCache = new CachingDataProcessor(
+                createDataProcessor(getStringSetting("data.processor", "parallel"), analysisBackend), // Injetando a implementação
+                Boolean.parseBoolean(getStringSetting("cache.enabled", "true")) ? getIntSetting("cache.maxEntries", 16) : 0,
+                Duration.ofMillis(getIntSetting("cache.ttlMs", 60000)));
+        this.dataProcessor = resultCache;
+        this.recordIngestor = new RecordIngestor(recordStore,
+                getIntSetting("batchSize", 1000),
+                createAppendSizer(),
+                getIntSetting("ingest.queue.capacity", 1024),
+                metrics);
+        if (writeAheadLog != null) {
+            recordIngestor.addListener(writeAheadLog);
+        }
+        this.secondaryIndex = new SecondaryIndex(Duration.ofMillis(getIntSetting("index.timeBucketMs", 3600000)), metrics);
+        secondaryIndex.catchUp(recordStore);
+        recordIngestor.addListener(secondaryIndex);
+        this.rollupCube = new RollupCube(Duration.ofMillis(getIntSetting("rollup.bucketMs", 3600000)));
+        rollupCube.catchUp(recordStore);
+        recordIngestor.addListener(rollupCube);
+        registerGauges();
+        this.metricsEndpoint = startMetricsEndpoint(getStringSetting("metrics.http.bindAddress", "").trim(),
+                getIntSetting("metrics.http.port", -1));
+        List<InetSocketAddress> clusterWorkers = parseWorkers(getStringSetting("cluster.workers", ""));
+        if (!clusterWorkers.isEmpty()) {
+            connectCluster(clusterWorkers, Partitioner.hash(getIntSetting("cluster.partitions", 16)));
+        }
+    }
+
+    private void registerGauges() {
+        metrics.registerGauge("executor.queue.depth", executionBackend::queuedTaskCount);
+        metrics.registerGauge("executor.active.threads", executionBackend::activeThreadCount);
+        metrics.registerGauge("ingest.queue.depth", recordIngestor::getQueueDepth);
+        metrics.registerGauge("ingest.backpressure.waits", recordIngestor::getBackpressureWaits);
+        metrics.registerGauge("cache.hit.ratio", resultCache::getHitRatio);
+        metrics.registerGauge("cache.entries", resultCache::getSize);
+        metrics.registerGauge("store.records", recordStore::size);
+        metrics.registerGauge("index.memory.bytes", secondaryIndex::getMemoryBytes);
+        metrics.registerGauge("rollup.cells", rollupCube::getCellCount);
+        metrics.registerGauge("ingest.append.batch.size", recordIngestor::getAppendBatchSize);
+        if (batchScheduler != null) {
+            metrics.registerGauge("scheduler.parallelism", batchScheduler::getParallelism);
+            metrics.registerGauge("scheduler.batch.size", batchScheduler::getBatchSize);
+            metrics.registerGauge("scheduler.jobs.active", batchScheduler::getActiveJobs);
+            metrics.registerGauge("scheduler.batches.retried", batchScheduler::getRetriedBatches);
+            metrics.registerGauge("scheduler.batches.timedOut", batchScheduler::getTimedOutBatches);
+            metrics.registerGauge("scheduler.batches.abandoned", batchScheduler::getAbandonedBatches);
+        }
+        if (writeAheadLog != null) {
+            metrics.registerGauge("wal.bytes", writeAheadLog::getLoggedBytes);
+            metrics.registerGauge("wal.syncs", writeAheadLog::getSyncCount);
+        }
+    }
+
+    /**
+     * Batch scheduler for the analysis work: batches start at batchSize records and adapt to
+     * scheduler.targetBatchMs, at most data.processing.threads run at once, and each one is bounded
+     * by timeout and retried up to retryAttempts times
+     */
+    private BatchScheduler createBatchScheduler() {
+        if (!Boolean.parseBoolean(getStringSetting("scheduler.enabled", "true").trim())) {
+            return null;
+        }
+        return new BatchScheduler(executionBackend,
+                Math.max(1, getIntSetting("data.processing.threads", 10)),
+                getIntSetting("batchSize", 1000),
+                Duration.ofMillis(getIntSetting("scheduler.targetBatchMs", 10)),
+                Duration.ofMillis(getIntSetting("timeout", 30000)),
+                getIntSetting("retryAttempts", 3));
+    }
+
+    /**
+     * Store appends coalesce up to data.batch.size records; with the scheduler enabled the size
+     * adapts to scheduler.targetBatchMs, down to one batchSize chunk
+     */
+    private AdaptiveBatchSizer createAppendSizer() {
+        int appendBatchSize = getIntSetting("data.batch.size", 5000);
+        if (batchScheduler == null) {
+            return AdaptiveBatchSizer.fixed(appendBatchSize);
+        }
+        return new AdaptiveBatchSizer(appendBatchSize, Math.max(1, Math.min(getIntSetting("batchSize", 1000), appendBatchSize)),
+                appendBatchSize, Duration.ofMillis(getIntSetting("scheduler.targetBatchMs", 10)));
+    }
+
+    /**
+     * Start the plain-text metrics endpoint when metrics.http.port is set; a negative port disables it.
+     * An empty bind address keeps it on the loopback interface.
+     */
+    private MetricsEndpoint startMetricsEndpoint(String bindAddress, int port) {
+        if (port < 0) {
+            return null;
+        }
+        try {
+            InetAddress address = bindAddress.isEmpty() ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bindAddress);
+            return MetricsEndpoint.start(metrics, address, port);
+        } catch (IOException e) {
+            logger.warn("Failed to start metrics endpoint on port {}, continuing without it.", port, e);
+            return null;
+        }
+    }
+
+    /**
+     * Open the log in wal.directory and recover the store from it before anything is ingested;
+     * an empty wal.directory disables logging
+     */
+    private WriteAheadLog openWriteAheadLog(String directory) {
+        if (directory.isEmpty()) {
+            return null;
+        }
+        try {
+            WriteAheadLog log = WriteAheadLog.open(Paths.get(directory), executionBackend,
+                    Duration.ofMillis(getIntSetting("wal.syncIntervalMs", 0)),
+                    getIntSetting("wal.segmentBytes", (int) WriteAheadLog.DEFAULT_SEGMENT_BYTES),
+                    getIntSetting("wal.snapshotEveryRecords", (int) WriteAheadLog.DEFAULT_SNAPSHOT_EVERY_RECORDS));
+            log.recover(recordStore);
+            return log;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover from write-ahead log " + directory, e);
+        }
+    }
+
+    /**
+     * Parse a comma-separated list of host:port worker addresses
+     */
+    private static List<InetSocketAddress> parseWorkers(String workers) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String worker : workers.split(",")) {
+            String address = worker.trim();
+            if (address.isEmpty()) {
+                continue;
+            }
+            int separator = address.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Worker address must be host:port: " + address);
+            }
+            addresses.add(new InetSocketAddress(address.substring(0, separator),
+                    Integer.parseInt(address.substring(separator + 1))));
+        }
+        return addresses;
+    }
+
+    /**
+     * Distribute data over worker nodes; requests use the configured timeout and retryAttempts.
+     * Replaces (and closes) any previously connected cluster.
+     */
+    public synchronized ClusterCoordinator connectCluster(List<InetSocketAddress> workers, Partitioner partitioner) {
+        ClusterCoordinator coordinator = new ClusterCoordinator(workers, partitioner,
+                getIntSetting("retryAttempts", 3), Duration.ofMillis(getIntSetting("timeout", 30000)), executionBackend);
+        if (clusterCoordinator != null) {
+            clusterCoordinator.close();
+        }
+        clusterCoordinator = coordinator;
+        return coordinator;
+    }
+
+    /**
+     * Port of the running metrics endpoint, or -1 if it is disabled
+     */
+    public int getMetricsPort() {
+        return metricsEndpoint != null ? metricsEndpoint.getPort() : -1;
     }
     
+    /**
+     * Select the IDataProcessor implementation named in the configuration
+     */
+    private IDataProcessor createDataProcessor(String name, ExecutionBackend executionBackend) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "default":
+                return new DefaultDataProcessor(executionBackend.computeExecutor(), metrics);
+            case "parallel":
+                return new ParallelDataProcessor(executionBackend, ParallelDataProcessor.DEFAULT_SPLIT_THRESHOLD, metrics);
+            case "pipeline":
+                return new PipelineDataProcessor(executionBackend, metrics);
+            case "approximate":
+                return new ApproximateDataProcessor(executionBackend, ApproximationSpec.defaults()
+                        .withQuantileError(getDoubleSetting("approx.quantile.error", 0.01))
+                        .withDistinctError(getDoubleSetting("approx.distinct.error", 0.01))
+                        .withFrequencyError(getDoubleSetting("approx.frequency.error", 0.001),
+                                getDoubleSetting("approx.frequency.delta", 0.01))
+                        .withSampleSize(getIntSetting("approx.sample.size", 0)), metrics);
+            default:
+                throw new IllegalArgumentException("Unknown data processor: " + name);
+        }
+    }
+
     /**
      * Initialize system configuration
      */
@@ -50,30 +315,96 @@ public class BigDataProcessingSystem {
         configuration.put("timeout", 30000);
         configuration.put("retryAttempts", 3);
         configuration.put("enableLogging", true);
+        loadConfigurationFile();
         logger.info("System configuration initialized.");
     }
+
+    /**
+     * Overlay config/application.properties (or the file named by -Dbigdata.config) on the defaults
+     */
+    private void loadConfigurationFile() {
+        Path path = Paths.get(System.getProperty("bigdata.config", "config/application.properties"));
+        if (!Files.isRegularFile(path)) {
+            logger.debug("No configuration file found at {}, using defaults.", path);
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+            properties.stringPropertyNames().forEach(key -> configuration.put(key, properties.getProperty(key).trim()));
+            logger.info("Loaded {} settings from {}", properties.size(), path);
+        } catch (IOException e) {
+            logger.warn("Failed to load configuration file {}, using defaults.", path, e);
+        }
+    }
+
+    /**
+     * Integer setting that may have been configured as a number or as a properties string
+     */
+    int getIntSetting(String key, int defaultValue) {
+        Object value = configuration.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Integer.parseInt((String) value);
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid integer for setting {}: {}", key, value);
+            }
+        }
+        return defaultValue;
+    }
+
+    double getDoubleSetting(String key, double defaultValue) {
+        Object value = configuration.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid number for setting {}: {}", key, value);
+            }
+        }
+        return defaultValue;
+    }
+
+    String getStringSetting(String key, String defaultValue) {
+        Object value = configuration.get(key);
+        return value != null ? value.toString() : defaultValue;
+    }
     
     /**
-     * Data record model
+     * Data record model.
+     * Metadata is held as typed {@link RecordMetadata}; use {@link #getCategory()} or
+     * {@link #getRecordMetadata()} on hot paths, getMetadata() builds a map copy on every call.
      */
     public static class DataRecord {
         private final String id;
         private final LocalDateTime timestamp;
         private final double value;
-        private final Map<String, Object> metadata;
+        private final RecordMetadata metadata;
         
         public DataRecord(String id, LocalDateTime timestamp, double value, Map<String, Object> metadata) {
+            this(id, timestamp, value, RecordMetadata.of(metadata));
+        }
+
+        public DataRecord(String id, LocalDateTime timestamp, double value, RecordMetadata metadata) {
             this.id = id;
             this.timestamp = timestamp;
             this.value = value;
-            this.metadata = new HashMap<>(metadata);
+            this.metadata = metadata;
         }
         
         // Getters
         public String getId() { return id; }
         public LocalDateTime getTimestamp() { return timestamp; }
         public double getValue() { return value; }
-        public Map<String, Object> getMetadata() { return new HashMap<>(metadata); }
+        public Map<String, Object> getMetadata() { return metadata.toMap(); }
+        public RecordMetadata getRecordMetadata() { return metadata; }
+        public String getCategory() { return metadata.getCategory(); }
         
         @Override
         public String toString() {
@@ -112,23 +443,26 @@ public class BigDataProcessingSystem {
     public CompletableFuture<Void> initialize() {
         return CompletableFuture.runAsync(() -> {
             logger.info("Initializing Big-Data-Processing-Engine System...");
-            generateSampleData(1000);
-            logger.info("System initialized with {} records", dataRecords.size());
-        }, executorService);
+            if (recordStore.size() > 0) {
+                logger.info("Reusing {} records already present in the record store", recordStore.size());
+            } else {
+                generateSampleData(1000);
+            }
+            logger.info("System initialized with {} records", recordStore.size());
+        }, executionBackend.ioExecutor());
     }
     
     /**
-     * Generate sample data for demonstration
+     * Generate sample data for demonstration (package-private for the benchmarks)
      */
-    private void generateSampleData(int count) {
+    void generateSampleData(int count) {
         Random random = new Random();
         String[] categories = {"A", "B", "C"};
+        List<DataRecord> batch = new ArrayList<>(count);
         
         for (int i = 0; i < count; i++) {
-            Map<String, Object> metadata = new HashMap<>();
-            metadata.put("category", categories[random.nextInt(categories.length)]);
-            metadata.put("priority", random.nextInt(5) + 1);
-            metadata.put("source", "generated");
+            RecordMetadata metadata = RecordMetadata.of(
+                categories[random.nextInt(categories.length)], random.nextInt(5) + 1, "generated", null);
             
             DataRecord record = new DataRecord(
                 "record-" + (i + 1),
@@ -137,24 +471,123 @@ public class BigDataProcessingSystem {
                 metadata
             );
             
-            dataRecords.add(record);
+            batch.add(record);
         }
+        recordIngestor.ingestBatch(batch).join();
         logger.debug("Generated {} sample data records.", count);
     }
     
     /**
-     * Process data and generate comprehensive analysis
+     * Ingest a single record; the future completes once it is stored
+     */
+    public CompletableFuture<Integer> ingest(DataRecord record) {
+        return recordIngestor.ingest(record);
+    }
+
+    /**
+     * Ingest a batch of records. The batch is split into chunks of the configured batchSize,
+     * producers are held back while the ingestion queue is full, and the future completes
+     * with the record count once every chunk is stored.
+     */
+    public CompletableFuture<Integer> ingestBatch(List<DataRecord> records) {
+        return recordIngestor.ingestBatch(records);
+    }
+
+    public RecordIngestor getRecordIngestor() {
+        return recordIngestor;
+    }
+
+    /**
+     * Start a streaming analysis over event-time windows. Only records ingested from now on are
+     * counted; each one updates the window aggregates incrementally. Closed windows are delivered
+     * to window listeners on the I/O executor, off the ingestion thread.
+     */
+    public StreamingAnalyzer openStream(WindowSpec windowSpec) {
+        StreamingAnalyzer analyzer = new StreamingAnalyzer(windowSpec, Duration.ZERO,
+                StreamingAnalyzer.DEFAULT_RETAINED_WINDOWS, executionBackend.ioExecutor());
+        recordIngestor.addListener(analyzer);
+        logger.info("Streaming analysis opened with {} windows", windowSpec);
+        return analyzer;
+    }
+
+    /**
+     * Stop feeding a streaming analysis and close its remaining windows
+     */
+    public void closeStream(StreamingAnalyzer analyzer) {
+        recordIngestor.removeListener(analyzer);
+        analyzer.flush();
+    }
+
+    /**
+     * Process data and generate comprehensive analysis.
+     * Each call analyzes a point-in-time snapshot of the store; records ingested while it runs are left
+     * for the next call. Results are cached against the dataset version, so repeated calls without new
+     * ingestion are free.
      */
     public CompletableFuture<AnalysisResult> processData() {
-        return dataProcessor.process(dataRecords);
+        return dataProcessor.process(recordStore);
+    }
+
+    /**
+     * Analysis of the records matching a filter, selected through the secondary indexes
+     * instead of a full scan. Cached per filter like {@link #processData()}.
+     */
+    public CompletableFuture<AnalysisResult> processData(RecordFilter filter) {
+        return resultCache.process(recordStore, filter, secondaryIndex::select);
+    }
+
+    /**
+     * Analysis of a slice answered from the rollup cells alone, without scanning records.
+     * Time bounds must fall on {@code rollup.bucketMs} boundaries; the recent and high-value
+     * counts are estimates (see {@link RollupCube}).
+     */
+    public AnalysisResult processRollup(RecordFilter filter) {
+        return rollupCube.analyze(recordStore, filter);
+    }
+
+    /**
+     * Snapshot the store now and drop the write-ahead log segments it covers
+     *
+     * @return number of records in the snapshot
+     */
+    public long checkpoint() throws IOException {
+        if (writeAheadLog == null) {
+            throw new IllegalStateException("Write-ahead log is disabled; set wal.directory");
+        }
+        return writeAheadLog.snapshot(recordStore);
+    }
+
+    /**
+     * Send records to their partitions on the connected worker nodes instead of the local store
+     */
+    public void ingestDistributed(List<DataRecord> records) {
+        requireCluster().ingest(records);
+    }
+
+    /**
+     * Analysis of the distributed dataset, merged from the partial results of every worker
+     */
+    public CompletableFuture<AnalysisResult> processDistributed() {
+        return requireCluster().process();
+    }
+
+    private ClusterCoordinator requireCluster() {
+        ClusterCoordinator coordinator = clusterCoordinator;
+        if (coordinator == null) {
+            throw new IllegalStateException("No cluster connected; set cluster.workers or call connectCluster");
+        }
+        return coordinator;
     }
     
     /**
-     * Export system data and metadata
+     * Export system data and metadata as an in-memory map.
+     * "data" is a lazy view of the records present at call time rather than a copy;
+     * use {@link #exportData(OutputStream)} to write large datasets.
      */
     public Map<String, Object> exportData() {
         Map<String, Object> export = new HashMap<>();
-        export.put("data", new ArrayList<>(dataRecords));
+        List<DataRecord> dataRecords = recordStore.snapshot().asList();
+        export.put("data", dataRecords);
         export.put("exportTime", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
         export.put("recordCount", dataRecords.size());
         export.put("systemVersion", "1.0.0");
@@ -163,20 +596,73 @@ public class BigDataProcessingSystem {
         return export;
     }
     
+    /**
+     * Stream every record to the output in the configured data.output.format (jsonl, csv or binary),
+     * gzip-compressed when data.output.compression=gzip
+     *
+     * @return number of records written
+     */
+    public long exportData(OutputStream out) throws IOException {
+        return exportData(out,
+                ExportFormat.fromConfig(getStringSetting("data.output.format", "json")),
+                "gzip".equalsIgnoreCase(getStringSetting("data.output.compression", "none").trim()));
+    }
+
+    /**
+     * Stream every record to the output in chunks encoded in parallel, in constant memory
+     *
+     * @return number of records written
+     */
+    public long exportData(OutputStream out, ExportFormat format, boolean compress) throws IOException {
+        return new DataExporter(executionBackend, getIntSetting("export.chunkSize", DataExporter.DEFAULT_CHUNK_SIZE))
+                .export(recordStore, format, compress, out);
+    }
+
+    /**
+     * Bulk-load an export (compressed or not) through the ingestion pipeline
+     *
+     * @return number of records imported
+     */
+    public long importData(InputStream in, ExportFormat format) throws IOException {
+        return new DataImporter(executionBackend, getIntSetting("export.chunkSize", DataExporter.DEFAULT_CHUNK_SIZE))
+                .importFrom(in, format, records -> recordIngestor.ingestBatch(records).join());
+    }
+
+    /**
+     * Bulk-load a local CSV or JSON Lines file, parsed in parallel byte ranges, through the ingestion
+     * pipeline; malformed rows are skipped and reported
+     */
+    public BulkFileLoader.LoadReport loadFile(Path file, ExportFormat format) throws IOException {
+        long rangeBytes = (long) getIntSetting("load.rangeMb", (int) (BulkFileLoader.DEFAULT_RANGE_BYTES >> 20)) << 20;
+        return new BulkFileLoader(executionBackend, rangeBytes)
+                .load(file, format, records -> recordIngestor.ingestBatch(records).join());
+    }
+    
     /**
      * Shutdown the system gracefully
      */
     public void shutdown() {
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-                logger.warn("Executor service did not terminate in time, forcing shutdown.");
+        if (metricsEndpoint != null) {
+            metricsEndpoint.close();
+        }
+        if (clusterCoordinator != null) {
+            clusterCoordinator.close();
+        }
+        recordIngestor.close();
+        if (writeAheadLog != null) {
+            try {
+                writeAheadLog.close();
+            } catch (IOException e) {
+                logger.error("Failed to close write-ahead log.", e);
+            }
+        }
+        executionBackend.shutdown(60, TimeUnit.SECONDS);
+        if (recordStore instanceof Closeable) {
+            try {
+                ((Closeable) recordStore).close();
+            } catch (IOException e) {
+                logger.error("Failed to close record store.", e);
             }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
-            logger.error("Shutdown interrupted.", e);
         }
         logger.info("Big-Data-Processing-Engine System shutdown complete.");
     }
@@ -187,7 +673,16 @@ public class BigDataProcessingSystem {
     public static void main(String[] args) {
         logger.info("Starting Big-Data-Processing-Engine...");
         
-        BigDataProcessingSystem system = new BigDataProcessingSystem();
+        BigDataProcessingSystem system;
+        try {
+            // An optional directory argument selects the memory-mapped segment store, reopening existing segments
+            system = args.length > 0
+                    ? new BigDataProcessingSystem(MappedSegmentRecordStore.open(Paths.get(args[0])))
+                    : new BigDataProcessingSystem();
+        } catch (IOException e) {
+            logger.error("Failed to open record store", e);
+            return;
+        }
         
         try {
             // Initialize system
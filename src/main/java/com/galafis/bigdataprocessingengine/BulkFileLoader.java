@@ -0,0 +1,883 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parallel loader for large local CSV and JSON Lines files.
+ * The file is split into byte ranges that are memory-mapped and parsed concurrently on the compute
+ * executor straight from the mapped bytes: fields are scanned in place, timestamps and numbers are
+ * parsed without intermediate Strings, and repeated category and source names share one String.
+ * A row belongs to the range holding its first byte; parsed ranges reach the sink in file order,
+ * with a bounded number in flight. Malformed rows are counted and skipped instead of failing the load.
+ * Rows must fit on one line, so CSV fields with embedded line breaks are reported as malformed;
+ * compressed and binary files are read with {@link DataImporter}.
+ */
+public class BulkFileLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkFileLoader.class);
+
+    public static final long DEFAULT_RANGE_BYTES = 16L << 20;
+    /** Longest row a range may read past its end to complete */
+    static final int MAX_LINE_BYTES = 1 << 20;
+    private static final int MAX_MALFORMED_SAMPLES = 10;
+
+    private final ExecutionBackend executionBackend;
+    private final long rangeBytes;
+    private final int maxRangesInFlight;
+
+    public BulkFileLoader(ExecutionBackend executionBackend) {
+        this(executionBackend, DEFAULT_RANGE_BYTES);
+    }
+
+    /**
+     * @param rangeBytes bytes parsed per task; also the unit of in-order delivery to the sink
+     */
+    public BulkFileLoader(ExecutionBackend executionBackend, long rangeBytes) {
+        if (rangeBytes < 1) {
+            throw new IllegalArgumentException("rangeBytes must be positive: " + rangeBytes);
+        }
+        this.executionBackend = executionBackend;
+        this.rangeBytes = rangeBytes;
+        this.maxRangesInFlight = Math.max(2, executionBackend.parallelism() * 2);
+    }
+
+    /**
+     * Parse the file and pass its records to the sink range by range, in file order.
+     * A CSV file may start with the export header row.
+     */
+    public LoadReport load(Path file, ExportFormat format, Consumer<List<BigDataProcessingSystem.DataRecord>> sink) throws IOException {
+        if (format == ExportFormat.BINARY) {
+            throw new IllegalArgumentException("Binary files are loaded with DataImporter");
+        }
+        long startNanos = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (isGzip(channel)) {
+                throw new IllegalArgumentException("Compressed file " + file + " must be loaded with DataImporter");
+            }
+            Deque<CompletableFuture<RangeResult>> window = new ArrayDeque<>();
+            RangeResult total = new RangeResult(0);
+            try {
+                for (long start = 0; start < size; start += rangeBytes) {
+                    long from = start;
+                    long to = Math.min(size, start + rangeBytes);
+                    window.add(CompletableFuture.supplyAsync(() -> parseRange(channel, from, to, size, format),
+                            executionBackend.computeExecutor()));
+                    if (window.size() >= maxRangesInFlight) {
+                        deliver(window.poll(), sink, total);
+                    }
+                }
+                while (!window.isEmpty()) {
+                    deliver(window.poll(), sink, total);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                window.forEach(pending -> pending.cancel(false));
+            }
+
+            LoadReport report = new LoadReport(total.loaded, total.malformed, size, System.nanoTime() - startNanos,
+                    total.samples);
+            logger.info("Loaded {} {} records from {} in {}ms ({} MB/s), {} malformed rows skipped", report.getRecords(),
+                    format, file, report.getElapsedNanos() / 1_000_000, Math.round(report.getBytesPerSecond() / (1 << 20)),
+                    report.getMalformedRows());
+            return report;
+        }
+    }
+
+    private static boolean isGzip(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        channel.read(magic, 0);
+        return magic.position() == 2 && (magic.get(0) & 0xff) == (GZIPInputStream.GZIP_MAGIC & 0xff)
+                && (magic.get(1) & 0xff) == (GZIPInputStream.GZIP_MAGIC >>> 8);
+    }
+
+    private static void deliver(CompletableFuture<RangeResult> range, Consumer<List<BigDataProcessingSystem.DataRecord>> sink,
+                                RangeResult total) {
+        RangeResult result;
+        try {
+            result = range.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw (UncheckedIOException) e.getCause();
+            }
+            throw e;
+        }
+        if (!result.records.isEmpty()) {
+            sink.accept(result.records);
+        }
+        total.loaded += result.records.size();
+        total.malformed += result.malformed;
+        for (String sample : result.samples) {
+            if (total.samples.size() < MAX_MALFORMED_SAMPLES) {
+                total.samples.add(sample);
+            }
+        }
+    }
+
+    /**
+     * Parse the rows starting in [from, to). The mapping begins one byte early, so a range can tell
+     * whether its first byte starts a row, and extends up to MAX_LINE_BYTES past the end to finish its last row.
+     */
+    static RangeResult parseRange(FileChannel channel, long from, long to, long fileSize, ExportFormat format) {
+        long mapStart = from > 0 ? from - 1 : 0;
+        long mapEnd = Math.min(fileSize, to + MAX_LINE_BYTES);
+        ByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int limit = (int) (to - mapStart);
+        int end = buffer.limit();
+        RangeResult result = new RangeResult((int) Math.min(1 << 20, (to - from) / 64));
+        RowParser parser = new RowParser(buffer);
+
+        int position = from > 0 ? indexOf(buffer, (byte) '\n', 0, end) + 1 : 0;
+        if (from > 0 && position == 0) {
+            // No row starts in this range; the previous one reported the overlong row
+            return result;
+        }
+        boolean header = from == 0 && format == ExportFormat.CSV;
+        while (position < limit) {
+            int newline = indexOf(buffer, (byte) '\n', position, end);
+            int lineEnd = newline >= 0 ? newline : end;
+            if (newline < 0 && mapEnd < fileSize) {
+                result.malformed(mapStart + position, "row longer than " + MAX_LINE_BYTES + " bytes");
+                break;
+            }
+            int contentEnd = lineEnd > position && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (header) {
+                header = false;
+                if (parser.matches(position, contentEnd, RecordCodec.CSV_HEADER)) {
+                    position = lineEnd + 1;
+                    continue;
+                }
+            }
+            if (!parser.isBlank(position, contentEnd)) {
+                try {
+                    result.records.add(format == ExportFormat.CSV
+                            ? parser.parseCsv(position, contentEnd) : parser.parseJson(position, contentEnd));
+                } catch (IOException | DateTimeException | IllegalArgumentException | IndexOutOfBoundsException
+                         | ClassCastException e) {
+                    result.malformed(mapStart + position, e.getMessage());
+                }
+            }
+            position = lineEnd + 1;
+        }
+        return result;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Records of one range and its malformed-row statistics
+     */
+    static final class RangeResult {
+        private final List<BigDataProcessingSystem.DataRecord> records;
+        private final List<String> samples = new ArrayList<>();
+        private long loaded;
+        private long malformed;
+
+        RangeResult(int expectedRecords) {
+            this.records = new ArrayList<>(expectedRecords);
+        }
+
+        private void malformed(long offset, String reason) {
+            malformed++;
+            if (samples.size() < MAX_MALFORMED_SAMPLES) {
+                samples.add("byte " + offset + ": " + reason);
+            }
+        }
+
+        List<BigDataProcessingSystem.DataRecord> getRecords() { return records; }
+        long getMalformed() { return malformed; }
+    }
+
+    /**
+     * Outcome of a load: record and malformed-row counts, throughput and the first malformed rows
+     */
+    public static final class LoadReport {
+        private final long records;
+        private final long malformedRows;
+        private final long bytes;
+        private final long elapsedNanos;
+        private final List<String> malformedSamples;
+
+        LoadReport(long records, long malformedRows, long bytes, long elapsedNanos, List<String> malformedSamples) {
+            this.records = records;
+            this.malformedRows = malformedRows;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+            this.malformedSamples = List.copyOf(malformedSamples);
+        }
+
+        // Getters
+        public long getRecords() { return records; }
+        public long getMalformedRows() { return malformedRows; }
+        public long getBytes() { return bytes; }
+        public long getElapsedNanos() { return elapsedNanos; }
+        public List<String> getMalformedSamples() { return malformedSamples; }
+        public double getBytesPerSecond() { return elapsedNanos > 0 ? bytes * 1e9 / elapsedNanos : 0.0; }
+
+        @Override
+        public String toString() {
+            return String.format("LoadReport{records=%d, malformedRows=%d, bytes=%d, elapsedMs=%d}",
+                    records, malformedRows, bytes, elapsedNanos / 1_000_000);
+        }
+    }
+
+    /**
+     * Row parser over a mapped range; not thread-safe, one per range
+     */
+    static final class RowParser {
+        private static final byte[] ID = "id".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] TIMESTAMP = "timestamp".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] VALUE = "value".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] METADATA = "metadata".getBytes(StandardCharsets.US_ASCII);
+        private static final int[] NANO_SCALE = {1_000_000_000, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1};
+        private static final double[] POWERS_OF_TEN = new double[23];
+        private static final int STRING_CACHE_SIZE = 256;
+
+        static {
+            POWERS_OF_TEN[0] = 1.0;
+            for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+                POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+            }
+        }
+
+        private ByteBuffer buffer;
+        private int cursor;
+        private int lineEnd;
+        private int fieldStart;
+        private int fieldEnd;
+        private byte[] scratch = new byte[256];
+        private final byte[][] cachedBytes = new byte[STRING_CACHE_SIZE][];
+        private final String[] cachedStrings = new String[STRING_CACHE_SIZE];
+
+        RowParser(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        boolean isBlank(int from, int to) {
+            for (int i = from; i < to; i++) {
+                byte b = buffer.get(i);
+                if (b != ' ' && b != '\t') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean matches(int from, int to, String text) {
+            if (to - from != text.length()) {
+                return false;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                if (buffer.get(from + i) != text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // CSV: id,timestamp,value,category,priority,source,metadata
+
+        BigDataProcessingSystem.DataRecord parseCsv(int from, int to) throws IOException {
+            cursor = from;
+            lineEnd = to;
+            String id = nextCsvString(false);
+            nextRawField();
+            LocalDateTime timestamp = parseTimestamp(fieldStart, fieldEnd);
+            nextRawField();
+            double value = parseDouble(fieldStart, fieldEnd);
+            String category = emptyToNull(nextCsvString(true));
+            nextRawField();
+            int priority = fieldStart == fieldEnd ? RecordMetadata.NO_PRIORITY : parseInt(fieldStart, fieldEnd);
+            String source = emptyToNull(nextCsvString(true));
+            Map<String, Object> extras = nextCsvExtras();
+            if (cursor <= lineEnd) {
+                throw new IOException("More than 7 CSV fields");
+            }
+            return new BigDataProcessingSystem.DataRecord(id, timestamp, value,
+                    RecordMetadata.of(category, priority, source, extras));
+        }
+
+        private static String emptyToNull(String value) {
+            return value.isEmpty() ? null : value;
+        }
+
+        /**
+         * Bounds of the next unquoted field; the cursor moves past its separator
+         */
+        private void nextRawField() throws IOException {
+            if (cursor > lineEnd) {
+                throw new IOException("Expected 7 CSV fields");
+            }
+            int i = cursor;
+            while (i < lineEnd && buffer.get(i) != ',') {
+                i++;
+            }
+            fieldStart = cursor;
+            fieldEnd = i;
+            cursor = i + 1;
+        }
+
+        private String nextCsvString(boolean shared) throws IOException {
+            if (cursor < lineEnd && buffer.get(cursor) == '"') {
+                int length = unquoteCsvField();
+                return shared ? cached(scratch, length) : decode(scratch, length);
+            }
+            nextRawField();
+            if (fieldStart == fieldEnd) {
+                return "";
+            }
+            int length = copy(fieldStart, fieldEnd);
+            return shared ? cached(scratch, length) : decode(scratch, length);
+        }
+
+        private Map<String, Object> nextCsvExtras() throws IOException {
+            int length;
+            if (cursor < lineEnd && buffer.get(cursor) == '"') {
+                length = unquoteCsvField();
+            } else {
+                nextRawField();
+                length = copy(fieldStart, fieldEnd);
+            }
+            if (length == 0) {
+                return null;
+            }
+            ByteBuffer saved = buffer;
+            int savedCursor = cursor;
+            int savedEnd = lineEnd;
+            buffer = ByteBuffer.wrap(Arrays.copyOf(scratch, length));
+            try {
+                cursor = 0;
+                lineEnd = length;
+                Map<String, Object> extras = parseObject();
+                expectEnd();
+                return extras;
+            } finally {
+                buffer = saved;
+                cursor = savedCursor;
+                lineEnd = savedEnd;
+            }
+        }
+
+        /**
+         * Copy a quoted field without its quotes into the scratch buffer, collapsing doubled quotes
+         */
+        private int unquoteCsvField() throws IOException {
+            int i = cursor + 1;
+            int length = 0;
+            while (true) {
+                if (i >= lineEnd) {
+                    throw new IOException("Unterminated quoted CSV field");
+                }
+                byte b = buffer.get(i++);
+                if (b == '"') {
+                    if (i < lineEnd && buffer.get(i) == '"') {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                length = put(length, b);
+            }
+            if (i < lineEnd && buffer.get(i) != ',') {
+                throw new IOException("Unexpected character after quoted CSV field");
+            }
+            cursor = i + 1;
+            return length;
+        }
+
+        // JSON Lines: {"id":...,"timestamp":"...","value":...,"metadata":{...}}
+
+        BigDataProcessingSystem.DataRecord parseJson(int from, int to) throws IOException {
+            cursor = from;
+            lineEnd = to;
+            skipWhitespace();
+            expect('{');
+            String id = null;
+            LocalDateTime timestamp = null;
+            double value = 0.0;
+            boolean hasValue = false;
+            RecordMetadata metadata = RecordMetadata.EMPTY;
+            skipWhitespace();
+            if (peek() != '}') {
+                while (true) {
+                    skipWhitespace();
+                    int keyStart = stringBounds();
+                    int keyEnd = fieldEnd;
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    if (keyEquals(keyStart, keyEnd, ID)) {
+                        id = parseString(false);
+                    } else if (keyEquals(keyStart, keyEnd, TIMESTAMP)) {
+                        int start = stringBounds();
+                        timestamp = parseTimestamp(start, fieldEnd);
+                    } else if (keyEquals(keyStart, keyEnd, VALUE)) {
+                        if (peek() == '"') {
+                            int start = stringBounds();
+                            value = parseDouble(start, fieldEnd);
+                        } else {
+                            int start = cursor;
+                            skipNumber();
+                            value = parseDouble(start, cursor);
+                        }
+                        hasValue = true;
+                    } else if (keyEquals(keyStart, keyEnd, METADATA)) {
+                        Object parsed = parseValue();
+                        metadata = parsed instanceof Map ? RecordMetadata.of(castMap(parsed)) : RecordMetadata.EMPTY;
+                    } else {
+                        parseValue();
+                    }
+                    skipWhitespace();
+                    byte separator = next();
+                    if (separator == '}') {
+                        break;
+                    }
+                    if (separator != ',') {
+                        throw new IOException("Expected ',' or '}' at byte " + (cursor - 1));
+                    }
+                }
+            } else {
+                cursor++;
+            }
+            expectEnd();
+            if (timestamp == null || !hasValue) {
+                throw new IOException("Record without timestamp or value");
+            }
+            return new BigDataProcessingSystem.DataRecord(id, timestamp, value, metadata);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Object> castMap(Object value) {
+            return (Map<String, Object>) value;
+        }
+
+        private Object parseValue() throws IOException {
+            skipWhitespace();
+            switch (peek()) {
+                case '{':
+                    return parseObject();
+                case '"':
+                    return parseString(true);
+                case 't':
+                    return literal("true", Boolean.TRUE);
+                case 'f':
+                    return literal("false", Boolean.FALSE);
+                case 'n':
+                    return literal("null", null);
+                default:
+                    return parseNumber();
+            }
+        }
+
+        private Map<String, Object> parseObject() throws IOException {
+            skipWhitespace();
+            expect('{');
+            Map<String, Object> object = new LinkedHashMap<>();
+            skipWhitespace();
+            if (peek() == '}') {
+                cursor++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = parseString(true);
+                skipWhitespace();
+                expect(':');
+                object.put(key, parseValue());
+                skipWhitespace();
+                byte separator = next();
+                if (separator == '}') {
+                    return object;
+                }
+                if (separator != ',') {
+                    throw new IOException("Expected ',' or '}'");
+                }
+            }
+        }
+
+        /**
+         * Skip a string; returns its first content byte and leaves its end in fieldEnd
+         */
+        private int stringBounds() throws IOException {
+            expect('"');
+            int start = cursor;
+            while (true) {
+                if (cursor >= lineEnd) {
+                    throw new IOException("Unterminated string");
+                }
+                byte b = buffer.get(cursor++);
+                if (b == '"') {
+                    fieldEnd = cursor - 1;
+                    return start;
+                }
+                if (b == '\\') {
+                    cursor++;
+                }
+            }
+        }
+
+        private String parseString(boolean shared) throws IOException {
+            int start = stringBounds();
+            int length = copy(start, fieldEnd);
+            for (int i = 0; i < length; i++) {
+                if (scratch[i] == '\\') {
+                    return unescape(decode(scratch, length));
+                }
+            }
+            return shared ? cached(scratch, length) : decode(scratch, length);
+        }
+
+        private static String unescape(String escaped) throws IOException {
+            StringBuilder value = new StringBuilder(escaped.length());
+            for (int i = 0; i < escaped.length(); i++) {
+                char c = escaped.charAt(i);
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (++i >= escaped.length()) {
+                    throw new IOException("Dangling escape in string");
+                }
+                char code = escaped.charAt(i);
+                switch (code) {
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        value.append((char) Integer.parseInt(escaped.substring(i + 1, i + 5), 16));
+                        i += 4;
+                        break;
+                    default: value.append(code);
+                }
+            }
+            return value.toString();
+        }
+
+        /**
+         * Integral numbers become Integer or Long and others Double, as in the exporter's own reader
+         */
+        private Object parseNumber() throws IOException {
+            int start = cursor;
+            boolean integral = skipNumber();
+            if (!integral) {
+                return parseDouble(start, cursor);
+            }
+            long value = parseLong(start, cursor);
+            return value == (int) value ? (Object) (int) value : (Object) value;
+        }
+
+        /**
+         * Move past a number; true if it has no fraction or exponent
+         */
+        private boolean skipNumber() throws IOException {
+            int start = cursor;
+            boolean integral = true;
+            while (cursor < lineEnd) {
+                byte b = buffer.get(cursor);
+                if (b == '.' || b == 'e' || b == 'E') {
+                    integral = false;
+                } else if ((b < '0' || b > '9') && b != '-' && b != '+') {
+                    break;
+                }
+                cursor++;
+            }
+            if (start == cursor) {
+                throw new IOException("Unexpected character at byte " + cursor);
+            }
+            return integral;
+        }
+
+        private Object literal(String word, Object value) throws IOException {
+            if (!matches(cursor, Math.min(lineEnd, cursor + word.length()), word)) {
+                throw new IOException("Unexpected literal");
+            }
+            cursor += word.length();
+            return value;
+        }
+
+        private boolean keyEquals(int from, int to, byte[] key) {
+            if (to - from != key.length) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (buffer.get(from + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void expect(char expected) throws IOException {
+            if (peek() != expected) {
+                throw new IOException("Expected '" + expected + "'");
+            }
+            cursor++;
+        }
+
+        private void expectEnd() throws IOException {
+            skipWhitespace();
+            if (cursor != lineEnd) {
+                throw new IOException("Trailing characters");
+            }
+        }
+
+        private byte peek() {
+            return cursor < lineEnd ? buffer.get(cursor) : 0;
+        }
+
+        private byte next() throws IOException {
+            if (cursor >= lineEnd) {
+                throw new IOException("Unexpected end of row");
+            }
+            return buffer.get(cursor++);
+        }
+
+        private void skipWhitespace() {
+            while (cursor < lineEnd) {
+                byte b = buffer.get(cursor);
+                if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                    return;
+                }
+                cursor++;
+            }
+        }
+
+        // Scalars parsed in place
+
+        /**
+         * ISO local date-time that the stores can hold as epoch nanoseconds (about 1677 to 2262).
+         * Rejected here, an out-of-range timestamp makes its row malformed instead of failing the append.
+         */
+        LocalDateTime parseTimestamp(int from, int to) {
+            LocalDateTime timestamp = parseLocalDateTime(from, to);
+            try {
+                RecordStore.toEpochNanos(timestamp);
+            } catch (ArithmeticException e) {
+                throw new DateTimeException("Timestamp out of range: " + timestamp);
+            }
+            return timestamp;
+        }
+
+        /**
+         * ISO local date-time, yyyy-MM-ddTHH:mm[:ss[.fraction]]; other ISO forms go through LocalDateTime.parse
+         */
+        private LocalDateTime parseLocalDateTime(int from, int to) {
+            int length = to - from;
+            if (length >= 16 && buffer.get(from + 4) == '-' && buffer.get(from + 7) == '-'
+                    && buffer.get(from + 10) == 'T' && buffer.get(from + 13) == ':') {
+                int year = digits(from, 4);
+                int month = digits(from + 5, 2);
+                int day = digits(from + 8, 2);
+                int hour = digits(from + 11, 2);
+                int minute = digits(from + 14, 2);
+                int second = 0;
+                int nano = 0;
+                int position = from + 16;
+                boolean valid = year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0;
+                if (valid && position < to) {
+                    valid = to - position >= 3 && buffer.get(position) == ':';
+                    second = valid ? digits(position + 1, 2) : -1;
+                    valid = second >= 0;
+                    position += 3;
+                    if (valid && position < to) {
+                        int fractionDigits = to - position - 1;
+                        valid = buffer.get(position) == '.' && fractionDigits >= 1 && fractionDigits <= 9;
+                        nano = valid ? digits(position + 1, fractionDigits) : -1;
+                        valid = nano >= 0;
+                        nano = valid ? nano * NANO_SCALE[fractionDigits] : 0;
+                    }
+                }
+                if (valid) {
+                    return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+                }
+            }
+            return LocalDateTime.parse(string(from, to));
+        }
+
+        /**
+         * Value of a run of decimal digits, or -1 if any byte is not a digit
+         */
+        private int digits(int from, int count) {
+            int value = 0;
+            for (int i = from; i < from + count; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        /**
+         * Decimal with at most 15 significant digits and a small exponent is exact as one multiplication
+         * or division of two exactly representable doubles; anything else goes through Double.parseDouble
+         */
+        double parseDouble(int from, int to) {
+            int i = from;
+            boolean negative = false;
+            if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                negative = buffer.get(i) == '-';
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean seenDigit = false;
+            boolean fraction = false;
+            for (; i < to; i++) {
+                byte b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    seenDigit = true;
+                    if (mantissa != 0 || b != '0') {
+                        digits++;
+                    }
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (fraction) {
+                        scale--;
+                    }
+                    if (digits > 15) {
+                        return Double.parseDouble(string(from, to));
+                    }
+                } else if (b == '.' && !fraction) {
+                    fraction = true;
+                } else {
+                    break;
+                }
+            }
+            if (i < to) {
+                byte b = buffer.get(i);
+                if (!seenDigit || (b != 'e' && b != 'E')) {
+                    return Double.parseDouble(string(from, to));
+                }
+                int exponentStart = ++i;
+                boolean negativeExponent = i < to && buffer.get(i) == '-';
+                if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                    i++;
+                }
+                int exponent = i < to && to - i <= 3 ? digits(i, to - i) : -1;
+                if (exponent < 0 || exponentStart == to) {
+                    return Double.parseDouble(string(from, to));
+                }
+                scale += negativeExponent ? -exponent : exponent;
+            }
+            if (!seenDigit || scale < -22 || scale > 22) {
+                return Double.parseDouble(string(from, to));
+            }
+            double value = scale >= 0 ? mantissa * POWERS_OF_TEN[scale] : mantissa / POWERS_OF_TEN[-scale];
+            return negative ? -value : value;
+        }
+
+        private int parseInt(int from, int to) {
+            long value = parseLong(from, to);
+            if (value != (int) value) {
+                throw new NumberFormatException("Integer out of range: " + string(from, to));
+            }
+            return (int) value;
+        }
+
+        private long parseLong(int from, int to) {
+            int i = from;
+            boolean negative = i < to && buffer.get(i) == '-';
+            if (negative || (i < to && buffer.get(i) == '+')) {
+                i++;
+            }
+            if (i == to || to - i > 18) {
+                return Long.parseLong(string(from, to));
+            }
+            long value = 0;
+            for (; i < to; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException("Not an integer: " + string(from, to));
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        // Strings
+
+        private String string(int from, int to) {
+            return decode(scratch, copy(from, to));
+        }
+
+        private int copy(int from, int to) {
+            int length = to - from;
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(from, scratch, 0, length);
+            return length;
+        }
+
+        private int put(int length, byte b) {
+            if (length == scratch.length) {
+                scratch = Arrays.copyOf(scratch, scratch.length * 2);
+            }
+            scratch[length] = b;
+            return length + 1;
+        }
+
+        private static String decode(byte[] bytes, int length) {
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] < 0) {
+                    return new String(bytes, 0, length, StandardCharsets.UTF_8);
+                }
+            }
+            return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+        }
+
+        /**
+         * Decode through a small direct-mapped cache, so repeated low-cardinality values share one String
+         */
+        private String cached(byte[] bytes, int length) {
+            int hash = 1;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            int slot = (hash ^ (hash >>> 16)) & (STRING_CACHE_SIZE - 1);
+            byte[] key = cachedBytes[slot];
+            if (key != null && Arrays.equals(key, 0, key.length, bytes, 0, length)) {
+                return cachedStrings[slot];
+            }
+            String value = decode(bytes, length);
+            if (length <= 64) {
+                cachedBytes[slot] = Arrays.copyOf(bytes, length);
+                cachedStrings[slot] = value;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Result cache around another IDataProcessor.
+ * Results for a RecordStore are cached against the store's dataset version and returned as long as
+ * nothing has been appended since. Concurrent requests for the same store, query and version share
+ * one in-flight computation. Entries are evicted least-recently-used beyond maxEntries and expire
+ * after the TTL. Plain List inputs carry no version and are passed straight through.
+ */
+public class CachingDataProcessor implements IDataProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingDataProcessor.class);
+
+    private final IDataProcessor delegate;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<CacheKey, CacheEntry> entries;
+    private final Map<CacheKey, CompletableFuture<BigDataProcessingSystem.AnalysisResult>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+
+    /**
+     * @param maxEntries maximum number of cached results; 0 disables caching but keeps request coalescing
+     * @param ttl        time after which a cached result is recomputed even if the version is unchanged;
+     *                   zero or negative means no expiry
+     */
+    public CachingDataProcessor(IDataProcessor delegate, int maxEntries, Duration ttl) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries must not be negative: " + maxEntries);
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.isNegative() || ttl.isZero() ? Long.MAX_VALUE : ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                if (size() > CachingDataProcessor.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(List<BigDataProcessingSystem.DataRecord> records) {
+        bypassed.increment();
+        return delegate.process(records);
+    }
+
+    /**
+     * Analysis of a snapshot of the store, so records appended meanwhile never leak into the result
+     * and the result matches the version it is cached under
+     */
+    @Override
+    public CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(RecordStore store) {
+        RecordStore snapshot = store.snapshot();
+        return process(store, snapshot.version(), null, () -> delegate.process(snapshot));
+    }
+
+    /**
+     * Selections carry no query of their own, so they are passed straight through; see
+     * {@link #process(RecordStore, RecordFilter, BiFunction)} for cached filtered analysis
+     */
+    @Override
+    public CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(RecordStore store, RecordBitmap selection) {
+        bypassed.increment();
+        return delegate.process(store, selection);
+    }
+
+    /**
+     * Cached filtered analysis of a snapshot; the selector resolves the filter against the snapshot
+     * (normally through a SecondaryIndex) only when no cached result exists for its version
+     */
+    CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(RecordStore store, RecordFilter filter,
+                                                                      BiFunction<RecordStore, RecordFilter, RecordBitmap> selector) {
+        RecordStore snapshot = store.snapshot();
+        return process(store, snapshot.version(), filter, () -> delegate.process(snapshot, selector.apply(snapshot, filter)));
+    }
+
+    /**
+     * Cached computation for a store version and an optional query discriminator (e.g. a filter).
+     * The version is that of the snapshot the computation reads, so a cached result is exactly the version it is stored under.
+     */
+    private CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(RecordStore store, long version, Object query,
+                                                                              Supplier<CompletableFuture<BigDataProcessingSystem.AnalysisResult>> computation) {
+        CacheKey key = new CacheKey(store, query, version);
+
+        synchronized (entries) {
+            CacheEntry cached = entries.get(key.withoutVersion());
+            if (cached != null && cached.version == key.version && System.nanoTime() - cached.createdNanos < ttlNanos) {
+                hits.increment();
+                return CompletableFuture.completedFuture(cached.result);
+            }
+        }
+
+        CompletableFuture<BigDataProcessingSystem.AnalysisResult> created = new CompletableFuture<>();
+        CompletableFuture<BigDataProcessingSystem.AnalysisResult> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        misses.increment();
+        logger.debug("Result cache miss for version {}", key.version);
+        CompletableFuture<BigDataProcessingSystem.AnalysisResult> computed;
+        try {
+            computed = computation.get();
+        } catch (RuntimeException e) {
+            computed = CompletableFuture.failedFuture(e);
+        }
+        computed.whenComplete((result, error) -> {
+            if (error == null && maxEntries > 0) {
+                synchronized (entries) {
+                    CacheEntry current = entries.get(key.withoutVersion());
+                    if (current == null || current.version <= key.version) {
+                        entries.put(key.withoutVersion(), new CacheEntry(key.version, result, System.nanoTime()));
+                    }
+                }
+            }
+            inFlight.remove(key, created);
+            if (error != null) {
+                created.completeExceptionally(error);
+            } else {
+                created.complete(result);
+            }
+        });
+        return created;
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    // Getters
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getCoalescedRequests() { return coalesced.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getBypassedRequests() { return bypassed.sum(); }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Share of versioned requests answered without a new computation (cached or coalesced)
+     */
+    public double getHitRatio() {
+        long answered = hits.sum() + coalesced.sum();
+        long total = answered + misses.sum();
+        return total == 0 ? 0.0 : (double) answered / total;
+    }
+
+    private static final class CacheKey {
+        private final RecordStore store;
+        private final Object query;
+        private final long version;
+
+        CacheKey(RecordStore store, Object query, long version) {
+            this.store = store;
+            this.query = query;
+            this.version = version;
+        }
+
+        CacheKey withoutVersion() {
+            return version == -1 ? this : new CacheKey(store, query, -1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey other = (CacheKey) o;
+            return store == other.store && version == other.version && Objects.equals(query, other.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(store), query, version);
+        }
+    }
+
+    private static final class CacheEntry {
+        private final long version;
+        private final BigDataProcessingSystem.AnalysisResult result;
+        private final long createdNanos;
+
+        CacheEntry(long version, BigDataProcessingSystem.AnalysisResult result, long createdNanos) {
+            this.version = version;
+            this.result = result;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Coordinator of a partitioned dataset spread over WorkerNodes.
+ * Records are routed to a fixed set of partitions by the {@link Partitioner}; partitions are
+ * assigned to workers and moved between them when workers join or leave, so each worker holds an
+ * even share. An analysis fans out in two rounds: every worker returns a partial
+ * RecordAccumulator (count, sum, min/max, category and recent counts) for its partitions, and once
+ * the merged average is known, its count of high values. The merged result is the same
+ * AnalysisResult a single ParallelDataProcessor would compute over the union of the partitions.
+ * <p>
+ * Requests time out after the configured timeout and are retried up to retryAttempts times.
+ * Analyses and ingestion run concurrently; rebalancing waits for both.
+ */
+public class ClusterCoordinator implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterCoordinator.class);
+    private static final int TRANSFER_CHUNK_SIZE = 10_000;
+
+    private final Partitioner partitioner;
+    private final Duration timeout;
+    private final int retryAttempts;
+    private final ExecutionBackend executionBackend;
+    private final ReadWriteLock topologyLock = new ReentrantReadWriteLock();
+    private final Object ingestLock = new Object();
+
+    private final Map<InetSocketAddress, WorkerClient> workers = new LinkedHashMap<>();
+    private final InetSocketAddress[] assignments;
+    private final long[] sequences;
+
+    /**
+     * @param executionBackend its I/O executor carries the concurrent calls to the workers
+     */
+    public ClusterCoordinator(List<InetSocketAddress> workerAddresses, Partitioner partitioner, int retryAttempts,
+                              Duration timeout, ExecutionBackend executionBackend) {
+        if (workerAddresses.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+        this.partitioner = partitioner;
+        this.timeout = timeout;
+        this.retryAttempts = retryAttempts;
+        this.executionBackend = executionBackend;
+        this.assignments = new InetSocketAddress[partitioner.getPartitionCount()];
+        this.sequences = new long[partitioner.getPartitionCount()];
+
+        for (InetSocketAddress address : workerAddresses) {
+            connect(address);
+        }
+        List<InetSocketAddress> addresses = new ArrayList<>(workers.keySet());
+        for (int partition = 0; partition < assignments.length; partition++) {
+            assignments[partition] = addresses.get(partition % addresses.size());
+        }
+        logger.info("Cluster coordinator started with {} workers and {}", workers.size(), partitioner);
+    }
+
+    /**
+     * Ping a worker and continue each partition's sequence after the highest one it has applied,
+     * so appends of a restarted coordinator are not mistaken for replays
+     */
+    private void connect(InetSocketAddress address) {
+        WorkerClient client = new WorkerClient(address, timeout, retryAttempts);
+        Map<Integer, Long> applied = client.call(ClusterProtocol.PING, out -> { }, in -> {
+            Map<Integer, Long> result = new HashMap<>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                result.put(in.readInt(), in.readLong());
+            }
+            return result;
+        });
+        applied.forEach((partition, sequence) -> {
+            if (partition < sequences.length) {
+                sequences[partition] = Math.max(sequences[partition], sequence);
+            }
+        });
+        workers.put(address, client);
+    }
+
+    /**
+     * Route records to their partitions and append them on the owning workers.
+     * A retried append is applied once; if a worker stays unreachable the batch may be applied to
+     * only some partitions and the UncheckedIOException is rethrown.
+     */
+    public void ingest(List<BigDataProcessingSystem.DataRecord> records) {
+        Map<Integer, List<BigDataProcessingSystem.DataRecord>> byPartition = new TreeMap<>();
+        for (BigDataProcessingSystem.DataRecord record : records) {
+            byPartition.computeIfAbsent(partitioner.partitionOf(record), key -> new ArrayList<>()).add(record);
+        }
+
+        topologyLock.readLock().lock();
+        try {
+            synchronized (ingestLock) {
+                Map<InetSocketAddress, List<Runnable>> appends = new LinkedHashMap<>();
+                byPartition.forEach((partition, batch) -> {
+                    long sequence = ++sequences[partition];
+                    WorkerClient client = workers.get(assignments[partition]);
+                    appends.computeIfAbsent(client.getAddress(), key -> new ArrayList<>())
+                            .add(() -> append(client, partition, sequence, batch));
+                });
+                fanOut(appends.keySet(), address -> {
+                    appends.get(address).forEach(Runnable::run);
+                    return null;
+                });
+            }
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    private static long append(WorkerClient client, int partition, long sequence, List<BigDataProcessingSystem.DataRecord> records) {
+        return client.call(ClusterProtocol.APPEND, out -> {
+            out.writeInt(partition);
+            out.writeLong(sequence);
+            ClusterProtocol.writeRecords(records, out);
+        }, DataInputStream::readLong);
+    }
+
+    /**
+     * Analyze the whole distributed dataset
+     */
+    public CompletableFuture<BigDataProcessingSystem.AnalysisResult> process() {
+        return CompletableFuture.supplyAsync(this::analyze, executionBackend.ioExecutor());
+    }
+
+    private BigDataProcessingSystem.AnalysisResult analyze() {
+        long startTime = System.currentTimeMillis();
+        long recentCutoff = RecordStore.toEpochNanos(LocalDateTime.now().minusDays(1));
+        topologyLock.readLock().lock();
+        try {
+            Map<InetSocketAddress, int[]> owned = partitionsByWorker();
+            Map<InetSocketAddress, long[]> sizes = new HashMap<>();
+            RecordAccumulator accumulator = new RecordAccumulator();
+            fanOut(owned.keySet(), address -> workers.get(address).call(ClusterProtocol.ACCUMULATE, out -> {
+                out.writeLong(recentCutoff);
+                ClusterProtocol.writePartitions(owned.get(address), out);
+            }, in -> {
+                long[] partitionSizes = new long[owned.get(address).length];
+                for (int i = 0; i < partitionSizes.length; i++) {
+                    partitionSizes[i] = in.readLong();
+                }
+                RecordAccumulator partial = ClusterProtocol.readAccumulator(in);
+                synchronized (accumulator) {
+                    sizes.put(address, partitionSizes);
+                    accumulator.merge(partial);
+                }
+                return null;
+            }));
+
+            double threshold = accumulator.getAverage() * 1.5;
+            long highValueCount = 0;
+            for (long count : fanOut(owned.keySet(), address -> workers.get(address).call(ClusterProtocol.COUNT_ABOVE, out -> {
+                out.writeDouble(threshold);
+                ClusterProtocol.writePartitions(owned.get(address), out);
+                for (long size : sizes.get(address)) {
+                    out.writeLong(size);
+                }
+            }, DataInputStream::readLong)).values()) {
+                highValueCount += count;
+            }
+
+            long processingTime = System.currentTimeMillis() - startTime;
+            logger.info("Distributed processing of {} records on {} workers completed in {}ms",
+                    accumulator.getCount(), owned.size(), processingTime);
+            return accumulator.toAnalysisResult(highValueCount, processingTime);
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add a worker and move partitions to it until the assignment is even again
+     */
+    public void addWorker(InetSocketAddress address) {
+        topologyLock.writeLock().lock();
+        try {
+            if (workers.containsKey(address)) {
+                return;
+            }
+            connect(address);
+            rebalance(null);
+        } finally {
+            topologyLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Move every partition off a worker, then disconnect from it
+     */
+    public void removeWorker(InetSocketAddress address) {
+        topologyLock.writeLock().lock();
+        try {
+            if (!workers.containsKey(address)) {
+                return;
+            }
+            if (workers.size() == 1) {
+                throw new IllegalStateException("Cannot remove the last worker " + address);
+            }
+            rebalance(address);
+            workers.remove(address).close();
+        } finally {
+            topologyLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Even out partition counts across workers; a leaving worker is drained completely
+     */
+    private void rebalance(InetSocketAddress leaving) {
+        List<InetSocketAddress> targets = new ArrayList<>(workers.keySet());
+        targets.remove(leaving);
+        Map<InetSocketAddress, Integer> load = new HashMap<>();
+        targets.forEach(address -> load.put(address, 0));
+        List<Integer> movable = new ArrayList<>();
+        int share = assignments.length / targets.size();
+        int largerShares = assignments.length % targets.size();
+        for (int partition = 0; partition < assignments.length; partition++) {
+            Integer current = load.get(assignments[partition]);
+            // Keep a partition where it is while its owner is below its share
+            boolean keep = current != null && (current < share || (current == share && largerShares > 0));
+            if (!keep) {
+                movable.add(partition);
+                continue;
+            }
+            if (current == share) {
+                largerShares--;
+            }
+            load.put(assignments[partition], current + 1);
+        }
+        for (int partition : movable) {
+            InetSocketAddress target = targets.stream().min(Comparator.comparing(load::get)).orElseThrow();
+            load.merge(target, 1, Integer::sum);
+            movePartition(partition, assignments[partition], target);
+        }
+        logger.info("Rebalanced {} partitions across {} workers", movable.size(), targets.size());
+    }
+
+    /**
+     * Copy a partition to the target, then switch the assignment and drop the source copy.
+     * The target is cleared before the copy and again if it fails, so a failed move leaves the
+     * partition only on its source.
+     */
+    private void movePartition(int partition, InetSocketAddress source, InetSocketAddress target) {
+        WorkerClient from = workers.get(source);
+        WorkerClient to = workers.get(target);
+        to.call(ClusterProtocol.DROP, out -> out.writeInt(partition), in -> null);
+        long moved = 0;
+        try {
+            while (true) {
+                long offset = moved;
+                List<BigDataProcessingSystem.DataRecord> chunk = from.call(ClusterProtocol.EXPORT, out -> {
+                    out.writeInt(partition);
+                    out.writeLong(offset);
+                    out.writeInt(TRANSFER_CHUNK_SIZE);
+                }, ClusterProtocol::readRecords);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                append(to, partition, ++sequences[partition], chunk);
+                moved += chunk.size();
+            }
+        } catch (RuntimeException e) {
+            try {
+                to.call(ClusterProtocol.DROP, out -> out.writeInt(partition), in -> null);
+            } catch (RuntimeException dropFailure) {
+                e.addSuppressed(dropFailure);
+            }
+            throw e;
+        }
+        assignments[partition] = target;
+        from.call(ClusterProtocol.DROP, out -> out.writeInt(partition), in -> null);
+        logger.debug("Moved partition {} ({} records) from {} to {}", partition, moved, source, target);
+    }
+
+    private Map<InetSocketAddress, int[]> partitionsByWorker() {
+        Map<InetSocketAddress, List<Integer>> owned = new LinkedHashMap<>();
+        for (int partition = 0; partition < assignments.length; partition++) {
+            owned.computeIfAbsent(assignments[partition], key -> new ArrayList<>()).add(partition);
+        }
+        Map<InetSocketAddress, int[]> result = new LinkedHashMap<>();
+        owned.forEach((address, partitions) -> result.put(address, partitions.stream().mapToInt(Integer::intValue).toArray()));
+        return result;
+    }
+
+    /**
+     * Run one call per worker concurrently and wait for all of them
+     */
+    private <T> Map<InetSocketAddress, T> fanOut(Collection<InetSocketAddress> addresses, Function<InetSocketAddress, T> call) {
+        Map<InetSocketAddress, CompletableFuture<T>> calls = new LinkedHashMap<>();
+        for (InetSocketAddress address : addresses) {
+            calls.put(address, CompletableFuture.supplyAsync(() -> call.apply(address), executionBackend.ioExecutor()));
+        }
+        Map<InetSocketAddress, T> results = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<InetSocketAddress, CompletableFuture<T>> entry : calls.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Current owner of every partition
+     */
+    public Map<Integer, InetSocketAddress> getAssignments() {
+        topologyLock.readLock().lock();
+        try {
+            Map<Integer, InetSocketAddress> result = new TreeMap<>();
+            for (int partition = 0; partition < assignments.length; partition++) {
+                result.put(partition, assignments[partition]);
+            }
+            return result;
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    public List<InetSocketAddress> getWorkers() {
+        topologyLock.readLock().lock();
+        try {
+            return new ArrayList<>(workers.keySet());
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    public Partitioner getPartitioner() {
+        return partitioner;
+    }
+
+    @Override
+    public void close() {
+        topologyLock.writeLock().lock();
+        try {
+            workers.values().forEach(WorkerClient::close);
+            workers.clear();
+        } finally {
+            topologyLock.writeLock().unlock();
+        }
+    }
+}
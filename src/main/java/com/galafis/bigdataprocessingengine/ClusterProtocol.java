@@ -0,0 +1,89 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Wire format between the ClusterCoordinator and WorkerNodes.
+ * Every request is an operation byte followed by its arguments; every response starts with a
+ * status byte, followed by the result or, on failure, a UTF error message. Records travel as
+ * binary frames of {@link RecordCodec}.
+ */
+final class ClusterProtocol {
+
+    /** nothing -&gt; (partition, last applied sequence) pairs */
+    static final byte PING = 1;
+    /** partition, sequence, records frame -&gt; partition size */
+    static final byte APPEND = 2;
+    /** recent cutoff, partitions -&gt; partition sizes, partial accumulator */
+    static final byte ACCUMULATE = 3;
+    /** threshold, (partition, size) pairs -&gt; count */
+    static final byte COUNT_ABOVE = 4;
+    /** partition, from, max count -&gt; records frame, empty past the end */
+    static final byte EXPORT = 5;
+    /** partition -&gt; nothing */
+    static final byte DROP = 6;
+
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_ERROR = 1;
+
+    private ClusterProtocol() {
+    }
+
+    static void writeRecords(List<BigDataProcessingSystem.DataRecord> records, DataOutputStream out) throws IOException {
+        out.write(RecordCodec.encodeBinary(records));
+    }
+
+    static List<BigDataProcessingSystem.DataRecord> readRecords(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        return RecordCodec.decodeBinary(payload, count);
+    }
+
+    static void writeAccumulator(RecordAccumulator accumulator, DataOutputStream out) throws IOException {
+        out.writeLong(accumulator.getCount());
+        out.writeDouble(accumulator.getSum());
+        out.writeDouble(accumulator.getMin());
+        out.writeDouble(accumulator.getMax());
+        out.writeLong(accumulator.getRecentCount());
+        Map<String, Long> categories = accumulator.getCategoryCounts();
+        out.writeInt(categories.size());
+        for (Map.Entry<String, Long> category : categories.entrySet()) {
+            out.writeUTF(category.getKey());
+            out.writeLong(category.getValue());
+        }
+    }
+
+    static RecordAccumulator readAccumulator(DataInputStream in) throws IOException {
+        long count = in.readLong();
+        double sum = in.readDouble();
+        double min = in.readDouble();
+        double max = in.readDouble();
+        RecordAccumulator accumulator = new RecordAccumulator();
+        accumulator.acceptStatistics(new DoubleSummaryStatistics(count, min, max, sum));
+        accumulator.addRecent(in.readLong());
+        int categories = in.readInt();
+        for (int i = 0; i < categories; i++) {
+            accumulator.addCategory(in.readUTF(), in.readLong());
+        }
+        return accumulator;
+    }
+
+    static void writePartitions(int[] partitions, DataOutputStream out) throws IOException {
+        out.writeInt(partitions.length);
+        for (int partition : partitions) {
+            out.writeInt(partition);
+        }
+    }
+
+    static int[] readPartitions(DataInputStream in) throws IOException {
+        int[] partitions = new int[in.readInt()];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = in.readInt();
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,207 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Primitive-backed, on-heap RecordStore.
+ * Each field lives in its own array: double values, epoch-nanosecond timestamps,
+ * dictionary-encoded category and source codes, a byte priority column and the id column.
+ * Metadata entries that do not fit the typed columns are kept in a sparse side map.
+ * Appends are serialized; readers see every record below the published size without locking.
+ * The column arrays are published together through one volatile reference, replaced when they
+ * grow and always written before the size that makes new records visible.
+ */
+public class ColumnarRecordStore implements RecordStore {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    private static final int NO_SOURCE = -1;
+
+    private final StringDictionary categoryDictionary = new StringDictionary();
+    private final StringDictionary sourceDictionary = new StringDictionary();
+    private final Map<Integer, Map<String, Object>> extraMetadata = new ConcurrentHashMap<>();
+
+    private volatile Columns columns;
+    private volatile int size;
+
+    public ColumnarRecordStore() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public ColumnarRecordStore(int initialCapacity) {
+        this.columns = new Columns(Math.max(1, initialCapacity));
+    }
+
+    /**
+     * One generation of the column arrays; a larger generation copies the previous one
+     */
+    private static final class Columns {
+        private final String[] ids;
+        private final double[] values;
+        private final long[] timestamps;
+        private final int[] categories;
+        private final byte[] priorities;
+        private final int[] sources;
+
+        Columns(int capacity) {
+            this.ids = new String[capacity];
+            this.values = new double[capacity];
+            this.timestamps = new long[capacity];
+            this.categories = new int[capacity];
+            this.priorities = new byte[capacity];
+            this.sources = new int[capacity];
+        }
+
+        Columns(Columns previous, int capacity) {
+            this.ids = Arrays.copyOf(previous.ids, capacity);
+            this.values = Arrays.copyOf(previous.values, capacity);
+            this.timestamps = Arrays.copyOf(previous.timestamps, capacity);
+            this.categories = Arrays.copyOf(previous.categories, capacity);
+            this.priorities = Arrays.copyOf(previous.priorities, capacity);
+            this.sources = Arrays.copyOf(previous.sources, capacity);
+        }
+
+        int capacity() {
+            return values.length;
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public String id(long index) {
+        int i = checkIndex(index);
+        return columns.ids[i];
+    }
+
+    @Override
+    public double value(long index) {
+        int i = checkIndex(index);
+        return columns.values[i];
+    }
+
+    @Override
+    public long timestampNanos(long index) {
+        int i = checkIndex(index);
+        return columns.timestamps[i];
+    }
+
+    @Override
+    public int categoryCode(long index) {
+        int i = checkIndex(index);
+        return columns.categories[i];
+    }
+
+    @Override
+    public int categoryCardinality() {
+        return categoryDictionary.size();
+    }
+
+    @Override
+    public String categoryName(int code) {
+        return categoryDictionary.decode(code);
+    }
+
+    @Override
+    public byte priority(long index) {
+        int i = checkIndex(index);
+        return columns.priorities[i];
+    }
+
+    @Override
+    public BigDataProcessingSystem.DataRecord record(long index) {
+        int i = checkIndex(index);
+        Columns c = columns;
+        RecordMetadata metadata = RecordMetadata.of(
+                c.categories[i] != NO_CATEGORY ? categoryDictionary.decode(c.categories[i]) : null,
+                c.priorities[i] != NO_PRIORITY ? c.priorities[i] : RecordMetadata.NO_PRIORITY,
+                c.sources[i] != NO_SOURCE ? sourceDictionary.decode(c.sources[i]) : null,
+                extraMetadata.get(i));
+        return new BigDataProcessingSystem.DataRecord(c.ids[i], RecordStore.fromEpochNanos(c.timestamps[i]), c.values[i], metadata);
+    }
+
+    @Override
+    public synchronized long append(BigDataProcessingSystem.DataRecord record) {
+        int position = size;
+        Columns c = ensureCapacity(position + 1);
+        write(c, position, record);
+        size = position + 1;
+        return position;
+    }
+
+    @Override
+    public synchronized long appendAll(Collection<BigDataProcessingSystem.DataRecord> records) {
+        int first = size;
+        int position = first;
+        Columns c = ensureCapacity(position + records.size());
+        for (BigDataProcessingSystem.DataRecord record : records) {
+            write(c, position++, record);
+        }
+        size = position;
+        return first;
+    }
+
+    private void write(Columns c, int i, BigDataProcessingSystem.DataRecord record) {
+        c.ids[i] = record.getId();
+        c.values[i] = record.getValue();
+        c.timestamps[i] = RecordStore.toEpochNanos(record.getTimestamp());
+        c.categories[i] = NO_CATEGORY;
+        c.priorities[i] = NO_PRIORITY;
+        c.sources[i] = NO_SOURCE;
+
+        RecordMetadata metadata = record.getRecordMetadata();
+        String category = metadata.getCategory();
+        if (category != null) {
+            c.categories[i] = categoryDictionary.encode(category);
+        }
+        String source = metadata.getSource();
+        if (source != null) {
+            c.sources[i] = sourceDictionary.encode(source);
+        }
+        boolean bytePriority = metadata.hasPriority()
+                && metadata.getPriority() > NO_PRIORITY && metadata.getPriority() <= Byte.MAX_VALUE;
+        if (bytePriority) {
+            c.priorities[i] = (byte) metadata.getPriority();
+        }
+
+        if (metadata.hasExtras() || (metadata.hasPriority() && !bytePriority)) {
+            Map<String, Object> extras = new HashMap<>();
+            metadata.forEachExtra(extras::put);
+            if (metadata.hasPriority() && !bytePriority) {
+                extras.put(RecordMetadata.PRIORITY, metadata.getPriority());
+            }
+            extraMetadata.put(i, extras);
+        }
+    }
+
+    /**
+     * Columns able to hold the required number of records; a grown generation is published
+     * before any record is written to it, so readers never see it without the records below size
+     */
+    private Columns ensureCapacity(int required) {
+        if (required < 0) {
+            throw new IllegalStateException("ColumnarRecordStore capacity exceeded");
+        }
+        Columns current = columns;
+        if (required <= current.capacity()) {
+            return current;
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, (long) current.capacity() * 2));
+        Columns grown = new Columns(current, capacity);
+        columns = grown;
+        return grown;
+    }
+
+    /**
+     * Validate against the published size; callers must read the columns only after this read
+     */
+    private int checkIndex(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (int) index;
+    }
+}
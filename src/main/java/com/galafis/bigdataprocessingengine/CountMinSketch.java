@@ -0,0 +1,121 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.util.*;
+
+/**
+ * Count-Min frequency sketch with heavy-hitter tracking.
+ * A depth x width table of counters never underestimates a key's frequency and overestimates it by
+ * at most epsilon * total with probability 1 - delta (width = ceil(e / epsilon), depth = ceil(ln(1 / delta))).
+ * The most frequent keys seen so far are kept as a bounded candidate set so the dominant ones can
+ * be reported without storing every key. Sketches of equal shape merge by adding counters.
+ */
+public final class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long[] counters;
+    private final int heavyHitterCapacity;
+    private final Map<String, Long> candidates = new HashMap<>();
+    private long minCandidateEstimate;
+    private long total;
+
+    public CountMinSketch(double epsilon, double delta, int heavyHitterCapacity) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("epsilon and delta must be in (0, 1): " + epsilon + ", " + delta);
+        }
+        if (heavyHitterCapacity < 1) {
+            throw new IllegalArgumentException("heavyHitterCapacity must be positive: " + heavyHitterCapacity);
+        }
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.counters = new long[width * depth];
+        this.heavyHitterCapacity = heavyHitterCapacity;
+    }
+
+    public void add(String key, long count) {
+        long hash = Hashing.mix64(key.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + column(hash, row);
+            counters[index] += count;
+            estimate = Math.min(estimate, counters[index]);
+        }
+        total += count;
+        track(key, estimate);
+    }
+
+    public long estimate(String key) {
+        long hash = Hashing.mix64(key.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + column(hash, row)]);
+        }
+        return estimate;
+    }
+
+    private int column(long hash, int row) {
+        // Kirsch-Mitzenmacher: row hashes derived from the two halves of one 64-bit hash
+        int combined = (int) hash + row * (int) (hash >>> 32);
+        return (combined & Integer.MAX_VALUE) % width;
+    }
+
+    private void track(String key, long estimate) {
+        Long previous = candidates.get(key);
+        if (previous == null && candidates.size() >= heavyHitterCapacity) {
+            if (estimate <= minCandidateEstimate) {
+                return;
+            }
+            String weakest = null;
+            for (Map.Entry<String, Long> candidate : candidates.entrySet()) {
+                if (candidate.getValue() == minCandidateEstimate) {
+                    weakest = candidate.getKey();
+                    break;
+                }
+            }
+            candidates.remove(weakest);
+        }
+        candidates.put(key, estimate);
+        if (candidates.size() == heavyHitterCapacity && (previous == null || previous == minCandidateEstimate)) {
+            minCandidateEstimate = Collections.min(candidates.values());
+        }
+    }
+
+    /**
+     * Combine another sketch into this one and return this instance
+     */
+    public CountMinSketch merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge a " + other.depth + "x" + other.width
+                    + " sketch into " + depth + "x" + width);
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        total += other.total;
+        Set<String> keys = new HashSet<>(candidates.keySet());
+        keys.addAll(other.candidates.keySet());
+        candidates.clear();
+        for (String key : keys) {
+            track(key, estimate(key));
+        }
+        return this;
+    }
+
+    /**
+     * Tracked keys with their estimated frequencies, most frequent first
+     */
+    public List<Map.Entry<String, Long>> getHeavyHitters() {
+        List<Map.Entry<String, Long>> heavyHitters = new ArrayList<>();
+        for (Map.Entry<String, Long> candidate : candidates.entrySet()) {
+            heavyHitters.add(new AbstractMap.SimpleImmutableEntry<>(candidate.getKey(), estimate(candidate.getKey())));
+        }
+        heavyHitters.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return heavyHitters;
+    }
+
+    // Getters
+    public long getTotal() { return total; }
+    public int getWidth() { return width; }
+    public int getDepth() { return depth; }
+    public long sizeInBytes() { return counters.length * 8L; }
+}
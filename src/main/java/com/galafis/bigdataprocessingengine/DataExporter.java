@@ -0,0 +1,128 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming exporter for a RecordStore.
+ * The records present when the export starts are cut into chunks that are encoded (and, if requested,
+ * gzip-compressed) in parallel on the compute executor, then written to the output in order. Only a
+ * bounded window of encoded chunks is held at a time, so memory use does not grow with the dataset.
+ * Compressed exports are a sequence of gzip members, which standard gzip readers treat as one stream.
+ */
+public class DataExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataExporter.class);
+    static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private final ExecutionBackend executionBackend;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    public DataExporter(ExecutionBackend executionBackend) {
+        this(executionBackend, DEFAULT_CHUNK_SIZE);
+    }
+
+    public DataExporter(ExecutionBackend executionBackend, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.executionBackend = executionBackend;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = Math.max(2, executionBackend.parallelism() * 2);
+    }
+
+    /**
+     * Write every record to the channel; the channel is left open
+     *
+     * @return number of records written
+     */
+    public long export(RecordStore store, ExportFormat format, boolean compress, WritableByteChannel channel) throws IOException {
+        return export(store, format, compress, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Write every record to the stream; the stream is flushed but left open
+     *
+     * @return number of records written
+     */
+    public long export(RecordStore store, ExportFormat format, boolean compress, OutputStream out) throws IOException {
+        long startTime = System.currentTimeMillis();
+        long size = store.size();
+
+        if (format == ExportFormat.BINARY) {
+            out.write(frame(RecordCodec.binaryHeader(), compress));
+        } else if (format == ExportFormat.CSV) {
+            out.write(frame((RecordCodec.CSV_HEADER + "\n").getBytes(StandardCharsets.UTF_8), compress));
+        }
+
+        Deque<CompletableFuture<byte[]>> window = new ArrayDeque<>();
+        try {
+            for (long from = 0; from < size; from += chunkSize) {
+                long start = from;
+                long end = Math.min(size, from + chunkSize);
+                window.add(CompletableFuture.supplyAsync(() -> encodeChunk(store, start, end, format, compress),
+                        executionBackend.computeExecutor()));
+                if (window.size() >= maxChunksInFlight) {
+                    out.write(await(window.poll()));
+                }
+            }
+            while (!window.isEmpty()) {
+                out.write(await(window.poll()));
+            }
+        } finally {
+            window.forEach(pending -> pending.cancel(false));
+        }
+
+        if (format == ExportFormat.BINARY) {
+            out.write(frame(RecordCodec.binaryTrailer(), compress));
+        }
+        out.flush();
+        logger.info("Exported {} records as {}{} in {}ms", size, format, compress ? " (gzip)" : "",
+                System.currentTimeMillis() - startTime);
+        return size;
+    }
+
+    private static byte[] encodeChunk(RecordStore store, long from, long to, ExportFormat format, boolean compress) {
+        try {
+            return frame(RecordCodec.encode(store, from, to, format), compress);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] frame(byte[] bytes, boolean compress) throws IOException {
+        if (!compress) {
+            return bytes;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192)) {
+            gzip.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> chunk) throws IOException {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+}
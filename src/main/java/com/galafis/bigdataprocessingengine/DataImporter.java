@@ -0,0 +1,211 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Bulk loader for files written by {@link DataExporter}.
+ * Input is read sequentially in chunks (binary frames or batches of lines) that are decoded in parallel
+ * on the compute executor and handed to the sink in their original order. Gzip compression is detected
+ * automatically. Like the exporter, only a bounded window of chunks is held in memory.
+ */
+public class DataImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataImporter.class);
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+
+    private final ExecutionBackend executionBackend;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    public DataImporter(ExecutionBackend executionBackend) {
+        this(executionBackend, DataExporter.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize lines per decoded text chunk; binary input keeps the exporter's frame size
+     */
+    public DataImporter(ExecutionBackend executionBackend, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.executionBackend = executionBackend;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = Math.max(2, executionBackend.parallelism() * 2);
+    }
+
+    /**
+     * Decode the stream and pass the records to the sink chunk by chunk; the stream is not closed
+     *
+     * @return number of records imported
+     */
+    public long importFrom(InputStream in, ExportFormat format, Consumer<List<BigDataProcessingSystem.DataRecord>> sink) throws IOException {
+        long startTime = System.currentTimeMillis();
+        InputStream input = decompressIfNeeded(in);
+        Deque<CompletableFuture<List<BigDataProcessingSystem.DataRecord>>> window = new ArrayDeque<>();
+        long[] imported = new long[1];
+        Consumer<CompletableFuture<List<BigDataProcessingSystem.DataRecord>>> submit = chunk -> {
+            window.add(chunk);
+            if (window.size() >= maxChunksInFlight) {
+                imported[0] += deliver(window.poll(), sink);
+            }
+        };
+
+        try {
+            if (format == ExportFormat.BINARY) {
+                readBinary(new DataInputStream(input), submit);
+            } else {
+                readLines(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), READ_BUFFER_BYTES), format, submit);
+            }
+            while (!window.isEmpty()) {
+                imported[0] += deliver(window.poll(), sink);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            window.forEach(pending -> pending.cancel(false));
+        }
+
+        logger.info("Imported {} {} records in {}ms", imported[0], format, System.currentTimeMillis() - startTime);
+        return imported[0];
+    }
+
+    private static InputStream decompressIfNeeded(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, READ_BUFFER_BYTES);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        boolean gzip = first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >>> 8);
+        return gzip ? new GZIPInputStream(buffered, READ_BUFFER_BYTES) : buffered;
+    }
+
+    private void readBinary(DataInputStream in, Consumer<CompletableFuture<List<BigDataProcessingSystem.DataRecord>>> submit) throws IOException {
+        if (in.readInt() != RecordCodec.BINARY_MAGIC) {
+            throw new IOException("Not a binary export: bad magic number");
+        }
+        short version = in.readShort();
+        if (version != RecordCodec.BINARY_VERSION) {
+            throw new IOException("Unsupported binary export version: " + version);
+        }
+        while (true) {
+            int recordCount;
+            int length;
+            byte[] payload;
+            try {
+                recordCount = in.readInt();
+                length = in.readInt();
+                if (recordCount == 0 && length == 0) {
+                    return;
+                }
+                if (recordCount < 0 || length < 0) {
+                    throw new IOException("Corrupt binary frame header: " + recordCount + " records, " + length + " bytes");
+                }
+                payload = new byte[length];
+                in.readFully(payload);
+            } catch (EOFException e) {
+                throw new IOException("Binary export is truncated (missing end frame)", e);
+            }
+            submit.accept(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return RecordCodec.decodeBinary(payload, recordCount);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executionBackend.computeExecutor()));
+        }
+    }
+
+    private void readLines(BufferedReader reader, ExportFormat format,
+                           Consumer<CompletableFuture<List<BigDataProcessingSystem.DataRecord>>> submit) throws IOException {
+        if (format == ExportFormat.CSV) {
+            String header = reader.readLine();
+            if (header != null && !RecordCodec.CSV_HEADER.equals(header)) {
+                throw new IOException("Unexpected CSV header: " + header);
+            }
+        }
+        List<String> lines = new ArrayList<>(chunkSize);
+        String line;
+        while ((line = format == ExportFormat.CSV ? readCsvRow(reader) : reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            lines.add(line);
+            if (lines.size() == chunkSize) {
+                submit.accept(decodeAsync(lines, format));
+                lines = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!lines.isEmpty()) {
+            submit.accept(decodeAsync(lines, format));
+        }
+    }
+
+    /**
+     * Read one CSV row, joining physical lines while a quoted field is still open
+     */
+    private static String readCsvRow(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        StringBuilder row = null;
+        while (countQuotes(row != null ? row : line) % 2 != 0) {
+            String next = reader.readLine();
+            if (next == null) {
+                throw new IOException("Unterminated quoted CSV field at end of input");
+            }
+            if (row == null) {
+                row = new StringBuilder(line);
+            }
+            row.append('\n').append(next);
+        }
+        return row != null ? row.toString() : line;
+    }
+
+    private static int countQuotes(CharSequence text) {
+        int quotes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    private CompletableFuture<List<BigDataProcessingSystem.DataRecord>> decodeAsync(List<String> lines, ExportFormat format) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return RecordCodec.decodeLines(lines, format);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executionBackend.computeExecutor());
+    }
+
+    private static int deliver(CompletableFuture<List<BigDataProcessingSystem.DataRecord>> chunk,
+                               Consumer<List<BigDataProcessingSystem.DataRecord>> sink) {
+        List<BigDataProcessingSystem.DataRecord> records;
+        try {
+            records = chunk.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw (UncheckedIOException) e.getCause();
+            }
+            throw e;
+        }
+        sink.accept(records);
+        return records.size();
+    }
+}
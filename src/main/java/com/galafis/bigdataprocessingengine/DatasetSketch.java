@@ -0,0 +1,135 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.util.*;
+
+/**
+ * Fixed-memory summary of a dataset built by the ApproximateDataProcessor.
+ * Count, sum, min, max and the recent-record count are exact; value quantiles (KLL), distinct ids
+ * (HyperLogLog) and category frequencies (Count-Min with heavy hitters) are sketched, and an
+ * optional uniform record sample is kept. Partial sketches from different chunks or threads
+ * combine with {@link #merge(DatasetSketch)}.
+ */
+public final class DatasetSketch {
+
+    private final DoubleSummaryStatistics values = new DoubleSummaryStatistics();
+    private final QuantileSketch quantiles;
+    private final HyperLogLog distinctIds;
+    private final CountMinSketch categories;
+    private final ReservoirSample<BigDataProcessingSystem.DataRecord> sample;
+    private long recentCount;
+
+    DatasetSketch(QuantileSketch quantiles, HyperLogLog distinctIds, CountMinSketch categories,
+                  ReservoirSample<BigDataProcessingSystem.DataRecord> sample) {
+        this.quantiles = quantiles;
+        this.distinctIds = distinctIds;
+        this.categories = categories;
+        this.sample = sample;
+    }
+
+    public void accept(BigDataProcessingSystem.DataRecord record, long recentCutoffNanos) {
+        values.accept(record.getValue());
+        quantiles.add(record.getValue());
+        distinctIds.add(record.getId());
+        String category = record.getCategory();
+        categories.add(category != null ? category : RecordAccumulator.UNKNOWN_CATEGORY, 1);
+        if (RecordStore.toEpochNanos(record.getTimestamp()) > recentCutoffNanos) {
+            recentCount++;
+        }
+        if (sample != null) {
+            sample.offer(record);
+        }
+    }
+
+    /**
+     * Same as {@link #accept(BigDataProcessingSystem.DataRecord, long)} reading the store columns;
+     * the record is only materialized if it enters the sample
+     */
+    public void accept(RecordStore store, long position, long recentCutoffNanos) {
+        double value = store.value(position);
+        values.accept(value);
+        quantiles.add(value);
+        distinctIds.add(store.id(position));
+        int code = store.categoryCode(position);
+        categories.add(code != RecordStore.NO_CATEGORY ? store.categoryName(code) : RecordAccumulator.UNKNOWN_CATEGORY, 1);
+        if (store.timestampNanos(position) > recentCutoffNanos) {
+            recentCount++;
+        }
+        if (sample != null) {
+            sample.offer(position, store::record);
+        }
+    }
+
+    /**
+     * Combine another sketch built from the same spec into this one and return this instance
+     */
+    public DatasetSketch merge(DatasetSketch other) {
+        values.combine(other.values);
+        quantiles.merge(other.quantiles);
+        distinctIds.merge(other.distinctIds);
+        categories.merge(other.categories);
+        if (sample != null && other.sample != null) {
+            sample.merge(other.sample);
+        }
+        recentCount += other.recentCount;
+        return this;
+    }
+
+    /**
+     * AnalysisResult shaped like DefaultDataProcessor's, with medianValue, p90Value, p99Value and
+     * distinctIds added to the summary. Shares and the high-value count are estimates.
+     */
+    public BigDataProcessingSystem.AnalysisResult toAnalysisResult(long processingTimeMs) {
+        RecordAccumulator accumulator = new RecordAccumulator();
+        accumulator.acceptStatistics(values);
+        for (Map.Entry<String, Long> heavyHitter : categories.getHeavyHitters()) {
+            accumulator.addCategory(heavyHitter.getKey(), heavyHitter.getValue());
+        }
+        accumulator.addRecent(recentCount);
+        long highValueCount = getCount() - quantiles.rank(accumulator.getAverage() * 1.5);
+
+        Map<String, Double> summary = accumulator.toSummary();
+        summary.put("medianValue", roundedQuantile(0.5));
+        summary.put("p90Value", roundedQuantile(0.9));
+        summary.put("p99Value", roundedQuantile(0.99));
+        summary.put("distinctIds", (double) getDistinctIds());
+        return new BigDataProcessingSystem.AnalysisResult(summary, accumulator.toInsights(highValueCount),
+                accumulator.toRecommendations(), processingTimeMs);
+    }
+
+    private double roundedQuantile(double quantile) {
+        return getCount() > 0 ? Math.round(quantiles.quantile(quantile) * 100.0) / 100.0 : 0.0;
+    }
+
+    /**
+     * Estimated value at the given quantile in [0, 1], or NaN if nothing was added
+     */
+    public double quantile(double quantile) {
+        return quantiles.quantile(quantile);
+    }
+
+    /**
+     * Most frequent categories with their estimated counts, most frequent first
+     */
+    public List<Map.Entry<String, Long>> getTopCategories() {
+        return categories.getHeavyHitters();
+    }
+
+    /**
+     * Uniform sample of the records, empty when sampling is disabled
+     */
+    public List<BigDataProcessingSystem.DataRecord> getSample() {
+        return sample != null ? sample.getItems() : Collections.emptyList();
+    }
+
+    // Getters
+    public long getCount() { return values.getCount(); }
+    public double getSum() { return values.getSum(); }
+    public double getAverage() { return values.getAverage(); }
+    public double getMin() { return getCount() > 0 ? values.getMin() : 0.0; }
+    public double getMax() { return getCount() > 0 ? values.getMax() : 0.0; }
+    public long getRecentCount() { return recentCount; }
+    public long getDistinctIds() { return distinctIds.estimate(); }
+    public QuantileSketch getQuantiles() { return quantiles; }
+    public HyperLogLog getDistinctIdSketch() { return distinctIds; }
+    public CountMinSketch getCategorySketch() { return categories; }
+}
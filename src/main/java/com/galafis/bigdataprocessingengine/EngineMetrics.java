@@ -0,0 +1,200 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * In-process metrics for ingestion and analysis.
+ * Hot-path recording only touches LongAdders and fixed histograms, so it never allocates;
+ * derived values (rates, ratios, percentiles) and registered gauges are computed when a
+ * {@link Snapshot} is taken.
+ */
+public class EngineMetrics {
+
+    /**
+     * Analysis phases timed by the processors
+     */
+    public enum Phase {
+        SUMMARY, INSIGHTS, RECOMMENDATIONS
+    }
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = allocationMxBean();
+
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder ingestedRecords = new LongAdder();
+    private final LongAdder ingestedBatches = new LongAdder();
+    private final LongAdder analyses = new LongAdder();
+    private final LongAdder analyzedRecords = new LongAdder();
+    private final LongAdder analysisNanos = new LongAdder();
+    private final LongAdder indexMatches = new LongAdder();
+
+    private final LatencyHistogram ingestLatency = new LatencyHistogram();
+    private final LatencyHistogram analysisLatency = new LatencyHistogram();
+    private final LatencyHistogram analysisAllocation = new LatencyHistogram();
+    private final LatencyHistogram indexQueryLatency = new LatencyHistogram();
+    private final LatencyHistogram[] phaseLatency = new LatencyHistogram[Phase.values().length];
+
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+    public EngineMetrics() {
+        for (int i = 0; i < phaseLatency.length; i++) {
+            phaseLatency[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 when the JVM does not track it
+     */
+    public static long currentThreadAllocatedBytes() {
+        return THREAD_MX_BEAN != null ? THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMxBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+                if (allocationBean.isThreadAllocatedMemorySupported()) {
+                    allocationBean.setThreadAllocatedMemoryEnabled(true);
+                    return allocationBean;
+                }
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            // allocation tracking is optional
+        }
+        return null;
+    }
+
+    // Recording
+    public void recordIngest(int records, long nanos) {
+        ingestedRecords.add(records);
+        ingestedBatches.increment();
+        ingestLatency.record(nanos);
+    }
+
+    public void recordPhase(Phase phase, long nanos) {
+        phaseLatency[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * @param allocatedBytes bytes allocated by the analysis, or a negative value if unknown
+     */
+    public void recordAnalysis(long records, long nanos, long allocatedBytes) {
+        analyses.increment();
+        analyzedRecords.add(records);
+        analysisNanos.add(nanos);
+        analysisLatency.record(nanos);
+        if (allocatedBytes >= 0) {
+            analysisAllocation.record(allocatedBytes);
+        }
+    }
+
+    public void recordIndexQuery(long nanos, long matches) {
+        indexMatches.add(matches);
+        indexQueryLatency.record(nanos);
+    }
+
+    /**
+     * Register a value that is sampled whenever a snapshot is taken, e.g. a queue depth
+     */
+    public void registerGauge(String name, DoubleSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public void removeGauge(String name) {
+        gauges.remove(name);
+    }
+
+    // Getters
+    public long getIngestedRecords() { return ingestedRecords.sum(); }
+    public long getAnalyses() { return analyses.sum(); }
+    public long getAnalyzedRecords() { return analyzedRecords.sum(); }
+    public LatencyHistogram getIngestLatency() { return ingestLatency; }
+    public LatencyHistogram getAnalysisLatency() { return analysisLatency; }
+    public LatencyHistogram getAnalysisAllocation() { return analysisAllocation; }
+    public LatencyHistogram getIndexQueryLatency() { return indexQueryLatency; }
+    public LatencyHistogram getPhaseLatency(Phase phase) { return phaseLatency[phase.ordinal()]; }
+
+    /**
+     * Point-in-time view of every counter, histogram summary and gauge
+     */
+    public Snapshot snapshot() {
+        SortedMap<String, Double> values = new TreeMap<>();
+        double uptimeSeconds = (System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        double analysisSeconds = analysisNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1);
+
+        values.put("uptime.seconds", uptimeSeconds);
+        values.put("ingest.records.total", (double) ingestedRecords.sum());
+        values.put("ingest.batches.total", (double) ingestedBatches.sum());
+        values.put("ingest.records.per_second", uptimeSeconds > 0 ? ingestedRecords.sum() / uptimeSeconds : 0.0);
+        values.put("analysis.total", (double) analyses.sum());
+        values.put("analysis.records.total", (double) analyzedRecords.sum());
+        values.put("analysis.records.per_second", analysisSeconds > 0 ? analyzedRecords.sum() / analysisSeconds : 0.0);
+
+        putHistogram(values, "ingest.latency.nanos", ingestLatency);
+        putHistogram(values, "analysis.latency.nanos", analysisLatency);
+        putHistogram(values, "analysis.allocated.bytes", analysisAllocation);
+        values.put("index.matched.records.total", (double) indexMatches.sum());
+        putHistogram(values, "index.query.latency.nanos", indexQueryLatency);
+        for (Phase phase : Phase.values()) {
+            putHistogram(values, "phase." + phase.name().toLowerCase(Locale.ROOT) + ".latency.nanos", phaseLatency[phase.ordinal()]);
+        }
+
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsDouble()));
+        return new Snapshot(values);
+    }
+
+    private static void putHistogram(Map<String, Double> values, String name, LatencyHistogram histogram) {
+        values.put(name + ".count", (double) histogram.getCount());
+        values.put(name + ".mean", histogram.getMean());
+        values.put(name + ".p50", (double) histogram.getValueAtQuantile(0.50));
+        values.put(name + ".p90", (double) histogram.getValueAtQuantile(0.90));
+        values.put(name + ".p99", (double) histogram.getValueAtQuantile(0.99));
+        values.put(name + ".max", (double) histogram.getMax());
+    }
+
+    /**
+     * Immutable metrics snapshot keyed by dotted metric name
+     */
+    public static class Snapshot {
+        private final SortedMap<String, Double> values;
+
+        Snapshot(SortedMap<String, Double> values) {
+            this.values = Collections.unmodifiableSortedMap(values);
+        }
+
+        // Getters
+        public SortedMap<String, Double> getValues() { return values; }
+
+        public double get(String name) {
+            Double value = values.get(name);
+            if (value == null) {
+                throw new IllegalArgumentException("Unknown metric: " + name);
+            }
+            return value;
+        }
+
+        /**
+         * Plain-text exposition, one "bigdata_&lt;name&gt; &lt;value&gt;" line per metric
+         */
+        public String toPlainText() {
+            StringBuilder text = new StringBuilder();
+            values.forEach((name, value) -> text.append("bigdata_")
+                    .append(name.replace('.', '_'))
+                    .append(' ')
+                    .append(value.isNaN() ? "NaN" : String.valueOf(value))
+                    .append('\n'));
+            return text.toString();
+        }
+
+        @Override
+        public String toString() {
+            return values.toString();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+
+/**
+ * Configurable executor layer.
+ * The compute executor runs analysis work and is either a fixed pool, a work-stealing ForkJoinPool
+ * sized to the machine, or a virtual-thread-per-task executor; on JVMs without virtual threads the
+ * virtual type falls back to work stealing so compute stays bounded. The I/O executor, used for ingestion
+ * and export tasks, is always virtual-thread-per-task where the JVM supports it and a cached pool of
+ * daemon threads otherwise. {@link #mapReduce} lets processors partition a record range across
+ * whichever compute executor is selected.
+ */
+public class ExecutionBackend implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionBackend.class);
+
+    public enum Type {
+        FIXED, WORK_STEALING, VIRTUAL;
+
+        /**
+         * Parse a configuration value such as "fixed", "work-stealing" or "virtual"
+         */
+        public static Type fromConfig(String value) {
+            return Type.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    /**
+     * Work over the half-open record range [from, to)
+     */
+    @FunctionalInterface
+    public interface RangeTask<T> {
+        T apply(long from, long to);
+    }
+
+    private final Type type;
+    private final ExecutorService computeExecutor;
+    private final ExecutorService ioExecutor;
+    private final int parallelism;
+    private final boolean owned;
+    private final BatchScheduler scheduler;
+
+    private ExecutionBackend(Type type, ExecutorService computeExecutor, ExecutorService ioExecutor, int parallelism, boolean owned) {
+        this(type, computeExecutor, ioExecutor, parallelism, owned, null);
+    }
+
+    private ExecutionBackend(Type type, ExecutorService computeExecutor, ExecutorService ioExecutor, int parallelism,
+                             boolean owned, BatchScheduler scheduler) {
+        this.type = type;
+        this.computeExecutor = computeExecutor;
+        this.ioExecutor = ioExecutor;
+        this.parallelism = parallelism;
+        this.owned = owned;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Create a backend owning its executors
+     *
+     * @param fixedThreads pool size for {@link Type#FIXED}; ignored by the other types
+     */
+    public static ExecutionBackend create(Type type, int fixedThreads) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        ExecutorService io = newVirtualThreadExecutor("bigdata-io");
+        switch (type) {
+            case FIXED:
+                return new ExecutionBackend(type, Executors.newFixedThreadPool(fixedThreads, namedThreads("bigdata-worker", false)),
+                        io, fixedThreads, true);
+            case WORK_STEALING:
+                return new ExecutionBackend(type, new ForkJoinPool(processors), io, processors, true);
+            case VIRTUAL:
+                ExecutorService compute = virtualThreadExecutor();
+                if (compute == null) {
+                    logger.warn("Virtual threads unavailable on this JVM, using the work-stealing backend for compute");
+                    return new ExecutionBackend(Type.WORK_STEALING, new ForkJoinPool(processors), io, processors, true);
+                }
+                return new ExecutionBackend(type, compute, io, processors, true);
+            default:
+                throw new IllegalArgumentException("Unknown execution backend: " + type);
+        }
+    }
+
+    /**
+     * Wrap an externally managed executor; close() leaves it running
+     */
+    public static ExecutionBackend wrap(ExecutorService executor) {
+        if (executor instanceof ForkJoinPool) {
+            return new ExecutionBackend(Type.WORK_STEALING, executor, executor, ((ForkJoinPool) executor).getParallelism(), false);
+        }
+        if (executor instanceof ThreadPoolExecutor) {
+            return new ExecutionBackend(Type.FIXED, executor, executor, ((ThreadPoolExecutor) executor).getMaximumPoolSize(), false);
+        }
+        return new ExecutionBackend(Type.FIXED, executor, executor, Runtime.getRuntime().availableProcessors(), false);
+    }
+
+    /**
+     * View of this backend whose {@link #mapReduce} runs through the scheduler, sharing its fair-share
+     * slots with every other view of it; the executors are shared and close() leaves them running
+     */
+    public ExecutionBackend scheduled(BatchScheduler scheduler) {
+        return new ExecutionBackend(type, computeExecutor, ioExecutor, parallelism, false, scheduler);
+    }
+
+    private static ExecutorService newVirtualThreadExecutor(String fallbackName) {
+        ExecutorService executor = virtualThreadExecutor();
+        if (executor == null) {
+            logger.debug("Virtual threads unavailable on this JVM, using a cached thread pool for {}", fallbackName);
+            return Executors.newCachedThreadPool(namedThreads(fallbackName, true));
+        }
+        return executor;
+    }
+
+    /**
+     * Virtual-thread-per-task executor, or null where the JVM has no virtual threads
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix, boolean daemon) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(daemon);
+            return thread;
+        };
+    }
+
+    // Getters
+    public Type getType() { return type; }
+    public ExecutorService computeExecutor() { return computeExecutor; }
+    public ExecutorService ioExecutor() { return ioExecutor; }
+    public int parallelism() { return parallelism; }
+    /** Scheduler running mapReduce, or null when chunks go straight to the compute executor */
+    public BatchScheduler scheduler() { return scheduler; }
+
+    /**
+     * Tasks waiting on the compute executor, or 0 where the executor does not expose a queue (virtual threads)
+     */
+    public long queuedTaskCount() {
+        if (computeExecutor instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) computeExecutor;
+            return pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+        }
+        if (computeExecutor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) computeExecutor).getQueue().size();
+        }
+        return 0;
+    }
+
+    /**
+     * Compute threads currently running tasks, or 0 where the executor does not report it
+     */
+    public int activeThreadCount() {
+        if (computeExecutor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) computeExecutor).getActiveThreadCount();
+        }
+        if (computeExecutor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) computeExecutor).getActiveCount();
+        }
+        return 0;
+    }
+
+    /**
+     * Split [0, size) into chunks of at least minChunk records, run the task on each chunk on the
+     * compute executor and combine the partial results in range order. On a ForkJoinPool the range
+     * is split recursively and stolen by idle workers; elsewhere it is cut into a few chunks per thread.
+     * A {@link #scheduled} backend hands the range to its {@link BatchScheduler} instead.
+     */
+    public <T> CompletableFuture<T> mapReduce(long size, long minChunk, RangeTask<T> task, BinaryOperator<T> combiner) {
+        if (scheduler != null) {
+            return scheduler.mapReduce(size, minChunk, task, combiner);
+        }
+        long chunkFloor = Math.max(1, minChunk);
+        if (computeExecutor instanceof ForkJoinPool) {
+            return CompletableFuture.supplyAsync(
+                    () -> new RangeReduceTask<>(0, size, chunkFloor, task, combiner).invoke(), computeExecutor);
+        }
+
+        long chunks = Math.max(1, Math.min((long) parallelism * 4, (size + chunkFloor - 1) / chunkFloor));
+        long chunkSize = (size + chunks - 1) / chunks;
+        List<CompletableFuture<T>> partials = new ArrayList<>((int) chunks);
+        for (long from = 0; from < size || partials.isEmpty(); from += chunkSize) {
+            long start = from;
+            long end = Math.min(size, from + chunkSize);
+            partials.add(CompletableFuture.supplyAsync(() -> task.apply(start, end), computeExecutor));
+        }
+        CompletableFuture<T> result = partials.get(0);
+        for (int i = 1; i < partials.size(); i++) {
+            result = result.thenCombine(partials.get(i), combiner);
+        }
+        return result;
+    }
+
+    public boolean isShutdown() {
+        return computeExecutor.isShutdown();
+    }
+
+    /**
+     * Stop accepting work and wait up to the timeout for running tasks, then interrupt what is left
+     */
+    public void shutdown(long timeout, TimeUnit unit) {
+        if (!owned) {
+            return;
+        }
+        computeExecutor.shutdown();
+        ioExecutor.shutdown();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            for (ExecutorService executor : List.of(computeExecutor, ioExecutor)) {
+                if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    executor.shutdownNow();
+                    logger.warn("{} executor did not terminate in time, forcing shutdown.", type);
+                }
+            }
+        } catch (InterruptedException e) {
+            computeExecutor.shutdownNow();
+            ioExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+            logger.error("Shutdown interrupted.", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        shutdown(60, TimeUnit.SECONDS);
+    }
+
+    private static final class RangeReduceTask<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        private final long minChunk;
+        private final RangeTask<T> task;
+        private final BinaryOperator<T> combiner;
+
+        RangeReduceTask(long from, long to, long minChunk, RangeTask<T> task, BinaryOperator<T> combiner) {
+            this.from = from;
+            this.to = to;
+            this.minChunk = minChunk;
+            this.task = task;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from <= minChunk) {
+                return task.apply(from, to);
+            }
+            long middle = (from + to) >>> 1;
+            RangeReduceTask<T> left = new RangeReduceTask<>(from, middle, minChunk, task, combiner);
+            left.fork();
+            T right = new RangeReduceTask<>(middle, to, minChunk, task, combiner).compute();
+            return combiner.apply(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.util.Locale;
+
+/**
+ * Wire formats understood by {@link DataExporter} and {@link DataImporter}
+ */
+public enum ExportFormat {
+    /** One JSON object per line */
+    JSONL,
+    /** RFC 4180 CSV with a header row; extra metadata is a JSON object in the last column */
+    CSV,
+    /** Length-prefixed frames of binary records; preserves metadata value types exactly */
+    BINARY;
+
+    /**
+     * Parse a configuration value such as "jsonl", "csv" or "binary"; "json" selects JSON Lines
+     */
+    public static ExportFormat fromConfig(String value) {
+        String normalized = value.trim().toUpperCase(Locale.ROOT);
+        return "JSON".equals(normalized) ? JSONL : ExportFormat.valueOf(normalized);
+    }
+}
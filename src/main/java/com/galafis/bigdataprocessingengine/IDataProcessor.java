@@ -1,9 +1,27 @@
 package com.galafis.bigdataprocessingengine;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public interface IDataProcessor {
     CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(List<BigDataProcessingSystem.DataRecord> records);
-}
 
+    /**
+     * Analyze the records currently held by a columnar store.
+     * The default materializes the DataRecord view; implementations should aggregate over the columns directly.
+     */
+    default CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(RecordStore store) {
+        return process(store.asList());
+    }
+
+    /**
+     * Analyze only the selected positions of a store, e.g. the result of a SecondaryIndex query.
+     * The default materializes the selected records.
+     */
+    default CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(RecordStore store, RecordBitmap selection) {
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>((int) selection.cardinality());
+        selection.forEach(position -> records.add(store.record(position)));
+        return process(records);
+    }
+}
@@ -0,0 +1,35 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.util.List;
+
+/**
+ * Callback invoked by RecordIngestor around each append, before the affected batches are acknowledged.
+ * A listener that throws from {@link #beforeAppend} keeps the records out of the store and fails their
+ * acknowledgement; one that throws from {@link #onAppend} is logged and skipped, since the records
+ * are already stored, and the remaining listeners still see them. Listeners run on the drain thread,
+ * so slow work such as user callbacks belongs on another thread.
+ */
+@FunctionalInterface
+public interface IngestListener {
+
+    /**
+     * Called before the records are appended, e.g. to log them ahead of the store.
+     * The ingestor is expected to be the store's only writer, so firstIndex is where they will land.
+     */
+    default void beforeAppend(RecordStore store, long firstIndex, List<BigDataProcessingSystem.DataRecord> records) {
+    }
+
+    /**
+     * Called instead of {@link #onAppend} when the append failed after this listener's
+     * {@link #beforeAppend} returned
+     */
+    default void appendFailed(RecordStore store, long firstIndex, List<BigDataProcessingSystem.DataRecord> records) {
+    }
+
+    /**
+     * @param store      the store the records were appended to
+     * @param firstIndex position of the first record in the store
+     * @param records    the appended records, in store order; only valid for the duration of the call
+     */
+    void onAppend(RecordStore store, long firstIndex, List<BigDataProcessingSystem.DataRecord> records);
+}
@@ -0,0 +1,596 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * RecordStore backed by fixed-layout binary segments on local disk, read and written through
+ * memory-mapped buffers so datasets larger than the heap can be scanned without materializing records.
+ *
+ * Each segment file holds a 64-byte header followed by fixed 32-byte slots:
+ * value (double), timestamp nanos (long), category code (int), source code (int),
+ * offset into the segment's side file (unsigned int, so side files up to 4GB) and priority (byte).
+ * Ids and free-form metadata are variable length and live in the side file. It is mapped in
+ * fixed-size chunks, each mapped once when it is complete; entries in the chunk still being
+ * written, or straddling two chunks, are read with positional reads. Category and source
+ * dictionaries are persisted next to the segments so an existing directory can be reopened as-is.
+ */
+public class MappedSegmentRecordStore implements RecordStore, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedSegmentRecordStore.class);
+
+    static final int DEFAULT_SEGMENT_CAPACITY = 1 << 20;
+    static final int DEFAULT_SIDE_CHUNK_BYTES = 1 << 24;
+    private static final long MAX_SIDE_BYTES = 0xFFFFFFFFL;
+
+    private static final int MAGIC = 0x42445053; // "BDPS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int HEADER_CAPACITY_OFFSET = 8;
+    private static final int HEADER_COUNT_OFFSET = 12;
+    private static final int RECORD_BYTES = 32;
+    private static final int VALUE_OFFSET = 0;
+    private static final int TIMESTAMP_OFFSET = 8;
+    private static final int CATEGORY_OFFSET = 16;
+    private static final int SOURCE_OFFSET = 20;
+    private static final int SIDE_OFFSET = 24;
+    private static final int PRIORITY_OFFSET = 28;
+    private static final int NO_SOURCE = -1;
+    private static final Map<String, Object> NO_EXTRAS = Map.of();
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String SIDE_SUFFIX = ".side";
+    private static final String CATEGORY_DICTIONARY = "category.dict";
+    private static final String SOURCE_DICTIONARY = "source.dict";
+
+    private final Path directory;
+    private final int segmentCapacity;
+    private final int sideChunkBytes;
+    private final int segmentShift;
+    private final long slotMask;
+    private final PersistentDictionary categoryDictionary;
+    private final PersistentDictionary sourceDictionary;
+
+    private volatile Segment[] segments;
+    private volatile long size;
+    private boolean closed;
+
+    private MappedSegmentRecordStore(Path directory, int segmentCapacity, int sideChunkBytes) throws IOException {
+        if (Integer.bitCount(segmentCapacity) != 1) {
+            throw new IllegalArgumentException("segmentCapacity must be a power of two: " + segmentCapacity);
+        }
+        if (Integer.bitCount(sideChunkBytes) != 1) {
+            throw new IllegalArgumentException("sideChunkBytes must be a power of two: " + sideChunkBytes);
+        }
+        this.directory = directory;
+        this.segmentCapacity = segmentCapacity;
+        this.sideChunkBytes = sideChunkBytes;
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentCapacity);
+        this.slotMask = segmentCapacity - 1L;
+        Files.createDirectories(directory);
+        this.categoryDictionary = new PersistentDictionary(directory.resolve(CATEGORY_DICTIONARY));
+        this.sourceDictionary = new PersistentDictionary(directory.resolve(SOURCE_DICTIONARY));
+        this.segments = reopenSegments();
+        long recovered = 0;
+        for (Segment segment : segments) {
+            recovered += segment.count;
+        }
+        this.size = recovered;
+    }
+
+    /**
+     * Open the store in the given directory, reopening any segments already present
+     */
+    public static MappedSegmentRecordStore open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_CAPACITY);
+    }
+
+    public static MappedSegmentRecordStore open(Path directory, int segmentCapacity) throws IOException {
+        return open(directory, segmentCapacity, DEFAULT_SIDE_CHUNK_BYTES);
+    }
+
+    static MappedSegmentRecordStore open(Path directory, int segmentCapacity, int sideChunkBytes) throws IOException {
+        MappedSegmentRecordStore store = new MappedSegmentRecordStore(directory, segmentCapacity, sideChunkBytes);
+        logger.info("Opened mapped segment store at {} with {} records in {} segments",
+                directory, store.size, store.segments.length);
+        return store;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public String id(long index) {
+        try {
+            return sideEntry(index).readUTF();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read id for record " + index, e);
+        }
+    }
+
+    @Override
+    public double value(long index) {
+        return buffer(index).getDouble(slotOffset(index) + VALUE_OFFSET);
+    }
+
+    @Override
+    public long timestampNanos(long index) {
+        return buffer(index).getLong(slotOffset(index) + TIMESTAMP_OFFSET);
+    }
+
+    @Override
+    public int categoryCode(long index) {
+        return buffer(index).getInt(slotOffset(index) + CATEGORY_OFFSET);
+    }
+
+    @Override
+    public int categoryCardinality() {
+        return categoryDictionary.size();
+    }
+
+    @Override
+    public String categoryName(int code) {
+        return categoryDictionary.decode(code);
+    }
+
+    @Override
+    public byte priority(long index) {
+        return buffer(index).get(slotOffset(index) + PRIORITY_OFFSET);
+    }
+
+    @Override
+    public BigDataProcessingSystem.DataRecord record(long index) {
+        MappedByteBuffer buffer = buffer(index);
+        int offset = slotOffset(index);
+        try {
+            DataInputStream in = sideEntry(index);
+            String id = in.readUTF();
+            Map<String, Object> extras = MetadataCodec.read(in);
+
+            int category = buffer.getInt(offset + CATEGORY_OFFSET);
+            byte priority = buffer.get(offset + PRIORITY_OFFSET);
+            int source = buffer.getInt(offset + SOURCE_OFFSET);
+            RecordMetadata metadata = RecordMetadata.of(
+                    category != NO_CATEGORY ? categoryDictionary.decode(category) : null,
+                    priority != NO_PRIORITY ? priority : RecordMetadata.NO_PRIORITY,
+                    source != NO_SOURCE ? sourceDictionary.decode(source) : null,
+                    extras);
+            return new BigDataProcessingSystem.DataRecord(id,
+                    RecordStore.fromEpochNanos(buffer.getLong(offset + TIMESTAMP_OFFSET)),
+                    buffer.getDouble(offset + VALUE_OFFSET), metadata);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to materialize record " + index, e);
+        }
+    }
+
+    @Override
+    public long append(BigDataProcessingSystem.DataRecord record) {
+        return appendAll(List.of(record));
+    }
+
+    @Override
+    public synchronized long appendAll(Collection<BigDataProcessingSystem.DataRecord> records) {
+        if (closed) {
+            throw new IllegalStateException("MappedSegmentRecordStore is closed");
+        }
+        try {
+            long first = size;
+            long position = first;
+            int segmentIndex = -1;
+            Segment segment = null;
+            SideBuffer side = new SideBuffer();
+
+            for (BigDataProcessingSystem.DataRecord record : records) {
+                if ((int) (position >>> segmentShift) != segmentIndex) {
+                    if (segment != null) {
+                        segment.commit(side.pending);
+                    }
+                    segment = segmentFor(position);
+                    segmentIndex = (int) (position >>> segmentShift);
+                }
+                int slot = (int) (position & slotMask);
+                writeRecord(segment, slot, record, side);
+                segment.count = slot + 1;
+                position++;
+            }
+            if (segment != null) {
+                segment.commit(side.pending);
+            }
+            size = position;
+            return first;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append records to " + directory, e);
+        }
+    }
+
+    private void writeRecord(Segment segment, int slot, BigDataProcessingSystem.DataRecord record, SideBuffer side) throws IOException {
+        int category = NO_CATEGORY;
+        byte priority = NO_PRIORITY;
+        int source = NO_SOURCE;
+        RecordMetadata metadata = record.getRecordMetadata();
+        Map<String, Object> extras = NO_EXTRAS;
+        boolean bytePriority = !metadata.hasPriority()
+                || (metadata.getPriority() > NO_PRIORITY && metadata.getPriority() <= Byte.MAX_VALUE);
+        if (metadata.hasExtras() || !bytePriority) {
+            extras = new HashMap<>();
+            metadata.forEachExtra(extras::put);
+        }
+        if (metadata.getCategory() != null) {
+            category = categoryDictionary.encode(metadata.getCategory());
+        }
+        if (metadata.getSource() != null) {
+            source = sourceDictionary.encode(metadata.getSource());
+        }
+        if (metadata.hasPriority()) {
+            if (bytePriority) {
+                priority = (byte) metadata.getPriority();
+            } else {
+                extras.put(RecordMetadata.PRIORITY, metadata.getPriority());
+            }
+        }
+
+        long sideOffset = segment.sideLength + side.pending.size();
+        if (sideOffset > MAX_SIDE_BYTES) {
+            throw new IOException("Side file of segment " + segment.path + " exceeds 4GB");
+        }
+        side.writeEntry(record.getId(), extras);
+
+        int offset = HEADER_BYTES + slot * RECORD_BYTES;
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.putDouble(offset + VALUE_OFFSET, record.getValue());
+        buffer.putLong(offset + TIMESTAMP_OFFSET, RecordStore.toEpochNanos(record.getTimestamp()));
+        buffer.putInt(offset + CATEGORY_OFFSET, category);
+        buffer.putInt(offset + SOURCE_OFFSET, source);
+        buffer.putInt(offset + SIDE_OFFSET, (int) sideOffset);
+        buffer.put(offset + PRIORITY_OFFSET, priority);
+    }
+
+    /**
+     * Force all mapped segments and dictionaries to disk
+     */
+    public synchronized void flush() throws IOException {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            segment.sideChannel.force(false);
+        }
+        categoryDictionary.flush();
+        sourceDictionary.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        for (Segment segment : segments) {
+            segment.channel.close();
+            segment.sideChannel.close();
+        }
+        categoryDictionary.close();
+        sourceDictionary.close();
+        closed = true;
+        logger.info("Closed mapped segment store at {} ({} records)", directory, size);
+    }
+
+    private MappedByteBuffer buffer(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return segments[(int) (index >>> segmentShift)].buffer;
+    }
+
+    private int slotOffset(long index) {
+        return HEADER_BYTES + (int) (index & slotMask) * RECORD_BYTES;
+    }
+
+    /**
+     * Side entry of a record, read in place from the mapped side file
+     */
+    private DataInputStream sideEntry(long index) throws IOException {
+        long sideOffset = Integer.toUnsignedLong(buffer(index).getInt(slotOffset(index) + SIDE_OFFSET));
+        Segment segment = segments[(int) (index >>> segmentShift)];
+
+        int length = segment.sideBytes(sideOffset, 4).getInt(0);
+        if (length < 0) {
+            throw new IOException("Corrupt side entry at " + sideOffset + " of segment " + segment.path);
+        }
+        return new DataInputStream(new ByteBufferInput(segment.sideBytes(sideOffset + 4, length)));
+    }
+
+    private Segment segmentFor(long position) throws IOException {
+        int segmentIndex = (int) (position >>> segmentShift);
+        Segment[] current = segments;
+        if (segmentIndex < current.length) {
+            return current[segmentIndex];
+        }
+        Segment created = Segment.create(segmentPath(segmentIndex), segmentCapacity, sideChunkBytes);
+        Segment[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = created;
+        segments = grown;
+        logger.debug("Created segment {}", created.path);
+        return created;
+    }
+
+    private Path segmentPath(int segmentIndex) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+    }
+
+    private Segment[] reopenSegments() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> listing = Files.list(directory)) {
+            paths = listing
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(java.util.stream.Collectors.toList());
+        }
+        Segment[] reopened = new Segment[paths.size()];
+        for (int i = 0; i < reopened.length; i++) {
+            if (!paths.get(i).equals(segmentPath(i))) {
+                throw new IOException("Missing or misnamed segment, expected " + segmentPath(i) + " but found " + paths.get(i));
+            }
+            reopened[i] = Segment.open(paths.get(i), segmentCapacity, sideChunkBytes);
+            if (i < reopened.length - 1 && reopened[i].count != segmentCapacity) {
+                throw new IOException("Segment " + paths.get(i) + " is incomplete but not the last segment");
+            }
+        }
+        return reopened;
+    }
+
+    /**
+     * One segment file plus its variable-length side file
+     */
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final FileChannel sideChannel;
+        private final MappedByteBuffer buffer;
+        private final int sideChunkBytes;
+        private volatile long sideLength;
+        private int count;
+        private volatile MappedByteBuffer[] sideChunks = new MappedByteBuffer[0];
+
+        private Segment(Path path, FileChannel channel, FileChannel sideChannel, MappedByteBuffer buffer, int count,
+                        int sideChunkBytes) throws IOException {
+            this.path = path;
+            this.channel = channel;
+            this.sideChannel = sideChannel;
+            this.buffer = buffer;
+            this.count = count;
+            this.sideChunkBytes = sideChunkBytes;
+            this.sideLength = sideChannel.size();
+        }
+
+        static Segment create(Path path, int capacity, int sideChunkBytes) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            buffer.putInt(HEADER_CAPACITY_OFFSET, capacity);
+            buffer.putInt(HEADER_COUNT_OFFSET, 0);
+            return new Segment(path, channel, openSide(path), buffer, 0, sideChunkBytes);
+        }
+
+        static Segment open(Path path, int capacity, int sideChunkBytes) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                channel.close();
+                throw new IOException("Not a segment file: " + path);
+            }
+            if (buffer.getInt(HEADER_CAPACITY_OFFSET) != capacity) {
+                channel.close();
+                throw new IOException("Segment " + path + " has capacity " + buffer.getInt(HEADER_CAPACITY_OFFSET) + ", expected " + capacity);
+            }
+            return new Segment(path, channel, openSide(path), buffer, buffer.getInt(HEADER_COUNT_OFFSET), sideChunkBytes);
+        }
+
+        /**
+         * {@code length} bytes of the side file from {@code position}: a slice of the chunk mapping
+         * when the range lies in one complete chunk, otherwise a positional read
+         */
+        ByteBuffer sideBytes(long position, int length) throws IOException {
+            int chunk = (int) (position / sideChunkBytes);
+            int within = (int) (position % sideChunkBytes);
+            if (within + (long) length <= sideChunkBytes) {
+                MappedByteBuffer map = sideChunk(chunk);
+                if (map != null) {
+                    return map.slice(within, length);
+                }
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(length);
+            while (bytes.hasRemaining()) {
+                if (sideChannel.read(bytes, position + bytes.position()) < 0) {
+                    throw new EOFException("Unexpected end of side file " + path);
+                }
+            }
+            return bytes.flip();
+        }
+
+        /**
+         * Read-only mapping of a complete chunk, created on first use; null while the chunk is still being written
+         */
+        private MappedByteBuffer sideChunk(int chunk) throws IOException {
+            MappedByteBuffer[] chunks = sideChunks;
+            if (chunk < chunks.length && chunks[chunk] != null) {
+                return chunks[chunk];
+            }
+            long start = (long) chunk * sideChunkBytes;
+            if (sideLength < start + sideChunkBytes) {
+                return null;
+            }
+            synchronized (this) {
+                chunks = sideChunks;
+                if (chunk < chunks.length && chunks[chunk] != null) {
+                    return chunks[chunk];
+                }
+                MappedByteBuffer map = sideChannel.map(FileChannel.MapMode.READ_ONLY, start, sideChunkBytes);
+                MappedByteBuffer[] grown = Arrays.copyOf(chunks, Math.max(chunks.length, chunk + 1));
+                grown[chunk] = map;
+                sideChunks = grown;
+                return map;
+            }
+        }
+
+        private static FileChannel openSide(Path path) throws IOException {
+            Path side = path.resolveSibling(path.getFileName().toString().replace(SEGMENT_SUFFIX, SIDE_SUFFIX));
+            return FileChannel.open(side, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        /**
+         * Write buffered side entries, then publish the record count in the header
+         */
+        void commit(ByteArrayOutputStream sideBuffer) throws IOException {
+            if (sideBuffer.size() > 0) {
+                ByteBuffer pending = ByteBuffer.wrap(sideBuffer.toByteArray());
+                while (pending.hasRemaining()) {
+                    sideLength += sideChannel.write(pending, sideLength);
+                }
+                sideBuffer.reset();
+            }
+            buffer.putInt(HEADER_COUNT_OFFSET, count);
+        }
+    }
+
+    /**
+     * Batches length-prefixed side entries (id followed by free-form metadata) for one append call
+     */
+    private static final class SideBuffer {
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private final DataOutputStream pendingOut = new DataOutputStream(pending);
+        private final ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        private final DataOutputStream entryOut = new DataOutputStream(entry);
+
+        void writeEntry(String id, Map<String, Object> metadata) throws IOException {
+            entry.reset();
+            entryOut.writeUTF(id);
+            MetadataCodec.write(metadata, entryOut);
+            entryOut.flush();
+            pendingOut.writeInt(entry.size());
+            entry.writeTo(pendingOut);
+            pendingOut.flush();
+        }
+    }
+
+    /**
+     * Sequential reads over a ByteBuffer without copying it
+     */
+    private static final class ByteBufferInput extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+    }
+
+    /**
+     * StringDictionary whose entries are appended to a file as they are first encoded.
+     * Entries are length-prefixed (writeUTF); on open, a torn entry at the end of the file is
+     * dropped and truncated away instead of failing the whole store.
+     */
+    private static final class PersistentDictionary {
+        private final StringDictionary dictionary = new StringDictionary();
+        private final DataOutputStream out;
+
+        PersistentDictionary(Path path) throws IOException {
+            if (Files.exists(path)) {
+                long complete = 0;
+                long fileLength = Files.size(path);
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                    while (complete + 2 <= fileLength) {
+                        int length = in.readUnsignedShort();
+                        if (complete + 2 + length > fileLength) {
+                            break;
+                        }
+                        byte[] encoded = new byte[length];
+                        in.readFully(encoded);
+                        dictionary.encode(decodeEntry(length, encoded));
+                        complete += 2 + length;
+                    }
+                } catch (UTFDataFormatException e) {
+                    logger.warn("Corrupt entry in dictionary {} at byte {}: {}", path, complete, e.getMessage());
+                }
+                if (complete < fileLength) {
+                    logger.warn("Dropping {} bytes of incomplete entries at the end of dictionary {}", fileLength - complete, path);
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        channel.truncate(complete);
+                    }
+                }
+            }
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        }
+
+        private static String decodeEntry(int length, byte[] encoded) throws IOException {
+            ByteArrayOutputStream entry = new ByteArrayOutputStream(length + 2);
+            entry.write(length >>> 8);
+            entry.write(length);
+            entry.write(encoded);
+            return new DataInputStream(new ByteArrayInputStream(entry.toByteArray())).readUTF();
+        }
+
+        int encode(String name) throws IOException {
+            int code = dictionary.lookup(name);
+            if (code >= 0) {
+                return code;
+            }
+            code = dictionary.encode(name);
+            out.writeUTF(name);
+            out.flush();
+            return code;
+        }
+
+        String decode(int code) {
+            return dictionary.decode(code);
+        }
+
+        int size() {
+            return dictionary.size();
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+
+        void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact tagged binary encoding for free-form metadata entries.
+ * Strings, integers, longs, doubles and booleans keep their type; anything else is stored as its String form.
+ */
+final class MetadataCodec {
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INT = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_BOOLEAN = 5;
+
+    private MetadataCodec() {
+    }
+
+    static void write(Map<String, Object> metadata, DataOutput out) throws IOException {
+        out.writeShort(metadata.size());
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            out.writeUTF(entry.getKey());
+            writeValue(entry.getValue(), out);
+        }
+    }
+
+    static Map<String, Object> read(DataInput in) throws IOException {
+        int entries = in.readUnsignedShort();
+        Map<String, Object> metadata = new HashMap<>(Math.max(4, entries * 2));
+        for (int i = 0; i < entries; i++) {
+            String key = in.readUTF();
+            metadata.put(key, readValue(in));
+        }
+        return metadata;
+    }
+
+    static void writeValue(Object value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else {
+            out.writeByte(TAG_STRING);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    static Object readValue(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return in.readUTF();
+            case TAG_INT:
+                return in.readInt();
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_BOOLEAN:
+                return in.readBoolean();
+            default:
+                throw new IOException("Unknown metadata tag: " + tag);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.galafis.bigdataprocessingengine;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Plain-text metrics endpoint on the JDK's built-in HTTP server.
+ * GET /metrics returns the current {@link EngineMetrics.Snapshot#toPlainText()}.
+ * The endpoint is unauthenticated, so it binds to the loopback interface unless given another address.
+ */
+public class MetricsEndpoint implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsEndpoint.class);
+
+    private final HttpServer server;
+
+    private MetricsEndpoint(HttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Start serving on the given loopback port; port 0 picks a free one
+     */
+    public static MetricsEndpoint start(EngineMetrics metrics, int port) throws IOException {
+        return start(metrics, InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Start serving on the given address and port, e.g. the wildcard address to expose it on every interface
+     */
+    public static MetricsEndpoint start(EngineMetrics metrics, InetAddress bindAddress, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.createContext("/metrics", exchange -> respond(exchange, metrics));
+        server.start();
+        logger.info("Metrics endpoint listening on {}", server.getAddress());
+        return new MetricsEndpoint(server);
+    }
+
+    private static void respond(HttpExchange exchange, EngineMetrics metrics) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.snapshot().toPlainText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,240 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Partitioned implementation of IDataProcessor.
+ * Count, sum, min/max, category counts and recent-record count are gathered in one fused pass
+ * over chunks partitioned across the ExecutionBackend (fork/join splitting on a work-stealing pool);
+ * the high-value count needs the global average and is taken in a second, value-only pass.
+ * Produces the same AnalysisResult as DefaultDataProcessor.
+ */
+public class ParallelDataProcessor implements IDataProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelDataProcessor.class);
+    static final int DEFAULT_SPLIT_THRESHOLD = 8192;
+
+    private final ExecutionBackend executionBackend;
+    private final int splitThreshold;
+    private final EngineMetrics metrics;
+
+    public ParallelDataProcessor(ForkJoinPool forkJoinPool) {
+        this(ExecutionBackend.wrap(forkJoinPool), DEFAULT_SPLIT_THRESHOLD);
+    }
+
+    public ParallelDataProcessor(ForkJoinPool forkJoinPool, int splitThreshold) {
+        this(ExecutionBackend.wrap(forkJoinPool), splitThreshold);
+    }
+
+    public ParallelDataProcessor(ExecutionBackend executionBackend) {
+        this(executionBackend, DEFAULT_SPLIT_THRESHOLD);
+    }
+
+    public ParallelDataProcessor(ExecutionBackend executionBackend, int splitThreshold) {
+        this(executionBackend, splitThreshold, new EngineMetrics());
+    }
+
+    /**
+     * @param metrics receives per-phase latencies, throughput and allocation of every analysis;
+     *                allocation is summed over all worker threads that ran a chunk
+     */
+    public ParallelDataProcessor(ExecutionBackend executionBackend, int splitThreshold, EngineMetrics metrics) {
+        if (splitThreshold < 1) {
+            throw new IllegalArgumentException("splitThreshold must be positive: " + splitThreshold);
+        }
+        this.executionBackend = executionBackend;
+        this.splitThreshold = splitThreshold;
+        this.metrics = metrics;
+    }
+
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(List<BigDataProcessingSystem.DataRecord> records) {
+        long startTime = System.currentTimeMillis();
+        logger.info("Starting data processing with ParallelDataProcessor...");
+
+        List<BigDataProcessingSystem.DataRecord> source = records instanceof RandomAccess ? records : new ArrayList<>(records);
+        int size = source.size();
+        LocalDateTime recentCutoff = LocalDateTime.now().minusDays(1);
+        AnalysisTimer timer = new AnalysisTimer(size);
+
+        return executionBackend.mapReduce(size, splitThreshold,
+                        timer.measured((from, to) -> accumulate(source, (int) from, (int) to, recentCutoff)),
+                        RecordAccumulator::merge)
+                .thenCompose(accumulator -> {
+                    double highValueThreshold = accumulator.getAverage() * 1.5;
+                    Map<String, Double> summary = accumulator.toSummary();
+                    timer.phase(EngineMetrics.Phase.SUMMARY);
+                    return executionBackend.mapReduce(size, splitThreshold,
+                                    timer.measured((from, to) -> countAbove(source, (int) from, (int) to, highValueThreshold)),
+                                    Long::sum)
+                            .thenApply(highValueCount -> complete(accumulator, summary, highValueCount, timer, startTime));
+                })
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        logger.error("Data processing failed in ParallelDataProcessor", error);
+                    }
+                });
+    }
+
+    @Override
+    public CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(RecordStore store) {
+        long startTime = System.currentTimeMillis();
+        logger.info("Starting columnar data processing with ParallelDataProcessor...");
+
+        long size = store.size();
+        long recentCutoff = RecordStore.toEpochNanos(LocalDateTime.now().minusDays(1));
+        AnalysisTimer timer = new AnalysisTimer(size);
+
+        return executionBackend.mapReduce(size, splitThreshold,
+                        timer.measured((from, to) -> RecordAccumulator.scan(store, from, to, recentCutoff)),
+                        RecordAccumulator::merge)
+                .thenCompose(accumulator -> {
+                    double highValueThreshold = accumulator.getAverage() * 1.5;
+                    Map<String, Double> summary = accumulator.toSummary();
+                    timer.phase(EngineMetrics.Phase.SUMMARY);
+                    return executionBackend.mapReduce(size, splitThreshold,
+                                    timer.measured((from, to) -> RecordAccumulator.countAbove(store, from, to, highValueThreshold)),
+                                    Long::sum)
+                            .thenApply(highValueCount -> complete(accumulator, summary, highValueCount, timer, startTime));
+                })
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        logger.error("Columnar data processing failed in ParallelDataProcessor", error);
+                    }
+                });
+    }
+
+    /**
+     * Selection variant: containers of the bitmap are the unit of partitioning, so each chunk
+     * covers at most 65536 record positions regardless of how sparse the selection is
+     */
+    @Override
+    public CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(RecordStore store, RecordBitmap selection) {
+        long startTime = System.currentTimeMillis();
+        logger.info("Starting filtered data processing with ParallelDataProcessor...");
+
+        int containers = selection.containerCount();
+        long recentCutoff = RecordStore.toEpochNanos(LocalDateTime.now().minusDays(1));
+        AnalysisTimer timer = new AnalysisTimer(selection.cardinality());
+
+        return executionBackend.mapReduce(containers, 1,
+                        timer.measured((from, to) -> RecordAccumulator.scan(store, selection, (int) from, (int) to, recentCutoff)),
+                        RecordAccumulator::merge)
+                .thenCompose(accumulator -> {
+                    double highValueThreshold = accumulator.getAverage() * 1.5;
+                    Map<String, Double> summary = accumulator.toSummary();
+                    timer.phase(EngineMetrics.Phase.SUMMARY);
+                    return executionBackend.mapReduce(containers, 1,
+                                    timer.measured((from, to) -> RecordAccumulator.countAbove(store, selection, (int) from, (int) to, highValueThreshold)),
+                                    Long::sum)
+                            .thenApply(highValueCount -> complete(accumulator, summary, highValueCount, timer, startTime));
+                })
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        logger.error("Filtered data processing failed in ParallelDataProcessor", error);
+                    }
+                });
+    }
+
+    /**
+     * Merged accumulator over the first size records of a store, for callers that combine
+     * partial results themselves (e.g. cluster workers)
+     */
+    CompletableFuture<RecordAccumulator> accumulate(RecordStore store, long size, long recentCutoffNanos) {
+        return executionBackend.mapReduce(size, splitThreshold,
+                (from, to) -> RecordAccumulator.scan(store, from, to, recentCutoffNanos), RecordAccumulator::merge);
+    }
+
+    /**
+     * Number of values above the threshold among the first size records of a store
+     */
+    CompletableFuture<Long> countAbove(RecordStore store, long size, double threshold) {
+        return executionBackend.mapReduce(size, splitThreshold,
+                (from, to) -> RecordAccumulator.countAbove(store, from, to, threshold), Long::sum);
+    }
+
+    private BigDataProcessingSystem.AnalysisResult complete(RecordAccumulator accumulator, Map<String, Double> summary,
+                                                           long highValueCount, AnalysisTimer timer, long startTime) {
+        List<String> insights = accumulator.toInsights(highValueCount);
+        timer.phase(EngineMetrics.Phase.INSIGHTS);
+        List<String> recommendations = accumulator.toRecommendations();
+        timer.phase(EngineMetrics.Phase.RECOMMENDATIONS);
+        timer.finish();
+
+        long processingTime = System.currentTimeMillis() - startTime;
+        logger.info("Data processing completed in {}ms", processingTime);
+        return new BigDataProcessingSystem.AnalysisResult(summary, insights, recommendations, processingTime);
+    }
+
+    /**
+     * Per-analysis timing state. Phase boundaries are taken on whichever thread completes the
+     * previous stage; chunk allocation is measured on each worker thread and summed.
+     */
+    private final class AnalysisTimer {
+        private final long records;
+        private final long startNanos = System.nanoTime();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private long phaseStartNanos = startNanos;
+        private final boolean allocationTracked = EngineMetrics.currentThreadAllocatedBytes() >= 0;
+
+        AnalysisTimer(long records) {
+            this.records = records;
+        }
+
+        <T> ExecutionBackend.RangeTask<T> measured(ExecutionBackend.RangeTask<T> task) {
+            if (!allocationTracked) {
+                return task;
+            }
+            return (from, to) -> {
+                long before = EngineMetrics.currentThreadAllocatedBytes();
+                T result = task.apply(from, to);
+                allocatedBytes.add(EngineMetrics.currentThreadAllocatedBytes() - before);
+                return result;
+            };
+        }
+
+        // Stages complete on different threads; synchronizing publishes the previous phase boundary
+        synchronized void phase(EngineMetrics.Phase phase) {
+            long now = System.nanoTime();
+            metrics.recordPhase(phase, now - phaseStartNanos);
+            phaseStartNanos = now;
+        }
+
+        void finish() {
+            metrics.recordAnalysis(records, System.nanoTime() - startNanos, allocationTracked ? allocatedBytes.sum() : -1);
+        }
+    }
+
+    /**
+     * Fused single pass: every per-record statistic is collected in the same loop
+     */
+    private static RecordAccumulator accumulate(List<BigDataProcessingSystem.DataRecord> records, int from, int to,
+                                                LocalDateTime recentCutoff) {
+        RecordAccumulator accumulator = new RecordAccumulator();
+        for (int i = from; i < to; i++) {
+            accumulator.accept(records.get(i), recentCutoff);
+        }
+        return accumulator;
+    }
+
+    private static long countAbove(List<BigDataProcessingSystem.DataRecord> records, int from, int to, double threshold) {
+        long count = 0;
+        for (int i = from; i < to; i++) {
+            if (records.get(i).getValue() > threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
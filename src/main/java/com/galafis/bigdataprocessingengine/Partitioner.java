@@ -0,0 +1,62 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assigns records to a fixed number of cluster partitions, either by a hash of the record id
+ * or by event-time ranges. Partitions, not workers, are the unit the ClusterCoordinator moves
+ * when it rebalances, so the partition of a record never changes.
+ */
+public final class Partitioner {
+
+    private final int partitionCount;
+    private final long[] boundaries;
+
+    private Partitioner(int partitionCount, long[] boundaries) {
+        this.partitionCount = partitionCount;
+        this.boundaries = boundaries;
+    }
+
+    /**
+     * Spread records evenly over the partitions by id
+     */
+    public static Partitioner hash(int partitionCount) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("Partition count must be positive: " + partitionCount);
+        }
+        return new Partitioner(partitionCount, null);
+    }
+
+    /**
+     * Partition i holds timestamps in [boundary i-1, boundary i); the first and last partitions are open-ended
+     */
+    public static Partitioner range(List<LocalDateTime> boundaries) {
+        long[] bounds = new long[boundaries.size()];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = RecordStore.toEpochNanos(boundaries.get(i));
+            if (i > 0 && bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Range boundaries must be strictly increasing: " + boundaries);
+            }
+        }
+        return new Partitioner(bounds.length + 1, bounds);
+    }
+
+    public int partitionOf(BigDataProcessingSystem.DataRecord record) {
+        if (boundaries == null) {
+            return (int) Long.remainderUnsigned(Hashing.hash64(record.getId()), partitionCount);
+        }
+        int index = Arrays.binarySearch(boundaries, RecordStore.toEpochNanos(record.getTimestamp()));
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    // Getters
+    public int getPartitionCount() { return partitionCount; }
+    public boolean isRange() { return boundaries != null; }
+
+    @Override
+    public String toString() {
+        return (isRange() ? "range(" : "hash(") + partitionCount + " partitions)";
+    }
+}
@@ -0,0 +1,554 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.*;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Lazily evaluated, composable processing pipeline over DataRecords.
+ * Stages are declared with filter, map, flatMap, where, keyBy/window + aggregate and topN; nothing
+ * runs until a terminal {@link #collect} (or {@link #toList}, {@link #count}) is given an ExecutionBackend.
+ * <p>
+ * The planner then
+ * <ul>
+ *   <li>pushes the {@link RecordFilter}s of {@link #where} stages ahead of any map into the scan:
+ *       they are resolved through the SecondaryIndex when the pipeline was created with one, and
+ *       otherwise evaluated on the store columns before a record is materialized;</li>
+ *   <li>fuses each run of adjacent stateless stages into a single loop, so a record passes through
+ *       all of them without intermediate collections;</li>
+ *   <li>runs every aggregating stage (keyBy/window + aggregate, topN, the terminal collector) in
+ *       parallel with {@link ExecutionBackend#mapReduce}, each chunk accumulating into its own
+ *       container and the containers combined in range order.</li>
+ * </ul>
+ * Pipelines are immutable; every stage method returns a new pipeline, so a pipeline can be reused
+ * as the prefix of several analyses.
+ *
+ * @param <T> element type at the end of the pipeline
+ */
+public final class Pipeline<T> {
+
+    static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+    private final Source source;
+    private final List<Stage> stages;
+
+    private Pipeline(Source source, List<Stage> stages) {
+        this.source = source;
+        this.stages = stages;
+    }
+
+    // Sources
+
+    /**
+     * Every record of the store at the time the pipeline runs
+     */
+    public static Pipeline<BigDataProcessingSystem.DataRecord> from(RecordStore store) {
+        return new Pipeline<>(new Source(store, null, null, null), List.of());
+    }
+
+    /**
+     * Records of the store; pushed-down filters are resolved through the index
+     */
+    public static Pipeline<BigDataProcessingSystem.DataRecord> from(RecordStore store, SecondaryIndex index) {
+        return new Pipeline<>(new Source(store, index, null, null), List.of());
+    }
+
+    /**
+     * Only the selected positions of the store
+     */
+    public static Pipeline<BigDataProcessingSystem.DataRecord> from(RecordStore store, RecordBitmap selection) {
+        return new Pipeline<>(new Source(store, null, selection, null), List.of());
+    }
+
+    public static Pipeline<BigDataProcessingSystem.DataRecord> from(List<BigDataProcessingSystem.DataRecord> records) {
+        return new Pipeline<>(new Source(null, null, null, records), List.of());
+    }
+
+    // Stateless stages
+
+    public Pipeline<T> filter(Predicate<? super T> predicate) {
+        return then(new Stage(StageKind.FILTER, "filter", predicate));
+    }
+
+    public <R> Pipeline<R> map(Function<? super T, ? extends R> mapper) {
+        return then(new Stage(StageKind.MAP, "map", mapper));
+    }
+
+    /**
+     * Replace every element by the elements of the returned collection
+     */
+    public <R> Pipeline<R> flatMap(Function<? super T, ? extends Iterable<? extends R>> mapper) {
+        return then(new Stage(StageKind.FLAT_MAP, "flatMap", mapper));
+    }
+
+    /**
+     * Keep the records matching the filter. Only valid while the elements are still the source
+     * records (before any map, flatMap or aggregation); these filters are pushed down into the scan.
+     */
+    public Pipeline<T> where(RecordFilter filter) {
+        for (Stage stage : stages) {
+            if (stage.kind != StageKind.FILTER && stage.kind != StageKind.WHERE) {
+                throw new IllegalStateException("where() applies to source records; use filter() after " + stage.name);
+            }
+        }
+        return then(new Stage(StageKind.WHERE, "where", filter));
+    }
+
+    // Aggregating stages
+
+    /**
+     * Group elements by key; follow with {@link Grouped#aggregate}
+     */
+    public <K> Grouped<K, T> keyBy(Function<? super T, ? extends K> key) {
+        return new Grouped<>(this, "keyBy", (element, emit) -> emit.accept(key.apply(element)), false);
+    }
+
+    /**
+     * Group elements by the start of every event-time window they fall into; groups come out ordered by window start
+     */
+    public Grouped<LocalDateTime, T> window(WindowSpec windowSpec, Function<? super T, LocalDateTime> eventTime) {
+        return new Grouped<>(this, "window(" + windowSpec + ")", (element, emit) -> {
+            long timestamp = RecordStore.toEpochNanos(eventTime.apply(element));
+            long last = windowSpec.lastWindowStart(timestamp);
+            for (long start = windowSpec.firstWindowStart(timestamp); start <= last; start += windowSpec.getSlideNanos()) {
+                emit.accept(RecordStore.fromEpochNanos(start));
+            }
+        }, true);
+    }
+
+    /**
+     * The n greatest elements according to the comparator, greatest first
+     */
+    public Pipeline<T> topN(int n, Comparator<? super T> comparator) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive: " + n);
+        }
+        return then(new Stage(StageKind.BARRIER, "topN(" + n + ")", topNCollector(n, comparator)));
+    }
+
+    // Terminal operations
+
+    /**
+     * Run the pipeline and reduce its elements with the collector
+     */
+    public <A, R> CompletableFuture<R> collect(Collector<? super T, A, R> collector, ExecutionBackend executionBackend) {
+        Plan plan = plan();
+        CompletableFuture<List<Object>> input = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < plan.segments.size() - 1; i++) {
+            Segment segment = plan.segments.get(i);
+            input = input.thenCompose(elements -> run(plan, elements, segment, segment.barrier, executionBackend));
+        }
+        Segment last = plan.segments.get(plan.segments.size() - 1);
+        return input.thenCompose(elements -> run(plan, elements, last, collector, executionBackend));
+    }
+
+    public CompletableFuture<List<T>> toList(ExecutionBackend executionBackend) {
+        return collect(Collectors.toList(), executionBackend);
+    }
+
+    public CompletableFuture<Long> count(ExecutionBackend executionBackend) {
+        return collect(Collectors.counting(), executionBackend);
+    }
+
+    /**
+     * This pipeline fixed to the records its source holds now: a store is replaced by a snapshot and
+     * where() filters answered by the index become a selection resolved here, so every terminal
+     * operation on the result sees the same records and the index is queried once
+     */
+    public Pipeline<T> pinned() {
+        if (source.store == null) {
+            return this;
+        }
+        RecordStore snapshot = source.store.snapshot();
+        RecordFilter pushdown = plan().pushdown;
+        if (source.index == null || pushdown == null) {
+            return new Pipeline<>(new Source(snapshot, source.index, source.selection, null), stages);
+        }
+        RecordBitmap selected = source.index.select(snapshot, pushdown);
+        if (source.selection != null) {
+            selected = RecordBitmap.and(source.selection, selected);
+        }
+        List<Stage> remaining = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            if (stage.kind != StageKind.WHERE) {
+                remaining.add(stage);
+            }
+        }
+        return new Pipeline<>(new Source(snapshot, null, selected, null), Collections.unmodifiableList(remaining));
+    }
+
+    /**
+     * Physical plan as text, e.g. {@code scan(store, pushdown=...) -> fused[filter, map] -> keyBy+aggregate -> topN(10)}
+     */
+    public String explain() {
+        Plan plan = plan();
+        StringBuilder text = new StringBuilder(source.describe(plan.pushdown));
+        for (Segment segment : plan.segments) {
+            if (!segment.stages.isEmpty()) {
+                text.append(" -> fused").append(segment.stages.stream().map(stage -> stage.name).collect(Collectors.toList()));
+            }
+            if (segment.barrierName != null) {
+                text.append(" -> ").append(segment.barrierName);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Grouped elements awaiting an aggregation
+     */
+    public static final class Grouped<K, T> {
+        private final Pipeline<T> upstream;
+        private final String name;
+        private final BiConsumer<Object, Consumer<Object>> keys;
+        private final boolean sorted;
+
+        private Grouped(Pipeline<T> upstream, String name, BiConsumer<? super T, Consumer<Object>> keys, boolean sorted) {
+            this.upstream = upstream;
+            this.name = name;
+            @SuppressWarnings("unchecked")
+            BiConsumer<Object, Consumer<Object>> untyped = (BiConsumer<Object, Consumer<Object>>) keys;
+            this.keys = untyped;
+            this.sorted = sorted;
+        }
+
+        /**
+         * Reduce the elements of every group with the collector; emits one (key, result) entry per group
+         */
+        public <A, R> Pipeline<Map.Entry<K, R>> aggregate(Collector<? super T, A, R> collector) {
+            return upstream.then(new Stage(StageKind.BARRIER, name + "+aggregate", groupingCollector(keys, collector, sorted)));
+        }
+    }
+
+    // Planning
+
+    private enum StageKind { WHERE, FILTER, MAP, FLAT_MAP, BARRIER }
+
+    private static final class Stage {
+        private final StageKind kind;
+        private final String name;
+        private final Object operation;
+
+        Stage(StageKind kind, String name, Object operation) {
+            this.kind = kind;
+            this.name = name;
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * Stateless stages fused into one loop, followed by the aggregating stage that ends the segment
+     */
+    private static final class Segment {
+        private final List<Stage> stages;
+        private final Collector<Object, Object, List<Object>> barrier;
+        private final String barrierName;
+
+        Segment(List<Stage> stages, Collector<Object, Object, List<Object>> barrier, String barrierName) {
+            this.stages = stages;
+            this.barrier = barrier;
+            this.barrierName = barrierName;
+        }
+    }
+
+    private static final class Plan {
+        private final RecordFilter pushdown;
+        private final List<Segment> segments;
+
+        Plan(RecordFilter pushdown, List<Segment> segments) {
+            this.pushdown = pushdown;
+            this.segments = segments;
+        }
+    }
+
+    private <R> Pipeline<R> then(Stage stage) {
+        List<Stage> extended = new ArrayList<>(stages.size() + 1);
+        extended.addAll(stages);
+        extended.add(stage);
+        return new Pipeline<>(source, Collections.unmodifiableList(extended));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Plan plan() {
+        RecordFilter pushdown = null;
+        List<Segment> segments = new ArrayList<>();
+        List<Stage> fused = new ArrayList<>();
+        for (Stage stage : stages) {
+            switch (stage.kind) {
+                case WHERE:
+                    // where() only follows filters, which commute with it
+                    RecordFilter filter = (RecordFilter) stage.operation;
+                    pushdown = pushdown == null ? filter : pushdown.and(filter);
+                    break;
+                case BARRIER:
+                    segments.add(new Segment(List.copyOf(fused), (Collector<Object, Object, List<Object>>) stage.operation, stage.name));
+                    fused.clear();
+                    break;
+                default:
+                    fused.add(stage);
+            }
+        }
+        segments.add(new Segment(List.copyOf(fused), null, null));
+        return new Plan(pushdown, segments);
+    }
+
+    /**
+     * Compile the fused stages into one chain of consumers ending in the sink
+     */
+    @SuppressWarnings("unchecked")
+    private static Consumer<Object> fuse(List<Stage> stages, Consumer<Object> sink) {
+        Consumer<Object> downstream = sink;
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            Stage stage = stages.get(i);
+            Consumer<Object> next = downstream;
+            switch (stage.kind) {
+                case FILTER: {
+                    Predicate<Object> predicate = (Predicate<Object>) stage.operation;
+                    downstream = element -> {
+                        if (predicate.test(element)) {
+                            next.accept(element);
+                        }
+                    };
+                    break;
+                }
+                case MAP: {
+                    Function<Object, Object> mapper = (Function<Object, Object>) stage.operation;
+                    downstream = element -> next.accept(mapper.apply(element));
+                    break;
+                }
+                case FLAT_MAP: {
+                    Function<Object, Iterable<Object>> mapper = (Function<Object, Iterable<Object>>) stage.operation;
+                    downstream = element -> mapper.apply(element).forEach(next);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Stage " + stage.name + " cannot be fused");
+            }
+        }
+        return downstream;
+    }
+
+    // Execution
+
+    /**
+     * Run one segment over the source (first segment) or the previous segment's output
+     */
+    @SuppressWarnings("unchecked")
+    private <A, R> CompletableFuture<R> run(Plan plan, List<Object> elements, Segment segment,
+                                            Collector<?, A, R> collector, ExecutionBackend executionBackend) {
+        Supplier<A> supplier = collector.supplier();
+        BiConsumer<A, Object> accumulator = (BiConsumer<A, Object>) collector.accumulator();
+        Function<A, R> finisher = collector.finisher();
+        RangeScan scan = elements != null ? listScan(elements) : source.scan(plan.pushdown);
+        return executionBackend.mapReduce(scan.size, scan.minChunk, (from, to) -> {
+            A container = supplier.get();
+            scan.run(from, to, fuse(segment.stages, element -> accumulator.accept(container, element)));
+            return container;
+        }, collector.combiner()).thenApply(finisher);
+    }
+
+    /**
+     * Partitionable range of input: [0, size) split into chunks of at least minChunk
+     */
+    private static final class RangeScan {
+        private final long size;
+        private final long minChunk;
+        private final RangeConsumer body;
+
+        RangeScan(long size, long minChunk, RangeConsumer body) {
+            this.size = size;
+            this.minChunk = minChunk;
+            this.body = body;
+        }
+
+        void run(long from, long to, Consumer<Object> sink) {
+            body.accept(from, to, sink);
+        }
+    }
+
+    private interface RangeConsumer {
+        void accept(long from, long to, Consumer<Object> sink);
+    }
+
+    private static RangeScan listScan(List<?> elements) {
+        return new RangeScan(elements.size(), DEFAULT_CHUNK_SIZE, (from, to, sink) -> {
+            for (int i = (int) from; i < to; i++) {
+                sink.accept(elements.get(i));
+            }
+        });
+    }
+
+    private static final class Source {
+        private final RecordStore store;
+        private final SecondaryIndex index;
+        private final RecordBitmap selection;
+        private final List<BigDataProcessingSystem.DataRecord> records;
+
+        Source(RecordStore store, SecondaryIndex index, RecordBitmap selection, List<BigDataProcessingSystem.DataRecord> records) {
+            this.store = store;
+            this.index = index;
+            this.selection = selection;
+            this.records = records;
+        }
+
+        RangeScan scan(RecordFilter pushdown) {
+            if (records != null) {
+                if (pushdown == null) {
+                    return listScan(records);
+                }
+                return new RangeScan(records.size(), DEFAULT_CHUNK_SIZE, (from, to, sink) -> {
+                    for (int i = (int) from; i < to; i++) {
+                        if (pushdown.matches(records.get(i))) {
+                            sink.accept(records.get(i));
+                        }
+                    }
+                });
+            }
+            RecordBitmap positions = selection;
+            if (pushdown != null && index != null) {
+                positions = selection != null
+                        ? RecordBitmap.and(selection, index.select(store, pushdown))
+                        : index.select(store, pushdown);
+            }
+            if (positions != null) {
+                RecordBitmap selected = positions;
+                boolean columnFiltered = pushdown != null && index == null;
+                return new RangeScan(selected.containerCount(), 1, (from, to, sink) -> {
+                    ColumnFilter columnFilter = columnFiltered ? new ColumnFilter(store, pushdown) : null;
+                    selected.forEach((int) from, (int) to, position -> {
+                        if (columnFilter == null || columnFilter.matches(position)) {
+                            sink.accept(store.record(position));
+                        }
+                    });
+                });
+            }
+            long size = store.size();
+            if (pushdown == null) {
+                return new RangeScan(size, DEFAULT_CHUNK_SIZE, (from, to, sink) -> {
+                    for (long i = from; i < to; i++) {
+                        sink.accept(store.record(i));
+                    }
+                });
+            }
+            return new RangeScan(size, DEFAULT_CHUNK_SIZE, (from, to, sink) -> {
+                ColumnFilter columnFilter = new ColumnFilter(store, pushdown);
+                for (long i = from; i < to; i++) {
+                    if (columnFilter.matches(i)) {
+                        sink.accept(store.record(i));
+                    }
+                }
+            });
+        }
+
+        String describe(RecordFilter pushdown) {
+            String input = records != null ? "list" : selection != null ? "store, selection" : "store";
+            if (pushdown == null) {
+                return "scan(" + input + ")";
+            }
+            String via = records != null ? "record" : index != null ? "index" : "columns";
+            return "scan(" + input + ", pushdown=" + pushdown + " via " + via + ")";
+        }
+    }
+
+    /**
+     * RecordFilter evaluated on store columns, so rejected positions are never materialized; one per chunk
+     */
+    private static final class ColumnFilter {
+        private final RecordStore store;
+        private final RecordFilter filter;
+        private boolean[] categoryMatches = new boolean[0];
+
+        ColumnFilter(RecordStore store, RecordFilter filter) {
+            this.store = store;
+            this.filter = filter;
+        }
+
+        boolean matches(long position) {
+            long timestamp = store.timestampNanos(position);
+            if (timestamp < filter.getFromNanos() || timestamp >= filter.getToNanos()) {
+                return false;
+            }
+            if (filter.getCategories() != null && !categoryMatches(store.categoryCode(position))) {
+                return false;
+            }
+            if (filter.isPriorityFiltered()) {
+                byte priority = store.priority(position);
+                if (priority == RecordStore.NO_PRIORITY) {
+                    // Absent, or too large for the column and kept with the record
+                    return filter.matches(store.record(position));
+                }
+                return priority >= filter.getMinPriority() && priority <= filter.getMaxPriority();
+            }
+            return true;
+        }
+
+        private boolean categoryMatches(int code) {
+            if (code == RecordStore.NO_CATEGORY) {
+                return filter.getCategories().contains(RecordAccumulator.UNKNOWN_CATEGORY);
+            }
+            if (code >= categoryMatches.length) {
+                int cardinality = Math.max(code + 1, store.categoryCardinality());
+                categoryMatches = new boolean[cardinality];
+                for (int i = 0; i < cardinality; i++) {
+                    categoryMatches[i] = filter.getCategories().contains(store.categoryName(i));
+                }
+            }
+            return categoryMatches[code];
+        }
+    }
+
+    // Aggregating collectors; their finished form is the element list of the next segment
+
+    @SuppressWarnings("unchecked")
+    private static <A, R> Collector<Object, Object, List<Object>> groupingCollector(
+            BiConsumer<Object, Consumer<Object>> keys, Collector<?, A, R> downstream, boolean sorted) {
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, Object> accumulator = (BiConsumer<A, Object>) downstream.accumulator();
+        BinaryOperator<A> combiner = downstream.combiner();
+        Function<A, R> finisher = downstream.finisher();
+        Collector<Object, Map<Object, A>, List<Object>> grouping = Collector.of(
+                () -> sorted ? new TreeMap<>() : new HashMap<>(),
+                (groups, element) -> keys.accept(element,
+                        key -> accumulator.accept(groups.computeIfAbsent(key, ignored -> supplier.get()), element)),
+                (left, right) -> {
+                    right.forEach((key, container) -> left.merge(key, container, combiner));
+                    return left;
+                },
+                groups -> {
+                    List<Object> entries = new ArrayList<>(groups.size());
+                    groups.forEach((key, container) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(key, finisher.apply(container))));
+                    return entries;
+                });
+        return (Collector<Object, Object, List<Object>>) (Collector<Object, ?, List<Object>>) grouping;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Collector<Object, Object, List<Object>> topNCollector(int n, Comparator<? super T> comparator) {
+        Comparator<Object> order = (Comparator<Object>) comparator;
+        Collector<Object, PriorityQueue<Object>, List<Object>> topN = Collector.of(
+                () -> new PriorityQueue<>(order),
+                (heap, element) -> offer(heap, element, n, order),
+                (left, right) -> {
+                    right.forEach(element -> offer(left, element, n, order));
+                    return left;
+                },
+                heap -> {
+                    List<Object> top = new ArrayList<>(heap);
+                    top.sort(order.reversed());
+                    return top;
+                });
+        return (Collector<Object, Object, List<Object>>) (Collector<Object, ?, List<Object>>) topN;
+    }
+
+    private static void offer(PriorityQueue<Object> heap, Object element, int n, Comparator<Object> order) {
+        if (heap.size() < n) {
+            heap.add(element);
+        } else if (order.compare(element, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.util.Arrays;
+
+/**
+ * KLL quantile sketch over doubles.
+ * Values are kept in a stack of compactors; level h holds items of weight 2^h. When the sketch is
+ * full, the lowest over-capacity level is sorted and every other item (random offset) is promoted
+ * to the next level. Memory is about 3k doubles plus one slot per level, independent of the input
+ * size, and the normalized rank error is roughly 3.3 / k. Sketches with the same k merge by
+ * concatenating levels and compacting again.
+ */
+public final class QuantileSketch {
+
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    private final int k;
+    private double[][] levels = new double[1][];
+    private int[] levelSizes = new int[1];
+    private int size;
+    private int maxSize;
+    private long count;
+    private long randomState;
+
+    public QuantileSketch(int k) {
+        this(k, 0x9e3779b97f4a7c15L);
+    }
+
+    QuantileSketch(int k, long seed) {
+        if (k < 8) {
+            throw new IllegalArgumentException("k must be at least 8: " + k);
+        }
+        this.k = k;
+        this.randomState = seed == 0 ? 1 : seed;
+        levels[0] = new double[capacity(0)];
+        maxSize = capacity(0);
+    }
+
+    /**
+     * k for a target normalized rank error, e.g. 0.01 for +/-1% of the rank
+     */
+    public static int kFor(double rankError) {
+        if (!(rankError > 0 && rankError < 1)) {
+            throw new IllegalArgumentException("Rank error must be in (0, 1): " + rankError);
+        }
+        return Math.max(8, (int) Math.ceil(3.3 / rankError));
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (levelSizes[0] == levels[0].length) {
+            levels[0] = Arrays.copyOf(levels[0], levels[0].length * 2);
+        }
+        levels[0][levelSizes[0]++] = value;
+        size++;
+        count++;
+        if (size >= maxSize) {
+            compress();
+        }
+    }
+
+    /**
+     * Combine another sketch into this one and return this instance
+     */
+    public QuantileSketch merge(QuantileSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge k=" + other.k + " into k=" + k);
+        }
+        while (levels.length < other.levels.length) {
+            grow();
+        }
+        for (int h = 0; h < other.levels.length; h++) {
+            append(h, other.levels[h], 0, other.levelSizes[h]);
+        }
+        size += other.size;
+        count += other.count;
+        randomState ^= other.randomState;
+        while (size >= maxSize) {
+            compress();
+        }
+        return this;
+    }
+
+    private int capacity(int level) {
+        int depth = levels.length - level - 1;
+        return (int) Math.ceil(Math.pow(CAPACITY_DECAY, depth) * k) + 1;
+    }
+
+    private void grow() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        levelSizes = Arrays.copyOf(levelSizes, levelSizes.length + 1);
+        levels[levels.length - 1] = new double[2];
+        maxSize = 0;
+        for (int h = 0; h < levels.length; h++) {
+            maxSize += capacity(h);
+        }
+    }
+
+    private void compress() {
+        for (int h = 0; h < levels.length; h++) {
+            if (levelSizes[h] >= capacity(h)) {
+                if (h + 1 == levels.length) {
+                    grow();
+                }
+                double[] items = levels[h];
+                int itemCount = levelSizes[h];
+                Arrays.sort(items, 0, itemCount);
+                int offset = nextBit();
+                // An odd item out stays behind so that the promoted weight equals the removed weight
+                int paired = itemCount & ~1;
+                double[] promoted = new double[paired / 2];
+                for (int i = offset, j = 0; i < paired; i += 2, j++) {
+                    promoted[j] = items[i];
+                }
+                if (paired < itemCount) {
+                    items[0] = items[itemCount - 1];
+                    levelSizes[h] = 1;
+                } else {
+                    levelSizes[h] = 0;
+                }
+                append(h + 1, promoted, 0, promoted.length);
+                size -= paired - promoted.length;
+                return;
+            }
+        }
+    }
+
+    private void append(int level, double[] source, int from, int to) {
+        int required = levelSizes[level] + (to - from);
+        if (required > levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], Math.max(required, levels[level].length * 2));
+        }
+        System.arraycopy(source, from, levels[level], levelSizes[level], to - from);
+        levelSizes[level] = required;
+    }
+
+    private int nextBit() {
+        // xorshift64
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 7;
+        randomState ^= randomState << 17;
+        return (int) (randomState & 1);
+    }
+
+    /**
+     * Estimated number of added values less than or equal to the given value
+     */
+    public long rank(double value) {
+        long rank = 0;
+        for (int h = 0; h < levels.length; h++) {
+            long weight = 1L << h;
+            for (int i = 0; i < levelSizes[h]; i++) {
+                if (levels[h][i] <= value) {
+                    rank += weight;
+                }
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Estimated value at the given quantile in [0, 1], or NaN if the sketch is empty
+     */
+    public double quantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + quantile);
+        }
+        if (size == 0) {
+            return Double.NaN;
+        }
+        double[] values = new double[size];
+        long[] weights = new long[size];
+        int n = 0;
+        long totalWeight = 0;
+        for (int h = 0; h < levels.length; h++) {
+            for (int i = 0; i < levelSizes[h]; i++) {
+                values[n] = levels[h][i];
+                weights[n++] = 1L << h;
+                totalWeight += 1L << h;
+            }
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (left, right) -> Double.compare(values[left], values[right]));
+
+        double target = quantile * totalWeight;
+        long cumulative = 0;
+        for (Integer index : order) {
+            cumulative += weights[index];
+            if (cumulative >= target) {
+                return values[index];
+            }
+        }
+        return values[order[n - 1]];
+    }
+
+    // Getters
+    public int getK() { return k; }
+    public long getCount() { return count; }
+    public int getRetainedItems() { return size; }
+    public double getRankError() { return 3.3 / k; }
+}
@@ -0,0 +1,263 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.LongConsumer;
+
+/**
+ * Mergeable accumulator holding everything the analysis needs from a single pass:
+ * count, compensated sum, min/max, per-category counts and the recent-record count.
+ * Chunks are accumulated independently and combined with {@link #merge(RecordAccumulator)}.
+ */
+public class RecordAccumulator {
+
+    static final String UNKNOWN_CATEGORY = "Unknown";
+
+    private final DoubleSummaryStatistics values = new DoubleSummaryStatistics();
+    private final Map<String, Long> categoryCounts = new HashMap<>();
+    // Record-at-a-time counts, one mutable cell per distinct category so accept does not box
+    private final Map<String, long[]> pendingByCategory = new HashMap<>();
+    private long pendingUnknown;
+    private long recentCount;
+
+    /**
+     * Fold a single record into this accumulator without allocating
+     */
+    public void accept(BigDataProcessingSystem.DataRecord record, LocalDateTime recentCutoff) {
+        values.accept(record.getValue());
+
+        String category = record.getRecordMetadata().getCategory();
+        if (category == null) {
+            pendingUnknown++;
+        } else {
+            long[] count = pendingByCategory.get(category);
+            if (count == null) {
+                count = new long[1];
+                pendingByCategory.put(category, count);
+            }
+            count[0]++;
+        }
+
+        if (record.getTimestamp().isAfter(recentCutoff)) {
+            recentCount++;
+        }
+    }
+
+    /**
+     * Move the counts gathered by accept into the category counts
+     */
+    private void foldPending() {
+        for (Map.Entry<String, long[]> entry : pendingByCategory.entrySet()) {
+            long[] count = entry.getValue();
+            if (count[0] > 0) {
+                addCategory(entry.getKey(), count[0]);
+                count[0] = 0;
+            }
+        }
+        if (pendingUnknown > 0) {
+            addCategory(UNKNOWN_CATEGORY, pendingUnknown);
+            pendingUnknown = 0;
+        }
+    }
+
+    /**
+     * Fused columnar pass over [from, to) of a RecordStore; categories are counted by code
+     * and only turned into names once per chunk
+     */
+    public static RecordAccumulator scan(RecordStore store, long from, long to, long recentCutoffNanos) {
+        ColumnScan scan = new ColumnScan(store, recentCutoffNanos);
+        for (long i = from; i < to; i++) {
+            scan.accept(i);
+        }
+        return scan.finish();
+    }
+
+    /**
+     * Same pass restricted to the selected positions held by containers [fromContainer, toContainer)
+     */
+    public static RecordAccumulator scan(RecordStore store, RecordBitmap selection, int fromContainer, int toContainer,
+                                         long recentCutoffNanos) {
+        ColumnScan scan = new ColumnScan(store, recentCutoffNanos);
+        selection.forEach(fromContainer, toContainer, scan);
+        return scan.finish();
+    }
+
+    /**
+     * Number of values in [from, to) strictly greater than the threshold
+     */
+    public static long countAbove(RecordStore store, long from, long to, double threshold) {
+        long count = 0;
+        for (long i = from; i < to; i++) {
+            if (store.value(i) > threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of selected values in containers [fromContainer, toContainer) strictly greater than the threshold
+     */
+    public static long countAbove(RecordStore store, RecordBitmap selection, int fromContainer, int toContainer,
+                                  double threshold) {
+        long[] count = new long[1];
+        selection.forEach(fromContainer, toContainer, position -> {
+            if (store.value(position) > threshold) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    public void acceptValue(double value) {
+        values.accept(value);
+    }
+
+    /**
+     * Fold in pre-aggregated values, e.g. a rollup cell
+     */
+    public void acceptStatistics(DoubleSummaryStatistics statistics) {
+        values.combine(statistics);
+    }
+
+    public void addCategory(String category, long count) {
+        categoryCounts.merge(category, count, Long::sum);
+    }
+
+    public void addRecent(long count) {
+        recentCount += count;
+    }
+
+    /**
+     * Combine another accumulator into this one and return this instance
+     */
+    public RecordAccumulator merge(RecordAccumulator other) {
+        values.combine(other.values);
+        foldPending();
+        other.foldPending();
+        other.categoryCounts.forEach(this::addCategory);
+        recentCount += other.recentCount;
+        return this;
+    }
+
+    // Getters
+    public long getCount() { return values.getCount(); }
+    public double getSum() { return values.getSum(); }
+    public double getAverage() { return values.getAverage(); }
+    public double getMin() { return getCount() > 0 ? values.getMin() : 0.0; }
+    public double getMax() { return getCount() > 0 ? values.getMax() : 0.0; }
+    public long getRecentCount() { return recentCount; }
+    public Map<String, Long> getCategoryCounts() {
+        foldPending();
+        return new HashMap<>(categoryCounts);
+    }
+
+    /**
+     * Summary statistics, identical in shape and rounding to DefaultDataProcessor
+     */
+    public Map<String, Double> toSummary() {
+        Map<String, Double> summary = new HashMap<>();
+        summary.put("totalRecords", (double) getCount());
+        summary.put("averageValue", Math.round(getAverage() * 100.0) / 100.0);
+        summary.put("maxValue", getMax());
+        summary.put("minValue", getMin());
+        return summary;
+    }
+
+    /**
+     * Insights for the accumulated data; highValueCount is the number of values above 150% of the average
+     */
+    public List<String> toInsights(long highValueCount) {
+        List<String> insights = new ArrayList<>();
+        foldPending();
+
+        Optional<Map.Entry<String, Long>> dominantCategoryEntry = categoryCounts.entrySet().stream()
+                .max(Map.Entry.comparingByValue());
+
+        if (dominantCategoryEntry.isPresent()) {
+            String dominantCategory = dominantCategoryEntry.get().getKey();
+            double percentage = (dominantCategoryEntry.get().getValue() * 100.0) / getCount();
+            insights.add(String.format("Category \'%s\' represents %.1f%% of all data", dominantCategory, percentage));
+        }
+
+        if (highValueCount > 0) {
+            insights.add(String.format("%d records show significantly high values (>150%% of average)", highValueCount));
+        }
+        return insights;
+    }
+
+    public List<String> toRecommendations() {
+        List<String> recommendations = new ArrayList<>();
+
+        if (getCount() < 100) {
+            recommendations.add("Consider increasing data collection for more robust analysis");
+        }
+
+        if ((double) recentCount / getCount() < 0.1) {
+            recommendations.add("Data appears outdated - consider refreshing data sources");
+        }
+
+        if (recommendations.isEmpty()) {
+            recommendations.add("No specific recommendations based on current data, but continuous monitoring is advised.");
+        }
+        return recommendations;
+    }
+
+    /**
+     * Assemble a complete AnalysisResult from the accumulated state
+     */
+    public BigDataProcessingSystem.AnalysisResult toAnalysisResult(long highValueCount, long processingTimeMs) {
+        return new BigDataProcessingSystem.AnalysisResult(
+                toSummary(), toInsights(highValueCount), toRecommendations(), processingTimeMs);
+    }
+
+    /**
+     * Per-position state of a columnar scan
+     */
+    private static final class ColumnScan implements LongConsumer {
+        private final RecordStore store;
+        private final long recentCutoffNanos;
+        private final RecordAccumulator accumulator = new RecordAccumulator();
+        private long[] countsByCode;
+        private long unknownCount;
+        private long recent;
+
+        ColumnScan(RecordStore store, long recentCutoffNanos) {
+            this.store = store;
+            this.recentCutoffNanos = recentCutoffNanos;
+            this.countsByCode = new long[store.categoryCardinality()];
+        }
+
+        @Override
+        public void accept(long i) {
+            accumulator.values.accept(store.value(i));
+
+            int code = store.categoryCode(i);
+            if (code == RecordStore.NO_CATEGORY) {
+                unknownCount++;
+            } else {
+                if (code >= countsByCode.length) {
+                    countsByCode = Arrays.copyOf(countsByCode, store.categoryCardinality());
+                }
+                countsByCode[code]++;
+            }
+
+            if (store.timestampNanos(i) > recentCutoffNanos) {
+                recent++;
+            }
+        }
+
+        RecordAccumulator finish() {
+            for (int code = 0; code < countsByCode.length; code++) {
+                if (countsByCode[code] > 0) {
+                    accumulator.addCategory(store.categoryName(code), countsByCode[code]);
+                }
+            }
+            if (unknownCount > 0) {
+                accumulator.addCategory(UNKNOWN_CATEGORY, unknownCount);
+            }
+            accumulator.recentCount = recent;
+            return accumulator;
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Roaring-style compressed bitmap of record positions.
+ * Positions are split into 2^16-wide chunks keyed by their high bits; each chunk is held in a sorted
+ * char array while sparse (up to 4096 entries) and in a 1024-word bitset once dense. Set operations
+ * work chunk by chunk and always return new bitmaps, so results never share state with their inputs.
+ * Instances are not thread-safe.
+ */
+public final class RecordBitmap {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1 << (CHUNK_BITS - 6);
+
+    private long[] keys;
+    private Container[] containers;
+    private int size;
+
+    public RecordBitmap() {
+        this(new long[4], new Container[4], 0);
+    }
+
+    private RecordBitmap(long[] keys, Container[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    /**
+     * Bitmap holding every position in [from, to)
+     */
+    public static RecordBitmap ofRange(long from, long to) {
+        RecordBitmap bitmap = new RecordBitmap();
+        long position = Math.max(0, from);
+        while (position < to) {
+            long key = position >>> CHUNK_BITS;
+            long chunkEnd = Math.min(to, (key + 1) << CHUNK_BITS);
+            int low = (int) (position & 0xFFFF);
+            int high = (int) (chunkEnd - (key << CHUNK_BITS));
+            bitmap.append(key, high - low <= ARRAY_MAX ? ArrayContainer.range(low, high) : BitmapContainer.range(low, high));
+            position = chunkEnd;
+        }
+        return bitmap;
+    }
+
+    public void add(long position) {
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative position: " + position);
+        }
+        long key = position >>> CHUNK_BITS;
+        int i = indexOf(key);
+        if (i < 0) {
+            i = -i - 1;
+            insert(i, key, new ArrayContainer());
+        }
+        containers[i] = containers[i].add((char) position);
+    }
+
+    public boolean contains(long position) {
+        if (position < 0) {
+            return false;
+        }
+        int i = indexOf(position >>> CHUNK_BITS);
+        return i >= 0 && containers[i].contains((char) position);
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Number of 2^16-wide chunks holding at least one position; the unit of parallel partitioning
+     */
+    public int containerCount() {
+        return size;
+    }
+
+    /**
+     * Visit every position in ascending order
+     */
+    public void forEach(LongConsumer action) {
+        forEach(0, size, action);
+    }
+
+    /**
+     * Visit the positions held by chunks [fromContainer, toContainer) in ascending order
+     */
+    public void forEach(int fromContainer, int toContainer, LongConsumer action) {
+        for (int i = fromContainer; i < toContainer; i++) {
+            containers[i].forEach(keys[i] << CHUNK_BITS, action);
+        }
+    }
+
+    /**
+     * Approximate heap footprint in bytes
+     */
+    public long sizeInBytes() {
+        long bytes = 32L + keys.length * 8L + containers.length * 4L;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    public RecordBitmap copy() {
+        Container[] copied = new Container[Math.max(4, size)];
+        for (int i = 0; i < size; i++) {
+            copied[i] = containers[i].copy();
+        }
+        return new RecordBitmap(Arrays.copyOf(keys, copied.length), copied, size);
+    }
+
+    public static RecordBitmap and(RecordBitmap left, RecordBitmap right) {
+        RecordBitmap result = new RecordBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < left.size && j < right.size) {
+            long leftKey = left.keys[i];
+            long rightKey = right.keys[j];
+            if (leftKey < rightKey) {
+                i++;
+            } else if (leftKey > rightKey) {
+                j++;
+            } else {
+                Container intersection = left.containers[i].and(right.containers[j]);
+                if (intersection.cardinality() > 0) {
+                    result.append(leftKey, intersection);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static RecordBitmap or(RecordBitmap left, RecordBitmap right) {
+        RecordBitmap result = new RecordBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < left.size || j < right.size) {
+            if (j >= right.size || (i < left.size && left.keys[i] < right.keys[j])) {
+                result.append(left.keys[i], left.containers[i++].copy());
+            } else if (i >= left.size || right.keys[j] < left.keys[i]) {
+                result.append(right.keys[j], right.containers[j++].copy());
+            } else {
+                result.append(left.keys[i], left.containers[i++].or(right.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    private int indexOf(long key) {
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void append(long key, Container container) {
+        insert(size, key, container);
+    }
+
+    private void insert(int index, long key, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RecordBitmap)) return false;
+        RecordBitmap other = (RecordBitmap) o;
+        if (size != other.size || cardinality() != other.cardinality()) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != other.keys[i] || containers[i].and(other.containers[i]).cardinality() != containers[i].cardinality()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cardinality()) * 31 + size;
+    }
+
+    @Override
+    public String toString() {
+        return "RecordBitmap{cardinality=" + cardinality() + ", containers=" + size + "}";
+    }
+
+    private abstract static class Container {
+        abstract Container add(char low);
+
+        abstract boolean contains(char low);
+
+        abstract int cardinality();
+
+        abstract void forEach(long base, LongConsumer action);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container copy();
+
+        abstract long sizeInBytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        static ArrayContainer range(int from, int to) {
+            char[] values = new char[to - from];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = (char) (from + i);
+            }
+            return new ArrayContainer(values, values.length);
+        }
+
+        @Override
+        Container add(char low) {
+            // Ingestion appends in position order, so the common case is a new largest value
+            int index = cardinality > 0 && values[cardinality - 1] < low ? -(cardinality + 1) : Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(low);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(long base, LongConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(base + values[i]);
+            }
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof BitmapContainer) {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j >= array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i >= cardinality || array.values[j] < values[i]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+            ArrayContainer union = new ArrayContainer(result, count);
+            return count > ARRAY_MAX ? union.toBitmap() : union;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(1, cardinality)), cardinality);
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 24L + values.length * 2L;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer(new long[WORDS], 0);
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        static BitmapContainer range(int from, int to) {
+            long[] words = new long[WORDS];
+            for (int bit = from; bit < to; bit++) {
+                words[bit >>> 6] |= 1L << bit;
+            }
+            return new BitmapContainer(words, to - from);
+        }
+
+        @Override
+        Container add(char low) {
+            long mask = 1L << low;
+            int word = low >>> 6;
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(long base, LongConsumer action) {
+            for (int word = 0; word < WORDS; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    action.accept(base + (word << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[WORDS];
+            int count = 0;
+            for (int word = 0; word < WORDS; word++) {
+                result[word] = words[word] & otherWords[word];
+                count += Long.bitCount(result[word]);
+            }
+            return shrink(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = Arrays.copyOf(words, WORDS);
+            BitmapContainer union = new BitmapContainer(result, cardinality);
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    union.add(array.values[i]);
+                }
+                return union;
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int word = 0; word < WORDS; word++) {
+                result[word] |= otherWords[word];
+                count += Long.bitCount(result[word]);
+            }
+            union.cardinality = count;
+            return union;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(Arrays.copyOf(words, WORDS), cardinality);
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 24L + WORDS * 8L;
+        }
+
+        private static Container shrink(long[] words, int cardinality) {
+            if (cardinality > ARRAY_MAX) {
+                return new BitmapContainer(words, cardinality);
+            }
+            char[] values = new char[cardinality];
+            int count = 0;
+            for (int word = 0; word < WORDS; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    values[count++] = (char) ((word << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
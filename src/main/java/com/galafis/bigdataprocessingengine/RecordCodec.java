@@ -0,0 +1,494 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Chunk-level encoding and decoding of records for every {@link ExportFormat}.
+ * Each method works on one self-contained chunk so chunks can be processed on separate threads.
+ */
+final class RecordCodec {
+
+    static final int BINARY_MAGIC = 0x42445058; // "BDPX"
+    static final short BINARY_VERSION = 1;
+    static final String CSV_HEADER = "id,timestamp,value,category,priority,source,metadata";
+
+    private RecordCodec() {
+    }
+
+    // Encoding
+
+    /**
+     * Encode records as one binary frame, as {@link #encode} does for a store range
+     */
+    static byte[] encodeBinary(List<BigDataProcessingSystem.DataRecord> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(1 << 20, records.size() * 64L + 8));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeInt(0);
+        for (BigDataProcessingSystem.DataRecord record : records) {
+            writeBinaryRecord(record.getId(), RecordStore.toEpochNanos(record.getTimestamp()), record.getValue(),
+                    record.getRecordMetadata().toMap(), out);
+        }
+        byte[] frame = bytes.toByteArray();
+        writeInt(frame, 0, records.size());
+        writeInt(frame, 4, frame.length - 8);
+        return frame;
+    }
+
+    private static void writeBinaryRecord(String id, long timestampNanos, double value, Map<String, Object> metadata,
+                                          DataOutput out) throws IOException {
+        out.writeUTF(id);
+        out.writeLong(timestampNanos);
+        out.writeDouble(value);
+        MetadataCodec.write(metadata, out);
+    }
+
+    /**
+     * Encode records [from, to) of the store; binary chunks are a complete frame
+     */
+    static byte[] encode(RecordStore store, long from, long to, ExportFormat format) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(1 << 20, (to - from) * 64));
+        if (format == ExportFormat.BINARY) {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // record count, patched below
+            out.writeInt(0); // payload length, patched below
+            for (long i = from; i < to; i++) {
+                // One materialization per record: stores with out-of-line ids read them only once
+                BigDataProcessingSystem.DataRecord record = store.record(i);
+                writeBinaryRecord(record.getId(), RecordStore.toEpochNanos(record.getTimestamp()), record.getValue(),
+                        record.getRecordMetadata().toMap(), out);
+            }
+            byte[] frame = bytes.toByteArray();
+            writeInt(frame, 0, (int) (to - from));
+            writeInt(frame, 4, frame.length - 8);
+            return frame;
+        }
+
+        StringBuilder text = new StringBuilder(128);
+        Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        for (long i = from; i < to; i++) {
+            text.setLength(0);
+            BigDataProcessingSystem.DataRecord record = store.record(i);
+            if (format == ExportFormat.JSONL) {
+                appendJson(record, text);
+            } else {
+                appendCsv(record, text);
+            }
+            text.append('\n');
+            writer.append(text);
+        }
+        writer.flush();
+        return bytes.toByteArray();
+    }
+
+    static byte[] binaryHeader() {
+        byte[] header = new byte[6];
+        writeInt(header, 0, BINARY_MAGIC);
+        header[4] = (byte) (BINARY_VERSION >>> 8);
+        header[5] = (byte) BINARY_VERSION;
+        return header;
+    }
+
+    /**
+     * Frame with no records marking the end of a binary export
+     */
+    static byte[] binaryTrailer() {
+        return new byte[8];
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    private static void appendJson(BigDataProcessingSystem.DataRecord record, StringBuilder out) {
+        out.append("{\"id\":");
+        appendJsonString(record.getId(), out);
+        out.append(",\"timestamp\":\"").append(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(record.getTimestamp()));
+        out.append("\",\"value\":");
+        appendJsonValue(record.getValue(), out);
+        out.append(",\"metadata\":");
+        appendJsonObject(record.getRecordMetadata().toMap(), out);
+        out.append('}');
+    }
+
+    private static void appendCsv(BigDataProcessingSystem.DataRecord record, StringBuilder out) {
+        RecordMetadata metadata = record.getRecordMetadata();
+        appendCsvField(record.getId(), out);
+        out.append(',').append(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(record.getTimestamp()));
+        out.append(',').append(record.getValue());
+        out.append(',');
+        if (metadata.getCategory() != null) {
+            appendCsvField(metadata.getCategory(), out);
+        }
+        out.append(',');
+        if (metadata.hasPriority()) {
+            out.append(metadata.getPriority());
+        }
+        out.append(',');
+        if (metadata.getSource() != null) {
+            appendCsvField(metadata.getSource(), out);
+        }
+        out.append(',');
+        if (metadata.hasExtras()) {
+            Map<String, Object> extras = new LinkedHashMap<>();
+            metadata.forEachExtra(extras::put);
+            StringBuilder json = new StringBuilder();
+            appendJsonObject(extras, json);
+            appendCsvField(json.toString(), out);
+        }
+    }
+
+    private static void appendCsvField(String value, StringBuilder out) {
+        boolean quote = value.isEmpty() || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void appendJsonObject(Map<String, Object> map, StringBuilder out) {
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            appendJsonString(entry.getKey(), out);
+            out.append(':');
+            appendJsonValue(entry.getValue(), out);
+        }
+        out.append('}');
+    }
+
+    /**
+     * Strings, integral numbers, finite doubles, booleans and null map to JSON directly;
+     * non-finite doubles and any other value are written as strings
+     */
+    private static void appendJsonValue(Object value, StringBuilder out) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Double && Double.isFinite((Double) value)) {
+            out.append(value);
+        } else {
+            appendJsonString(value.toString(), out);
+        }
+    }
+
+    private static void appendJsonString(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    // Decoding
+
+    /**
+     * Decode the payload of one binary frame holding the given number of records
+     */
+    static List<BigDataProcessingSystem.DataRecord> decodeBinary(byte[] payload, int recordCount) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            String id = in.readUTF();
+            LocalDateTime timestamp = RecordStore.fromEpochNanos(in.readLong());
+            double value = in.readDouble();
+            records.add(new BigDataProcessingSystem.DataRecord(id, timestamp, value, RecordMetadata.of(MetadataCodec.read(in))));
+        }
+        if (in.available() > 0) {
+            throw new IOException("Binary frame has " + in.available() + " trailing bytes");
+        }
+        return records;
+    }
+
+    /**
+     * Decode text lines (JSON Lines, or CSV rows without the header)
+     */
+    static List<BigDataProcessingSystem.DataRecord> decodeLines(List<String> lines, ExportFormat format) throws IOException {
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            try {
+                records.add(format == ExportFormat.JSONL ? parseJson(line) : parseCsv(line));
+            } catch (DateTimeParseException | NumberFormatException | IndexOutOfBoundsException | ClassCastException e) {
+                throw new IOException("Malformed " + format + " record: " + line, e);
+            }
+        }
+        return records;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BigDataProcessingSystem.DataRecord parseJson(String line) throws IOException {
+        JsonParser parser = new JsonParser(line);
+        Object parsed = parser.parseValue();
+        parser.expectEnd();
+        if (!(parsed instanceof Map)) {
+            throw new IOException("Expected a JSON object: " + line);
+        }
+        Map<String, Object> object = (Map<String, Object>) parsed;
+        Object metadata = object.get("metadata");
+        return new BigDataProcessingSystem.DataRecord(
+                (String) object.get("id"),
+                LocalDateTime.parse((String) object.get("timestamp")),
+                toDouble(object.get("value")),
+                metadata instanceof Map ? RecordMetadata.of((Map<String, Object>) metadata) : RecordMetadata.EMPTY);
+    }
+
+    private static double toDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble((String) value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BigDataProcessingSystem.DataRecord parseCsv(String line) throws IOException {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 7) {
+            throw new IOException("Expected 7 CSV fields but found " + fields.size() + ": " + line);
+        }
+        Map<String, Object> extras = null;
+        if (!fields.get(6).isEmpty()) {
+            JsonParser parser = new JsonParser(fields.get(6));
+            extras = (Map<String, Object>) parser.parseValue();
+            parser.expectEnd();
+        }
+        RecordMetadata metadata = RecordMetadata.of(
+                fields.get(3).isEmpty() ? null : fields.get(3),
+                fields.get(4).isEmpty() ? RecordMetadata.NO_PRIORITY : Integer.parseInt(fields.get(4)),
+                fields.get(5).isEmpty() ? null : fields.get(5),
+                extras);
+        return new BigDataProcessingSystem.DataRecord(fields.get(0), LocalDateTime.parse(fields.get(1)),
+                Double.parseDouble(fields.get(2)), metadata);
+    }
+
+    /**
+     * Split one CSV row; quoted fields may contain commas and doubled quotes
+     */
+    static List<String> splitCsv(String line) throws IOException {
+        List<String> fields = new ArrayList<>(7);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IOException("Unterminated quoted CSV field: " + line);
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+            } else {
+                while (i < line.length() && line.charAt(i) != ',') {
+                    field.append(line.charAt(i++));
+                }
+            }
+            fields.add(field.toString());
+            if (i >= line.length()) {
+                return fields;
+            }
+            if (line.charAt(i) != ',') {
+                throw new IOException("Unexpected character after quoted CSV field: " + line);
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Minimal JSON reader for the flat objects this codec writes
+     */
+    private static final class JsonParser {
+        private final String text;
+        private int position;
+
+        JsonParser(String text) {
+            this.text = text;
+        }
+
+        Object parseValue() throws IOException {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw error("Unexpected end of JSON");
+            }
+            char c = text.charAt(position);
+            switch (c) {
+                case '{':
+                    return parseObject();
+                case '"':
+                    return parseString();
+                case 't':
+                    return literal("true", Boolean.TRUE);
+                case 'f':
+                    return literal("false", Boolean.FALSE);
+                case 'n':
+                    return literal("null", null);
+                default:
+                    return parseNumber();
+            }
+        }
+
+        void expectEnd() throws IOException {
+            skipWhitespace();
+            if (position != text.length()) {
+                throw error("Trailing characters");
+            }
+        }
+
+        private Map<String, Object> parseObject() throws IOException {
+            Map<String, Object> object = new LinkedHashMap<>();
+            position++;
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = parseString();
+                skipWhitespace();
+                expect(':');
+                object.put(key, parseValue());
+                skipWhitespace();
+                char c = text.charAt(position++);
+                if (c == '}') {
+                    return object;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or '}'");
+                }
+            }
+        }
+
+        private String parseString() throws IOException {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            }
+        }
+
+        private Object parseNumber() throws IOException {
+            int start = position;
+            boolean integral = true;
+            while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+                char c = text.charAt(position++);
+                if (c == '.' || c == 'e' || c == 'E') {
+                    integral = false;
+                }
+            }
+            if (start == position) {
+                throw error("Unexpected character");
+            }
+            String number = text.substring(start, position);
+            if (!integral) {
+                return Double.parseDouble(number);
+            }
+            long value = Long.parseLong(number);
+            return value == (int) value ? (Object) (int) value : (Object) value;
+        }
+
+        private Object literal(String word, Object value) throws IOException {
+            if (!text.startsWith(word, position)) {
+                throw error("Unexpected literal");
+            }
+            position += word.length();
+            return value;
+        }
+
+        private void expect(char expected) throws IOException {
+            if (peek() != expected) {
+                throw error("Expected '" + expected + "'");
+            }
+            position++;
+        }
+
+        private char peek() {
+            return position < text.length() ? text.charAt(position) : '\0';
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IOException error(String message) {
+            return new IOException(message + " at position " + position + ": " + text);
+        }
+    }
+}
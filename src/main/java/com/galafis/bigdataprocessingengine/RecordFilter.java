@@ -0,0 +1,157 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Immutable record predicate over category, priority and event time, resolved through the SecondaryIndex.
+ * Each with* method returns a new filter; the conditions are combined with AND.
+ * Records without a category match {@value RecordAccumulator#UNKNOWN_CATEGORY}, as in the analysis;
+ * records without a priority never match a priority range.
+ */
+public final class RecordFilter {
+
+    private static final RecordFilter ALL = new RecordFilter(null, Integer.MIN_VALUE, Integer.MAX_VALUE, false, Long.MIN_VALUE, Long.MAX_VALUE);
+
+    private final Set<String> categories;
+    private final int minPriority;
+    private final int maxPriority;
+    private final boolean priorityFiltered;
+    private final long fromNanos;
+    private final long toNanos;
+
+    private RecordFilter(Set<String> categories, int minPriority, int maxPriority, boolean priorityFiltered,
+                         long fromNanos, long toNanos) {
+        this.categories = categories;
+        this.minPriority = minPriority;
+        this.maxPriority = maxPriority;
+        this.priorityFiltered = priorityFiltered;
+        this.fromNanos = fromNanos;
+        this.toNanos = toNanos;
+    }
+
+    /**
+     * Filter matching every record
+     */
+    public static RecordFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Only records in one of the given categories
+     */
+    public RecordFilter withCategories(String... names) {
+        if (names.length == 0) {
+            throw new IllegalArgumentException("At least one category is required");
+        }
+        return new RecordFilter(Collections.unmodifiableSet(new TreeSet<>(Arrays.asList(names))),
+                minPriority, maxPriority, priorityFiltered, fromNanos, toNanos);
+    }
+
+    /**
+     * Only records whose priority lies in [min, max]
+     */
+    public RecordFilter withPriorityBetween(int min, int max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Empty priority range: " + min + ".." + max);
+        }
+        return new RecordFilter(categories, min, max, true, fromNanos, toNanos);
+    }
+
+    /**
+     * Only records with from &lt;= timestamp &lt; to; a null bound is open
+     */
+    public RecordFilter withTimeRange(LocalDateTime from, LocalDateTime to) {
+        long fromBound = from != null ? RecordStore.toEpochNanos(from) : Long.MIN_VALUE;
+        long toBound = to != null ? RecordStore.toEpochNanos(to) : Long.MAX_VALUE;
+        if (fromBound > toBound) {
+            throw new IllegalArgumentException("Time range ends before it starts: " + from + " - " + to);
+        }
+        return new RecordFilter(categories, minPriority, maxPriority, priorityFiltered, fromBound, toBound);
+    }
+
+    /**
+     * Filter matching the records both filters match; a contradictory combination keeps no category
+     */
+    RecordFilter and(RecordFilter other) {
+        Set<String> combinedCategories = categories;
+        if (other.categories != null) {
+            if (combinedCategories == null) {
+                combinedCategories = other.categories;
+            } else {
+                Set<String> common = new TreeSet<>(categories);
+                common.retainAll(other.categories);
+                combinedCategories = Collections.unmodifiableSet(common);
+            }
+        }
+        int min = Math.max(minPriority, other.minPriority);
+        int max = Math.min(maxPriority, other.maxPriority);
+        if (min > max) {
+            return new RecordFilter(Collections.emptySet(), minPriority, maxPriority, priorityFiltered, fromNanos, toNanos);
+        }
+        long from = Math.max(fromNanos, other.fromNanos);
+        long to = Math.max(from, Math.min(toNanos, other.toNanos));
+        return new RecordFilter(combinedCategories, min, max, priorityFiltered || other.priorityFiltered, from, to);
+    }
+
+    /**
+     * Evaluate the filter against a single record, without an index
+     */
+    public boolean matches(BigDataProcessingSystem.DataRecord record) {
+        if (categories != null) {
+            String category = record.getCategory();
+            if (!categories.contains(category != null ? category : RecordAccumulator.UNKNOWN_CATEGORY)) {
+                return false;
+            }
+        }
+        if (priorityFiltered) {
+            RecordMetadata metadata = record.getRecordMetadata();
+            if (!metadata.hasPriority() || metadata.getPriority() < minPriority || metadata.getPriority() > maxPriority) {
+                return false;
+            }
+        }
+        long timestamp = RecordStore.toEpochNanos(record.getTimestamp());
+        return timestamp >= fromNanos && timestamp < toNanos;
+    }
+
+    // Getters
+    public Set<String> getCategories() { return categories; }
+    public boolean isPriorityFiltered() { return priorityFiltered; }
+    public int getMinPriority() { return minPriority; }
+    public int getMaxPriority() { return maxPriority; }
+    public boolean isTimeFiltered() { return fromNanos != Long.MIN_VALUE || toNanos != Long.MAX_VALUE; }
+    long getFromNanos() { return fromNanos; }
+    long getToNanos() { return toNanos; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RecordFilter)) return false;
+        RecordFilter other = (RecordFilter) o;
+        return minPriority == other.minPriority && maxPriority == other.maxPriority
+                && priorityFiltered == other.priorityFiltered && fromNanos == other.fromNanos
+                && toNanos == other.toNanos && Objects.equals(categories, other.categories);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(categories, minPriority, maxPriority, priorityFiltered, fromNanos, toNanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("RecordFilter{");
+        if (categories != null) {
+            text.append("categories=").append(categories).append(' ');
+        }
+        if (priorityFiltered) {
+            text.append("priority=").append(minPriority).append("..").append(maxPriority).append(' ');
+        }
+        if (isTimeFiltered()) {
+            text.append("time=[")
+                    .append(fromNanos != Long.MIN_VALUE ? RecordStore.fromEpochNanos(fromNanos) : "-inf").append(", ")
+                    .append(toNanos != Long.MAX_VALUE ? RecordStore.fromEpochNanos(toNanos) : "+inf").append(')');
+        }
+        return text.toString().trim() + "}";
+    }
+}
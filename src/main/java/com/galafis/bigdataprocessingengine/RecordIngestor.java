@@ -0,0 +1,266 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Batched ingestion front end for a RecordStore.
+ * Producers hand over records individually or in batches; batches are split into chunks of
+ * {@code batchSize} records and placed on a bounded lock-free queue. When the queue is full
+ * producers are parked until the drain thread catches up (backpressure). The drain thread
+ * coalesces queued chunks into store appends of up to the append batch size and completes each
+ * chunk's acknowledgement once its records are stored; with an adaptive {@link AdaptiveBatchSizer}
+ * that size follows the observed append latency.
+ */
+public class RecordIngestor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecordIngestor.class);
+
+    private static final long MAX_PRODUCER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long DRAIN_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final RecordStore recordStore;
+    private final int batchSize;
+    private final AdaptiveBatchSizer appendSizer;
+    private final BoundedMpmcQueue<PendingBatch> queue;
+    private final Thread drainThread;
+    private final LongAdder ingestedRecords = new LongAdder();
+    private final LongAdder acknowledgedBatches = new LongAdder();
+    private final LongAdder backpressureWaits = new LongAdder();
+    private final LongAdder listenerFailures = new LongAdder();
+    private final List<IngestListener> listeners = new CopyOnWriteArrayList<>();
+    private final EngineMetrics metrics;
+
+    /** Producers between their running check and the end of their offer; close waits for them */
+    private final AtomicInteger activeProducers = new AtomicInteger();
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+    private volatile boolean drainIdle;
+
+    public RecordIngestor(RecordStore recordStore, int batchSize, int appendBatchSize, int queueCapacity) {
+        this(recordStore, batchSize, appendBatchSize, queueCapacity, new EngineMetrics());
+    }
+
+    /**
+     * @param metrics receives the record count and append latency of every coalesced append
+     */
+    public RecordIngestor(RecordStore recordStore, int batchSize, int appendBatchSize, int queueCapacity, EngineMetrics metrics) {
+        this(recordStore, batchSize, AdaptiveBatchSizer.fixed(appendBatchSize), queueCapacity, metrics);
+    }
+
+    /**
+     * @param appendSizer chooses the number of records coalesced into each store append
+     */
+    public RecordIngestor(RecordStore recordStore, int batchSize, AdaptiveBatchSizer appendSizer, int queueCapacity,
+                          EngineMetrics metrics) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.recordStore = recordStore;
+        this.batchSize = batchSize;
+        this.appendSizer = appendSizer;
+        this.queue = new BoundedMpmcQueue<>(queueCapacity);
+        this.metrics = metrics;
+        this.drainThread = new Thread(this::drainLoop, "record-ingestor");
+        this.drainThread.setDaemon(true);
+        this.drainThread.start();
+    }
+
+    /**
+     * Queue one record; the future completes with 1 once it is stored
+     */
+    public CompletableFuture<Integer> ingest(BigDataProcessingSystem.DataRecord record) {
+        return enqueue(List.of(record));
+    }
+
+    /**
+     * Queue a batch of records, split into chunks of batchSize.
+     * The future completes with the number of stored records once every chunk is acknowledged;
+     * the list must not be modified until then.
+     */
+    public CompletableFuture<Integer> ingestBatch(List<BigDataProcessingSystem.DataRecord> records) {
+        if (records.size() <= batchSize) {
+            return enqueue(records);
+        }
+        List<CompletableFuture<Integer>> acknowledgements = new ArrayList<>((records.size() + batchSize - 1) / batchSize);
+        for (int from = 0; from < records.size(); from += batchSize) {
+            acknowledgements.add(enqueue(records.subList(from, Math.min(records.size(), from + batchSize))));
+        }
+        return CompletableFuture.allOf(acknowledgements.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> records.size());
+    }
+
+    private CompletableFuture<Integer> enqueue(List<BigDataProcessingSystem.DataRecord> records) {
+        PendingBatch batch = new PendingBatch(records);
+        // Registered before the running check, so close() either rejects this batch here or
+        // keeps the drain thread alive until the offer below has landed
+        activeProducers.incrementAndGet();
+        try {
+            if (!running) {
+                batch.acknowledgement.completeExceptionally(new IllegalStateException("RecordIngestor is closed"));
+                return batch.acknowledgement;
+            }
+            long parkNanos = 1_000;
+            while (!queue.offer(batch)) {
+                if (!running) {
+                    batch.acknowledgement.completeExceptionally(new IllegalStateException("RecordIngestor is closed"));
+                    return batch.acknowledgement;
+                }
+                backpressureWaits.increment();
+                LockSupport.unpark(drainThread);
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(MAX_PRODUCER_PARK_NANOS, parkNanos * 2);
+            }
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+        if (drainIdle) {
+            LockSupport.unpark(drainThread);
+        }
+        return batch.acknowledgement;
+    }
+
+    private void drainLoop() {
+        List<PendingBatch> pending = new ArrayList<>();
+        List<BigDataProcessingSystem.DataRecord> appendBuffer = new ArrayList<>(appendSizer.size());
+
+        while (!stopped || !queue.isEmpty()) {
+            PendingBatch batch = queue.poll();
+            if (batch == null) {
+                drainIdle = true;
+                if (queue.isEmpty() && !stopped) {
+                    LockSupport.parkNanos(this, DRAIN_IDLE_PARK_NANOS);
+                }
+                drainIdle = false;
+                continue;
+            }
+
+            int appendBatchSize = appendSizer.size();
+            do {
+                pending.add(batch);
+                appendBuffer.addAll(batch.records);
+            } while (appendBuffer.size() < appendBatchSize && (batch = queue.poll()) != null);
+
+            long appendStart = System.nanoTime();
+            long firstIndex;
+            try {
+                firstIndex = append(appendBuffer);
+            } catch (Throwable e) {
+                logger.error("Failed to ingest {} records", appendBuffer.size(), e);
+                for (PendingBatch failed : pending) {
+                    failed.acknowledgement.completeExceptionally(e);
+                }
+                pending.clear();
+                appendBuffer.clear();
+                continue;
+            }
+            // The records are stored (and logged) now, so a failing listener must neither
+            // fail their acknowledgements nor keep the remaining listeners from seeing them
+            for (IngestListener listener : listeners) {
+                try {
+                    listener.onAppend(recordStore, firstIndex, appendBuffer);
+                } catch (Throwable e) {
+                    listenerFailures.increment();
+                    logger.error("Ingest listener {} failed on {} records at {}", listener, appendBuffer.size(), firstIndex, e);
+                }
+            }
+            long appendNanos = System.nanoTime() - appendStart;
+            appendSizer.record(appendBuffer.size(), appendNanos);
+            metrics.recordIngest(appendBuffer.size(), appendNanos);
+            ingestedRecords.add(appendBuffer.size());
+            acknowledgedBatches.add(pending.size());
+            for (PendingBatch completed : pending) {
+                completed.acknowledgement.complete(completed.records.size());
+            }
+            pending.clear();
+            appendBuffer.clear();
+        }
+    }
+
+    /**
+     * Run every listener's beforeAppend, then append; if either step fails, the listeners that
+     * already saw the records are told and the store is left as it was before the failed step
+     */
+    private long append(List<BigDataProcessingSystem.DataRecord> records) {
+        long expectedIndex = recordStore.size();
+        List<IngestListener> prepared = new ArrayList<>(listeners.size());
+        try {
+            for (IngestListener listener : listeners) {
+                listener.beforeAppend(recordStore, expectedIndex, records);
+                prepared.add(listener);
+            }
+            return recordStore.appendAll(records);
+        } catch (Throwable e) {
+            for (IngestListener listener : prepared) {
+                try {
+                    listener.appendFailed(recordStore, expectedIndex, records);
+                } catch (Throwable suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+    }
+
+    public void addListener(IngestListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(IngestListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Getters
+    public int getBatchSize() { return batchSize; }
+    public int getAppendBatchSize() { return appendSizer.size(); }
+    public int getQueueDepth() { return queue.size(); }
+    public int getQueueCapacity() { return queue.capacity(); }
+    public long getIngestedRecords() { return ingestedRecords.sum(); }
+    public long getAcknowledgedBatches() { return acknowledgedBatches.sum(); }
+    public long getBackpressureWaits() { return backpressureWaits.sum(); }
+    public long getListenerFailures() { return listenerFailures.sum(); }
+
+    /**
+     * Stop accepting records, store everything already queued and stop the drain thread
+     */
+    @Override
+    public void close() {
+        running = false;
+        // Producers that passed the running check finish their offer (or give up) promptly
+        while (activeProducers.get() > 0) {
+            LockSupport.unpark(drainThread);
+            Thread.onSpinWait();
+        }
+        stopped = true;
+        LockSupport.unpark(drainThread);
+        try {
+            drainThread.join(TimeUnit.SECONDS.toMillis(60));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while draining ingestion queue.", e);
+        }
+        PendingBatch leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.acknowledgement.completeExceptionally(new IllegalStateException("RecordIngestor is closed"));
+        }
+        logger.info("Record ingestor closed after ingesting {} records", ingestedRecords.sum());
+    }
+
+    private static final class PendingBatch {
+        private final List<BigDataProcessingSystem.DataRecord> records;
+        private final CompletableFuture<Integer> acknowledgement = new CompletableFuture<>();
+
+        PendingBatch(List<BigDataProcessingSystem.DataRecord> records) {
+            this.records = records;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable, typed record metadata.
+ * The well-known fields are kept in dedicated slots: category and source as the strings given,
+ * priority as a primitive int. Dictionary encoding of the labels is left to each RecordStore, so no
+ * state outlives the records that use it. Any other entry, or a well-known key
+ * holding a value of another type, goes to a compact key/value array. Reading a field never allocates.
+ */
+public final class RecordMetadata {
+
+    public static final String CATEGORY = "category";
+    public static final String PRIORITY = "priority";
+    public static final String SOURCE = "source";
+
+    /** Value of an absent priority */
+    public static final int NO_PRIORITY = Integer.MIN_VALUE;
+
+    public static final RecordMetadata EMPTY = new RecordMetadata(null, NO_PRIORITY, null, null);
+
+    private final String category;
+    private final int priority;
+    private final String source;
+    private final Object[] extras; // alternating keys and values, null when there are none
+
+    private RecordMetadata(String category, int priority, String source, Object[] extras) {
+        this.category = category;
+        this.priority = priority;
+        this.source = source;
+        this.extras = extras;
+    }
+
+    /**
+     * Split a free-form metadata map into typed slots and extras
+     */
+    public static RecordMetadata of(Map<String, ?> metadata) {
+        String category = null;
+        int priority = NO_PRIORITY;
+        String source = null;
+        List<Object> extras = null;
+        for (Map.Entry<String, ?> entry : metadata.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case CATEGORY:
+                    if (value instanceof String) {
+                        category = (String) value;
+                        continue;
+                    }
+                    break;
+                case PRIORITY:
+                    if (value instanceof Integer && (Integer) value != NO_PRIORITY) {
+                        priority = (Integer) value;
+                        continue;
+                    }
+                    break;
+                case SOURCE:
+                    if (value instanceof String) {
+                        source = (String) value;
+                        continue;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (extras == null) {
+                extras = new ArrayList<>();
+            }
+            extras.add(entry.getKey());
+            extras.add(value);
+        }
+        return create(category, priority, source, extras != null ? extras.toArray() : null);
+    }
+
+    /**
+     * Build from typed values as stores decode them; null category/source and
+     * {@link #NO_PRIORITY} mean absent, extras may be null or empty.
+     * A well-known key among the extras (e.g. a priority too wide for a store's byte column)
+     * is placed in its typed slot when its value fits.
+     */
+    public static RecordMetadata of(String category, int priority, String source, Map<String, ?> extras) {
+        if (extras != null && (extras.containsKey(CATEGORY) || extras.containsKey(PRIORITY) || extras.containsKey(SOURCE))) {
+            Map<String, Object> merged = new HashMap<>(extras);
+            if (category != null) {
+                merged.put(CATEGORY, category);
+            }
+            if (priority != NO_PRIORITY) {
+                merged.put(PRIORITY, priority);
+            }
+            if (source != null) {
+                merged.put(SOURCE, source);
+            }
+            return of(merged);
+        }
+        Object[] flattened = null;
+        if (extras != null && !extras.isEmpty()) {
+            flattened = new Object[extras.size() * 2];
+            int i = 0;
+            for (Map.Entry<String, ?> entry : extras.entrySet()) {
+                flattened[i++] = entry.getKey();
+                flattened[i++] = entry.getValue();
+            }
+        }
+        return create(category, priority, source, flattened);
+    }
+
+    private static RecordMetadata create(String category, int priority, String source, Object[] extras) {
+        if (category == null && priority == NO_PRIORITY && source == null && extras == null) {
+            return EMPTY;
+        }
+        return new RecordMetadata(category, priority, source, extras);
+    }
+
+    // Getters
+    public String getCategory() { return category; }
+    public boolean hasPriority() { return priority != NO_PRIORITY; }
+    public int getPriority() { return priority; }
+    public String getSource() { return source; }
+
+    /**
+     * Value stored under the key, typed slots included, or null
+     */
+    public Object get(String key) {
+        switch (key) {
+            case CATEGORY:
+                if (category != null) {
+                    return category;
+                }
+                break;
+            case PRIORITY:
+                if (hasPriority()) {
+                    return priority;
+                }
+                break;
+            case SOURCE:
+                if (source != null) {
+                    return source;
+                }
+                break;
+            default:
+                break;
+        }
+        if (extras != null) {
+            for (int i = 0; i < extras.length; i += 2) {
+                if (key.equals(extras[i])) {
+                    return extras[i + 1];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Visit the entries that are not held in a typed slot
+     */
+    public void forEachExtra(BiConsumer<String, Object> action) {
+        if (extras != null) {
+            for (int i = 0; i < extras.length; i += 2) {
+                action.accept((String) extras[i], extras[i + 1]);
+            }
+        }
+    }
+
+    public boolean hasExtras() {
+        return extras != null;
+    }
+
+    /**
+     * Mutable map view of every entry, as the original free-form metadata looked
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        if (category != null) {
+            map.put(CATEGORY, category);
+        }
+        if (hasPriority()) {
+            map.put(PRIORITY, priority);
+        }
+        if (source != null) {
+            map.put(SOURCE, source);
+        }
+        forEachExtra(map::put);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
@@ -0,0 +1,189 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Column-oriented record storage.
+ * Records are addressed by position and exposed column by column so processors can aggregate
+ * over primitives; the DataRecord view is only materialized on demand for compatibility.
+ */
+public interface RecordStore {
+
+    /** Category code used for records without a (String) category */
+    int NO_CATEGORY = -1;
+
+    /** Priority value used for records without a priority that fits the byte column */
+    byte NO_PRIORITY = Byte.MIN_VALUE;
+
+    long size();
+
+    /**
+     * Monotonically increasing dataset version; changes whenever records are appended.
+     * Append-only stores use their size.
+     */
+    default long version() {
+        return size();
+    }
+
+    String id(long index);
+
+    double value(long index);
+
+    /** Record timestamp as nanoseconds since the epoch, interpreted at UTC */
+    long timestampNanos(long index);
+
+    int categoryCode(long index);
+
+    /** Number of distinct category codes assigned so far; codes are dense in [0, cardinality) */
+    int categoryCardinality();
+
+    String categoryName(int code);
+
+    byte priority(long index);
+
+    /** Materialize the record at the given position */
+    BigDataProcessingSystem.DataRecord record(long index);
+
+    /**
+     * Append one record and return its position
+     */
+    long append(BigDataProcessingSystem.DataRecord record);
+
+    /**
+     * Append records contiguously and return the position of the first one
+     */
+    long appendAll(Collection<BigDataProcessingSystem.DataRecord> records);
+
+    /**
+     * Read-only view of the records present now. Stores are append-only and published records never
+     * change, so the view stays consistent while writers continue; it costs nothing to take.
+     */
+    default RecordStore snapshot() {
+        return new Snapshot(this, size());
+    }
+
+    /**
+     * Lazy list view; each get materializes a DataRecord from the columns
+     */
+    default List<BigDataProcessingSystem.DataRecord> asList() {
+        return new RecordListView(this);
+    }
+
+    static long toEpochNanos(LocalDateTime timestamp) {
+        return Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), 1_000_000_000L), timestamp.getNano());
+    }
+
+    static LocalDateTime fromEpochNanos(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                (int) Math.floorMod(epochNanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    /**
+     * Point-in-time view of a RecordStore bounded at the size it had when the view was taken
+     */
+    final class Snapshot implements RecordStore {
+        private final RecordStore store;
+        private final long size;
+
+        Snapshot(RecordStore store, long size) {
+            this.store = store;
+            this.size = size;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public String id(long index) {
+            return store.id(checkIndex(index));
+        }
+
+        @Override
+        public double value(long index) {
+            return store.value(checkIndex(index));
+        }
+
+        @Override
+        public long timestampNanos(long index) {
+            return store.timestampNanos(checkIndex(index));
+        }
+
+        @Override
+        public int categoryCode(long index) {
+            return store.categoryCode(checkIndex(index));
+        }
+
+        @Override
+        public int categoryCardinality() {
+            return store.categoryCardinality();
+        }
+
+        @Override
+        public String categoryName(int code) {
+            return store.categoryName(code);
+        }
+
+        @Override
+        public byte priority(long index) {
+            return store.priority(checkIndex(index));
+        }
+
+        @Override
+        public BigDataProcessingSystem.DataRecord record(long index) {
+            return store.record(checkIndex(index));
+        }
+
+        @Override
+        public long append(BigDataProcessingSystem.DataRecord record) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public long appendAll(Collection<BigDataProcessingSystem.DataRecord> records) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public RecordStore snapshot() {
+            return this;
+        }
+
+        private long checkIndex(long index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Read-only List adapter over a RecordStore
+     */
+    final class RecordListView extends AbstractList<BigDataProcessingSystem.DataRecord> implements RandomAccess {
+        private final RecordStore store;
+
+        RecordListView(RecordStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public BigDataProcessingSystem.DataRecord get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return store.record(index);
+        }
+
+        @Override
+        public int size() {
+            return Math.toIntExact(store.size());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.util.*;
+import java.util.function.LongFunction;
+
+/**
+ * Fixed-size uniform random sample of a stream.
+ * Each offered item draws a random priority and the sample keeps the items with the smallest
+ * priorities (bottom-k sampling), which is equivalent to reservoir sampling but merges exactly:
+ * the union of two samples trimmed to the capacity is a uniform sample of both streams.
+ */
+public final class ReservoirSample<T> {
+
+    private final int capacity;
+    private final SplittableRandom random;
+    // Max-heap on priority, so the entry to evict is always at the head
+    private final PriorityQueue<Entry<T>> entries;
+    private long seen;
+
+    public ReservoirSample(int capacity) {
+        this(capacity, new SplittableRandom());
+    }
+
+    ReservoirSample(int capacity, SplittableRandom random) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Sample capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.random = random;
+        this.entries = new PriorityQueue<>(capacity, Comparator.comparingDouble((Entry<T> entry) -> entry.priority).reversed());
+    }
+
+    public void offer(T item) {
+        double priority = admit();
+        if (priority >= 0) {
+            keep(priority, item);
+        }
+    }
+
+    /**
+     * Offer the item at a position, loading it only if it enters the sample
+     */
+    public void offer(long position, LongFunction<? extends T> loader) {
+        double priority = admit();
+        if (priority >= 0) {
+            keep(priority, loader.apply(position));
+        }
+    }
+
+    /**
+     * Priority for the next item if it enters the sample, or -1
+     */
+    private double admit() {
+        seen++;
+        double priority = random.nextDouble();
+        return entries.size() < capacity || priority < entries.peek().priority ? priority : -1;
+    }
+
+    private void keep(double priority, T item) {
+        if (entries.size() == capacity) {
+            entries.poll();
+        }
+        entries.add(new Entry<>(priority, item));
+    }
+
+    /**
+     * Combine another sample into this one and return this instance
+     */
+    public ReservoirSample<T> merge(ReservoirSample<T> other) {
+        for (Entry<T> entry : other.entries) {
+            if (entries.size() < capacity || entry.priority < entries.peek().priority) {
+                keep(entry.priority, entry.item);
+            }
+        }
+        seen += other.seen;
+        return this;
+    }
+
+    public List<T> getItems() {
+        List<T> items = new ArrayList<>(entries.size());
+        for (Entry<T> entry : entries) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    // Getters
+    public int getCapacity() { return capacity; }
+    public long getSeen() { return seen; }
+
+    private static final class Entry<T> {
+        private final double priority;
+        private final T item;
+
+        Entry(double priority, T item) {
+            this.priority = priority;
+            this.item = item;
+        }
+    }
+}
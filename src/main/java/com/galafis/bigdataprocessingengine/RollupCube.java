@@ -0,0 +1,290 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Pre-aggregated rollup of a RecordStore, maintained as an IngestListener.
+ * Every (time bucket, category, priority) combination owns a mergeable {@link Cell} holding
+ * count, sum, min, max and sum of squares; queries merge the cells of a slice without touching
+ * a single record, so their cost depends on the number of cells rather than the number of records.
+ * <p>
+ * Summary statistics and category counts are exact. The two figures that depend on individual
+ * records are estimated per cell: the recent-record count is prorated within the bucket that
+ * contains the one-day cutoff, and the high-value count assumes values spread evenly between
+ * the min and max of cells that straddle the threshold.
+ */
+public class RollupCube implements IngestListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RollupCube.class);
+
+    private final long bucketNanos;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // bucket -> category (null when absent) -> priority (RecordMetadata.NO_PRIORITY when absent) -> cell
+    private final NavigableMap<Long, Map<String, Map<Integer, Cell>>> buckets = new TreeMap<>();
+    private long coveredCount;
+    private int cellCount;
+
+    public RollupCube(Duration bucketWidth) {
+        if (bucketWidth.isNegative() || bucketWidth.isZero()) {
+            throw new IllegalArgumentException("Bucket width must be positive: " + bucketWidth);
+        }
+        this.bucketNanos = bucketWidth.toNanos();
+    }
+
+    /**
+     * Fold every record of the store not yet covered into the cells, e.g. records reopened from disk
+     */
+    public void catchUp(RecordStore store) {
+        lock.writeLock().lock();
+        try {
+            long size = store.size();
+            if (coveredCount < size) {
+                logger.info("Rolling up {} existing records", size - coveredCount);
+            }
+            for (long position = coveredCount; position < size; position++) {
+                int code = store.categoryCode(position);
+                byte priority = store.priority(position);
+                // A priority outside the byte column lives with the record's free-form metadata
+                int resolvedPriority = priority != RecordStore.NO_PRIORITY ? priority
+                        : store.record(position).getRecordMetadata().getPriority();
+                add(code != RecordStore.NO_CATEGORY ? store.categoryName(code) : null, resolvedPriority,
+                        store.timestampNanos(position), store.value(position));
+            }
+            coveredCount = Math.max(coveredCount, size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onAppend(RecordStore store, long firstIndex, List<BigDataProcessingSystem.DataRecord> records) {
+        if (firstIndex > getCoveredCount()) {
+            catchUp(store);
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = (int) Math.max(0, coveredCount - firstIndex); i < records.size(); i++) {
+                BigDataProcessingSystem.DataRecord record = records.get(i);
+                RecordMetadata metadata = record.getRecordMetadata();
+                add(metadata.getCategory(), metadata.getPriority(), RecordStore.toEpochNanos(record.getTimestamp()), record.getValue());
+            }
+            coveredCount = Math.max(coveredCount, firstIndex + records.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(String category, int priority, long timestampNanos, double value) {
+        Map<Integer, Cell> byPriority = buckets
+                .computeIfAbsent(Math.floorDiv(timestampNanos, bucketNanos), key -> new HashMap<>())
+                .computeIfAbsent(category, key -> new HashMap<>());
+        Cell cell = byPriority.get(priority);
+        if (cell == null) {
+            cell = new Cell();
+            byPriority.put(priority, cell);
+            cellCount++;
+        }
+        cell.accept(value);
+    }
+
+    /**
+     * Merged aggregate of every cell in the slice
+     */
+    public Cell aggregate(RecordStore store, RecordFilter filter) {
+        Cell total = new Cell();
+        for (SliceCell sliceCell : slice(store, filter)) {
+            total.merge(sliceCell.cell);
+        }
+        return total;
+    }
+
+    /**
+     * AnalysisResult for the slice, shaped like DefaultDataProcessor's, built from cells only
+     */
+    public BigDataProcessingSystem.AnalysisResult analyze(RecordStore store, RecordFilter filter) {
+        long startTime = System.currentTimeMillis();
+        List<SliceCell> cells = slice(store, filter);
+        long recentCutoff = RecordStore.toEpochNanos(LocalDateTime.now().minusDays(1));
+
+        RecordAccumulator accumulator = new RecordAccumulator();
+        double recent = 0;
+        for (SliceCell sliceCell : cells) {
+            accumulator.acceptStatistics(sliceCell.cell.values);
+            accumulator.addCategory(sliceCell.category != null ? sliceCell.category : RecordAccumulator.UNKNOWN_CATEGORY,
+                    sliceCell.cell.getCount());
+            long bucketStart = sliceCell.bucket * bucketNanos;
+            if (bucketStart > recentCutoff) {
+                recent += sliceCell.cell.getCount();
+            } else if (bucketStart + bucketNanos > recentCutoff) {
+                recent += sliceCell.cell.getCount() * (double) (bucketStart + bucketNanos - recentCutoff) / bucketNanos;
+            }
+        }
+        accumulator.addRecent(Math.round(recent));
+
+        double threshold = accumulator.getAverage() * 1.5;
+        double highValue = 0;
+        for (SliceCell sliceCell : cells) {
+            highValue += sliceCell.cell.estimateCountAbove(threshold);
+        }
+
+        long processingTime = System.currentTimeMillis() - startTime;
+        logger.debug("Rollup analysis of {} cells for {} took {}ms", cells.size(), filter, processingTime);
+        return accumulator.toAnalysisResult(Math.round(highValue), processingTime);
+    }
+
+    /**
+     * Cells of the slice, copied under the read lock. A time range must fall on bucket boundaries,
+     * since records inside a bucket are no longer distinguishable by time.
+     */
+    private List<SliceCell> slice(RecordStore store, RecordFilter filter) {
+        long from = filter.getFromNanos();
+        long to = filter.getToNanos();
+        if ((from != Long.MIN_VALUE && Math.floorMod(from, bucketNanos) != 0)
+                || (to != Long.MAX_VALUE && Math.floorMod(to, bucketNanos) != 0)) {
+            throw new IllegalArgumentException("Time range of " + filter + " is not aligned to "
+                    + Duration.ofNanos(bucketNanos) + " rollup buckets");
+        }
+        // The store is appended to before listeners run; close that gap so a result is never older than the store
+        if (store.size() > getCoveredCount()) {
+            catchUp(store);
+        }
+
+        List<SliceCell> cells = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            long firstBucket = Math.floorDiv(from, bucketNanos);
+            long lastBucket = Math.floorDiv(to - 1, bucketNanos);
+            if (firstBucket > lastBucket) {
+                return cells;
+            }
+            for (Map.Entry<Long, Map<String, Map<Integer, Cell>>> bucket
+                    : buckets.subMap(firstBucket, true, lastBucket, true).entrySet()) {
+                for (Map.Entry<String, Map<Integer, Cell>> category : bucket.getValue().entrySet()) {
+                    String name = category.getKey();
+                    if (filter.getCategories() != null
+                            && !filter.getCategories().contains(name != null ? name : RecordAccumulator.UNKNOWN_CATEGORY)) {
+                        continue;
+                    }
+                    for (Map.Entry<Integer, Cell> priority : category.getValue().entrySet()) {
+                        int value = priority.getKey();
+                        if (filter.isPriorityFiltered() && (value == RecordMetadata.NO_PRIORITY
+                                || value < filter.getMinPriority() || value > filter.getMaxPriority())) {
+                            continue;
+                        }
+                        cells.add(new SliceCell(bucket.getKey(), name, priority.getValue().copy()));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return cells;
+    }
+
+    // Getters
+    public Duration getBucketWidth() { return Duration.ofNanos(bucketNanos); }
+
+    public long getCoveredCount() {
+        lock.readLock().lock();
+        try {
+            return coveredCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getCellCount() {
+        lock.readLock().lock();
+        try {
+            return cellCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class SliceCell {
+        private final long bucket;
+        private final String category;
+        private final Cell cell;
+
+        SliceCell(long bucket, String category, Cell cell) {
+            this.bucket = bucket;
+            this.category = category;
+            this.cell = cell;
+        }
+    }
+
+    /**
+     * Mergeable aggregate of the values of one cell or of a merged slice
+     */
+    public static final class Cell {
+        private final DoubleSummaryStatistics values = new DoubleSummaryStatistics();
+        private double sumOfSquares;
+
+        public void accept(double value) {
+            values.accept(value);
+            sumOfSquares += value * value;
+        }
+
+        /**
+         * Combine another cell into this one and return this instance
+         */
+        public Cell merge(Cell other) {
+            values.combine(other.values);
+            sumOfSquares += other.sumOfSquares;
+            return this;
+        }
+
+        public Cell copy() {
+            return new Cell().merge(this);
+        }
+
+        /**
+         * Values strictly above the threshold, exact unless the threshold lies within [min, max)
+         */
+        double estimateCountAbove(double threshold) {
+            if (getCount() == 0 || getMax() <= threshold) {
+                return 0;
+            }
+            if (getMin() > threshold) {
+                return getCount();
+            }
+            return getCount() * (getMax() - threshold) / (getMax() - getMin());
+        }
+
+        // Getters
+        public long getCount() { return values.getCount(); }
+        public double getSum() { return values.getSum(); }
+        public double getMin() { return getCount() > 0 ? values.getMin() : 0.0; }
+        public double getMax() { return getCount() > 0 ? values.getMax() : 0.0; }
+        public double getSumOfSquares() { return sumOfSquares; }
+        public double getMean() { return values.getAverage(); }
+
+        /**
+         * Population variance derived from the sum of squares
+         */
+        public double getVariance() {
+            if (getCount() == 0) {
+                return 0.0;
+            }
+            double mean = getMean();
+            return Math.max(0.0, sumOfSquares / getCount() - mean * mean);
+        }
+
+        public double getStandardDeviation() { return Math.sqrt(getVariance()); }
+
+        @Override
+        public String toString() {
+            return String.format("Cell{count=%d, sum=%.3f, min=%.3f, max=%.3f, stdDev=%.3f}",
+                    getCount(), getSum(), getMin(), getMax(), getStandardDeviation());
+        }
+    }
+}
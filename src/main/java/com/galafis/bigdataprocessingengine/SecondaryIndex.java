@@ -0,0 +1,231 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Secondary indexes over a RecordStore, maintained as an IngestListener.
+ * Category and priority values each map to a RecordBitmap of record positions; event time is indexed
+ * by fixed-width buckets, each with its own bitmap. {@link #select} combines the bitmaps for a
+ * RecordFilter and only inspects individual timestamps in the two buckets that straddle the range
+ * bounds. Appends take the write lock; queries copy what they need under the read lock.
+ */
+public class SecondaryIndex implements IngestListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecondaryIndex.class);
+
+    private final long bucketNanos;
+    private final EngineMetrics metrics;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, RecordBitmap> byCategory = new HashMap<>();
+    private final RecordBitmap withoutCategory = new RecordBitmap();
+    private final NavigableMap<Integer, RecordBitmap> byPriority = new TreeMap<>();
+    private final NavigableMap<Long, RecordBitmap> byTimeBucket = new TreeMap<>();
+    private long indexedCount;
+
+    public SecondaryIndex(Duration bucketWidth, EngineMetrics metrics) {
+        if (bucketWidth.isNegative() || bucketWidth.isZero()) {
+            throw new IllegalArgumentException("Bucket width must be positive: " + bucketWidth);
+        }
+        this.bucketNanos = bucketWidth.toNanos();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Index every record of the store not yet covered, e.g. records reopened from disk
+     */
+    public void catchUp(RecordStore store) {
+        lock.writeLock().lock();
+        try {
+            long size = store.size();
+            if (indexedCount < size) {
+                logger.info("Indexing {} existing records", size - indexedCount);
+            }
+            for (long position = indexedCount; position < size; position++) {
+                int code = store.categoryCode(position);
+                byte priority = store.priority(position);
+                // A priority outside the byte column lives with the record's free-form metadata
+                int resolvedPriority = priority != RecordStore.NO_PRIORITY ? priority
+                        : store.record(position).getRecordMetadata().getPriority();
+                index(position, code != RecordStore.NO_CATEGORY ? store.categoryName(code) : null,
+                        resolvedPriority, store.timestampNanos(position));
+            }
+            indexedCount = Math.max(indexedCount, size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onAppend(RecordStore store, long firstIndex, List<BigDataProcessingSystem.DataRecord> records) {
+        if (firstIndex > indexedCount) {
+            catchUpTo(store, firstIndex);
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = (int) Math.max(0, indexedCount - firstIndex); i < records.size(); i++) {
+                BigDataProcessingSystem.DataRecord record = records.get(i);
+                RecordMetadata metadata = record.getRecordMetadata();
+                index(firstIndex + i, metadata.getCategory(), metadata.getPriority(), RecordStore.toEpochNanos(record.getTimestamp()));
+            }
+            indexedCount = Math.max(indexedCount, firstIndex + records.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void catchUpTo(RecordStore store, long limit) {
+        lock.writeLock().lock();
+        try {
+            for (long position = indexedCount; position < limit; position++) {
+                RecordMetadata metadata = store.record(position).getRecordMetadata();
+                index(position, metadata.getCategory(), metadata.getPriority(), store.timestampNanos(position));
+            }
+            indexedCount = Math.max(indexedCount, limit);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(long position, String category, int priority, long timestampNanos) {
+        if (category != null) {
+            byCategory.computeIfAbsent(category, key -> new RecordBitmap()).add(position);
+        } else {
+            withoutCategory.add(position);
+        }
+        if (priority != RecordMetadata.NO_PRIORITY) {
+            byPriority.computeIfAbsent(priority, key -> new RecordBitmap()).add(position);
+        }
+        byTimeBucket.computeIfAbsent(Math.floorDiv(timestampNanos, bucketNanos), key -> new RecordBitmap()).add(position);
+    }
+
+    /**
+     * Positions of the indexed records matching the filter
+     */
+    public RecordBitmap select(RecordStore store, RecordFilter filter) {
+        long startNanos = System.nanoTime();
+        long storeSize = store.size();
+        // The store is appended to before listeners run; close that gap so a result is never older than the store
+        if (storeSize > getIndexedCount()) {
+            catchUp(store);
+        }
+        RecordBitmap attributes;
+        RecordBitmap inside = null;
+        RecordBitmap straddling = null;
+        long limit;
+
+        lock.readLock().lock();
+        try {
+            limit = indexedCount;
+            attributes = filter.getCategories() != null ? categoryBitmap(filter.getCategories()) : null;
+            if (filter.isPriorityFiltered()) {
+                attributes = intersect(attributes,
+                        union(byPriority.subMap(filter.getMinPriority(), true, filter.getMaxPriority(), true).values()));
+            }
+            if (filter.isTimeFiltered()) {
+                long firstBucket = Math.floorDiv(filter.getFromNanos(), bucketNanos);
+                long lastBucket = Math.floorDiv(filter.getToNanos() - 1, bucketNanos);
+                List<RecordBitmap> covered = new ArrayList<>();
+                List<RecordBitmap> partial = new ArrayList<>();
+                Map<Long, RecordBitmap> buckets = firstBucket <= lastBucket
+                        ? byTimeBucket.subMap(firstBucket, true, lastBucket, true) : Collections.emptyMap();
+                for (Map.Entry<Long, RecordBitmap> bucket : buckets.entrySet()) {
+                    long bucketStart = bucket.getKey() * bucketNanos;
+                    boolean whollyInside = bucketStart >= filter.getFromNanos() && bucketStart + bucketNanos <= filter.getToNanos();
+                    (whollyInside ? covered : partial).add(bucket.getValue());
+                }
+                inside = union(covered);
+                straddling = union(partial);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        RecordBitmap result;
+        if (inside != null) {
+            // Only the buckets cut by the range bounds need their timestamps checked
+            RecordBitmap timeMatches = inside;
+            straddling.forEach(position -> {
+                long timestamp = store.timestampNanos(position);
+                if (timestamp >= filter.getFromNanos() && timestamp < filter.getToNanos()) {
+                    timeMatches.add(position);
+                }
+            });
+            result = intersect(attributes, timeMatches);
+        } else {
+            result = attributes != null ? attributes : RecordBitmap.ofRange(0, limit);
+        }
+        if (limit > storeSize) {
+            // Indexed ahead of a snapshot; a result is never newer than the store either
+            result = RecordBitmap.and(result, RecordBitmap.ofRange(0, storeSize));
+        }
+
+        long matches = result.cardinality();
+        metrics.recordIndexQuery(System.nanoTime() - startNanos, matches);
+        logger.debug("{} matched {} records", filter, matches);
+        return result;
+    }
+
+    private RecordBitmap categoryBitmap(Set<String> categories) {
+        List<RecordBitmap> parts = new ArrayList<>();
+        for (String category : categories) {
+            RecordBitmap bitmap = byCategory.get(category);
+            if (bitmap != null) {
+                parts.add(bitmap);
+            }
+            if (RecordAccumulator.UNKNOWN_CATEGORY.equals(category)) {
+                parts.add(withoutCategory);
+            }
+        }
+        return union(parts);
+    }
+
+    private static RecordBitmap union(Collection<RecordBitmap> bitmaps) {
+        RecordBitmap result = new RecordBitmap();
+        for (RecordBitmap bitmap : bitmaps) {
+            result = RecordBitmap.or(result, bitmap);
+        }
+        return result;
+    }
+
+    private static RecordBitmap intersect(RecordBitmap current, RecordBitmap next) {
+        return current == null ? next : RecordBitmap.and(current, next);
+    }
+
+    public long getIndexedCount() {
+        lock.readLock().lock();
+        try {
+            return indexedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate heap used by all index bitmaps
+     */
+    public long getMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = withoutCategory.sizeInBytes();
+            for (RecordBitmap bitmap : byCategory.values()) {
+                bytes += bitmap.sizeInBytes();
+            }
+            for (RecordBitmap bitmap : byPriority.values()) {
+                bytes += bitmap.sizeInBytes();
+            }
+            for (RecordBitmap bitmap : byTimeBucket.values()) {
+                bytes += bitmap.sizeInBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
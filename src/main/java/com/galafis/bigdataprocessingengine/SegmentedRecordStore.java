@@ -0,0 +1,262 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent, append-only, on-heap RecordStore made of fixed-size column segments.
+ * Writers check and encode their records, reserve a contiguous range of positions with a
+ * compare-and-set and write into the segments in parallel, without ever copying existing columns.
+ * Ranges are published in position order: a writer returns once its records and every earlier
+ * one are visible, so readers see exactly the records below the published size. That wait means a
+ * writer stalled between reserving and publishing holds back the writers after it, and the first
+ * writer to reach a new segment allocates it under the store's lock, so appends are not lock-free.
+ * Reads never wait. Published records never change, which makes {@link #snapshot()} a constant-time,
+ * consistent point-in-time view that writers do not wait for.
+ */
+public class SegmentedRecordStore implements RecordStore {
+
+    static final int SEGMENT_SHIFT = 14;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final long MAX_RECORDS = Integer.MAX_VALUE;
+    private static final int NO_SOURCE = -1;
+    private static final int SPINS_BEFORE_YIELD = 1 << 10;
+
+    private final StringDictionary categoryDictionary = new StringDictionary();
+    private final StringDictionary sourceDictionary = new StringDictionary();
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+
+    private volatile AtomicReferenceArray<Segment> directory = new AtomicReferenceArray<>(16);
+
+    /**
+     * Columns of SEGMENT_SIZE consecutive positions
+     */
+    private static final class Segment {
+        private final String[] ids = new String[SEGMENT_SIZE];
+        private final double[] values = new double[SEGMENT_SIZE];
+        private final long[] timestamps = new long[SEGMENT_SIZE];
+        private final int[] categories = new int[SEGMENT_SIZE];
+        private final byte[] priorities = new byte[SEGMENT_SIZE];
+        private final int[] sources = new int[SEGMENT_SIZE];
+        private final Map<Integer, Map<String, Object>> extraMetadata = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public long size() {
+        return published.get();
+    }
+
+    @Override
+    public String id(long index) {
+        return segmentOf(index).ids[offset(index)];
+    }
+
+    @Override
+    public double value(long index) {
+        return segmentOf(index).values[offset(index)];
+    }
+
+    @Override
+    public long timestampNanos(long index) {
+        return segmentOf(index).timestamps[offset(index)];
+    }
+
+    @Override
+    public int categoryCode(long index) {
+        return segmentOf(index).categories[offset(index)];
+    }
+
+    @Override
+    public int categoryCardinality() {
+        return categoryDictionary.size();
+    }
+
+    @Override
+    public String categoryName(int code) {
+        return categoryDictionary.decode(code);
+    }
+
+    @Override
+    public byte priority(long index) {
+        return segmentOf(index).priorities[offset(index)];
+    }
+
+    @Override
+    public BigDataProcessingSystem.DataRecord record(long index) {
+        Segment segment = segmentOf(index);
+        int i = offset(index);
+        RecordMetadata metadata = RecordMetadata.of(
+                segment.categories[i] != NO_CATEGORY ? categoryDictionary.decode(segment.categories[i]) : null,
+                segment.priorities[i] != NO_PRIORITY ? segment.priorities[i] : RecordMetadata.NO_PRIORITY,
+                segment.sources[i] != NO_SOURCE ? sourceDictionary.decode(segment.sources[i]) : null,
+                segment.extraMetadata.get(i));
+        return new BigDataProcessingSystem.DataRecord(segment.ids[i], RecordStore.fromEpochNanos(segment.timestamps[i]),
+                segment.values[i], metadata);
+    }
+
+    @Override
+    public long append(BigDataProcessingSystem.DataRecord record) {
+        return appendAll(Collections.singletonList(record));
+    }
+
+    /**
+     * Append records contiguously; concurrent callers write their ranges in parallel.
+     * Every record is checked and encoded before a position is reserved, so a record that cannot
+     * be stored fails the whole call and leaves the store unchanged.
+     */
+    @Override
+    public long appendAll(Collection<BigDataProcessingSystem.DataRecord> records) {
+        int count = records.size();
+        checkCapacity(reserved.get(), count);
+        BigDataProcessingSystem.DataRecord[] batch = records.toArray(new BigDataProcessingSystem.DataRecord[0]);
+        long[] timestamps = new long[count];
+        int[] categories = new int[count];
+        int[] sources = new int[count];
+        for (int i = 0; i < count; i++) {
+            BigDataProcessingSystem.DataRecord record = Objects.requireNonNull(batch[i], "record");
+            RecordMetadata metadata = Objects.requireNonNull(record.getRecordMetadata(), "metadata");
+            timestamps[i] = RecordStore.toEpochNanos(Objects.requireNonNull(record.getTimestamp(), "timestamp"));
+            categories[i] = metadata.getCategory() != null ? categoryDictionary.encode(metadata.getCategory()) : NO_CATEGORY;
+            sources[i] = metadata.getSource() != null ? sourceDictionary.encode(metadata.getSource()) : NO_SOURCE;
+        }
+
+        long first = reserve(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                write(first + i, batch[i], timestamps[i], categories[i], sources[i]);
+            }
+        } finally {
+            // Only a VM error can get here early; later writers must still not wait forever
+            publish(first, first + count);
+        }
+        return first;
+    }
+
+    /**
+     * Number of records reserved by writers, including those not yet published
+     */
+    public long getReservedCount() {
+        return reserved.get();
+    }
+
+    public int getSegmentCount() {
+        return (int) ((size() + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+    }
+
+    /**
+     * Claim [first, first + count); the bound is checked before the claim, so a failed
+     * reservation leaves no range behind that would never be published
+     */
+    private long reserve(int count) {
+        while (true) {
+            long first = reserved.get();
+            checkCapacity(first, count);
+            if (reserved.compareAndSet(first, first + count)) {
+                return first;
+            }
+        }
+    }
+
+    private static void checkCapacity(long first, int count) {
+        if (first + count > MAX_RECORDS) {
+            throw new IllegalStateException("SegmentedRecordStore capacity exceeded");
+        }
+    }
+
+    /**
+     * Wait until every earlier range is published, then publish this one
+     */
+    private void publish(long first, long end) {
+        for (int spins = 0; published.get() != first; spins++) {
+            if (spins < SPINS_BEFORE_YIELD) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        published.set(end);
+    }
+
+    /**
+     * Store an already checked record; nothing here can fail short of a VM error
+     */
+    private void write(long position, BigDataProcessingSystem.DataRecord record, long timestampNanos, int category,
+                       int source) {
+        Segment segment = segmentFor(position);
+        int i = offset(position);
+        segment.ids[i] = record.getId();
+        segment.values[i] = record.getValue();
+        segment.timestamps[i] = timestampNanos;
+        segment.categories[i] = category;
+        segment.priorities[i] = NO_PRIORITY;
+        segment.sources[i] = source;
+
+        RecordMetadata metadata = record.getRecordMetadata();
+        boolean bytePriority = metadata.hasPriority()
+                && metadata.getPriority() > NO_PRIORITY && metadata.getPriority() <= Byte.MAX_VALUE;
+        if (bytePriority) {
+            segment.priorities[i] = (byte) metadata.getPriority();
+        }
+
+        if (metadata.hasExtras() || (metadata.hasPriority() && !bytePriority)) {
+            Map<String, Object> extras = new HashMap<>();
+            metadata.forEachExtra(extras::put);
+            if (metadata.hasPriority() && !bytePriority) {
+                extras.put(RecordMetadata.PRIORITY, metadata.getPriority());
+            }
+            segment.extraMetadata.put(i, extras);
+        }
+    }
+
+    /**
+     * Segment holding a reserved position, allocating it (and growing the directory) on first use
+     */
+    private Segment segmentFor(long position) {
+        int index = (int) (position >>> SEGMENT_SHIFT);
+        AtomicReferenceArray<Segment> segments = directory;
+        if (index < segments.length()) {
+            Segment segment = segments.get(index);
+            if (segment != null) {
+                return segment;
+            }
+        }
+        return allocate(index);
+    }
+
+    private synchronized Segment allocate(int index) {
+        AtomicReferenceArray<Segment> segments = directory;
+        if (index >= segments.length()) {
+            AtomicReferenceArray<Segment> grown = new AtomicReferenceArray<>(Math.max(index + 1, segments.length() * 2));
+            for (int i = 0; i < segments.length(); i++) {
+                grown.set(i, segments.get(i));
+            }
+            directory = grown;
+            segments = grown;
+        }
+        Segment segment = segments.get(index);
+        if (segment == null) {
+            segment = new Segment();
+            segments.set(index, segment);
+        }
+        return segment;
+    }
+
+    /**
+     * Validate against the published size; the segment is read only after this check
+     */
+    private Segment segmentOf(long index) {
+        long size = published.get();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return directory.get((int) (index >>> SEGMENT_SHIFT));
+    }
+
+    private static int offset(long position) {
+        return (int) (position & SEGMENT_MASK);
+    }
+}
@@ -0,0 +1,251 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Incremental, event-time windowed analysis.
+ * Every record pushed in updates the mergeable aggregates (count, sum, min/max, per-category and
+ * recent counts) of each window it falls into, keyed off DataRecord.getTimestamp. Open windows are
+ * kept sorted by start, so a record costs O(log W) per window it falls into, W being the number of
+ * open windows. Whether a record counts as recent is decided once, against the cutoff at the time it
+ * is pushed in, and is not revisited as the window ages.
+ * A window closes once the watermark (highest event time seen minus the allowed lateness) passes
+ * its end; closed windows are handed to registered listeners, in order, on the listener executor,
+ * and kept for a bounded number of windows. Snapshots are built from the aggregates only, so
+ * historical data is never rescanned. The high-value insight depends on the final average of a
+ * window and is therefore not part of streaming snapshots.
+ */
+public class StreamingAnalyzer implements IngestListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingAnalyzer.class);
+    static final int DEFAULT_RETAINED_WINDOWS = 64;
+
+    private final WindowSpec windowSpec;
+    private final long allowedLatenessNanos;
+    private final int retainedWindows;
+    private final NavigableMap<Long, RecordAccumulator> openWindows = new TreeMap<>();
+    private final NavigableMap<Long, WindowResult> closedWindows = new TreeMap<>();
+    private final List<Consumer<WindowResult>> windowListeners = new CopyOnWriteArrayList<>();
+    private final Executor listenerExecutor;
+    private final Queue<WindowResult> undelivered = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+
+    private long maxEventTimeNanos = Long.MIN_VALUE;
+    private long closedUpToNanos = Long.MIN_VALUE;
+    private long recordCount;
+    private long lateRecordCount;
+
+    public StreamingAnalyzer(WindowSpec windowSpec) {
+        this(windowSpec, Duration.ZERO, DEFAULT_RETAINED_WINDOWS);
+    }
+
+    public StreamingAnalyzer(WindowSpec windowSpec, Duration allowedLateness, int retainedWindows) {
+        this(windowSpec, allowedLateness, retainedWindows, Runnable::run);
+    }
+
+    /**
+     * @param listenerExecutor runs window listeners, so a slow listener does not hold up the thread
+     *                         pushing records in; the default runs them on that thread
+     */
+    public StreamingAnalyzer(WindowSpec windowSpec, Duration allowedLateness, int retainedWindows,
+                             Executor listenerExecutor) {
+        if (allowedLateness.isNegative()) {
+            throw new IllegalArgumentException("allowedLateness must not be negative");
+        }
+        this.windowSpec = windowSpec;
+        this.allowedLatenessNanos = allowedLateness.toNanos();
+        this.retainedWindows = Math.max(1, retainedWindows);
+        this.listenerExecutor = listenerExecutor;
+    }
+
+    /**
+     * Window snapshot: bounds plus an AnalysisResult built from the window aggregates
+     */
+    public static class WindowResult {
+        private final LocalDateTime windowStart;
+        private final LocalDateTime windowEnd;
+        private final boolean closed;
+        private final BigDataProcessingSystem.AnalysisResult result;
+
+        public WindowResult(LocalDateTime windowStart, LocalDateTime windowEnd, boolean closed,
+                            BigDataProcessingSystem.AnalysisResult result) {
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+            this.closed = closed;
+            this.result = result;
+        }
+
+        // Getters
+        public LocalDateTime getWindowStart() { return windowStart; }
+        public LocalDateTime getWindowEnd() { return windowEnd; }
+        public boolean isClosed() { return closed; }
+        public BigDataProcessingSystem.AnalysisResult getResult() { return result; }
+
+        @Override
+        public String toString() {
+            return String.format("WindowResult{start=%s, end=%s, closed=%s, summary=%s}",
+                    windowStart, windowEnd, closed, result.getSummary());
+        }
+    }
+
+    public void addWindowListener(Consumer<WindowResult> listener) {
+        windowListeners.add(listener);
+    }
+
+    @Override
+    public void onAppend(RecordStore store, long firstIndex, List<BigDataProcessingSystem.DataRecord> records) {
+        acceptAll(records);
+    }
+
+    public void accept(BigDataProcessingSystem.DataRecord record) {
+        acceptAll(List.of(record));
+    }
+
+    /**
+     * Fold records into their windows, then advance the watermark once for the whole batch
+     */
+    public void acceptAll(List<BigDataProcessingSystem.DataRecord> records) {
+        LocalDateTime recentCutoff = LocalDateTime.now().minusDays(1);
+        List<WindowResult> emitted;
+        synchronized (this) {
+            for (BigDataProcessingSystem.DataRecord record : records) {
+                long eventTime = RecordStore.toEpochNanos(record.getTimestamp());
+                if (windowSpec.lastWindowStart(eventTime) + windowSpec.getSizeNanos() <= closedUpToNanos) {
+                    lateRecordCount++;
+                    continue;
+                }
+                for (long windowStart = windowSpec.firstWindowStart(eventTime); windowStart <= eventTime; windowStart += windowSpec.getSlideNanos()) {
+                    if (windowStart + windowSpec.getSizeNanos() > closedUpToNanos) {
+                        openWindows.computeIfAbsent(windowStart, start -> new RecordAccumulator()).accept(record, recentCutoff);
+                    }
+                }
+                recordCount++;
+                maxEventTimeNanos = Math.max(maxEventTimeNanos, eventTime);
+            }
+            emitted = closeWindowsUpTo(maxEventTimeNanos == Long.MIN_VALUE ? Long.MIN_VALUE : maxEventTimeNanos - allowedLatenessNanos);
+        }
+        emit(emitted);
+    }
+
+    /**
+     * Close every open window regardless of the watermark, e.g. at end of stream
+     */
+    public void flush() {
+        List<WindowResult> emitted;
+        synchronized (this) {
+            emitted = closeWindowsUpTo(Long.MAX_VALUE);
+        }
+        emit(emitted);
+    }
+
+    private List<WindowResult> closeWindowsUpTo(long watermarkNanos) {
+        if (watermarkNanos <= closedUpToNanos) {
+            return List.of();
+        }
+        List<WindowResult> emitted = new ArrayList<>();
+        Iterator<Map.Entry<Long, RecordAccumulator>> iterator = openWindows.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, RecordAccumulator> window = iterator.next();
+            if (window.getKey() + windowSpec.getSizeNanos() > watermarkNanos) {
+                break;
+            }
+            WindowResult result = toResult(window.getKey(), window.getValue(), true);
+            closedWindows.put(window.getKey(), result);
+            emitted.add(result);
+            iterator.remove();
+        }
+        while (closedWindows.size() > retainedWindows) {
+            closedWindows.pollFirstEntry();
+        }
+        closedUpToNanos = watermarkNanos;
+        return emitted;
+    }
+
+    private void emit(List<WindowResult> emitted) {
+        if (emitted.isEmpty()) {
+            return;
+        }
+        undelivered.addAll(emitted);
+        scheduleDelivery();
+    }
+
+    /**
+     * At most one delivery runs at a time, so listeners see windows in the order they closed
+     */
+    private void scheduleDelivery() {
+        if (undelivered.isEmpty() || !delivering.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            listenerExecutor.execute(this::deliver);
+        } catch (RuntimeException e) {
+            delivering.set(false);
+            throw e;
+        }
+    }
+
+    private void deliver() {
+        try {
+            WindowResult result;
+            while ((result = undelivered.poll()) != null) {
+                logger.debug("Window closed: {}", result);
+                for (Consumer<WindowResult> listener : windowListeners) {
+                    try {
+                        listener.accept(result);
+                    } catch (RuntimeException e) {
+                        logger.error("Window listener {} failed on {}", listener, result, e);
+                    }
+                }
+            }
+        } finally {
+            delivering.set(false);
+        }
+        // Windows queued after the last poll but before the flag was cleared
+        scheduleDelivery();
+    }
+
+    private WindowResult toResult(long windowStart, RecordAccumulator accumulator, boolean closed) {
+        return new WindowResult(
+                RecordStore.fromEpochNanos(windowStart),
+                RecordStore.fromEpochNanos(windowStart + windowSpec.getSizeNanos()),
+                closed,
+                accumulator.toAnalysisResult(0, 0));
+    }
+
+    /**
+     * Snapshot of the window starting at the given time, whether still open or already closed
+     */
+    public synchronized Optional<WindowResult> snapshot(LocalDateTime windowStart) {
+        long start = RecordStore.toEpochNanos(windowStart);
+        RecordAccumulator open = openWindows.get(start);
+        if (open != null) {
+            return Optional.of(toResult(start, open, false));
+        }
+        return Optional.ofNullable(closedWindows.get(start));
+    }
+
+    public synchronized List<WindowResult> getOpenWindows() {
+        List<WindowResult> results = new ArrayList<>(openWindows.size());
+        openWindows.forEach((start, accumulator) -> results.add(toResult(start, accumulator, false)));
+        return results;
+    }
+
+    public synchronized List<WindowResult> getClosedWindows() {
+        return new ArrayList<>(closedWindows.values());
+    }
+
+    // Getters
+    public WindowSpec getWindowSpec() { return windowSpec; }
+    public synchronized long getRecordCount() { return recordCount; }
+    public synchronized long getLateRecordCount() { return lateRecordCount; }
+}
@@ -0,0 +1,67 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dense String-to-int dictionary used to encode low-cardinality columns.
+ * Known names are encoded without locking; only assigning a new code is synchronized.
+ * Decoding reads a volatile snapshot and never locks. The name array grows geometrically; codes
+ * below the published size always decode.
+ */
+final class StringDictionary {
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[8];
+    private volatile int size;
+
+    int encode(String name) {
+        Integer code = codes.get(name);
+        return code != null ? code : assign(name);
+    }
+
+    private synchronized int assign(String name) {
+        Integer code = codes.get(name);
+        if (code != null) {
+            return code;
+        }
+        int newCode = size;
+        String[] current = names;
+        if (newCode == current.length) {
+            current = Arrays.copyOf(current, newCode * 2);
+        }
+        current[newCode] = name;
+        // Publish the name before the code, so a code read without locking always decodes
+        names = current;
+        size = newCode + 1;
+        codes.put(name, newCode);
+        return newCode;
+    }
+
+    /**
+     * Code for an already known name, or -1
+     */
+    int lookup(String name) {
+        Integer code = codes.get(name);
+        return code != null ? code : -1;
+    }
+
+    String decode(int code) {
+        // Reading size first makes the name written before it visible
+        if (code >= size) {
+            throw new IndexOutOfBoundsException("Unknown code " + code);
+        }
+        return names[code];
+    }
+
+    int size() {
+        return size;
+    }
+
+    List<String> names() {
+        int count = size;
+        return List.of(Arrays.copyOf(names, count));
+    }
+}
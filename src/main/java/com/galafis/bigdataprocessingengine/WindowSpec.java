@@ -0,0 +1,66 @@
+package com.galafis.bigdataprocessingengine;
+
+import java.time.Duration;
+
+/**
+ * Event-time window definition. Windows start at multiples of the slide (aligned to the epoch)
+ * and span the window size; a tumbling window is a sliding window whose slide equals its size.
+ */
+public final class WindowSpec {
+
+    private final long sizeNanos;
+    private final long slideNanos;
+
+    private WindowSpec(Duration size, Duration slide) {
+        if (size.isNegative() || size.isZero() || slide.isNegative() || slide.isZero()) {
+            throw new IllegalArgumentException("Window size and slide must be positive");
+        }
+        if (slide.compareTo(size) > 0) {
+            throw new IllegalArgumentException("Window slide must not exceed window size");
+        }
+        this.sizeNanos = size.toNanos();
+        this.slideNanos = slide.toNanos();
+    }
+
+    public static WindowSpec tumbling(Duration size) {
+        return new WindowSpec(size, size);
+    }
+
+    public static WindowSpec sliding(Duration size, Duration slide) {
+        return new WindowSpec(size, slide);
+    }
+
+    public long getSizeNanos() { return sizeNanos; }
+    public long getSlideNanos() { return slideNanos; }
+
+    public boolean isTumbling() {
+        return sizeNanos == slideNanos;
+    }
+
+    /**
+     * Start of the latest window containing the given event time
+     */
+    long lastWindowStart(long eventTimeNanos) {
+        return Math.floorDiv(eventTimeNanos, slideNanos) * slideNanos;
+    }
+
+    /**
+     * Start of the earliest window containing the given event time
+     */
+    long firstWindowStart(long eventTimeNanos) {
+        long last = lastWindowStart(eventTimeNanos);
+        long windowsBack = (sizeNanos - 1) / slideNanos;
+        long first = last - windowsBack * slideNanos;
+        while (first + sizeNanos <= eventTimeNanos) {
+            first += slideNanos;
+        }
+        return first;
+    }
+
+    @Override
+    public String toString() {
+        return isTumbling()
+                ? "tumbling(" + Duration.ofNanos(sizeNanos) + ")"
+                : "sliding(" + Duration.ofNanos(sizeNanos) + ", " + Duration.ofNanos(slideNanos) + ")";
+    }
+}
@@ -0,0 +1,113 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+
+/**
+ * Coordinator-side connection to one WorkerNode.
+ * Calls are serialized over a single socket. Connect and read operations time out after the
+ * configured timeout; a failed or timed-out call reconnects and is retried up to retryAttempts
+ * times with exponential backoff. Errors reported by the worker are not retried.
+ */
+final class WorkerClient implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerClient.class);
+    private static final long MAX_BACKOFF_MS = 2000;
+
+    interface Request {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    interface Response<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private final InetSocketAddress address;
+    private final int timeoutMs;
+    private final int retryAttempts;
+    private Socket socket;
+    private DataInputStream in;
+    private DataOutputStream out;
+
+    WorkerClient(InetSocketAddress address, Duration timeout, int retryAttempts) {
+        this.address = address;
+        this.timeoutMs = (int) Math.min(Integer.MAX_VALUE, timeout.toMillis());
+        this.retryAttempts = Math.max(0, retryAttempts);
+    }
+
+    synchronized <T> T call(byte op, Request request, Response<T> response) {
+        IOException failure = null;
+        for (int attempt = 0; attempt <= retryAttempts; attempt++) {
+            if (attempt > 0) {
+                backOff(attempt);
+            }
+            try {
+                connect();
+                out.writeByte(op);
+                request.write(out);
+                out.flush();
+                if (in.readByte() == ClusterProtocol.STATUS_ERROR) {
+                    throw new IllegalStateException("Worker " + address + " failed: " + in.readUTF());
+                }
+                return response.read(in);
+            } catch (IOException e) {
+                failure = e;
+                disconnect();
+                logger.warn("Call {} to worker {} failed (attempt {} of {}): {}", op, address, attempt + 1, retryAttempts + 1, e.toString());
+            }
+        }
+        throw new UncheckedIOException("Worker " + address + " unreachable after " + (retryAttempts + 1) + " attempts", failure);
+    }
+
+    private void connect() throws IOException {
+        if (socket != null) {
+            return;
+        }
+        Socket connection = new Socket();
+        try {
+            connection.connect(address, timeoutMs);
+            connection.setSoTimeout(timeoutMs);
+            connection.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            socket = connection;
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private void disconnect() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close connection to worker {}", address, e);
+            }
+            socket = null;
+        }
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(Math.min(MAX_BACKOFF_MS, 50L << attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying worker " + address, e);
+        }
+    }
+
+    InetSocketAddress getAddress() {
+        return address;
+    }
+
+    @Override
+    public synchronized void close() {
+        disconnect();
+    }
+}
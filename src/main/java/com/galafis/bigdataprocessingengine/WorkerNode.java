@@ -0,0 +1,286 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cluster worker holding some partitions of a distributed dataset.
+ * Listens on a plain TCP socket and serves the {@link ClusterProtocol} requests of a
+ * ClusterCoordinator: partitions are appended to, analyzed with a local ParallelDataProcessor,
+ * and exported or dropped when the coordinator rebalances. Appends carry a per-partition
+ * sequence number so a retried append is applied only once.
+ * <p>
+ * Run standalone with {@code java -cp ... com.galafis.bigdataprocessingengine.WorkerNode [port]}.
+ */
+public class WorkerNode implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerNode.class);
+
+    private final ServerSocket serverSocket;
+    private final ExecutionBackend executionBackend;
+    private final ParallelDataProcessor processor;
+    private final Map<Integer, Partition> partitions = new ConcurrentHashMap<>();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptThread;
+    private volatile boolean closed;
+
+    private WorkerNode(ServerSocket serverSocket, ExecutionBackend executionBackend) {
+        this.serverSocket = serverSocket;
+        this.executionBackend = executionBackend;
+        this.processor = new ParallelDataProcessor(executionBackend);
+        this.acceptThread = new Thread(this::acceptLoop, "worker-node-" + serverSocket.getLocalPort());
+        this.acceptThread.setDaemon(true);
+    }
+
+    /**
+     * Start a worker on the given port (0 picks a free one) owning its own work-stealing backend
+     */
+    public static WorkerNode start(int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(port));
+        WorkerNode node = new WorkerNode(serverSocket, ExecutionBackend.create(ExecutionBackend.Type.WORK_STEALING, 0));
+        node.acceptThread.start();
+        logger.info("Worker node listening on port {}", node.getPort());
+        return node;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        WorkerNode node = start(args.length > 0 ? Integer.parseInt(args[0]) : 0);
+        Runtime.getRuntime().addShutdownHook(new Thread(node::close, "worker-node-shutdown"));
+        node.acceptThread.join();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                executionBackend.ioExecutor().execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    logger.warn("Worker node failed to accept a connection", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (!closed) {
+                int op = in.read();
+                if (op < 0) {
+                    return;
+                }
+                handle((byte) op, in, out);
+                out.flush();
+            }
+        } catch (EOFException | SocketException e) {
+            logger.debug("Coordinator connection {} closed", socket.getRemoteSocketAddress());
+        } catch (IOException e) {
+            logger.warn("Coordinator connection {} failed", socket.getRemoteSocketAddress(), e);
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Read one request completely, then answer it; failures of the work itself are reported to the coordinator
+     */
+    private void handle(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (op) {
+            case ClusterProtocol.PING:
+                respond(out, this::lastSequences, result -> {
+                    out.writeInt(result.size());
+                    for (Map.Entry<Integer, Long> entry : result.entrySet()) {
+                        out.writeInt(entry.getKey());
+                        out.writeLong(entry.getValue());
+                    }
+                });
+                return;
+            case ClusterProtocol.APPEND: {
+                int partition = in.readInt();
+                long sequence = in.readLong();
+                List<BigDataProcessingSystem.DataRecord> records = ClusterProtocol.readRecords(in);
+                respond(out, () -> append(partition, sequence, records), out::writeLong);
+                return;
+            }
+            case ClusterProtocol.ACCUMULATE: {
+                long recentCutoff = in.readLong();
+                int[] requested = ClusterProtocol.readPartitions(in);
+                respond(out, () -> accumulate(requested, recentCutoff), result -> {
+                    for (long size : result.sizes) {
+                        out.writeLong(size);
+                    }
+                    ClusterProtocol.writeAccumulator(result.accumulator, out);
+                });
+                return;
+            }
+            case ClusterProtocol.COUNT_ABOVE: {
+                double threshold = in.readDouble();
+                int[] requested = ClusterProtocol.readPartitions(in);
+                long[] sizes = new long[requested.length];
+                for (int i = 0; i < sizes.length; i++) {
+                    sizes[i] = in.readLong();
+                }
+                respond(out, () -> countAbove(requested, sizes, threshold), out::writeLong);
+                return;
+            }
+            case ClusterProtocol.EXPORT: {
+                int partition = in.readInt();
+                long from = in.readLong();
+                int maxCount = in.readInt();
+                respond(out, () -> export(partition, from, maxCount), out::write);
+                return;
+            }
+            case ClusterProtocol.DROP:
+                partitions.remove(in.readInt());
+                out.writeByte(ClusterProtocol.STATUS_OK);
+                return;
+            default:
+                throw new IOException("Unknown cluster operation: " + op);
+        }
+    }
+
+    private interface Work<T> {
+        T run() throws IOException;
+    }
+
+    private interface ResultWriter<T> {
+        void write(T result) throws IOException;
+    }
+
+    private static <T> void respond(DataOutputStream out, Work<T> work, ResultWriter<T> writer) throws IOException {
+        T result;
+        try {
+            result = work.run();
+        } catch (RuntimeException | IOException e) {
+            logger.error("Cluster request failed", e);
+            out.writeByte(ClusterProtocol.STATUS_ERROR);
+            out.writeUTF(String.valueOf(e.getMessage()));
+            return;
+        }
+        out.writeByte(ClusterProtocol.STATUS_OK);
+        writer.write(result);
+    }
+
+    private long append(int partitionId, long sequence, List<BigDataProcessingSystem.DataRecord> records) {
+        Partition partition = partitions.computeIfAbsent(partitionId, id -> new Partition());
+        synchronized (partition) {
+            if (sequence <= partition.lastSequence) {
+                logger.debug("Ignoring replayed append {} to partition {}", sequence, partitionId);
+            } else {
+                partition.store.appendAll(records);
+                partition.lastSequence = sequence;
+            }
+            return partition.store.size();
+        }
+    }
+
+    private PartialResult accumulate(int[] requested, long recentCutoff) {
+        PartialResult result = new PartialResult(requested.length);
+        for (int i = 0; i < requested.length; i++) {
+            Partition partition = partitions.get(requested[i]);
+            if (partition == null) {
+                continue;
+            }
+            long size = partition.store.size();
+            result.sizes[i] = size;
+            if (size > 0) {
+                result.accumulator.merge(processor.accumulate(partition.store, size, recentCutoff).join());
+            }
+        }
+        return result;
+    }
+
+    private long countAbove(int[] requested, long[] sizes, double threshold) {
+        long count = 0;
+        for (int i = 0; i < requested.length; i++) {
+            Partition partition = partitions.get(requested[i]);
+            if (partition != null && sizes[i] > 0) {
+                count += processor.countAbove(partition.store, Math.min(sizes[i], partition.store.size()), threshold).join();
+            }
+        }
+        return count;
+    }
+
+    private byte[] export(int partitionId, long from, int maxCount) throws IOException {
+        Partition partition = partitions.get(partitionId);
+        long size = partition != null ? partition.store.size() : 0;
+        long to = Math.min(size, from + maxCount);
+        return RecordCodec.encode(partition != null ? partition.store : new ColumnarRecordStore(),
+                Math.min(from, to), to, ExportFormat.BINARY);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Number of records held per partition
+     */
+    /**
+     * Highest applied append sequence of every partition, so a new coordinator continues after it
+     */
+    private Map<Integer, Long> lastSequences() {
+        Map<Integer, Long> sequences = new TreeMap<>();
+        partitions.forEach((id, partition) -> {
+            synchronized (partition) {
+                sequences.put(id, partition.lastSequence);
+            }
+        });
+        return sequences;
+    }
+
+    public Map<Integer, Long> getPartitionSizes() {
+        Map<Integer, Long> sizes = new TreeMap<>();
+        partitions.forEach((id, partition) -> sizes.put(id, partition.store.size()));
+        return sizes;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close worker socket", e);
+        }
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close coordinator connection", e);
+            }
+        }
+        executionBackend.close();
+        logger.info("Worker node on port {} stopped", serverSocket.getLocalPort());
+    }
+
+    private static final class Partition {
+        private final ColumnarRecordStore store = new ColumnarRecordStore();
+        private long lastSequence = -1;
+    }
+
+    private static final class PartialResult {
+        private final long[] sizes;
+        private final RecordAccumulator accumulator = new RecordAccumulator();
+
+        PartialResult(int partitionCount) {
+            this.sizes = new long[partitionCount];
+        }
+    }
+}
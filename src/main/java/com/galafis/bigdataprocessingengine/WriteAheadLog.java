@@ -0,0 +1,641 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, group-committed write-ahead log with compacting snapshots.
+ * Registered as an IngestListener, it logs every coalesced append of the RecordIngestor as one
+ * checksummed frame before the records reach the store, so one write (and at most one fsync) covers
+ * a whole group of batches; if logging fails the batch fails and the store is untouched, and if the
+ * append fails after logging the frame is discarded again. The sync interval trades durability for
+ * throughput: zero forces the log before every append, a positive interval forces it at most that often (a
+ * process crash loses nothing, an OS crash at most the unforced tail) and a negative one leaves
+ * flushing to the OS.
+ * <p>
+ * The log is split into segment files named after the position of their first record. A snapshot
+ * is a binary export (see {@link DataExporter}) of the store, written to a temporary file and
+ * renamed into place; segments it covers are deleted. {@link #recover} loads the latest snapshot
+ * and replays the log tail by scanning memory-mapped files and decoding frames in parallel, then
+ * truncates a torn frame at the end of the last segment.
+ */
+public class WriteAheadLog implements IngestListener, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    static final long DEFAULT_SNAPSHOT_EVERY_RECORDS = 1_000_000;
+
+    private static final int MAGIC = 0x42445057; // "BDPW"
+    private static final short FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 6;
+    private static final int FRAME_HEADER_BYTES = 20; // record count, payload length, first position, CRC-32
+    private static final int SNAPSHOT_FRAME_HEADER_BYTES = 8; // record count, payload length
+    private static final long MAP_WINDOW_BYTES = 1L << 30;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final ExecutionBackend executionBackend;
+    private final long syncIntervalNanos;
+    private final long segmentBytes;
+    private final long snapshotEveryRecords;
+    private final int maxFramesInFlight;
+    private final Object snapshotLock = new Object();
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+
+    private final List<Segment> segments;
+    private FileChannel channel;
+    private long channelSize;
+    private long nextPosition = -1;
+    private long lastSyncNanos;
+    private long recordsSinceSnapshot;
+    private long lastFrameOffset = -1;
+    private boolean snapshotDue;
+    private boolean closed;
+    private volatile long loggedBytes;
+    private volatile long syncCount;
+    private volatile long snapshotRecords;
+    private volatile CompletableFuture<Void> pendingSnapshot = CompletableFuture.completedFuture(null);
+
+    private WriteAheadLog(Path directory, ExecutionBackend executionBackend, Duration syncInterval,
+                          long segmentBytes, long snapshotEveryRecords) throws IOException {
+        if (segmentBytes <= SEGMENT_HEADER_BYTES) {
+            throw new IllegalArgumentException("segmentBytes is too small: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.executionBackend = executionBackend;
+        this.syncIntervalNanos = syncInterval.isNegative() ? -1 : syncInterval.toNanos();
+        this.segmentBytes = segmentBytes;
+        this.snapshotEveryRecords = snapshotEveryRecords;
+        this.maxFramesInFlight = Math.max(2, executionBackend.parallelism() * 2);
+        Files.createDirectories(directory);
+        try (Stream<Path> listing = Files.list(directory)) {
+            for (Path temp : listing.filter(path -> path.getFileName().toString().endsWith(TEMP_SUFFIX)).collect(Collectors.toList())) {
+                Files.delete(temp);
+            }
+        }
+        this.segments = new ArrayList<>();
+        for (Path path : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            segments.add(new Segment(path, positionOf(path, SEGMENT_PREFIX, SEGMENT_SUFFIX)));
+        }
+    }
+
+    /**
+     * Open the log in the given directory, forcing it before every acknowledgement
+     */
+    public static WriteAheadLog open(Path directory, ExecutionBackend executionBackend) throws IOException {
+        return open(directory, executionBackend, Duration.ZERO, DEFAULT_SEGMENT_BYTES, DEFAULT_SNAPSHOT_EVERY_RECORDS);
+    }
+
+    /**
+     * @param syncInterval         zero forces every group commit, negative never forces
+     * @param segmentBytes         size after which the log rolls over to a new segment
+     * @param snapshotEveryRecords records logged between automatic snapshots; zero or less disables them
+     */
+    public static WriteAheadLog open(Path directory, ExecutionBackend executionBackend, Duration syncInterval,
+                                     long segmentBytes, long snapshotEveryRecords) throws IOException {
+        return new WriteAheadLog(directory, executionBackend, syncInterval, segmentBytes, snapshotEveryRecords);
+    }
+
+    /**
+     * Restore the latest snapshot and the log tail into the store; records it already holds are skipped.
+     * Must run before any record is logged.
+     *
+     * @return number of records appended to the store
+     */
+    public synchronized long recover(RecordStore store) throws IOException {
+        if (nextPosition >= 0) {
+            throw new IllegalStateException("WriteAheadLog has already been recovered");
+        }
+        long startTime = System.currentTimeMillis();
+        long before = store.size();
+
+        List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        if (!snapshots.isEmpty()) {
+            Path latest = snapshots.get(snapshots.size() - 1);
+            snapshotRecords = positionOf(latest, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            if (snapshotRecords > store.size()) {
+                replaySnapshot(latest, store);
+            }
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            replaySegment(segments.get(i), i == segments.size() - 1, store);
+        }
+
+        nextPosition = store.size();
+        openForAppend();
+        logger.info("Recovered {} records from {} in {}ms ({} records in store)",
+                store.size() - before, directory, System.currentTimeMillis() - startTime, store.size());
+        return store.size() - before;
+    }
+
+    private void replaySnapshot(Path path, RecordStore store) throws IOException {
+        try (MappedFile file = MappedFile.open(path)) {
+            ByteBuffer header = file.slice(0, 6);
+            if (header.getInt(0) != RecordCodec.BINARY_MAGIC || header.getShort(4) != RecordCodec.BINARY_VERSION) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            Replay replay = new Replay(store);
+            long offset = 6;
+            long position = 0;
+            while (true) {
+                if (file.size() - offset < SNAPSHOT_FRAME_HEADER_BYTES) {
+                    throw new IOException("Snapshot " + path + " is truncated at offset " + offset);
+                }
+                ByteBuffer frame = file.slice(offset, SNAPSHOT_FRAME_HEADER_BYTES);
+                int count = frame.getInt(0);
+                int length = frame.getInt(4);
+                if (count == 0 && length == 0) {
+                    break;
+                }
+                if (count < 0 || length < 0 || file.size() - offset - SNAPSHOT_FRAME_HEADER_BYTES < length) {
+                    throw new IOException("Corrupt snapshot frame in " + path + " at offset " + offset);
+                }
+                replay.submit(file, offset, SNAPSHOT_FRAME_HEADER_BYTES, position, count, length, 0, false);
+                position += count;
+                offset += SNAPSHOT_FRAME_HEADER_BYTES + length;
+            }
+            replay.finish();
+        }
+    }
+
+    private void replaySegment(Segment segment, boolean last, RecordStore store) throws IOException {
+        long tornOffset = -1;
+        try (MappedFile file = MappedFile.open(segment.path)) {
+            if (file.size() < SEGMENT_HEADER_BYTES) {
+                tornOffset = 0;
+            } else {
+                ByteBuffer header = file.slice(0, SEGMENT_HEADER_BYTES);
+                if (header.getInt(0) != MAGIC || header.getShort(4) != FORMAT_VERSION) {
+                    throw new IOException("Not a write-ahead log segment: " + segment.path);
+                }
+                Replay replay = new Replay(store);
+                long offset = SEGMENT_HEADER_BYTES;
+                while (offset < file.size() && replay.corruptOffset < 0) {
+                    if (file.size() - offset < FRAME_HEADER_BYTES) {
+                        tornOffset = offset;
+                        break;
+                    }
+                    ByteBuffer frame = file.slice(offset, FRAME_HEADER_BYTES);
+                    int count = frame.getInt(0);
+                    int length = frame.getInt(4);
+                    if (count < 0 || length < 0 || file.size() - offset - FRAME_HEADER_BYTES < length) {
+                        tornOffset = offset;
+                        break;
+                    }
+                    replay.submit(file, offset, FRAME_HEADER_BYTES, frame.getLong(8), count, length, frame.getInt(16), true);
+                    offset += FRAME_HEADER_BYTES + length;
+                }
+                replay.finish();
+                if (replay.corruptOffset >= 0) {
+                    tornOffset = replay.corruptOffset;
+                }
+            }
+        }
+        if (tornOffset < 0) {
+            return;
+        }
+        if (!last) {
+            throw new IOException("Corrupt write-ahead log segment " + segment.path + " at offset " + tornOffset);
+        }
+        logger.warn("Truncating torn write at offset {} of {}", tornOffset, segment.path);
+        try (FileChannel truncate = FileChannel.open(segment.path, StandardOpenOption.WRITE)) {
+            truncate.truncate(tornOffset);
+            truncate.force(true);
+        }
+    }
+
+    private void openForAppend() throws IOException {
+        if (segments.isEmpty()) {
+            createSegment(nextPosition);
+            return;
+        }
+        Segment current = segments.get(segments.size() - 1);
+        channel = FileChannel.open(current.path, StandardOpenOption.WRITE);
+        channelSize = channel.size();
+        if (channelSize < SEGMENT_HEADER_BYTES) {
+            channel.truncate(0);
+            channelSize = 0;
+            writeSegmentHeader();
+        }
+        channel.position(channelSize);
+    }
+
+    private void createSegment(long firstPosition) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstPosition, SEGMENT_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        channelSize = 0;
+        writeSegmentHeader();
+        segments.add(new Segment(path, firstPosition));
+        syncDirectory();
+        logger.debug("Created write-ahead log segment {}", path);
+    }
+
+    private void writeSegmentHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).putInt(MAGIC).putShort(FORMAT_VERSION).flip();
+        while (header.hasRemaining()) {
+            channelSize += channel.write(header, channelSize);
+        }
+        channel.force(true);
+        channel.position(channelSize);
+    }
+
+    /**
+     * Log the records ahead of the store append
+     */
+    @Override
+    public void beforeAppend(RecordStore store, long firstIndex, List<BigDataProcessingSystem.DataRecord> records) {
+        try {
+            log(firstIndex, records);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to log " + records.size() + " records to " + directory, e);
+        }
+    }
+
+    /**
+     * Drop the frame logged for an append that did not reach the store
+     */
+    @Override
+    public synchronized void appendFailed(RecordStore store, long firstIndex, List<BigDataProcessingSystem.DataRecord> records) {
+        if (closed || lastFrameOffset < 0 || nextPosition != firstIndex + records.size()) {
+            return;
+        }
+        try {
+            long frameBytes = channelSize - lastFrameOffset;
+            discardLastFrame();
+            loggedBytes -= frameBytes;
+            nextPosition = firstIndex;
+            recordsSinceSnapshot = Math.max(0, recordsSinceSnapshot - records.size());
+            logger.warn("Discarded the logged frame of {} records at position {} after a failed append", records.size(), firstIndex);
+        } catch (IOException e) {
+            // nextPosition stays ahead of the store, so every later frame is refused instead of misplaced
+            throw new UncheckedIOException("Failed to discard the logged frame at position " + firstIndex + " of " + directory, e);
+        }
+    }
+
+    /**
+     * Cut the current segment back to where the last frame started
+     */
+    private void discardLastFrame() throws IOException {
+        channel.truncate(lastFrameOffset);
+        if (syncIntervalNanos == 0) {
+            channel.force(false);
+        }
+        channel.position(lastFrameOffset);
+        channelSize = lastFrameOffset;
+        lastFrameOffset = -1;
+    }
+
+    /**
+     * Start an automatic snapshot once enough records have been logged and stored
+     */
+    @Override
+    public void onAppend(RecordStore store, long firstIndex, List<BigDataProcessingSystem.DataRecord> records) {
+        boolean due;
+        synchronized (this) {
+            due = snapshotDue;
+            snapshotDue = false;
+            lastFrameOffset = -1;
+        }
+        if (due && snapshotRunning.compareAndSet(false, true)) {
+            pendingSnapshot = CompletableFuture.runAsync(() -> {
+                try {
+                    snapshot(store);
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Automatic snapshot of {} failed", directory, e);
+                } finally {
+                    snapshotRunning.set(false);
+                }
+            }, executionBackend.ioExecutor());
+        }
+    }
+
+    /**
+     * Append one frame and force it according to the sync interval
+     */
+    private synchronized void log(long firstIndex, List<BigDataProcessingSystem.DataRecord> records) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("WriteAheadLog is closed");
+        }
+        if (nextPosition < 0) {
+            throw new IllegalStateException("WriteAheadLog must be recovered before records are logged");
+        }
+        if (firstIndex != nextPosition) {
+            throw new IllegalStateException("WriteAheadLog expects record " + nextPosition + " but was given " + firstIndex);
+        }
+        byte[] encoded = RecordCodec.encodeBinary(records);
+        int length = encoded.length - 8;
+        CRC32 crc = new CRC32();
+        crc.update(encoded, 8, length);
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES)
+                .putInt(records.size()).putInt(length).putLong(firstIndex).putInt((int) crc.getValue()).flip();
+
+        if (channelSize > SEGMENT_HEADER_BYTES && channelSize + FRAME_HEADER_BYTES + length > segmentBytes) {
+            channel.force(true);
+            channel.close();
+            createSegment(firstIndex);
+        }
+        ByteBuffer[] frame = {header, ByteBuffer.wrap(encoded, 8, length)};
+        lastFrameOffset = channelSize;
+        long written = 0;
+        try {
+            while (frame[1].hasRemaining()) {
+                written += channel.write(frame);
+            }
+            long now = System.nanoTime();
+            if (syncIntervalNanos == 0 || (syncIntervalNanos > 0 && now - lastSyncNanos >= syncIntervalNanos)) {
+                channel.force(false);
+                lastSyncNanos = now;
+                syncCount++;
+            }
+        } catch (IOException e) {
+            // The batch fails, so a partial or unforced frame must not stay ahead of the store
+            try {
+                discardLastFrame();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        channelSize += written;
+        loggedBytes += written;
+        nextPosition = firstIndex + records.size();
+        recordsSinceSnapshot += records.size();
+        if (snapshotEveryRecords > 0 && recordsSinceSnapshot >= snapshotEveryRecords) {
+            recordsSinceSnapshot = 0;
+            snapshotDue = true;
+        }
+    }
+
+    /**
+     * Write a snapshot of every record in the store, then delete the older snapshot and the log
+     * segments it covers
+     *
+     * @return number of records in the snapshot
+     */
+    public long snapshot(RecordStore store) throws IOException {
+        synchronized (snapshotLock) {
+            long startTime = System.currentTimeMillis();
+            Path temp = directory.resolve(SNAPSHOT_PREFIX + "in-progress" + TEMP_SUFFIX);
+            long count;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                BufferedOutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(out), 1 << 16);
+                count = new DataExporter(executionBackend).export(store, ExportFormat.BINARY, false, buffered);
+                buffered.flush();
+                out.force(true);
+            }
+            Path target = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, count, SNAPSHOT_SUFFIX));
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory();
+            snapshotRecords = count;
+
+            for (Path older : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (!older.equals(target)) {
+                    Files.deleteIfExists(older);
+                }
+            }
+            int compacted = compact(count);
+            logger.info("Snapshot of {} records written to {} in {}ms, {} log segments compacted",
+                    count, target, System.currentTimeMillis() - startTime, compacted);
+            return count;
+        }
+    }
+
+    /**
+     * Delete the segments holding only records below the given position; the active segment is kept
+     */
+    private synchronized int compact(long position) throws IOException {
+        int deleted = 0;
+        while (segments.size() > 1 && segments.get(1).firstPosition <= position) {
+            Files.deleteIfExists(segments.remove(0).path);
+            deleted++;
+        }
+        return deleted;
+    }
+
+    private void syncDirectory() {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform; the renamed or created file itself is already forced
+            logger.debug("Could not sync directory {}", directory, e);
+        }
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(suffix);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static long positionOf(Path path, String prefix, String suffix) throws IOException {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected file name in write-ahead log directory: " + path, e);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /** Position the next logged record will have */
+    public synchronized long getNextPosition() { return nextPosition; }
+    public synchronized int getSegmentCount() { return segments.size(); }
+    public long getLoggedBytes() { return loggedBytes; }
+    public long getSyncCount() { return syncCount; }
+    /** Number of records in the latest snapshot */
+    public long getSnapshotRecords() { return snapshotRecords; }
+
+    /**
+     * Wait for a running snapshot, then force and close the log
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            pendingSnapshot.join();
+        } catch (CompletionException e) {
+            logger.warn("Pending snapshot failed", e);
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (channel != null) {
+                channel.force(true);
+                channel.close();
+            }
+        }
+        logger.info("Closed write-ahead log at {} ({} bytes logged, {} syncs)", directory, loggedBytes, syncCount);
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long firstPosition;
+
+        Segment(Path path, long firstPosition) {
+            this.path = path;
+            this.firstPosition = firstPosition;
+        }
+    }
+
+    /**
+     * In-order delivery of frames decoded in parallel; frames the store already holds are skipped
+     * without decoding
+     */
+    private final class Replay {
+        private final RecordStore store;
+        private final Deque<PendingFrame> window = new ArrayDeque<>();
+        private long scheduledEnd;
+        private long corruptOffset = -1;
+
+        Replay(RecordStore store) {
+            this.store = store;
+            this.scheduledEnd = store.size();
+        }
+
+        void submit(MappedFile file, long offset, int headerBytes, long firstPosition, int count, int length,
+                    int crc, boolean checked) throws IOException {
+            if (firstPosition + count <= scheduledEnd) {
+                return;
+            }
+            scheduledEnd = firstPosition + count;
+            ByteBuffer payload = file.slice(offset + headerBytes, length);
+            window.add(new PendingFrame(offset, firstPosition, CompletableFuture.supplyAsync(
+                    () -> decode(payload, count, crc, checked), executionBackend.computeExecutor())));
+            if (window.size() >= maxFramesInFlight) {
+                deliver(window.poll());
+            }
+        }
+
+        void finish() throws IOException {
+            while (!window.isEmpty() && corruptOffset < 0) {
+                deliver(window.poll());
+            }
+            window.forEach(pending -> pending.records.cancel(false));
+            window.clear();
+        }
+
+        private void deliver(PendingFrame frame) throws IOException {
+            List<BigDataProcessingSystem.DataRecord> records;
+            try {
+                records = frame.records.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw e;
+            }
+            if (records == null) {
+                corruptOffset = frame.offset;
+                return;
+            }
+            long expected = store.size();
+            if (frame.firstPosition > expected) {
+                throw new IOException("Gap in write-ahead log: expected record " + expected + " but found " + frame.firstPosition);
+            }
+            int skip = (int) (expected - frame.firstPosition);
+            if (skip < records.size()) {
+                store.appendAll(skip == 0 ? records : records.subList(skip, records.size()));
+            }
+        }
+    }
+
+    /**
+     * Decode one frame payload, or return null if its checksum does not match
+     */
+    private static List<BigDataProcessingSystem.DataRecord> decode(ByteBuffer payload, int count, int crc, boolean checked) {
+        if (checked) {
+            CRC32 actual = new CRC32();
+            actual.update(payload.duplicate());
+            if ((int) actual.getValue() != crc) {
+                return null;
+            }
+        }
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        try {
+            return RecordCodec.decodeBinary(bytes, count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class PendingFrame {
+        private final long offset;
+        private final long firstPosition;
+        private final CompletableFuture<List<BigDataProcessingSystem.DataRecord>> records;
+
+        PendingFrame(long offset, long firstPosition, CompletableFuture<List<BigDataProcessingSystem.DataRecord>> records) {
+            this.offset = offset;
+            this.firstPosition = firstPosition;
+            this.records = records;
+        }
+    }
+
+    /**
+     * Read-only view of a file through windows of up to 1GB mapped on demand
+     */
+    private static final class MappedFile implements Closeable {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer region;
+        private long regionStart;
+
+        private MappedFile(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        static MappedFile open(Path path) throws IOException {
+            return new MappedFile(FileChannel.open(path, StandardOpenOption.READ));
+        }
+
+        long size() {
+            return size;
+        }
+
+        /**
+         * Independent buffer over [offset, offset + length); it stays valid after the file is closed
+         */
+        ByteBuffer slice(long offset, int length) throws IOException {
+            if (region == null || offset < regionStart || offset + length > regionStart + region.capacity()) {
+                regionStart = offset;
+                region = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size - offset, Math.max(MAP_WINDOW_BYTES, length)));
+            }
+            return region.slice((int) (offset - regionStart), length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ApproximateDataProcessorTest {
+
+    private ExecutionBackend executionBackend;
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        executionBackend = ExecutionBackend.create(ExecutionBackend.Type.WORK_STEALING, 4);
+        executorService = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executionBackend.close();
+        executorService.shutdown();
+    }
+
+    private static List<BigDataProcessingSystem.DataRecord> skewedRecords(int count, long seed) {
+        Random random = new Random(seed);
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            int draw = random.nextInt(100);
+            if (draw < 50) {
+                metadata.put("category", "A");
+            } else if (draw < 80) {
+                metadata.put("category", "B");
+            } else if (draw < 95) {
+                metadata.put("category", "cat-" + random.nextInt(500));
+            }
+            // Ids repeat, so the distinct count is about count / 2
+            records.add(new BigDataProcessingSystem.DataRecord("id-" + random.nextInt(count / 2),
+                    LocalDateTime.now().minusHours(random.nextInt(240)), random.nextDouble() * 1000, metadata));
+        }
+        return records;
+    }
+
+    @Test
+    public void testSketchesStayWithinErrorBounds() {
+        QuantileSketch quantiles = new QuantileSketch(QuantileSketch.kFor(0.01));
+        HyperLogLog distinct = new HyperLogLog(HyperLogLog.precisionFor(0.01));
+        int n = 1_000_000;
+        // Sorted input is the adversarial case for compaction
+        for (int i = 0; i < n; i++) {
+            quantiles.add(i);
+            distinct.add("id-" + i);
+        }
+        assertEquals(n, quantiles.getCount());
+        for (double q : new double[]{0.01, 0.25, 0.5, 0.9, 0.99}) {
+            assertEquals("q=" + q, q * n, quantiles.quantile(q), 0.01 * n);
+            assertEquals(q * n, quantiles.rank(q * n), 0.01 * n);
+        }
+        assertTrue(quantiles.getRetainedItems() < 4 * quantiles.getK());
+        assertEquals(n, distinct.estimate(), 0.03 * n);
+        assertEquals(1 << 14, distinct.sizeInBytes());
+
+        CountMinSketch frequencies = new CountMinSketch(0.001, 0.01, 4);
+        for (int i = 0; i < 100_000; i++) {
+            frequencies.add(i % 2 == 0 ? "even" : "key-" + i, 1);
+        }
+        List<Map.Entry<String, Long>> heavyHitters = frequencies.getHeavyHitters();
+        assertEquals("even", heavyHitters.get(0).getKey());
+        assertTrue(heavyHitters.get(0).getValue() >= 50_000);
+        assertTrue(heavyHitters.get(0).getValue() <= 50_000 + 0.001 * 100_000);
+        assertTrue(heavyHitters.size() <= 4);
+    }
+
+    @Test
+    public void testSketchesMergeAcrossPartitions() {
+        QuantileSketch left = new QuantileSketch(200, 1);
+        QuantileSketch right = new QuantileSketch(200, 2);
+        HyperLogLog leftIds = new HyperLogLog(12);
+        HyperLogLog rightIds = new HyperLogLog(12);
+        ReservoirSample<Integer> leftSample = new ReservoirSample<>(100, new SplittableRandom(1));
+        ReservoirSample<Integer> rightSample = new ReservoirSample<>(100, new SplittableRandom(2));
+        for (int i = 0; i < 100_000; i++) {
+            left.add(i);
+            right.add(100_000 + i);
+            leftIds.add("id-" + i);
+            rightIds.add("id-" + (i + 50_000));
+            leftSample.offer(i);
+            rightSample.offer(100_000 + i);
+        }
+
+        QuantileSketch merged = left.merge(right);
+        assertEquals(200_000, merged.getCount());
+        assertEquals(100_000, merged.quantile(0.5), 0.02 * 200_000);
+        assertEquals(150_000, leftIds.merge(rightIds).estimate(), 0.05 * 150_000);
+
+        ReservoirSample<Integer> sample = leftSample.merge(rightSample);
+        assertEquals(100, sample.getItems().size());
+        assertEquals(200_000, sample.getSeen());
+        long fromRight = sample.getItems().stream().filter(item -> item >= 100_000).count();
+        assertTrue("right half share " + fromRight, fromRight > 25 && fromRight < 75);
+
+        try {
+            new HyperLogLog(12).merge(new HyperLogLog(13));
+            fail("Merged sketches of different precision");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("precision"));
+        }
+    }
+
+    @Test
+    public void testProcessApproximatesExactResult() throws ExecutionException, InterruptedException {
+        List<BigDataProcessingSystem.DataRecord> records = skewedRecords(200_000, 3L);
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        store.appendAll(records);
+        ApproximateDataProcessor processor = new ApproximateDataProcessor(executionBackend,
+                ApproximationSpec.defaults().withSampleSize(50));
+
+        BigDataProcessingSystem.AnalysisResult exact = new DefaultDataProcessor(executorService).process(records).get();
+        for (BigDataProcessingSystem.AnalysisResult approximate
+                : Arrays.asList(processor.process(records).get(), processor.process(store).get())) {
+            for (String key : Arrays.asList("totalRecords", "averageValue", "minValue", "maxValue")) {
+                assertEquals(key, exact.getSummary().get(key), approximate.getSummary().get(key), 1e-9);
+            }
+            assertEquals(500.0, approximate.getSummary().get("medianValue"), 15.0);
+            assertEquals(990.0, approximate.getSummary().get("p99Value"), 15.0);
+            Set<String> ids = new HashSet<>();
+            records.forEach(record -> ids.add(record.getId()));
+            assertEquals(ids.size(), approximate.getSummary().get("distinctIds"), 0.03 * ids.size());
+
+            assertTrue(approximate.getInsights().get(0).startsWith("Category 'A' represents"));
+            assertEquals(exact.getRecommendations(), approximate.getRecommendations());
+        }
+
+        DatasetSketch sketch = processor.sketch(store).get();
+        assertEquals(50, sketch.getSample().size());
+        assertEquals("A", sketch.getTopCategories().get(0).getKey());
+        assertEquals("B", sketch.getTopCategories().get(1).getKey());
+        assertTrue(sketch.getTopCategories().size() <= ApproximationSpec.defaults().getHeavyHitters());
+    }
+}
@@ -0,0 +1,226 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchSchedulerTest {
+
+    private ExecutionBackend backend;
+
+    @Before
+    public void setUp() {
+        backend = ExecutionBackend.create(ExecutionBackend.Type.FIXED, 4);
+    }
+
+    @After
+    public void tearDown() {
+        backend.close();
+    }
+
+    private BatchScheduler scheduler(int maxParallelism, int initialBatchSize, Duration timeout, int retryAttempts) {
+        return new BatchScheduler(backend, maxParallelism, initialBatchSize, Duration.ofMillis(10), timeout, retryAttempts);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void testCombinesBatchesInRangeOrder() throws Exception {
+        BatchScheduler scheduler = scheduler(4, 7, Duration.ofSeconds(10), 0);
+        ExecutionBackend scheduled = backend.scheduled(scheduler);
+
+        // Concatenation is not commutative, so any reordering shows up
+        String ranges = scheduled.mapReduce(100, 1, (from, to) -> from + "-" + to + ";", String::concat).get();
+        StringBuilder expected = new StringBuilder();
+        long next = 0;
+        for (String range : ranges.split(";")) {
+            String[] bounds = range.split("-");
+            assertEquals(next, Long.parseLong(bounds[0]));
+            next = Long.parseLong(bounds[1]);
+            expected.append(range).append(';');
+        }
+        assertEquals(100, next);
+        assertEquals(expected.toString(), ranges);
+
+        assertEquals(4950L, (long) scheduled.mapReduce(100, 1, (from, to) -> {
+            long sum = 0;
+            for (long i = from; i < to; i++) {
+                sum += i;
+            }
+            return sum;
+        }, Long::sum).get());
+        assertEquals("0-0", scheduled.mapReduce(0, 1, (from, to) -> from + "-" + to, String::concat).get());
+        assertEquals(0, scheduler.getActiveJobs());
+        assertEquals(0, scheduler.getInFlightBatches());
+        assertSame(scheduler, scheduled.scheduler());
+        assertNull(backend.scheduler());
+    }
+
+    @Test
+    public void testFailedBatchesAreRetriedThenFailTheJob() throws Exception {
+        BatchScheduler scheduler = scheduler(2, 10, Duration.ofSeconds(10), 2);
+        Map<Long, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+        // Every batch fails on its first attempt
+        long sum = scheduler.mapReduce(50, 1, (from, to) -> {
+            if (attempts.computeIfAbsent(from, key -> new AtomicInteger()).getAndIncrement() == 0) {
+                throw new IllegalStateException("transient failure at " + from);
+            }
+            return to - from;
+        }, Long::sum).get();
+        assertEquals(50, sum);
+        assertEquals(attempts.size(), scheduler.getRetriedBatches());
+
+        AtomicInteger permanentAttempts = new AtomicInteger();
+        CompletableFuture<Long> failing = scheduler.mapReduce(1, 1, (from, to) -> {
+            permanentAttempts.incrementAndGet();
+            throw new IllegalStateException("permanent failure");
+        }, Long::sum);
+        try {
+            failing.get();
+            fail("Expected ExecutionException");
+        } catch (ExecutionException expected) {
+            assertEquals("permanent failure", expected.getCause().getMessage());
+        }
+        assertEquals(3, permanentAttempts.get());
+        assertEquals(1, scheduler.getFailedJobs());
+        assertEquals(0, scheduler.getActiveJobs());
+    }
+
+    @Test
+    public void testTimedOutBatchIsRetried() throws Exception {
+        BatchScheduler scheduler = scheduler(4, 10, Duration.ofMillis(100), 1);
+        AtomicInteger firstBatchAttempts = new AtomicInteger();
+
+        long sum = scheduler.mapReduce(30, 1, (from, to) -> {
+            if (from == 0 && firstBatchAttempts.getAndIncrement() == 0) {
+                sleep(1000);
+            }
+            return to - from;
+        }, Long::sum).get(5, TimeUnit.SECONDS);
+        assertEquals(30, sum);
+        assertEquals(1, scheduler.getTimedOutBatches());
+        assertEquals(1, scheduler.getRetriedBatches());
+    }
+
+    @Test
+    public void testAbandonedAttemptHoldsItsSlotUntilItEnds() throws Exception {
+        BatchScheduler scheduler = scheduler(4, 10, Duration.ofMillis(100), 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger firstBatchAttempts = new AtomicInteger();
+        try {
+            long sum = scheduler.mapReduce(30, 1, (from, to) -> {
+                if (from == 0 && firstBatchAttempts.getAndIncrement() == 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return to - from;
+            }, Long::sum).get(5, TimeUnit.SECONDS);
+            assertEquals(30, sum);
+            assertEquals(1, scheduler.getTimedOutBatches());
+            assertEquals(0, scheduler.getActiveJobs());
+            // The job is done, but the abandoned attempt still occupies an executor thread
+            assertEquals(1, scheduler.getInFlightBatches());
+            assertEquals(1, scheduler.getAbandonedBatches());
+            assertTrue(scheduler.getParallelism() >= 2);
+        } finally {
+            release.countDown();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getInFlightBatches() > 0 && System.nanoTime() < deadline) {
+            sleep(5);
+        }
+        assertEquals(0, scheduler.getInFlightBatches());
+        assertEquals(0, scheduler.getAbandonedBatches());
+        assertEquals(1, scheduler.getTimedOutBatches());
+    }
+
+    /**
+     * With a single slot, a job arriving after a long one gets the next free slot instead of
+     * waiting for every remaining batch of the long job
+     */
+    @Test
+    public void testSmallJobIsNotStarvedByLargeJob() throws Exception {
+        BatchScheduler scheduler = scheduler(1, 5, Duration.ofSeconds(10), 0);
+        CountDownLatch largeStarted = new CountDownLatch(1);
+        CompletableFuture<Long> large = scheduler.mapReduce(300, 1, (from, to) -> {
+            largeStarted.countDown();
+            sleep(to - from);
+            return to - from;
+        }, Long::sum);
+        largeStarted.await();
+        CompletableFuture<Long> small = scheduler.mapReduce(2, 1, (from, to) -> to - from, Long::sum);
+
+        assertEquals(2L, (long) small.get(5, TimeUnit.SECONDS));
+        assertFalse("the small job finished only after the large one", large.isDone());
+        assertEquals(300L, (long) large.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBatchSizeAndParallelismAdapt() throws Exception {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 50_000, Duration.ofMillis(10));
+        sizer.record(1000, TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(2000, sizer.size());
+        for (int i = 0; i < 20; i++) {
+            sizer.record(sizer.size(), sizer.size() * 1000L);
+        }
+        // 1 microsecond per record converges to 10 ms / 1 us = 10,000 records
+        assertEquals(10_000, sizer.size(), 1000);
+        sizer.record(100, TimeUnit.SECONDS.toNanos(1));
+        assertTrue(sizer.size() >= 10 && sizer.size() < 10_000);
+
+        AdaptiveBatchSizer fixed = AdaptiveBatchSizer.fixed(500);
+        fixed.record(1, 1);
+        assertEquals(500, fixed.size());
+
+        // Fast batches with work held back raise the limit up to the maximum
+        ExecutorService unbounded = Executors.newCachedThreadPool();
+        try {
+            BatchScheduler scheduler = new BatchScheduler(ExecutionBackend.wrap(unbounded), 8, 1,
+                    Duration.ofMillis(10), Duration.ofSeconds(10), 0);
+            int initial = scheduler.getParallelism();
+            assertEquals(4000L, (long) scheduler.mapReduce(4000, 1, (from, to) -> {
+                sleep(1);
+                return to - from;
+            }, Long::sum).get(10, TimeUnit.SECONDS));
+            assertTrue(scheduler.getCompletedBatches() > 1);
+            if (initial < 8) {
+                assertTrue("parallelism stayed at " + initial, scheduler.getParallelism() > initial);
+            }
+        } finally {
+            unbounded.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSystemAnalysisRunsThroughScheduler() throws Exception {
+        BigDataProcessingSystem system = new BigDataProcessingSystem();
+        try {
+            system.generateSampleData(50_000);
+            BigDataProcessingSystem.AnalysisResult result = system.processData().get();
+            assertEquals(50_000, result.getSummary().get("totalRecords").intValue());
+            BatchScheduler scheduler = system.getBatchScheduler();
+            assertNotNull(scheduler);
+            assertTrue(scheduler.getCompletedBatches() > 0);
+            assertEquals(0, scheduler.getActiveJobs());
+            assertTrue(system.getMetricsSnapshot().getValues().containsKey("scheduler.parallelism"));
+        } finally {
+            system.shutdown();
+        }
+    }
+}
@@ -142,6 +142,19 @@ public class BigDataProcessingSystemTest {
         assertEquals(system.getDataRecords().size(), exportedData.get("recordCount"));
     }
 
+    @Test
+    public void testIngestionApi() throws ExecutionException, InterruptedException {
+        List<BigDataProcessingSystem.DataRecord> batch = new java.util.ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            batch.add(new BigDataProcessingSystem.DataRecord("ing" + i, LocalDateTime.now(), i, Map.of("category", "B")));
+        }
+
+        assertEquals(Integer.valueOf(2500), system.ingestBatch(batch).get());
+        assertEquals(Integer.valueOf(1), system.ingest(batch.get(0)).get());
+        assertEquals(2501, system.getDataRecords().size());
+        assertEquals("ing0", system.getDataRecords().get(0).getId());
+    }
+
     @Test
     public void testShutdown() {
         system.shutdown();
@@ -0,0 +1,237 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+public class BulkFileLoaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ExecutionBackend backend;
+
+    @Before
+    public void setUp() {
+        backend = ExecutionBackend.create(ExecutionBackend.Type.WORK_STEALING, 4);
+    }
+
+    @After
+    public void tearDown() {
+        backend.close();
+    }
+
+    private static ColumnarRecordStore sampleStore(int count) {
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 12, 0, 0, 120_000_000);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            if (i % 4 != 0) {
+                metadata.put("category", i % 2 == 0 ? "A, \"quoted\"" : "B");
+            }
+            metadata.put("priority", i % 10 == 0 ? 1000 : i % 5 - 2);
+            metadata.put("source", i % 7 == 0 ? "s\u00e9nsor" : "gen");
+            if (i % 3 == 0) {
+                metadata.put("note", "line\nbreak\t\u0001 \u00fc");
+                metadata.put("flag", i % 2 == 0);
+                metadata.put("weight", i / 7.0);
+                metadata.put("big", 1L << 40);
+                metadata.put("missing", null);
+            }
+            double value = i % 11 == 0 ? -i * 1e-7 : i % 13 == 0 ? Math.PI * 1e300 : i * 1.25;
+            store.append(new BigDataProcessingSystem.DataRecord("id-" + i + (i % 50 == 0 ? ",\"x\"" : ""),
+                    base.plusSeconds(i).plusNanos(i % 3 == 0 ? 0 : i), value, metadata));
+        }
+        return store;
+    }
+
+    private Path export(RecordStore store, ExportFormat format) throws IOException {
+        Path file = temporaryFolder.newFile("records." + format.name().toLowerCase()).toPath();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            new DataExporter(backend, 100).export(store, format, false, out);
+        }
+        return file;
+    }
+
+    private static void assertSameRecords(RecordStore expected, List<BigDataProcessingSystem.DataRecord> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            BigDataProcessingSystem.DataRecord original = expected.record(i);
+            assertEquals(original.getId(), actual.get(i).getId());
+            assertEquals(original.getTimestamp(), actual.get(i).getTimestamp());
+            assertEquals(original.getValue(), actual.get(i).getValue(), 0.0);
+            assertEquals(original.getMetadata(), actual.get(i).getMetadata());
+        }
+    }
+
+    @Test
+    public void testRoundTripCsvAndJsonlAcrossRangeSizes() throws IOException {
+        ColumnarRecordStore store = sampleStore(3000);
+        for (ExportFormat format : new ExportFormat[]{ExportFormat.CSV, ExportFormat.JSONL}) {
+            Path file = export(store, format);
+            // Ranges smaller than a row, around a row and much larger than the file
+            for (long rangeBytes : new long[]{13, 1000, BulkFileLoader.DEFAULT_RANGE_BYTES}) {
+                List<BigDataProcessingSystem.DataRecord> loaded = new ArrayList<>();
+                BulkFileLoader.LoadReport report = new BulkFileLoader(backend, rangeBytes).load(file, format, loaded::addAll);
+
+                assertEquals(format + " rangeBytes=" + rangeBytes, 3000, report.getRecords());
+                assertEquals(report.getMalformedSamples().toString(), 0, report.getMalformedRows());
+                assertEquals(Files.size(file), report.getBytes());
+                assertSameRecords(store, loaded);
+            }
+        }
+    }
+
+    @Test
+    public void testMalformedRowsAreCountedAndSkipped() throws IOException {
+        Path csv = temporaryFolder.newFile("rows.csv").toPath();
+        Files.write(csv, (RecordCodec.CSV_HEADER + "\r\n"
+                + "a,2024-03-01T10:00:00,1.5,cat,2,src,\r\n"
+                + "b,not-a-time,2.5,cat,2,src,\n"
+                + "\n"
+                + "c,2024-03-01T10:00,3.5,,,,\n"
+                + "d,2024-03-01T10:00:00,4.5,cat,2\n"
+                + "e,2024-03-01T10:00:00,abc,cat,2,src,\n"
+                + "f,2024-03-01T10:00:00,6,cat,2,src,\"{\"\"k\"\":1}\",extra\n"
+                + "g,2024-03-01T10:00:00.5,7e1,\"x,y\",,src,\"{\"\"k\"\":{\"\"n\"\":2}}\"").getBytes(StandardCharsets.UTF_8));
+        List<BigDataProcessingSystem.DataRecord> loaded = new ArrayList<>();
+        BulkFileLoader.LoadReport report = new BulkFileLoader(backend, 7).load(csv, ExportFormat.CSV, loaded::addAll);
+
+        assertEquals(3, report.getRecords());
+        assertEquals(4, report.getMalformedRows());
+        assertEquals(4, report.getMalformedSamples().size());
+        assertTrue(report.getMalformedSamples().get(0), report.getMalformedSamples().get(0).startsWith("byte "));
+        assertEquals(Arrays.asList("a", "c", "g"), Arrays.asList(loaded.get(0).getId(), loaded.get(1).getId(), loaded.get(2).getId()));
+        assertEquals("cat", loaded.get(0).getRecordMetadata().getCategory());
+        assertFalse(loaded.get(1).getRecordMetadata().hasPriority());
+        assertEquals(70.0, loaded.get(2).getValue(), 0.0);
+        assertEquals(500_000_000, loaded.get(2).getTimestamp().getNano());
+        assertEquals("x,y", loaded.get(2).getRecordMetadata().getCategory());
+        assertEquals(Map.of("n", 2), loaded.get(2).getMetadata().get("k"));
+
+        Path jsonl = temporaryFolder.newFile("rows.jsonl").toPath();
+        Files.write(jsonl, ("{\"id\":\"a\",\"timestamp\":\"2024-03-01T10:00:00\",\"value\":1,\"metadata\":{\"category\":\"c\"}}\n"
+                + "{\"id\":\"b\",\"timestamp\":\"2024-03-01T10:00:00\",\"value\":2\n"
+                + "{\"id\":\"c\",\"value\":3}\n"
+                + "  {\"unknown\":{\"a\":true,\"b\":null},\"value\":-4.25E-2,\"timestamp\":\"2024-03-01T10:00:01\",\"id\":\"d\\u0041\"}  \n")
+                .getBytes(StandardCharsets.UTF_8));
+        loaded.clear();
+        report = new BulkFileLoader(backend, 5).load(jsonl, ExportFormat.JSONL, loaded::addAll);
+
+        assertEquals(2, report.getRecords());
+        assertEquals(2, report.getMalformedRows());
+        assertEquals("c", loaded.get(0).getRecordMetadata().getCategory());
+        assertEquals("dA", loaded.get(1).getId());
+        assertEquals(-0.0425, loaded.get(1).getValue(), 0.0);
+    }
+
+    @Test
+    public void testInPlaceParsersMatchJdk() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            double expected;
+            switch (i % 4) {
+                case 0: expected = random.nextDouble() * 1000; break;
+                case 1: expected = Math.round(random.nextDouble() * 1e6) / 100.0; break;
+                case 2: expected = random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20); break;
+                default: expected = Double.longBitsToDouble(random.nextLong());
+            }
+            String text = Double.toString(expected);
+            assertEquals(text, Double.parseDouble(text), parser(text).parseDouble(0, text.length()), 0.0);
+        }
+        for (String text : new String[]{"0", "-0.0", "12345678901234567890", "1e22", "1e23", "3.0E-5", "+7", ".5", "5.", "NaN", "-Infinity"}) {
+            assertEquals(text, Double.parseDouble(text), parser(text).parseDouble(0, text.length()), 0.0);
+        }
+
+        LocalDateTime base = LocalDateTime.of(1999, 12, 31, 23, 59, 58);
+        for (int i = 0; i < 2000; i++) {
+            LocalDateTime expected = base.plusNanos((long) random.nextInt(1_000_000) * (i % 3 == 0 ? 1 : 1000)).plusDays(i);
+            String text = expected.toString();
+            assertEquals(expected, parser(text).parseTimestamp(0, text.length()));
+        }
+        // Parsed by the JDK fallback, then rejected because epoch nanoseconds cannot hold it
+        try {
+            parser("+12345-01-02T03:04").parseTimestamp(0, 18);
+            fail("Expected a timestamp beyond 2262 to be rejected");
+        } catch (DateTimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("+12345-01-02T03:04"));
+        }
+    }
+
+    private static BulkFileLoader.RowParser parser(String text) {
+        return new BulkFileLoader.RowParser(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testRejectsCompressedAndBinaryFiles() throws IOException {
+        ColumnarRecordStore store = sampleStore(10);
+        Path binary = export(store, ExportFormat.BINARY);
+        Path gzip = temporaryFolder.newFile("records.csv.gz").toPath();
+        try (OutputStream out = Files.newOutputStream(gzip)) {
+            new DataExporter(backend, 100).export(store, ExportFormat.CSV, true, out);
+        }
+        BulkFileLoader loader = new BulkFileLoader(backend);
+        try {
+            loader.load(binary, ExportFormat.BINARY, records -> { });
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Binary exports go through DataImporter
+        }
+        try {
+            loader.load(gzip, ExportFormat.CSV, records -> { });
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // So do compressed ones
+        }
+    }
+
+    @Test
+    public void testOutOfRangeTimestampIsMalformed() throws Exception {
+        Path csv = temporaryFolder.newFile("range.csv").toPath();
+        Files.write(csv, (RecordCodec.CSV_HEADER + "\n"
+                + "a,2024-03-01T10:00:00,1.0,cat,,,\n"
+                + "b,9999-01-01T00:00:00,2.0,cat,,,\n"
+                + "c,2024-03-01T11:00:00,3.0,cat,,,\n").getBytes(StandardCharsets.UTF_8));
+        BigDataProcessingSystem system = new BigDataProcessingSystem();
+        try {
+            BulkFileLoader.LoadReport report = system.loadFile(csv, ExportFormat.CSV);
+            assertEquals(2, report.getRecords());
+            assertEquals(1, report.getMalformedRows());
+            assertTrue(report.getMalformedSamples().get(0), report.getMalformedSamples().get(0).contains("out of range"));
+            assertEquals(2, system.processData().get().getSummary().get("totalRecords").intValue());
+        } finally {
+            system.shutdown();
+        }
+    }
+
+    @Test
+    public void testSystemLoadFileIngestsAndIndexes() throws Exception {
+        ColumnarRecordStore store = sampleStore(1500);
+        Path file = export(store, ExportFormat.CSV);
+        BigDataProcessingSystem system = new BigDataProcessingSystem();
+        try {
+            BulkFileLoader.LoadReport report = system.loadFile(file, ExportFormat.CSV);
+            assertEquals(1500, report.getRecords());
+            assertEquals(1500, system.processData().get().getSummary().get("totalRecords").intValue());
+
+            RecordFilter filter = RecordFilter.all().withCategories("B");
+            long expected = store.asList().stream().filter(r -> "B".equals(r.getRecordMetadata().getCategory())).count();
+            assertEquals(expected, system.processData(filter).get().getSummary().get("totalRecords").intValue());
+        } finally {
+            system.shutdown();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingDataProcessorTest {
+
+    /**
+     * Delegate that counts computations and can hold them open to exercise coalescing
+     */
+    private static final class CountingProcessor implements IDataProcessor {
+        private final AtomicInteger computations = new AtomicInteger();
+        private volatile CompletableFuture<Void> gate = CompletableFuture.completedFuture(null);
+
+        @Override
+        public CompletableFuture<BigDataProcessingSystem.AnalysisResult> process(List<BigDataProcessingSystem.DataRecord> records) {
+            computations.incrementAndGet();
+            return gate.thenApply(ignored -> new BigDataProcessingSystem.AnalysisResult(
+                    Map.of("totalRecords", (double) records.size()), List.of(), List.of(), 0));
+        }
+    }
+
+    private static RecordStore storeWith(int records) {
+        RecordStore store = new ColumnarRecordStore();
+        for (int i = 0; i < records; i++) {
+            store.append(new BigDataProcessingSystem.DataRecord("r" + i, LocalDateTime.now(), i, Map.of()));
+        }
+        return store;
+    }
+
+    @Test
+    public void testHitUntilDatasetVersionChanges() {
+        CountingProcessor delegate = new CountingProcessor();
+        CachingDataProcessor cache = new CachingDataProcessor(delegate, 4, Duration.ZERO);
+        RecordStore store = storeWith(3);
+
+        assertEquals(3.0, cache.process(store).join().getSummary().get("totalRecords"), 0.0);
+        assertEquals(3.0, cache.process(store).join().getSummary().get("totalRecords"), 0.0);
+        assertEquals(1, delegate.computations.get());
+        assertEquals(1, cache.getHits());
+
+        store.append(new BigDataProcessingSystem.DataRecord("new", LocalDateTime.now(), 1, Map.of()));
+        assertEquals(4.0, cache.process(store).join().getSummary().get("totalRecords"), 0.0);
+        assertEquals(2, delegate.computations.get());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1.0 / 3, cache.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneComputation() {
+        CountingProcessor delegate = new CountingProcessor();
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        delegate.gate = gate;
+        CachingDataProcessor cache = new CachingDataProcessor(delegate, 4, Duration.ZERO);
+        RecordStore store = storeWith(2);
+
+        CompletableFuture<BigDataProcessingSystem.AnalysisResult> first = cache.process(store);
+        CompletableFuture<BigDataProcessingSystem.AnalysisResult> second = cache.process(store);
+        assertSame(first, second);
+        gate.complete(null);
+
+        assertEquals(2.0, second.join().getSummary().get("totalRecords"), 0.0);
+        assertEquals(1, delegate.computations.get());
+        assertEquals(1, cache.getCoalescedRequests());
+    }
+
+    @Test
+    public void testSizeAndTtlEviction() throws InterruptedException {
+        CountingProcessor delegate = new CountingProcessor();
+        CachingDataProcessor sized = new CachingDataProcessor(delegate, 1, Duration.ZERO);
+        RecordStore first = storeWith(1);
+        RecordStore second = storeWith(2);
+        sized.process(first).join();
+        sized.process(second).join();
+        sized.process(first).join();
+        assertEquals(3, delegate.computations.get());
+        assertEquals(2, sized.getEvictions());
+
+        CountingProcessor expiring = new CountingProcessor();
+        CachingDataProcessor ttl = new CachingDataProcessor(expiring, 4, Duration.ofMillis(20));
+        ttl.process(first).join();
+        Thread.sleep(40);
+        ttl.process(first).join();
+        assertEquals(2, expiring.computations.get());
+    }
+
+    @Test
+    public void testListInputBypassesCache() {
+        CountingProcessor delegate = new CountingProcessor();
+        CachingDataProcessor cache = new CachingDataProcessor(delegate, 4, Duration.ZERO);
+        List<BigDataProcessingSystem.DataRecord> records = storeWith(2).asList();
+        cache.process(records).join();
+        cache.process(records).join();
+        assertEquals(2, delegate.computations.get());
+        assertEquals(2, cache.getBypassedRequests());
+    }
+}
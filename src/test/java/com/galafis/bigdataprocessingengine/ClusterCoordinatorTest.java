@@ -0,0 +1,216 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+public class ClusterCoordinatorTest {
+
+    private final List<WorkerNode> nodes = new ArrayList<>();
+    private ExecutionBackend backend;
+
+    @Before
+    public void setUp() {
+        backend = ExecutionBackend.create(ExecutionBackend.Type.WORK_STEALING, 4);
+    }
+
+    @After
+    public void tearDown() {
+        nodes.forEach(WorkerNode::close);
+        backend.close();
+    }
+
+    private InetSocketAddress startWorker() throws IOException {
+        WorkerNode node = WorkerNode.start(0);
+        nodes.add(node);
+        return new InetSocketAddress("localhost", node.getPort());
+    }
+
+    private static List<BigDataProcessingSystem.DataRecord> randomRecords(int count, long seed) {
+        Random random = new Random(seed);
+        String[] categories = {"A", "B", "C", "D"};
+        LocalDateTime now = LocalDateTime.now();
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            if (i % 13 != 0) {
+                metadata.put("category", categories[Math.min(random.nextInt(7), 3)]);
+            }
+            records.add(new BigDataProcessingSystem.DataRecord("record-" + i,
+                    now.minusMinutes(random.nextInt(10 * 24 * 60)), random.nextDouble() * 1000, metadata));
+        }
+        return records;
+    }
+
+    private BigDataProcessingSystem.AnalysisResult expected(List<BigDataProcessingSystem.DataRecord> records)
+            throws Exception {
+        return new DefaultDataProcessor(backend.computeExecutor()).process(records).get();
+    }
+
+    private static void assertSameResult(BigDataProcessingSystem.AnalysisResult expected,
+                                         BigDataProcessingSystem.AnalysisResult actual) {
+        assertEquals(expected.getSummary().keySet(), actual.getSummary().keySet());
+        expected.getSummary().forEach((key, value) -> assertEquals(key, value, actual.getSummary().get(key), 1e-6));
+        assertEquals(expected.getInsights(), actual.getInsights());
+        assertEquals(expected.getRecommendations(), actual.getRecommendations());
+    }
+
+    private static void ingestInBatches(ClusterCoordinator coordinator, List<BigDataProcessingSystem.DataRecord> records) {
+        for (int from = 0; from < records.size(); from += 2_500) {
+            coordinator.ingest(records.subList(from, Math.min(records.size(), from + 2_500)));
+        }
+    }
+
+    @Test
+    public void testHashPartitionedResultMatchesSingleNode() throws Exception {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(20_000, 3L);
+        List<InetSocketAddress> workers = Arrays.asList(startWorker(), startWorker(), startWorker());
+        try (ClusterCoordinator coordinator = new ClusterCoordinator(workers, Partitioner.hash(8), 2,
+                Duration.ofSeconds(10), backend)) {
+            ingestInBatches(coordinator, records);
+            assertSameResult(expected(records), coordinator.process().get());
+
+            long stored = 0;
+            for (WorkerNode node : nodes) {
+                assertFalse(node.getPartitionSizes().isEmpty());
+                stored += node.getPartitionSizes().values().stream().mapToLong(Long::longValue).sum();
+            }
+            assertEquals(records.size(), stored);
+        }
+    }
+
+    @Test
+    public void testRangePartitionedResultMatchesSingleNode() throws Exception {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(10_000, 4L);
+        LocalDateTime now = LocalDateTime.now();
+        Partitioner partitioner = Partitioner.range(Arrays.asList(now.minusDays(7), now.minusDays(3), now.minusDays(1)));
+        assertEquals(4, partitioner.getPartitionCount());
+        try (ClusterCoordinator coordinator = new ClusterCoordinator(Arrays.asList(startWorker(), startWorker()),
+                partitioner, 2, Duration.ofSeconds(10), backend)) {
+            ingestInBatches(coordinator, records);
+            assertSameResult(expected(records), coordinator.process().get());
+        }
+    }
+
+    @Test
+    public void testRebalancingPreservesResult() throws Exception {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(15_000, 5L);
+        InetSocketAddress first = startWorker();
+        try (ClusterCoordinator coordinator = new ClusterCoordinator(Collections.singletonList(first),
+                Partitioner.hash(9), 2, Duration.ofSeconds(10), backend)) {
+            ingestInBatches(coordinator, records.subList(0, 10_000));
+
+            InetSocketAddress second = startWorker();
+            InetSocketAddress third = startWorker();
+            coordinator.addWorker(second);
+            coordinator.addWorker(third);
+            Map<InetSocketAddress, Integer> owned = new HashMap<>();
+            coordinator.getAssignments().values().forEach(address -> owned.merge(address, 1, Integer::sum));
+            assertEquals(3, owned.size());
+            owned.values().forEach(count -> assertEquals(3, (int) count));
+            assertEquals(3, nodes.get(0).getPartitionSizes().size());
+
+            ingestInBatches(coordinator, records.subList(10_000, records.size()));
+            assertSameResult(expected(records), coordinator.process().get());
+
+            coordinator.removeWorker(first);
+            assertFalse(coordinator.getAssignments().containsValue(first));
+            assertTrue(nodes.get(0).getPartitionSizes().isEmpty());
+            assertEquals(2, coordinator.getWorkers().size());
+            assertSameResult(expected(records), coordinator.process().get());
+        }
+    }
+
+    @Test
+    public void testRestartedCoordinatorContinuesWorkerSequences() throws Exception {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(150, 6L);
+        List<InetSocketAddress> workers = Collections.singletonList(startWorker());
+        try (ClusterCoordinator coordinator = new ClusterCoordinator(workers, Partitioner.hash(1), 2,
+                Duration.ofSeconds(10), backend)) {
+            coordinator.ingest(records.subList(0, 100));
+        }
+        try (ClusterCoordinator restarted = new ClusterCoordinator(workers, Partitioner.hash(1), 2,
+                Duration.ofSeconds(10), backend)) {
+            restarted.ingest(records.subList(100, 150));
+            assertEquals(Collections.singletonMap(0, 150L), nodes.get(0).getPartitionSizes());
+            assertSameResult(expected(records), restarted.process().get());
+        }
+    }
+
+    @Test
+    public void testUnresponsiveWorkerTimesOutAfterRetries() throws Exception {
+        // Connections queue in the backlog but are never served, so every read times out
+        try (ServerSocket silent = new ServerSocket(0)) {
+            InetSocketAddress address = new InetSocketAddress("localhost", silent.getLocalPort());
+            long start = System.nanoTime();
+            try {
+                new ClusterCoordinator(Collections.singletonList(address), Partitioner.hash(4), 2,
+                        Duration.ofMillis(200), backend);
+                fail("Expected the silent worker to time out");
+            } catch (UncheckedIOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("after 3 attempts"));
+            }
+            assertTrue(System.nanoTime() - start >= Duration.ofMillis(3 * 200).toNanos());
+        }
+    }
+
+    @Test
+    public void testSystemProcessesAcrossWorkerProcess() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Process worker = new ProcessBuilder(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-cp", System.getProperty("java.class.path"),
+                WorkerNode.class.getName(), String.valueOf(port))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        BigDataProcessingSystem system = new BigDataProcessingSystem();
+        try {
+            // Retries cover the time the worker JVM needs to start listening
+            ClusterCoordinator coordinator = null;
+            for (int attempt = 0; coordinator == null; attempt++) {
+                try {
+                    coordinator = system.connectCluster(Arrays.asList(
+                            new InetSocketAddress("localhost", port), startWorker()), Partitioner.hash(6));
+                } catch (UncheckedIOException e) {
+                    if (attempt >= 5) {
+                        throw e;
+                    }
+                }
+            }
+            assertSame(coordinator, system.getClusterCoordinator());
+
+            List<BigDataProcessingSystem.DataRecord> records = randomRecords(8_000, 6L);
+            system.ingestDistributed(records);
+            assertSameResult(expected(records), system.processDistributed().get());
+            assertEquals(0, system.getRecordStore().size());
+        } finally {
+            system.shutdown();
+            worker.destroy();
+            worker.waitFor();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProcessDistributedRequiresCluster() {
+        BigDataProcessingSystem system = new BigDataProcessingSystem();
+        try {
+            system.processDistributed();
+        } finally {
+            system.shutdown();
+        }
+    }
+}
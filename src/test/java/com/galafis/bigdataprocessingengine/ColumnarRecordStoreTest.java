@@ -0,0 +1,117 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class ColumnarRecordStoreTest {
+
+    private ExecutorService executorService;
+    private ForkJoinPool forkJoinPool;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newSingleThreadExecutor();
+        forkJoinPool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdown();
+        forkJoinPool.shutdown();
+    }
+
+    @Test
+    public void testRoundTripThroughColumns() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123456789);
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("category", "A");
+        metadata.put("priority", 3);
+        metadata.put("source", "sensor");
+        metadata.put("region", "eu-west");
+        metadata.put("weight", 1.5);
+
+        RecordStore store = new ColumnarRecordStore(1);
+        store.append(new BigDataProcessingSystem.DataRecord("id1", timestamp, 42.5, metadata));
+        store.append(new BigDataProcessingSystem.DataRecord("id2", timestamp.minusHours(1), 7.0, Map.of("priority", 1000)));
+
+        assertEquals(2, store.size());
+        assertEquals(42.5, store.value(0), 0.0);
+        assertEquals(0, store.categoryCode(0));
+        assertEquals("A", store.categoryName(store.categoryCode(0)));
+        assertEquals(3, store.priority(0));
+        assertEquals(RecordStore.NO_CATEGORY, store.categoryCode(1));
+        assertEquals(RecordStore.NO_PRIORITY, store.priority(1));
+
+        BigDataProcessingSystem.DataRecord first = store.record(0);
+        assertEquals("id1", first.getId());
+        assertEquals(timestamp, first.getTimestamp());
+        assertEquals(metadata, first.getMetadata());
+        assertEquals(Map.of("priority", 1000), store.asList().get(1).getMetadata());
+    }
+
+    /**
+     * Lock-free readers racing the writer through repeated column growth see complete records
+     */
+    @Test
+    public void testReadersSeeCompleteRecordsWhileColumnsGrow() throws Exception {
+        ColumnarRecordStore store = new ColumnarRecordStore(1);
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 0, 0);
+        int total = 200_000;
+        Future<Long> reader = executorService.submit(() -> {
+            long checked = 0;
+            while (store.size() < total) {
+                long last = store.size() - 1;
+                if (last >= 0) {
+                    BigDataProcessingSystem.DataRecord record = store.record(last);
+                    assertEquals("r" + last, record.getId());
+                    assertEquals((double) last, record.getValue(), 0.0);
+                    assertEquals(base.plusSeconds(last), record.getTimestamp());
+                    checked++;
+                }
+            }
+            return checked;
+        });
+        for (int i = 0; i < total; i++) {
+            store.append(new BigDataProcessingSystem.DataRecord("r" + i, base.plusSeconds(i), i, Map.of("category", "A")));
+        }
+        reader.get();
+        assertEquals(total, store.size());
+    }
+
+    @Test
+    public void testColumnarProcessingMatchesListProcessing() throws ExecutionException, InterruptedException {
+        Random random = new Random(11L);
+        String[] categories = {"A", "B", "C", "D"};
+        RecordStore store = new ColumnarRecordStore();
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            Map<String, Object> metadata = i % 13 == 0 ? Map.of() : Map.of("category", categories[random.nextInt(categories.length)]);
+            records.add(new BigDataProcessingSystem.DataRecord(
+                    "r" + i, LocalDateTime.now().minusHours(random.nextInt(48)), random.nextDouble() * 500, metadata));
+        }
+        store.appendAll(records);
+
+        BigDataProcessingSystem.AnalysisResult expected = new DefaultDataProcessor(executorService).process(records).get();
+        BigDataProcessingSystem.AnalysisResult sequential = new DefaultDataProcessor(executorService).process(store).get();
+        BigDataProcessingSystem.AnalysisResult parallel = new ParallelDataProcessor(forkJoinPool, 1024).process(store).get();
+
+        for (BigDataProcessingSystem.AnalysisResult actual : List.of(sequential, parallel)) {
+            assertEquals(expected.getSummary().get("totalRecords"), actual.getSummary().get("totalRecords"));
+            assertEquals(expected.getSummary().get("averageValue"), actual.getSummary().get("averageValue"), 1e-9);
+            assertEquals(expected.getSummary().get("maxValue"), actual.getSummary().get("maxValue"));
+            assertEquals(expected.getSummary().get("minValue"), actual.getSummary().get("minValue"));
+            assertEquals(expected.getInsights(), actual.getInsights());
+            assertEquals(expected.getRecommendations(), actual.getRecommendations());
+        }
+    }
+}
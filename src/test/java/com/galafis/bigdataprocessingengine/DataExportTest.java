@@ -0,0 +1,126 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+public class DataExportTest {
+
+    private ExecutionBackend backend;
+
+    @Before
+    public void setUp() {
+        backend = ExecutionBackend.create(ExecutionBackend.Type.WORK_STEALING, 0);
+    }
+
+    @After
+    public void tearDown() {
+        backend.shutdown(10, TimeUnit.SECONDS);
+    }
+
+    private static ColumnarRecordStore sampleStore(int count) {
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 12, 0, 0, 123_456_789);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            if (i % 4 != 0) {
+                metadata.put("category", i % 2 == 0 ? "A, \"quoted\"" : "B");
+            }
+            metadata.put("priority", i % 10 == 0 ? 1000 : i % 5);
+            metadata.put("source", "gen");
+            if (i % 3 == 0) {
+                metadata.put("note", "line\nbreak\t\u0001");
+                metadata.put("flag", i % 2 == 0);
+                metadata.put("weight", i / 7.0);
+                metadata.put("missing", null);
+            }
+            store.append(new BigDataProcessingSystem.DataRecord("id-" + i + (i % 50 == 0 ? ",x\ny" : ""),
+                    base.plusMinutes(i), i * 1.25, metadata));
+        }
+        return store;
+    }
+
+    private static void assertSameRecords(RecordStore expected, List<BigDataProcessingSystem.DataRecord> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            BigDataProcessingSystem.DataRecord original = expected.record(i);
+            assertEquals(original.getId(), actual.get(i).getId());
+            assertEquals(original.getTimestamp(), actual.get(i).getTimestamp());
+            assertEquals(original.getValue(), actual.get(i).getValue(), 0.0);
+            assertEquals(original.getMetadata(), actual.get(i).getMetadata());
+        }
+    }
+
+    @Test
+    public void testRoundTripEveryFormat() throws IOException {
+        ColumnarRecordStore store = sampleStore(2345);
+        for (ExportFormat format : ExportFormat.values()) {
+            for (boolean compress : new boolean[]{false, true}) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                assertEquals(2345, new DataExporter(backend, 100).export(store, format, compress, out));
+
+                List<BigDataProcessingSystem.DataRecord> imported = new ArrayList<>();
+                long count = new DataImporter(backend, 77).importFrom(new ByteArrayInputStream(out.toByteArray()), format, imported::addAll);
+                assertEquals(format + " compress=" + compress, 2345, count);
+                assertSameRecords(store, imported);
+            }
+        }
+    }
+
+    @Test
+    public void testTextFormatsAreReadable() throws IOException {
+        ColumnarRecordStore store = sampleStore(3);
+        ByteArrayOutputStream jsonl = new ByteArrayOutputStream();
+        new DataExporter(backend).export(store, ExportFormat.JSONL, false, jsonl);
+        String firstLine = jsonl.toString(StandardCharsets.UTF_8).split("\n")[0];
+        assertTrue(firstLine.startsWith("{\"id\":\"id-0,x\\ny\",\"timestamp\":\"2024-03-01T12:00:00.123456789\",\"value\":0.0,"));
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        new DataExporter(backend).export(store, ExportFormat.CSV, true, csv);
+        String text = new String(new GZIPInputStream(new ByteArrayInputStream(csv.toByteArray())).readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(text.startsWith(RecordCodec.CSV_HEADER + "\n\"id-0,x\ny\",2024-03-01T12:00:00.123456789,0.0,,1000,gen,"));
+        assertTrue(text.contains("\nid-1,2024-03-01T12:01:00.123456789,1.25,B,1,gen,\n"));
+    }
+
+    @Test
+    public void testTruncatedBinaryExportIsRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DataExporter(backend, 10).export(sampleStore(25), ExportFormat.BINARY, false, out);
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 8);
+        try {
+            new DataImporter(backend).importFrom(new ByteArrayInputStream(truncated), ExportFormat.BINARY, records -> { });
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("truncated"));
+        }
+    }
+
+    @Test
+    public void testSystemExportAndImport() throws Exception {
+        BigDataProcessingSystem source = new BigDataProcessingSystem();
+        BigDataProcessingSystem target = new BigDataProcessingSystem();
+        try {
+            source.initialize().get();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(1000, source.exportData(out));
+            assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("{\"id\":\"record-1\""));
+
+            assertEquals(1000, target.importData(new ByteArrayInputStream(out.toByteArray()), ExportFormat.JSONL));
+            assertSameRecords(source.getRecordStore(), target.getDataRecords());
+            assertEquals(source.processData().get().getSummary(), target.processData().get().getSummary());
+        } finally {
+            source.shutdown();
+            target.shutdown();
+        }
+    }
+}
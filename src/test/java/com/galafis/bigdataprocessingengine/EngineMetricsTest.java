@@ -0,0 +1,92 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+public class EngineMetricsTest {
+
+    @Test
+    public void testHistogramBucketsAndQuantiles() {
+        for (long value : new long[]{0, 1, 7, 8, 15, 16, 17, 1000, 123_456_789L, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue("upper bound below " + value, LatencyHistogram.upperBound(index) >= value);
+            assertTrue("bucket too wide for " + value, LatencyHistogram.upperBound(index) - value <= value / 8);
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMean(), 0.0);
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500, histogram.getValueAtQuantile(0.5), 500 / 8.0);
+        assertEquals(990, histogram.getValueAtQuantile(0.99), 990 / 8.0);
+        assertEquals(1000, histogram.getValueAtQuantile(1.0));
+        assertEquals(0, new LatencyHistogram().getValueAtQuantile(0.5));
+    }
+
+    @Test
+    public void testProcessorsRecordPhasesAndThroughput() throws Exception {
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        for (int i = 0; i < 5000; i++) {
+            store.append(new BigDataProcessingSystem.DataRecord("record-" + i, LocalDateTime.now().minusHours(i % 48),
+                    i % 100, Map.of("category", i % 3 == 0 ? "A" : "B")));
+        }
+
+        EngineMetrics defaultMetrics = new EngineMetrics();
+        new DefaultDataProcessor(ForkJoinPool.commonPool(), defaultMetrics).process(store).get();
+        EngineMetrics parallelMetrics = new EngineMetrics();
+        new ParallelDataProcessor(ExecutionBackend.wrap(ForkJoinPool.commonPool()), 512, parallelMetrics).process(store).get();
+
+        for (EngineMetrics metrics : new EngineMetrics[]{defaultMetrics, parallelMetrics}) {
+            assertEquals(1, metrics.getAnalyses());
+            assertEquals(5000, metrics.getAnalyzedRecords());
+            for (EngineMetrics.Phase phase : EngineMetrics.Phase.values()) {
+                assertEquals(1, metrics.getPhaseLatency(phase).getCount());
+            }
+            EngineMetrics.Snapshot snapshot = metrics.snapshot();
+            assertTrue(snapshot.get("analysis.records.per_second") > 0);
+            if (EngineMetrics.currentThreadAllocatedBytes() >= 0) {
+                assertTrue(snapshot.get("analysis.allocated.bytes.max") > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testSystemSnapshotAndEndpoint() throws Exception {
+        BigDataProcessingSystem system = new BigDataProcessingSystem();
+        try (MetricsEndpoint endpoint = MetricsEndpoint.start(system.getMetrics(), 0)) {
+            assertTrue(endpoint.getAddress().getAddress().isLoopbackAddress());
+            system.initialize().get();
+            system.processData().get();
+            system.processData().get();
+
+            EngineMetrics.Snapshot snapshot = system.getMetricsSnapshot();
+            assertEquals(1000.0, snapshot.get("ingest.records.total"), 0.0);
+            assertEquals(1000.0, snapshot.get("store.records"), 0.0);
+            assertEquals(1.0, snapshot.get("analysis.total"), 0.0);
+            assertEquals(0.5, snapshot.get("cache.hit.ratio"), 0.0);
+            assertTrue(snapshot.getValues().containsKey("executor.queue.depth"));
+            assertTrue(snapshot.getValues().containsKey("phase.insights.latency.nanos.p99"));
+
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://" + endpoint.getAddress().getHostString() + ":" + endpoint.getPort() + "/metrics").openConnection();
+            assertEquals(200, connection.getResponseCode());
+            try (InputStream in = connection.getInputStream()) {
+                String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(body.contains("bigdata_ingest_records_total 1000.0\n"));
+                assertTrue(body.contains("bigdata_analysis_total 1.0\n"));
+            }
+        } finally {
+            system.shutdown();
+        }
+    }
+}
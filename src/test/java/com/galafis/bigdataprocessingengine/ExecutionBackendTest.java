@@ -0,0 +1,91 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ExecutionBackendTest {
+
+    @Test
+    public void testMapReduceOnEveryBackend() {
+        for (ExecutionBackend.Type type : ExecutionBackend.Type.values()) {
+            ExecutionBackend backend = ExecutionBackend.create(type, 3);
+            try {
+                long sum = backend.mapReduce(100_000, 1000, (from, to) -> {
+                    long partial = 0;
+                    for (long i = from; i < to; i++) {
+                        partial += i;
+                    }
+                    return partial;
+                }, Long::sum).join();
+                assertEquals(type.name(), 99_999L * 100_000L / 2, sum);
+                assertEquals(type.name(), Long.valueOf(0), backend.mapReduce(0, 10, (from, to) -> to - from, Long::sum).join());
+            } finally {
+                backend.shutdown(5, TimeUnit.SECONDS);
+            }
+            assertTrue(type.name(), backend.isShutdown());
+            assertTrue(type.name(), backend.computeExecutor().isTerminated());
+            assertTrue(type.name(), backend.ioExecutor().isTerminated());
+        }
+    }
+
+    @Test
+    public void testParallelProcessorOnFixedBackendMatchesDefault() throws Exception {
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>();
+        Random random = new Random(3L);
+        for (int i = 0; i < 10_000; i++) {
+            records.add(new BigDataProcessingSystem.DataRecord("r" + i, LocalDateTime.now().minusHours(random.nextInt(30)),
+                    random.nextDouble() * 100, Map.of("category", i % 3 == 0 ? "A" : "B")));
+        }
+        ExecutionBackend backend = ExecutionBackend.create(ExecutionBackend.Type.FIXED, 4);
+        try {
+            BigDataProcessingSystem.AnalysisResult expected = new DefaultDataProcessor(backend.computeExecutor()).process(records).get();
+            BigDataProcessingSystem.AnalysisResult actual = new ParallelDataProcessor(backend, 500).process(records).get();
+            assertEquals(expected.getSummary().get("averageValue"), actual.getSummary().get("averageValue"), 1e-9);
+            assertEquals(expected.getInsights(), actual.getInsights());
+            assertEquals(expected.getRecommendations(), actual.getRecommendations());
+        } finally {
+            backend.close();
+        }
+    }
+
+    @Test
+    public void testWrappedExecutorIsNotShutDown() {
+        java.util.concurrent.ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutionBackend backend = ExecutionBackend.wrap(executor);
+        backend.close();
+        assertFalse(executor.isShutdown());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testTypeFromConfig() {
+        assertEquals(ExecutionBackend.Type.WORK_STEALING, ExecutionBackend.Type.fromConfig("work-stealing"));
+        assertEquals(ExecutionBackend.Type.VIRTUAL, ExecutionBackend.Type.fromConfig(" Virtual "));
+    }
+
+    @Test
+    public void testVirtualFallsBackToBoundedWorkStealing() throws Exception {
+        boolean virtualThreads = Arrays.stream(Executors.class.getMethods())
+                .anyMatch(method -> method.getName().equals("newVirtualThreadPerTaskExecutor"));
+        try (ExecutionBackend backend = ExecutionBackend.create(ExecutionBackend.Type.VIRTUAL, 2)) {
+            if (virtualThreads) {
+                assertEquals(ExecutionBackend.Type.VIRTUAL, backend.getType());
+            } else {
+                assertEquals(ExecutionBackend.Type.WORK_STEALING, backend.getType());
+                assertTrue(backend.computeExecutor() instanceof java.util.concurrent.ForkJoinPool);
+            }
+            assertEquals(4950L, (long) backend.mapReduce(100, 10, (from, to) -> {
+                long sum = 0;
+                for (long i = from; i < to; i++) {
+                    sum += i;
+                }
+                return sum;
+            }, Long::sum).get());
+        }
+    }
+}
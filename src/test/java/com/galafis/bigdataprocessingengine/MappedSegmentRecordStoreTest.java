@@ -0,0 +1,166 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class MappedSegmentRecordStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdown();
+    }
+
+    private static List<BigDataProcessingSystem.DataRecord> records(int count) {
+        Random random = new Random(5L);
+        String[] categories = {"A", "B", "C"};
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("category", categories[random.nextInt(categories.length)]);
+            metadata.put("priority", random.nextInt(5) + 1);
+            metadata.put("source", "generated");
+            if (i % 10 == 0) {
+                metadata.put("batch", (long) i);
+            }
+            records.add(new BigDataProcessingSystem.DataRecord(
+                    "record-" + i, LocalDateTime.now().minusHours(random.nextInt(36)), random.nextDouble() * 1000, metadata));
+        }
+        return records;
+    }
+
+    @Test
+    public void testAppendSpansSegmentsAndReopens() throws IOException {
+        Path directory = temporaryFolder.newFolder("segments").toPath();
+        List<BigDataProcessingSystem.DataRecord> records = records(2500);
+
+        try (MappedSegmentRecordStore store = MappedSegmentRecordStore.open(directory, 1024)) {
+            store.appendAll(records.subList(0, 1000));
+            store.appendAll(records.subList(1000, 2500));
+            assertEquals(2500, store.size());
+            assertEquals(3, store.getSegmentCount());
+        }
+
+        try (MappedSegmentRecordStore reopened = MappedSegmentRecordStore.open(directory, 1024)) {
+            assertEquals(2500, reopened.size());
+            for (int i : new int[]{0, 1023, 1024, 2499}) {
+                BigDataProcessingSystem.DataRecord expected = records.get(i);
+                BigDataProcessingSystem.DataRecord actual = reopened.record(i);
+                assertEquals(expected.getId(), actual.getId());
+                assertEquals(expected.getTimestamp(), actual.getTimestamp());
+                assertEquals(expected.getValue(), actual.getValue(), 0.0);
+                assertEquals(expected.getMetadata(), actual.getMetadata());
+            }
+            reopened.append(records.get(0));
+            assertEquals(2501, reopened.size());
+            assertEquals(records.get(0).getId(), reopened.id(2500));
+        }
+    }
+
+    /**
+     * Side entries are read from mapped chunks, across chunk boundaries and from the chunk still being written
+     */
+    @Test
+    public void testSideEntriesAcrossChunks() throws IOException {
+        Path directory = temporaryFolder.newFolder("chunks").toPath();
+        List<BigDataProcessingSystem.DataRecord> records = records(600);
+
+        try (MappedSegmentRecordStore store = MappedSegmentRecordStore.open(directory, 1024, 256)) {
+            for (int i = 0; i < records.size(); i++) {
+                store.append(records.get(i));
+                // Reads interleaved with appends, as under ingestion
+                assertEquals(records.get(i).getId(), store.id(i));
+                assertEquals(records.get(i / 2).getMetadata(), store.record(i / 2).getMetadata());
+            }
+        }
+        try (MappedSegmentRecordStore reopened = MappedSegmentRecordStore.open(directory, 1024, 256)) {
+            for (int i = 0; i < records.size(); i++) {
+                assertEquals(records.get(i).getId(), reopened.id(i));
+                assertEquals(records.get(i).getMetadata(), reopened.record(i).getMetadata());
+            }
+        }
+    }
+
+    @Test
+    public void testProcessingOverMappedSegments() throws IOException, ExecutionException, InterruptedException {
+        Path directory = temporaryFolder.newFolder("analysis").toPath();
+        List<BigDataProcessingSystem.DataRecord> records = records(5000);
+
+        try (MappedSegmentRecordStore store = MappedSegmentRecordStore.open(directory, 2048)) {
+            store.appendAll(records);
+            BigDataProcessingSystem.AnalysisResult expected = new DefaultDataProcessor(executorService).process(records).get();
+            BigDataProcessingSystem.AnalysisResult actual = new DefaultDataProcessor(executorService).process(store).get();
+
+            assertEquals(expected.getSummary().get("totalRecords"), actual.getSummary().get("totalRecords"));
+            assertEquals(expected.getSummary().get("averageValue"), actual.getSummary().get("averageValue"));
+            assertEquals(expected.getInsights(), actual.getInsights());
+            assertEquals(expected.getRecommendations(), actual.getRecommendations());
+        }
+    }
+
+    @Test
+    public void testSystemReusesExistingSegments() throws Exception {
+        Path directory = temporaryFolder.newFolder("system").toPath();
+
+        BigDataProcessingSystem first = new BigDataProcessingSystem(MappedSegmentRecordStore.open(directory, 512));
+        first.initialize().get();
+        List<String> ids = List.of(first.getDataRecords().get(0).getId(), first.getDataRecords().get(999).getId());
+        first.shutdown();
+
+        BigDataProcessingSystem second = new BigDataProcessingSystem(MappedSegmentRecordStore.open(directory, 512));
+        second.initialize().get();
+        assertEquals(1000, second.getDataRecords().size());
+        assertEquals(ids, List.of(second.getDataRecords().get(0).getId(), second.getDataRecords().get(999).getId()));
+        second.shutdown();
+    }
+
+    @Test
+    public void testTornDictionaryEntryIsDropped() throws IOException {
+        Path directory = temporaryFolder.newFolder("torn").toPath();
+        List<BigDataProcessingSystem.DataRecord> records = records(100);
+
+        try (MappedSegmentRecordStore store = MappedSegmentRecordStore.open(directory, 1024)) {
+            store.appendAll(records);
+        }
+        // A crash in the middle of writing a new category: length prefix plus part of the name
+        Path dictionary = directory.resolve("category.dict");
+        long complete = Files.size(dictionary);
+        Files.write(dictionary, new byte[]{0, 8, 'p', 'a', 'r'}, StandardOpenOption.APPEND);
+
+        try (MappedSegmentRecordStore reopened = MappedSegmentRecordStore.open(directory, 1024)) {
+            assertEquals(complete, Files.size(dictionary));
+            assertEquals(100, reopened.size());
+            assertEquals(records.get(99).getMetadata(), reopened.record(99).getMetadata());
+
+            Map<String, Object> metadata = new HashMap<>(records.get(0).getMetadata());
+            metadata.put("category", "D");
+            reopened.append(new BigDataProcessingSystem.DataRecord("late", LocalDateTime.now(), 1.0, metadata));
+        }
+        try (MappedSegmentRecordStore reopened = MappedSegmentRecordStore.open(directory, 1024)) {
+            assertEquals("D", reopened.record(100).getRecordMetadata().getCategory());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelDataProcessorTest {
+
+    private ForkJoinPool forkJoinPool;
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        forkJoinPool = new ForkJoinPool(4);
+        executorService = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        forkJoinPool.shutdown();
+        executorService.shutdown();
+    }
+
+    private static List<BigDataProcessingSystem.DataRecord> randomRecords(int count, long seed) {
+        Random random = new Random(seed);
+        String[] categories = {"A", "B", "C"};
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            if (i % 17 != 0) {
+                metadata.put("category", categories[random.nextInt(categories.length)]);
+            }
+            records.add(new BigDataProcessingSystem.DataRecord(
+                    "record-" + i, LocalDateTime.now().minusHours(random.nextInt(72)), random.nextDouble() * 1000, metadata));
+        }
+        return records;
+    }
+
+    private static void assertSameResult(BigDataProcessingSystem.AnalysisResult expected, BigDataProcessingSystem.AnalysisResult actual) {
+        assertEquals(expected.getSummary().keySet(), actual.getSummary().keySet());
+        for (Map.Entry<String, Double> entry : expected.getSummary().entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue(), actual.getSummary().get(entry.getKey()), 1e-9);
+        }
+        assertEquals(expected.getInsights(), actual.getInsights());
+        assertEquals(expected.getRecommendations(), actual.getRecommendations());
+    }
+
+    @Test
+    public void testMatchesDefaultDataProcessor() throws ExecutionException, InterruptedException {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(50_000, 42L);
+
+        BigDataProcessingSystem.AnalysisResult expected = new DefaultDataProcessor(executorService).process(records).get();
+        BigDataProcessingSystem.AnalysisResult actual = new ParallelDataProcessor(forkJoinPool, 1000).process(records).get();
+
+        assertSameResult(expected, actual);
+    }
+
+    @Test
+    public void testSmallAndEmptyInputs() throws ExecutionException, InterruptedException {
+        IDataProcessor reference = new DefaultDataProcessor(executorService);
+        IDataProcessor parallel = new ParallelDataProcessor(forkJoinPool, 2);
+
+        List<BigDataProcessingSystem.DataRecord> empty = List.of();
+        assertSameResult(reference.process(empty).get(), parallel.process(empty).get());
+
+        List<BigDataProcessingSystem.DataRecord> few = randomRecords(7, 7L);
+        assertSameResult(reference.process(few).get(), parallel.process(few).get());
+    }
+
+    @Test
+    public void testAccumulatorMerge() {
+        RecordAccumulator left = new RecordAccumulator();
+        left.acceptValue(10.0);
+        left.addCategory("A", 1);
+        RecordAccumulator right = new RecordAccumulator();
+        right.acceptValue(30.0);
+        right.addCategory("A", 2);
+        right.addRecent(1);
+
+        RecordAccumulator merged = left.merge(right);
+        assertEquals(2, merged.getCount());
+        assertEquals(20.0, merged.getAverage(), 0.001);
+        assertEquals(10.0, merged.getMin(), 0.001);
+        assertEquals(30.0, merged.getMax(), 0.001);
+        assertEquals(Long.valueOf(3), merged.getCategoryCounts().get("A"));
+        assertEquals(1, merged.getRecentCount());
+    }
+}
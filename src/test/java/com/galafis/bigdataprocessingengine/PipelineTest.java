@@ -0,0 +1,222 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class PipelineTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private ExecutionBackend backend;
+
+    @Before
+    public void setUp() {
+        backend = ExecutionBackend.create(ExecutionBackend.Type.WORK_STEALING, 4);
+    }
+
+    @After
+    public void tearDown() {
+        backend.close();
+    }
+
+    private static List<BigDataProcessingSystem.DataRecord> randomRecords(int count, long seed) {
+        Random random = new Random(seed);
+        String[] categories = {"A", "B", "C"};
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            if (i % 11 != 0) {
+                metadata.put("category", categories[random.nextInt(categories.length)]);
+            }
+            if (i % 7 != 0) {
+                metadata.put("priority", i % 97 == 0 ? 1000 : random.nextInt(5) + 1);
+            }
+            records.add(new BigDataProcessingSystem.DataRecord("record-" + i,
+                    BASE.plusSeconds(random.nextInt(3 * 24 * 3600)), random.nextDouble() * 1000, metadata));
+        }
+        return records;
+    }
+
+    private static ColumnarRecordStore store(List<BigDataProcessingSystem.DataRecord> records) {
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        store.appendAll(records);
+        return store;
+    }
+
+    private static void assertSameResult(BigDataProcessingSystem.AnalysisResult expected,
+                                         BigDataProcessingSystem.AnalysisResult actual) {
+        assertEquals(expected.getSummary().keySet(), actual.getSummary().keySet());
+        expected.getSummary().forEach((key, value) -> assertEquals(key, value, actual.getSummary().get(key), 1e-6));
+        assertEquals(expected.getInsights(), actual.getInsights());
+        assertEquals(expected.getRecommendations(), actual.getRecommendations());
+    }
+
+    @Test
+    public void testAnalysisMatchesDefaultProcessor() throws Exception {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(40_000, 1L);
+        ColumnarRecordStore store = store(records);
+        BigDataProcessingSystem.AnalysisResult expected = new DefaultDataProcessor(backend.computeExecutor()).process(records).get();
+
+        PipelineDataProcessor processor = new PipelineDataProcessor(backend);
+        assertSameResult(expected, processor.process(records).get());
+        assertSameResult(expected, processor.process(store).get());
+        assertSameResult(expected, processor.process(store, RecordBitmap.ofRange(0, store.size())).get());
+        assertEquals(3, processor.getMetrics().getAnalyses());
+    }
+
+    @Test
+    public void testWherePushdownMatchesRecordFilter() throws Exception {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(30_000, 2L);
+        ColumnarRecordStore store = store(records);
+        SecondaryIndex index = new SecondaryIndex(Duration.ofHours(1), new EngineMetrics());
+        index.catchUp(store);
+
+        List<RecordFilter> filters = Arrays.asList(
+                RecordFilter.all().withCategories("A", "Unknown"),
+                RecordFilter.all().withPriorityBetween(2, 3),
+                RecordFilter.all().withPriorityBetween(500, 2000),
+                RecordFilter.all().withCategories("B").withPriorityBetween(1, 4)
+                        .withTimeRange(BASE.plusHours(5), BASE.plusHours(50)));
+        for (RecordFilter filter : filters) {
+            List<String> expected = records.stream().filter(filter::matches)
+                    .map(BigDataProcessingSystem.DataRecord::getId).collect(Collectors.toList());
+            assertEquals(filter.toString(), expected,
+                    Pipeline.from(store).where(filter).map(BigDataProcessingSystem.DataRecord::getId).toList(backend).get());
+            assertEquals(filter.toString(), expected,
+                    Pipeline.from(store, index).where(filter).map(BigDataProcessingSystem.DataRecord::getId).toList(backend).get());
+            assertEquals(filter.toString(), expected,
+                    Pipeline.from(records).where(filter).map(BigDataProcessingSystem.DataRecord::getId).toList(backend).get());
+        }
+
+        // Successive where() stages are combined, contradictions included
+        RecordFilter categories = RecordFilter.all().withCategories("A", "B");
+        RecordFilter priorities = RecordFilter.all().withPriorityBetween(3, 5);
+        long expected = records.stream().filter(record -> categories.matches(record) && priorities.matches(record)).count();
+        assertEquals(expected, (long) Pipeline.from(store, index).where(categories).where(priorities).count(backend).get());
+        assertEquals(0L, (long) Pipeline.from(store).where(priorities)
+                .where(RecordFilter.all().withPriorityBetween(1, 2)).count(backend).get());
+
+        assertSameResult(new DefaultDataProcessor(backend.computeExecutor())
+                        .process(records.stream().filter(categories::matches).collect(Collectors.toList())).get(),
+                PipelineDataProcessor.analyze(Pipeline.from(store, index).where(categories), backend).get());
+    }
+
+    @Test
+    public void testPinnedPipelineIgnoresLaterAppendsAndQueriesIndexOnce() throws Exception {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(5_000, 4L);
+        ColumnarRecordStore store = store(records.subList(0, 4_000));
+        EngineMetrics metrics = new EngineMetrics();
+        SecondaryIndex index = new SecondaryIndex(Duration.ofHours(1), metrics);
+        RecordFilter filter = RecordFilter.all().withCategories("A");
+
+        Pipeline<BigDataProcessingSystem.DataRecord> pinned = Pipeline.from(store, index).where(filter).pinned();
+        Pipeline<BigDataProcessingSystem.DataRecord> pinnedStore = Pipeline.from(store).pinned();
+        assertEquals(1, metrics.getIndexQueryLatency().getCount());
+        store.appendAll(records.subList(4_000, records.size()));
+
+        long expected = records.subList(0, 4_000).stream().filter(filter::matches).count();
+        assertEquals(expected, (long) pinned.count(backend).get());
+        assertEquals(expected, (long) pinned.count(backend).get());
+        assertEquals(1, metrics.getIndexQueryLatency().getCount());
+        assertEquals(4_000L, (long) pinnedStore.count(backend).get());
+        assertEquals(5_000L, (long) Pipeline.from(store).count(backend).get());
+    }
+
+    @Test
+    public void testExplainShowsPushdownAndFusion() {
+        ColumnarRecordStore store = store(randomRecords(100, 3L));
+        SecondaryIndex index = new SecondaryIndex(Duration.ofHours(1), new EngineMetrics());
+        RecordFilter filter = RecordFilter.all().withCategories("A");
+
+        Pipeline<Map.Entry<String, Long>> pipeline = Pipeline.from(store, index)
+                .filter(record -> record.getValue() > 10)
+                .where(filter)
+                .map(BigDataProcessingSystem.DataRecord::getCategory)
+                .filter(Objects::nonNull)
+                .keyBy(category -> category)
+                .aggregate(Collectors.counting())
+                .topN(1, Map.Entry.comparingByValue());
+        assertEquals("scan(store, pushdown=" + filter + " via index) -> fused[filter, map, filter]"
+                + " -> keyBy+aggregate -> topN(1)", pipeline.explain());
+        assertEquals("scan(store, pushdown=" + filter + " via columns)", Pipeline.from(store).where(filter).explain());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWhereAfterMapIsRejected() {
+        Pipeline.from(Collections.emptyList()).map(record -> record).where(RecordFilter.all());
+    }
+
+    @Test
+    public void testKeyByAndTopN() throws Exception {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(50_000, 4L);
+        ColumnarRecordStore store = store(records);
+
+        Map<String, Double> expectedSums = records.stream().collect(Collectors.groupingBy(
+                record -> String.valueOf(record.getCategory()), Collectors.summingDouble(BigDataProcessingSystem.DataRecord::getValue)));
+        Map<String, Double> sums = new HashMap<>();
+        Pipeline.from(store)
+                .keyBy(record -> String.valueOf(record.getCategory()))
+                .aggregate(Collectors.summingDouble(BigDataProcessingSystem.DataRecord::getValue))
+                .toList(backend).get()
+                .forEach(entry -> sums.put(entry.getKey(), entry.getValue()));
+        assertEquals(expectedSums.keySet(), sums.keySet());
+        expectedSums.forEach((key, value) -> assertEquals(key, value, sums.get(key), 1e-3));
+
+        Comparator<BigDataProcessingSystem.DataRecord> byValue = Comparator.comparingDouble(BigDataProcessingSystem.DataRecord::getValue);
+        List<String> expectedTop = records.stream().sorted(byValue.reversed()).limit(25)
+                .map(BigDataProcessingSystem.DataRecord::getId).collect(Collectors.toList());
+        assertEquals(expectedTop, Pipeline.from(store).topN(25, byValue)
+                .map(BigDataProcessingSystem.DataRecord::getId).toList(backend).get());
+
+        // Aggregations chain: the categories with most records above 900
+        List<Map.Entry<String, Long>> top = Pipeline.from(records)
+                .filter(record -> record.getValue() > 900)
+                .keyBy(record -> String.valueOf(record.getCategory()))
+                .aggregate(Collectors.counting())
+                .topN(2, Map.Entry.comparingByValue())
+                .toList(backend).get();
+        List<Map.Entry<String, Long>> expectedCounts = records.stream().filter(record -> record.getValue() > 900)
+                .collect(Collectors.groupingBy(record -> String.valueOf(record.getCategory()), Collectors.counting()))
+                .entrySet().stream().sorted(Map.Entry.<String, Long>comparingByValue().reversed()).limit(2)
+                .collect(Collectors.toList());
+        assertEquals(expectedCounts.size(), top.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(expectedCounts.get(i).getValue(), top.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void testSlidingWindowsAreOrderedAndComplete() throws Exception {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(20_000, 5L);
+        WindowSpec spec = WindowSpec.sliding(Duration.ofHours(6), Duration.ofHours(2));
+
+        List<Map.Entry<LocalDateTime, Long>> windows = Pipeline.from(store(records))
+                .window(spec, BigDataProcessingSystem.DataRecord::getTimestamp)
+                .aggregate(Collectors.counting())
+                .toList(backend).get();
+
+        LocalDateTime previous = null;
+        long total = 0;
+        for (Map.Entry<LocalDateTime, Long> window : windows) {
+            LocalDateTime start = window.getKey();
+            LocalDateTime end = start.plus(Duration.ofHours(6));
+            if (previous != null) {
+                assertTrue(start.isAfter(previous));
+            }
+            long expected = records.stream()
+                    .filter(record -> !record.getTimestamp().isBefore(start) && record.getTimestamp().isBefore(end)).count();
+            assertEquals(start.toString(), expected, (long) window.getValue());
+            previous = start;
+            total += window.getValue();
+        }
+        // Every record falls into size / slide windows
+        assertEquals(records.size() * 3L, total);
+    }
+}
@@ -0,0 +1,141 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class RecordIngestorTest {
+
+    private static List<BigDataProcessingSystem.DataRecord> batch(String prefix, int count) {
+        LocalDateTime now = LocalDateTime.now();
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(new BigDataProcessingSystem.DataRecord(prefix + i, now, i, Map.of("category", "A")));
+        }
+        return records;
+    }
+
+    @Test
+    public void testConcurrentProducersWithBackpressure() throws Exception {
+        RecordStore store = new ColumnarRecordStore();
+        int producers = 4;
+        int batchesPerProducer = 200;
+        int recordsPerBatch = 250;
+
+        try (RecordIngestor ingestor = new RecordIngestor(store, 100, 1000, 4)) {
+            ExecutorService pool = Executors.newFixedThreadPool(producers);
+            List<Future<List<CompletableFuture<Integer>>>> submitted = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                String prefix = "p" + p + "-";
+                submitted.add(pool.submit(() -> {
+                    List<CompletableFuture<Integer>> acknowledgements = new ArrayList<>();
+                    for (int b = 0; b < batchesPerProducer; b++) {
+                        acknowledgements.add(ingestor.ingestBatch(batch(prefix + b + "-", recordsPerBatch)));
+                    }
+                    acknowledgements.add(ingestor.ingest(batch(prefix + "single-", 1).get(0)));
+                    return acknowledgements;
+                }));
+            }
+
+            long acknowledged = 0;
+            for (Future<List<CompletableFuture<Integer>>> future : submitted) {
+                for (CompletableFuture<Integer> acknowledgement : future.get(60, TimeUnit.SECONDS)) {
+                    acknowledged += acknowledgement.get(60, TimeUnit.SECONDS);
+                }
+            }
+            pool.shutdown();
+
+            long expected = (long) producers * (batchesPerProducer * recordsPerBatch + 1);
+            assertEquals(expected, acknowledged);
+            assertEquals(expected, store.size());
+            assertEquals(expected, ingestor.getIngestedRecords());
+        }
+    }
+
+    @Test
+    public void testClosedIngestorRejectsRecords() {
+        RecordIngestor ingestor = new RecordIngestor(new ColumnarRecordStore(), 10, 10, 8);
+        ingestor.close();
+
+        CompletableFuture<Integer> acknowledgement = ingestor.ingestBatch(batch("late-", 3));
+        assertTrue(acknowledgement.isCompletedExceptionally());
+    }
+
+    /**
+     * Every acknowledgement handed out around close() completes, and stored records match the
+     * successful acknowledgements
+     */
+    @Test
+    public void testCloseRacingProducersCompletesEveryAcknowledgement() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            RecordStore store = new ColumnarRecordStore();
+            RecordIngestor ingestor = new RecordIngestor(store, 10, 50, 4);
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            List<Future<List<CompletableFuture<Integer>>>> submitted = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                String prefix = "r" + round + "p" + p + "-";
+                submitted.add(pool.submit(() -> {
+                    List<CompletableFuture<Integer>> acknowledgements = new ArrayList<>();
+                    for (int b = 0; b < 200; b++) {
+                        acknowledgements.add(ingestor.ingestBatch(batch(prefix + b + "-", 5)));
+                    }
+                    return acknowledgements;
+                }));
+            }
+            Thread.sleep(1);
+            ingestor.close();
+
+            long acknowledged = 0;
+            for (Future<List<CompletableFuture<Integer>>> future : submitted) {
+                for (CompletableFuture<Integer> acknowledgement : future.get()) {
+                    try {
+                        acknowledged += acknowledgement.get(5, TimeUnit.SECONDS);
+                    } catch (ExecutionException rejected) {
+                        assertTrue(rejected.getCause() instanceof IllegalStateException);
+                    }
+                }
+            }
+            pool.shutdown();
+            assertEquals(acknowledged, store.size());
+        }
+    }
+
+    /**
+     * Records are stored before onAppend runs, so a failing listener is skipped rather than failing them
+     */
+    @Test
+    public void testFailingListenerKeepsAcknowledgementAndLaterListeners() throws Exception {
+        RecordStore store = new ColumnarRecordStore();
+        List<BigDataProcessingSystem.DataRecord> seen = new CopyOnWriteArrayList<>();
+        try (RecordIngestor ingestor = new RecordIngestor(store, 10, 10, 8)) {
+            ingestor.addListener((target, firstIndex, records) -> {
+                throw new IllegalStateException("listener failure");
+            });
+            ingestor.addListener((target, firstIndex, records) -> seen.addAll(records));
+
+            assertEquals(Integer.valueOf(3), ingestor.ingestBatch(batch("l-", 3)).get(5, TimeUnit.SECONDS));
+            assertEquals(3, store.size());
+            assertEquals(3, seen.size());
+            assertEquals(1, ingestor.getListenerFailures());
+        }
+    }
+
+    @Test
+    public void testQueueIsBoundedAndFifo() {
+        BoundedMpmcQueue<Integer> queue = new BoundedMpmcQueue<>(3);
+        assertEquals(4, queue.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(Integer.valueOf(0), queue.poll());
+        assertTrue(queue.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+}
@@ -0,0 +1,115 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class RecordMetadataTest {
+
+    @Test
+    public void testKnownFieldsUseTypedSlots() {
+        Map<String, Object> source = new HashMap<>();
+        source.put("category", "A");
+        source.put("priority", 3);
+        source.put("source", "sensor");
+        source.put("region", "eu");
+        source.put("weight", 2.5);
+
+        RecordMetadata metadata = RecordMetadata.of(source);
+        assertEquals("A", metadata.getCategory());
+        assertTrue(metadata.hasPriority());
+        assertEquals(3, metadata.getPriority());
+        assertEquals("sensor", metadata.getSource());
+        assertEquals("eu", metadata.get("region"));
+        assertEquals(2.5, metadata.get("weight"));
+        assertNull(metadata.get("missing"));
+        assertEquals(source, metadata.toMap());
+
+        Map<String, Object> extras = new HashMap<>();
+        metadata.forEachExtra(extras::put);
+        assertEquals(Map.of("region", "eu", "weight", 2.5), extras);
+
+        assertSame(RecordMetadata.EMPTY, RecordMetadata.of(Map.of()));
+        assertFalse(RecordMetadata.EMPTY.hasPriority());
+    }
+
+    @Test
+    public void testMistypedKnownFieldsFallBackToExtras() {
+        RecordMetadata metadata = RecordMetadata.of(Map.of("category", 42, "priority", "high"));
+        assertNull(metadata.getCategory());
+        assertFalse(metadata.hasPriority());
+        assertEquals(42, metadata.get("category"));
+        assertEquals("high", metadata.get("priority"));
+
+        RecordMetadata widened = RecordMetadata.of("A", RecordMetadata.NO_PRIORITY, null, Map.of("priority", 1000));
+        assertEquals(1000, widened.getPriority());
+        assertFalse(widened.hasExtras());
+    }
+
+    @Test
+    public void testStoresRoundTripTypedMetadata() {
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        LocalDateTime now = LocalDateTime.now();
+        store.append(new BigDataProcessingSystem.DataRecord("a", now, 1.0, Map.of("category", "A", "priority", 1000, "tag", "x")));
+        store.append(new BigDataProcessingSystem.DataRecord("b", now, 2.0, Map.of("category", 7)));
+
+        RecordMetadata first = store.record(0).getRecordMetadata();
+        assertEquals("A", first.getCategory());
+        assertEquals(1000, first.getPriority());
+        assertEquals("x", first.get("tag"));
+        assertEquals(Map.of("category", 7), store.record(1).getMetadata());
+        assertEquals(RecordStore.NO_CATEGORY, store.categoryCode(1));
+    }
+
+    @Test
+    public void testCategoryGroupingMatchesFreeFormMetadata() throws Exception {
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 300; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            if (i % 3 == 0) {
+                metadata.put("category", "Unknown");
+            } else if (i % 7 != 0) {
+                metadata.put("category", i % 2 == 0 ? "A" : "B");
+            }
+            records.add(new BigDataProcessingSystem.DataRecord("r" + i, now, i, metadata));
+        }
+
+        DefaultDataProcessor processor = new DefaultDataProcessor(ForkJoinPool.commonPool());
+        // Records without a category are counted together with the explicit "Unknown" category
+        assertEquals("Category 'Unknown' represents 42.7% of all data", processor.generateInsights(records).get(0));
+
+        RecordAccumulator accumulator = new RecordAccumulator();
+        records.forEach(record -> accumulator.accept(record, now.minusDays(1)));
+        assertEquals(Long.valueOf(128), accumulator.getCategoryCounts().get("Unknown"));
+        assertEquals(accumulator.toInsights(0), processor.generateInsights(records).subList(0, 1));
+    }
+
+    @Test
+    public void testStoresOwnTheirCategoryDictionaries() {
+        ColumnarRecordStore first = new ColumnarRecordStore();
+        ColumnarRecordStore second = new ColumnarRecordStore();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 100; i++) {
+            first.append(new BigDataProcessingSystem.DataRecord("f" + i, now, i, Map.of("category", "first-" + i)));
+        }
+        second.append(new BigDataProcessingSystem.DataRecord("s", now, 1, Map.of("category", "only")));
+
+        assertEquals(100, first.categoryCardinality());
+        assertEquals(1, second.categoryCardinality());
+        assertEquals("first-99", first.categoryName(first.categoryCode(99)));
+        assertEquals("only", second.record(0).getRecordMetadata().getCategory());
+
+        StringDictionary dictionary = new StringDictionary();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, dictionary.encode("name-" + i));
+        }
+        assertEquals(1000, dictionary.size());
+        assertEquals(5, dictionary.encode("name-5"));
+        assertEquals("name-999", dictionary.decode(999));
+        assertEquals(1000, dictionary.names().size());
+    }
+}
@@ -0,0 +1,136 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class RollupCubeTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private static List<BigDataProcessingSystem.DataRecord> randomRecords(int count, long seed) {
+        Random random = new Random(seed);
+        String[] categories = {"A", "B", "C"};
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            if (i % 11 != 0) {
+                metadata.put("category", categories[random.nextInt(categories.length)]);
+            }
+            if (i % 9 != 0) {
+                metadata.put("priority", random.nextInt(5) + 1);
+            }
+            records.add(new BigDataProcessingSystem.DataRecord("record-" + i,
+                    BASE.plusSeconds(random.nextInt(72 * 3600)), random.nextDouble() * 1000, metadata));
+        }
+        return records;
+    }
+
+    private static List<BigDataProcessingSystem.DataRecord> matching(List<BigDataProcessingSystem.DataRecord> records,
+                                                                   RecordFilter filter) {
+        List<BigDataProcessingSystem.DataRecord> matching = new ArrayList<>();
+        for (BigDataProcessingSystem.DataRecord record : records) {
+            if (filter.matches(record)) {
+                matching.add(record);
+            }
+        }
+        return matching;
+    }
+
+    @Test
+    public void testAggregateMatchesRecords() {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(20_000, 5L);
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        RollupCube cube = new RollupCube(Duration.ofHours(1));
+        store.appendAll(records.subList(0, 8_000));
+        cube.catchUp(store);
+        List<BigDataProcessingSystem.DataRecord> rest = records.subList(8_000, records.size());
+        store.appendAll(rest);
+        cube.onAppend(store, 8_000, rest);
+        assertEquals(records.size(), cube.getCoveredCount());
+        assertTrue(cube.getCellCount() <= 72 * 4 * 6);
+
+        List<RecordFilter> filters = Arrays.asList(
+                RecordFilter.all(),
+                RecordFilter.all().withCategories("A", "Unknown"),
+                RecordFilter.all().withPriorityBetween(2, 4).withTimeRange(BASE.plusHours(5), BASE.plusHours(29)),
+                RecordFilter.all().withCategories("C").withTimeRange(null, BASE.plusHours(12)));
+        for (RecordFilter filter : filters) {
+            DoubleSummaryStatistics expected = new DoubleSummaryStatistics();
+            double sumOfSquares = 0;
+            for (BigDataProcessingSystem.DataRecord record : matching(records, filter)) {
+                expected.accept(record.getValue());
+                sumOfSquares += record.getValue() * record.getValue();
+            }
+            RollupCube.Cell cell = cube.aggregate(store, filter);
+            assertEquals(filter.toString(), expected.getCount(), cell.getCount());
+            assertEquals(expected.getSum(), cell.getSum(), 1e-6);
+            assertEquals(expected.getMin(), cell.getMin(), 0.0);
+            assertEquals(expected.getMax(), cell.getMax(), 0.0);
+            assertEquals(sumOfSquares, cell.getSumOfSquares(), 1e-3);
+            double mean = expected.getAverage();
+            assertEquals(sumOfSquares / expected.getCount() - mean * mean, cell.getVariance(), 1e-6);
+        }
+    }
+
+    @Test
+    public void testAnalyzeMatchesDefaultDataProcessor() throws ExecutionException, InterruptedException {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(50_000, 17L);
+        BigDataProcessingSystem system = new BigDataProcessingSystem();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            system.ingestBatch(records).join();
+            RecordFilter filter = RecordFilter.all().withCategories("A", "B").withPriorityBetween(1, 3)
+                    .withTimeRange(BASE.plusHours(6), BASE.plusHours(54));
+
+            BigDataProcessingSystem.AnalysisResult expected =
+                    new DefaultDataProcessor(executorService).process(matching(records, filter)).get();
+            BigDataProcessingSystem.AnalysisResult actual = system.processRollup(filter);
+
+            assertEquals(expected.getSummary(), actual.getSummary());
+            assertEquals(expected.getRecommendations(), actual.getRecommendations());
+            // Dominant category share is exact; the high-value count is estimated within straddling cells
+            assertEquals(expected.getInsights().get(0), actual.getInsights().get(0));
+            long expectedHighValue = Long.parseLong(expected.getInsights().get(1).split(" ")[0]);
+            long actualHighValue = Long.parseLong(actual.getInsights().get(1).split(" ")[0]);
+            assertEquals(expectedHighValue, actualHighValue, expectedHighValue * 0.05);
+
+            assertTrue(system.getMetricsSnapshot().get("rollup.cells") > 0);
+        } finally {
+            executorService.shutdown();
+            system.shutdown();
+        }
+    }
+
+    @Test
+    public void testRecentRecordsAndUnalignedRanges() {
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        RollupCube cube = new RollupCube(Duration.ofHours(1));
+        LocalDateTime now = LocalDateTime.now();
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            records.add(new BigDataProcessingSystem.DataRecord("r" + i,
+                    i < 20 ? now.minusMinutes(10) : now.minusDays(3), i, Map.of("category", "A")));
+        }
+        store.appendAll(records);
+
+        // 10% recent: not flagged as outdated
+        BigDataProcessingSystem.AnalysisResult result = cube.analyze(store, RecordFilter.all());
+        assertEquals(200.0, result.getSummary().get("totalRecords"), 0.0);
+        assertFalse(result.getRecommendations().contains("Data appears outdated - consider refreshing data sources"));
+
+        try {
+            cube.aggregate(store, RecordFilter.all().withTimeRange(BASE.plusMinutes(30), null));
+            fail("Unaligned time range accepted");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("not aligned"));
+        }
+        assertEquals(0, cube.aggregate(store, RecordFilter.all().withTimeRange(BASE, BASE)).getCount());
+    }
+}
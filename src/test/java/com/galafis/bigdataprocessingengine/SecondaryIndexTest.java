@@ -0,0 +1,175 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SecondaryIndexTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private static List<BigDataProcessingSystem.DataRecord> randomRecords(int count, long seed) {
+        Random random = new Random(seed);
+        String[] categories = {"A", "B", "C", "D"};
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            if (i % 13 != 0) {
+                metadata.put("category", categories[random.nextInt(categories.length)]);
+            }
+            if (i % 7 != 0) {
+                metadata.put("priority", i % 101 == 0 ? 1000 : random.nextInt(5) + 1);
+            }
+            records.add(new BigDataProcessingSystem.DataRecord("record-" + i,
+                    BASE.plusSeconds(random.nextInt(48 * 3600)).plusNanos(random.nextInt(1000)),
+                    random.nextDouble() * 1000, metadata));
+        }
+        return records;
+    }
+
+    private static Set<Long> positions(RecordBitmap bitmap) {
+        Set<Long> positions = new TreeSet<>();
+        bitmap.forEach(positions::add);
+        return positions;
+    }
+
+    private static Set<Long> expectedPositions(List<BigDataProcessingSystem.DataRecord> records, RecordFilter filter) {
+        Set<Long> positions = new TreeSet<>();
+        for (int i = 0; i < records.size(); i++) {
+            if (filter.matches(records.get(i))) {
+                positions.add((long) i);
+            }
+        }
+        return positions;
+    }
+
+    @Test
+    public void testBitmapOperationsMatchBitSet() {
+        Random random = new Random(7);
+        RecordBitmap left = new RecordBitmap();
+        RecordBitmap right = new RecordBitmap();
+        BitSet leftBits = new BitSet();
+        BitSet rightBits = new BitSet();
+        // Dense first container (bitmap representation) and sparse later ones (array representation)
+        for (int i = 0; i < 20_000; i++) {
+            int position = random.nextInt(65_536);
+            left.add(position);
+            leftBits.set(position);
+        }
+        for (int i = 0; i < 3_000; i++) {
+            int position = random.nextInt(300_000);
+            right.add(position);
+            rightBits.set(position);
+            left.add(position + 200_000);
+            leftBits.set(position + 200_000);
+        }
+
+        BitSet and = (BitSet) leftBits.clone();
+        and.and(rightBits);
+        BitSet or = (BitSet) leftBits.clone();
+        or.or(rightBits);
+
+        assertEquals(leftBits.cardinality(), left.cardinality());
+        assertEquals(and.cardinality(), RecordBitmap.and(left, right).cardinality());
+        assertEquals(or.cardinality(), RecordBitmap.or(left, right).cardinality());
+        RecordBitmap.and(left, right).forEach(position -> assertTrue(and.get((int) position)));
+        RecordBitmap.or(left, right).forEach(position -> assertTrue(or.get((int) position)));
+        assertTrue(left.contains(leftBits.nextSetBit(0)));
+        assertFalse(left.contains(leftBits.nextClearBit(0)));
+
+        RecordBitmap range = RecordBitmap.ofRange(10, 140_000);
+        assertEquals(139_990, range.cardinality());
+        assertEquals(3, range.containerCount());
+        assertFalse(range.contains(9));
+        assertTrue(range.contains(139_999));
+        assertEquals(left, left.copy());
+        assertTrue(left.sizeInBytes() > 0);
+    }
+
+    @Test
+    public void testSelectMatchesRecordFilter() {
+        List<BigDataProcessingSystem.DataRecord> records = randomRecords(30_000, 42L);
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        SecondaryIndex index = new SecondaryIndex(Duration.ofHours(1), new EngineMetrics());
+
+        // Half is indexed from the existing store, the rest as it is appended
+        store.appendAll(records.subList(0, 15_000));
+        index.catchUp(store);
+        List<BigDataProcessingSystem.DataRecord> rest = records.subList(15_000, records.size());
+        store.appendAll(rest);
+        index.onAppend(store, 15_000, rest);
+        assertEquals(records.size(), index.getIndexedCount());
+
+        List<RecordFilter> filters = Arrays.asList(
+                RecordFilter.all(),
+                RecordFilter.all().withCategories("A"),
+                RecordFilter.all().withCategories("B", "Unknown"),
+                RecordFilter.all().withCategories("missing"),
+                RecordFilter.all().withPriorityBetween(2, 3),
+                RecordFilter.all().withPriorityBetween(500, 2000),
+                RecordFilter.all().withTimeRange(BASE.plusMinutes(90), BASE.plusHours(30).plusSeconds(17)),
+                RecordFilter.all().withTimeRange(null, BASE.plusHours(5)),
+                RecordFilter.all().withCategories("C").withPriorityBetween(1, 4)
+                        .withTimeRange(BASE.plusHours(3), BASE.plusHours(40)));
+        for (RecordFilter filter : filters) {
+            assertEquals(filter.toString(), expectedPositions(records, filter), positions(index.select(store, filter)));
+        }
+    }
+
+    @Test
+    public void testTimeRangeBoundsAreExact() {
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        SecondaryIndex index = new SecondaryIndex(Duration.ofHours(1), new EngineMetrics());
+        store.appendAll(Arrays.asList(
+                new BigDataProcessingSystem.DataRecord("before", BASE.minusNanos(1), 1.0, Map.of()),
+                new BigDataProcessingSystem.DataRecord("start", BASE, 2.0, Map.of()),
+                new BigDataProcessingSystem.DataRecord("inside", BASE.plusMinutes(30), 3.0, Map.of()),
+                new BigDataProcessingSystem.DataRecord("last", BASE.plusHours(2).minusNanos(1), 4.0, Map.of()),
+                new BigDataProcessingSystem.DataRecord("end", BASE.plusHours(2), 5.0, Map.of())));
+
+        // The store is ahead of the index here; select catches up before answering
+        assertEquals(Set.of(1L, 2L, 3L),
+                positions(index.select(store, RecordFilter.all().withTimeRange(BASE, BASE.plusHours(2)))));
+        assertEquals(Set.of(2L),
+                positions(index.select(store, RecordFilter.all().withTimeRange(BASE.plusNanos(1), BASE.plusMinutes(31)))));
+        assertTrue(index.select(store, RecordFilter.all().withTimeRange(BASE, BASE)).isEmpty());
+    }
+
+    @Test
+    public void testProcessDataWithFilter() throws ExecutionException, InterruptedException {
+        BigDataProcessingSystem system = new BigDataProcessingSystem();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            List<BigDataProcessingSystem.DataRecord> records = randomRecords(20_000, 11L);
+            system.ingestBatch(records).join();
+            RecordFilter filter = RecordFilter.all().withCategories("A", "D").withPriorityBetween(2, 5);
+
+            List<BigDataProcessingSystem.DataRecord> matching = new ArrayList<>();
+            for (BigDataProcessingSystem.DataRecord record : records) {
+                if (filter.matches(record)) {
+                    matching.add(record);
+                }
+            }
+            BigDataProcessingSystem.AnalysisResult expected = new DefaultDataProcessor(executorService).process(matching).get();
+            BigDataProcessingSystem.AnalysisResult actual = system.processData(filter).get();
+            assertEquals(expected.getSummary(), actual.getSummary());
+            assertEquals(expected.getInsights(), actual.getInsights());
+            assertEquals(expected.getRecommendations(), actual.getRecommendations());
+
+            assertSame(actual, system.processData(filter).get());
+            EngineMetrics.Snapshot snapshot = system.getMetricsSnapshot();
+            assertEquals(1.0, snapshot.get("index.query.latency.nanos.count"), 0.0);
+            assertEquals(matching.size(), snapshot.get("index.matched.records.total"), 0.0);
+            assertTrue(snapshot.get("index.memory.bytes") > 0);
+        } finally {
+            executorService.shutdown();
+            system.shutdown();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SegmentedRecordStoreTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private static BigDataProcessingSystem.DataRecord record(int writer, int sequence) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("category", "W" + writer);
+        metadata.put("priority", sequence % 5 + 1);
+        return new BigDataProcessingSystem.DataRecord(writer + ":" + sequence, BASE.plusSeconds(sequence), sequence, metadata);
+    }
+
+    @Test
+    public void testRoundTripAcrossSegments() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123456789);
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("category", "A");
+        metadata.put("priority", 3);
+        metadata.put("source", "sensor");
+        metadata.put("region", "eu-west");
+
+        int count = SegmentedRecordStore.SEGMENT_SIZE * 2 + 17;
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(new BigDataProcessingSystem.DataRecord("id" + i, timestamp.plusNanos(i), i * 0.5,
+                    i % 3 == 0 ? metadata : Map.of("priority", 1000)));
+        }
+        SegmentedRecordStore store = new SegmentedRecordStore();
+        assertEquals(0, store.append(records.get(0)));
+        assertEquals(1, store.appendAll(records.subList(1, count)));
+
+        assertEquals(count, store.size());
+        assertEquals(3, store.getSegmentCount());
+        for (int i = 0; i < count; i++) {
+            BigDataProcessingSystem.DataRecord actual = store.record(i);
+            assertEquals(records.get(i).getId(), actual.getId());
+            assertEquals(records.get(i).getTimestamp(), actual.getTimestamp());
+            assertEquals(records.get(i).getValue(), store.value(i), 0.0);
+            assertEquals(records.get(i).getMetadata(), actual.getMetadata());
+        }
+        assertEquals("A", store.categoryName(store.categoryCode(0)));
+        assertEquals(RecordStore.NO_PRIORITY, store.priority(1));
+        try {
+            store.value(count);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException expected) {
+            // Beyond the published size
+        }
+    }
+
+    @Test
+    public void testSnapshotIsBoundedAndReadOnly() {
+        SegmentedRecordStore store = new SegmentedRecordStore();
+        store.appendAll(Arrays.asList(record(0, 0), record(0, 1)));
+        RecordStore snapshot = store.snapshot();
+        store.append(record(0, 2));
+
+        assertEquals(2, snapshot.size());
+        assertEquals(2, snapshot.version());
+        assertEquals(2, snapshot.asList().size());
+        assertSame(snapshot, snapshot.snapshot());
+        assertEquals(3, store.size());
+        try {
+            snapshot.record(2);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException expected) {
+            // Appended after the snapshot
+        }
+        try {
+            snapshot.append(record(0, 3));
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException expected) {
+            // Snapshots are read-only
+        }
+    }
+
+    @Test
+    public void testFailedAppendLeavesStoreUnchanged() {
+        SegmentedRecordStore store = new SegmentedRecordStore();
+        List<BigDataProcessingSystem.DataRecord> batch = Arrays.asList(record(0, 0),
+                new BigDataProcessingSystem.DataRecord("broken", null, 1.0, Map.of("category", "A")), record(0, 2));
+        try {
+            store.appendAll(batch);
+            fail("Expected NullPointerException");
+        } catch (NullPointerException expected) {
+            // Null timestamp
+        }
+        assertEquals(0, store.size());
+        assertEquals(0, store.getReservedCount());
+        assertEquals(0, store.append(record(0, 3)));
+        assertEquals("0:3", store.id(0));
+
+        // A batch over capacity is refused before anything is reserved
+        Collection<BigDataProcessingSystem.DataRecord> oversized = new AbstractCollection<>() {
+            @Override
+            public Iterator<BigDataProcessingSystem.DataRecord> iterator() {
+                return Collections.emptyIterator();
+            }
+
+            @Override
+            public int size() {
+                return Integer.MAX_VALUE;
+            }
+        };
+        try {
+            store.appendAll(oversized);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // Capacity exceeded
+        }
+        assertEquals(1, store.getReservedCount());
+        assertEquals(1, store.append(record(0, 4)));
+        assertEquals(2, store.size());
+    }
+
+    /**
+     * Writers append concurrently while readers analyze snapshots; every snapshot must be a
+     * consistent prefix in which each writer's batches appear complete and in order
+     */
+    @Test
+    public void testConcurrentWritersAndSnapshotReaders() throws Exception {
+        int writers = 6;
+        int batches = 400;
+        int batchSize = 250;
+        SegmentedRecordStore store = new SegmentedRecordStore();
+        ExecutorService threads = Executors.newFixedThreadPool(writers + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong snapshotsChecked = new AtomicLong();
+        try {
+            List<Future<?>> writerTasks = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                writerTasks.add(threads.submit(() -> {
+                    start.await();
+                    for (int b = 0; b < batches; b++) {
+                        List<BigDataProcessingSystem.DataRecord> batch = new ArrayList<>(batchSize);
+                        for (int i = 0; i < batchSize; i++) {
+                            batch.add(record(writer, b * batchSize + i));
+                        }
+                        long first = store.appendAll(batch);
+                        // A writer's own records are visible as soon as it returns
+                        assertTrue(store.size() >= first + batchSize);
+                        assertEquals(writer + ":" + b * batchSize, store.id(first));
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> readerTasks = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readerTasks.add(threads.submit(() -> {
+                    start.await();
+                    while (writing.get()) {
+                        RecordStore snapshot = store.snapshot();
+                        long size = snapshot.size();
+                        assertEquals(0, size % batchSize);
+                        int[] next = new int[writers];
+                        for (long i = 0; i < size; i++) {
+                            String id = snapshot.id(i);
+                            int separator = id.indexOf(':');
+                            int writer = Integer.parseInt(id.substring(0, separator));
+                            assertEquals(id, next[writer]++, Integer.parseInt(id.substring(separator + 1)));
+                            assertEquals("W" + writer, snapshot.categoryName(snapshot.categoryCode(i)));
+                        }
+                        RecordAccumulator accumulator = RecordAccumulator.scan(snapshot, 0, size, Long.MIN_VALUE);
+                        assertEquals(size, accumulator.getCount());
+                        assertEquals(size, snapshot.size());
+                        snapshotsChecked.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> task : writerTasks) {
+                task.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<?> task : readerTasks) {
+                task.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+        assertEquals((long) writers * batches * batchSize, store.size());
+        assertEquals(store.size(), store.getReservedCount());
+        assertTrue(snapshotsChecked.get() > 0);
+    }
+
+    @Test
+    public void testProcessDataAnalyzesConsistentSnapshotDuringIngest() throws Exception {
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            records.add(record(i % 3, i));
+        }
+        BigDataProcessingSystem system = new BigDataProcessingSystem();
+        try {
+            CompletableFuture<Integer> ingest = system.ingestBatch(records);
+            List<BigDataProcessingSystem.AnalysisResult> results = new ArrayList<>();
+            while (!ingest.isDone()) {
+                results.add(system.processData().get());
+            }
+            ingest.get();
+            results.add(system.processData().get());
+
+            for (BigDataProcessingSystem.AnalysisResult result : results) {
+                int analyzed = result.getSummary().get("totalRecords").intValue();
+                if (analyzed == 0) {
+                    continue;
+                }
+                // Values are 0..n-1 in ingestion order, so a consistent prefix of n records averages (n-1)/2
+                double expectedAverage = Math.round((analyzed - 1) / 2.0 * 100.0) / 100.0;
+                assertEquals(expectedAverage, result.getSummary().get("averageValue"), 1e-9);
+                assertEquals(analyzed - 1, result.getSummary().get("maxValue"), 0.0);
+            }
+            assertEquals(records.size(), results.get(results.size() - 1).getSummary().get("totalRecords").intValue());
+        } finally {
+            system.shutdown();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+public class StreamingAnalyzerTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static BigDataProcessingSystem.DataRecord record(String id, int minutes, double value, String category) {
+        return new BigDataProcessingSystem.DataRecord(id, BASE.plusMinutes(minutes), value, Map.of("category", category));
+    }
+
+    @Test
+    public void testTumblingWindowsAggregateAndClose() {
+        StreamingAnalyzer analyzer = new StreamingAnalyzer(WindowSpec.tumbling(Duration.ofHours(1)));
+        List<StreamingAnalyzer.WindowResult> emitted = new ArrayList<>();
+        analyzer.addWindowListener(emitted::add);
+
+        analyzer.acceptAll(List.of(
+                record("a", 5, 10.0, "A"),
+                record("b", 30, 30.0, "A"),
+                record("c", 59, 20.0, "B")));
+        assertTrue(emitted.isEmpty());
+
+        Map<String, Double> open = analyzer.snapshot(BASE).get().getResult().getSummary();
+        assertEquals(3.0, open.get("totalRecords"), 0.0);
+        assertEquals(20.0, open.get("averageValue"), 0.0);
+        assertEquals(30.0, open.get("maxValue"), 0.0);
+        assertEquals(10.0, open.get("minValue"), 0.0);
+
+        analyzer.accept(record("d", 61, 100.0, "C"));
+        assertEquals(1, emitted.size());
+        assertTrue(emitted.get(0).isClosed());
+        assertEquals(BASE, emitted.get(0).getWindowStart());
+        assertEquals(BASE.plusHours(1), emitted.get(0).getWindowEnd());
+        assertTrue(emitted.get(0).getResult().getInsights().get(0).contains("Category 'A' represents 66.7%"));
+
+        analyzer.accept(record("late", 10, 1.0, "A"));
+        assertEquals(1, analyzer.getLateRecordCount());
+        assertEquals(3.0, analyzer.snapshot(BASE).get().getResult().getSummary().get("totalRecords"), 0.0);
+
+        analyzer.flush();
+        assertEquals(2, emitted.size());
+        assertEquals(1.0, emitted.get(1).getResult().getSummary().get("totalRecords"), 0.0);
+    }
+
+    @Test
+    public void testSlidingWindowsOverlap() {
+        StreamingAnalyzer analyzer = new StreamingAnalyzer(WindowSpec.sliding(Duration.ofMinutes(30), Duration.ofMinutes(10)));
+        analyzer.accept(record("a", 25, 5.0, "A"));
+
+        List<StreamingAnalyzer.WindowResult> windows = analyzer.getOpenWindows();
+        assertEquals(3, windows.size());
+        assertEquals(BASE, windows.get(0).getWindowStart());
+        assertEquals(BASE.plusMinutes(20), windows.get(2).getWindowStart());
+        for (StreamingAnalyzer.WindowResult window : windows) {
+            assertEquals(1.0, window.getResult().getSummary().get("totalRecords"), 0.0);
+        }
+    }
+
+    @Test
+    public void testWindowListenersRunOnListenerExecutor() {
+        Queue<Runnable> deliveries = new ArrayDeque<>();
+        StreamingAnalyzer analyzer = new StreamingAnalyzer(WindowSpec.tumbling(Duration.ofHours(1)), Duration.ZERO,
+                StreamingAnalyzer.DEFAULT_RETAINED_WINDOWS, deliveries::add);
+        List<LocalDateTime> emitted = new ArrayList<>();
+        analyzer.addWindowListener(result -> {
+            throw new IllegalStateException("listener failure");
+        });
+        analyzer.addWindowListener(result -> emitted.add(result.getWindowStart()));
+
+        analyzer.accept(record("a", 5, 1.0, "A"));
+        analyzer.accept(record("b", 65, 1.0, "A"));
+        analyzer.accept(record("c", 125, 1.0, "A"));
+        assertTrue(emitted.isEmpty());
+        // A single delivery is scheduled while the first one is pending, and it drains both windows in order
+        assertEquals(1, deliveries.size());
+
+        deliveries.poll().run();
+        assertEquals(List.of(BASE, BASE.plusHours(1)), emitted);
+        assertTrue(deliveries.isEmpty());
+    }
+
+    @Test
+    public void testSystemStreamReceivesIngestedRecords() throws Exception {
+        BigDataProcessingSystem system = new BigDataProcessingSystem();
+        try {
+            StreamingAnalyzer analyzer = system.openStream(WindowSpec.tumbling(Duration.ofDays(1)));
+            system.ingestBatch(List.of(record("a", 1, 2.0, "A"), record("b", 2, 4.0, "B"))).get();
+
+            assertEquals(2, analyzer.getRecordCount());
+            assertEquals(3.0, analyzer.snapshot(BASE).get().getResult().getSummary().get("averageValue"), 0.0);
+
+            system.closeStream(analyzer);
+            system.ingest(record("c", 3, 6.0, "A")).get();
+            assertEquals(2, analyzer.getRecordCount());
+            assertEquals(1, analyzer.getClosedWindows().size());
+        } finally {
+            system.shutdown();
+        }
+    }
+}
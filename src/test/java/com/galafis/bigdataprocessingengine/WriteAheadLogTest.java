@@ -0,0 +1,274 @@
+package com.galafis.bigdataprocessingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class WriteAheadLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ExecutionBackend backend;
+
+    @Before
+    public void setUp() {
+        backend = ExecutionBackend.create(ExecutionBackend.Type.WORK_STEALING, 4);
+    }
+
+    @After
+    public void tearDown() {
+        backend.close();
+    }
+
+    private static List<BigDataProcessingSystem.DataRecord> records(int count, long seed) {
+        Random random = new Random(seed);
+        String[] categories = {"A", "B", "C"};
+        List<BigDataProcessingSystem.DataRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("category", categories[random.nextInt(categories.length)]);
+            metadata.put("priority", random.nextInt(5) + 1);
+            if (i % 10 == 0) {
+                metadata.put("batch", (long) i);
+            }
+            records.add(new BigDataProcessingSystem.DataRecord("record-" + seed + "-" + i,
+                    LocalDateTime.of(2024, 5, 1, 0, 0).plusSeconds(random.nextInt(86_400)), random.nextDouble() * 1000, metadata));
+        }
+        return records;
+    }
+
+    private static void assertSameRecords(List<BigDataProcessingSystem.DataRecord> expected, RecordStore store) {
+        assertEquals(expected.size(), store.size());
+        for (int i = 0; i < expected.size(); i++) {
+            BigDataProcessingSystem.DataRecord actual = store.record(i);
+            assertEquals(expected.get(i).getId(), actual.getId());
+            assertEquals(expected.get(i).getTimestamp(), actual.getTimestamp());
+            assertEquals(expected.get(i).getValue(), actual.getValue(), 0.0);
+            assertEquals(expected.get(i).getMetadata(), actual.getMetadata());
+        }
+    }
+
+    /**
+     * Ingest through a RecordIngestor with the log as its listener, the way BigDataProcessingSystem wires it
+     */
+    private static void ingest(WriteAheadLog log, RecordStore store, List<BigDataProcessingSystem.DataRecord> records) {
+        try (RecordIngestor ingestor = new RecordIngestor(store, 500, 2000, 64)) {
+            ingestor.addListener(log);
+            ingestor.ingestBatch(records).join();
+        }
+    }
+
+    private static List<Path> files(Path directory, String suffix) throws IOException {
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing.filter(path -> path.toString().endsWith(suffix)).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void testRecoverReplaysLogAcrossSegments() throws IOException {
+        Path directory = temporaryFolder.newFolder("wal").toPath();
+        List<BigDataProcessingSystem.DataRecord> records = records(12_000, 1L);
+
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend, Duration.ZERO, 64 * 1024, 0)) {
+            ColumnarRecordStore store = new ColumnarRecordStore();
+            assertEquals(0, log.recover(store));
+            ingest(log, store, records);
+            assertEquals(records.size(), log.getNextPosition());
+            assertTrue(log.getSegmentCount() > 1);
+            assertTrue(log.getSyncCount() > 0);
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend, Duration.ZERO, 64 * 1024, 0)) {
+            ColumnarRecordStore recovered = new ColumnarRecordStore();
+            assertEquals(records.size(), log.recover(recovered));
+            assertSameRecords(records, recovered);
+
+            // Logging continues after recovery at the next position
+            List<BigDataProcessingSystem.DataRecord> more = records(1_000, 2L);
+            ingest(log, recovered, more);
+            assertEquals(records.size() + more.size(), log.getNextPosition());
+        }
+    }
+
+    @Test
+    public void testSnapshotCompactsLogAndRecoversWithTail() throws IOException {
+        Path directory = temporaryFolder.newFolder("wal").toPath();
+        List<BigDataProcessingSystem.DataRecord> records = records(20_000, 3L);
+        ColumnarRecordStore store = new ColumnarRecordStore();
+
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend, Duration.ofMillis(50), 64 * 1024, 0)) {
+            log.recover(store);
+            ingest(log, store, records.subList(0, 15_000));
+            int segmentsBefore = log.getSegmentCount();
+            assertEquals(15_000, log.snapshot(store));
+            assertTrue(log.getSegmentCount() < segmentsBefore);
+            assertEquals(1, files(directory, ".bin").size());
+            ingest(log, store, records.subList(15_000, records.size()));
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend)) {
+            ColumnarRecordStore recovered = new ColumnarRecordStore();
+            log.recover(recovered);
+            assertEquals(15_000, log.getSnapshotRecords());
+            assertSameRecords(records, recovered);
+        }
+    }
+
+    @Test
+    public void testAutomaticSnapshotAndSkipOfRecordsAlreadyStored() throws IOException {
+        Path directory = temporaryFolder.newFolder("wal").toPath();
+        List<BigDataProcessingSystem.DataRecord> records = records(10_000, 4L);
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend, Duration.ofMillis(-1), 1 << 20, 4_000)) {
+            log.recover(store);
+            ingest(log, store, records);
+            assertEquals(0, log.getSyncCount());
+        }
+        assertFalse(files(directory, ".bin").isEmpty());
+
+        // A store that already holds a prefix (e.g. a reopened MappedSegmentRecordStore) only gets the rest
+        ColumnarRecordStore partial = new ColumnarRecordStore();
+        partial.appendAll(records.subList(0, 6_543));
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend)) {
+            assertEquals(records.size() - 6_543, log.recover(partial));
+            assertSameRecords(records, partial);
+        }
+    }
+
+    @Test
+    public void testFailedLogLeavesStoreUntouched() throws IOException {
+        Path directory = temporaryFolder.newFolder("wal").toPath();
+        List<BigDataProcessingSystem.DataRecord> records = records(2_000, 7L);
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        WriteAheadLog log = WriteAheadLog.open(directory, backend, Duration.ZERO, 1 << 20, 0);
+        log.recover(store);
+        ingest(log, store, records.subList(0, 1_000));
+        assertEquals(1_000, store.size());
+
+        // A closed log refuses to write, so the batch must fail before reaching the store
+        log.close();
+        try (RecordIngestor ingestor = new RecordIngestor(store, 500, 2000, 64)) {
+            ingestor.addListener(log);
+            try {
+                ingestor.ingestBatch(records.subList(1_000, 2_000)).join();
+                fail("Expected CompletionException");
+            } catch (CompletionException expected) {
+                assertTrue(expected.getCause() instanceof IllegalStateException);
+            }
+        }
+        assertEquals(1_000, store.size());
+    }
+
+    @Test
+    public void testFrameOfFailedAppendIsDiscarded() throws IOException {
+        Path directory = temporaryFolder.newFolder("wal").toPath();
+        List<BigDataProcessingSystem.DataRecord> records = records(3_000, 8L);
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend, Duration.ZERO, 1 << 20, 0)) {
+            log.recover(store);
+            log.beforeAppend(store, 0, records.subList(0, 1_000));
+            store.appendAll(records.subList(0, 1_000));
+            log.onAppend(store, 0, records.subList(0, 1_000));
+
+            // The store rejected the next append after it was logged
+            log.beforeAppend(store, 1_000, records.subList(1_000, 2_000));
+            log.appendFailed(store, 1_000, records.subList(1_000, 2_000));
+            assertEquals(1_000, log.getNextPosition());
+
+            ingest(log, store, records.subList(2_000, 3_000));
+        }
+        List<BigDataProcessingSystem.DataRecord> expected = new ArrayList<>(records.subList(0, 1_000));
+        expected.addAll(records.subList(2_000, 3_000));
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend)) {
+            ColumnarRecordStore recovered = new ColumnarRecordStore();
+            log.recover(recovered);
+            assertSameRecords(expected, recovered);
+        }
+    }
+
+    @Test
+    public void testTornTailIsTruncated() throws IOException {
+        Path directory = temporaryFolder.newFolder("wal").toPath();
+        List<BigDataProcessingSystem.DataRecord> records = records(3_000, 5L);
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend, Duration.ZERO, 1 << 20, 0)) {
+            ColumnarRecordStore store = new ColumnarRecordStore();
+            log.recover(store);
+            for (int from = 0; from < records.size(); from += 1_000) {
+                log.beforeAppend(store, from, records.subList(from, from + 1_000));
+                store.appendAll(records.subList(from, from + 1_000));
+                log.onAppend(store, from, records.subList(from, from + 1_000));
+            }
+        }
+
+        // Simulate a crash in the middle of writing the last frame
+        Path segment = files(directory, ".log").get(0);
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 100);
+        }
+
+        ColumnarRecordStore recovered = new ColumnarRecordStore();
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend)) {
+            assertEquals(2_000, log.recover(recovered));
+            assertSameRecords(records.subList(0, 2_000), recovered);
+            ingest(log, recovered, records.subList(2_000, records.size()));
+        }
+        try (WriteAheadLog log = WriteAheadLog.open(directory, backend)) {
+            ColumnarRecordStore again = new ColumnarRecordStore();
+            log.recover(again);
+            assertSameRecords(records, again);
+        }
+    }
+
+    @Test
+    public void testSystemRecoversIngestedRecordsOnRestart() throws Exception {
+        Path directory = temporaryFolder.newFolder("wal").toPath();
+        Path config = temporaryFolder.newFile("wal.properties").toPath();
+        try (Writer writer = Files.newBufferedWriter(config)) {
+            writer.write("wal.directory=" + directory.toString().replace("\\", "/") + "\n");
+            writer.write("wal.syncIntervalMs=10\n");
+            writer.write("cache.enabled=false\n");
+        }
+        List<BigDataProcessingSystem.DataRecord> records = records(5_000, 6L);
+        String previous = System.getProperty("bigdata.config");
+        System.setProperty("bigdata.config", config.toString());
+        try {
+            BigDataProcessingSystem system = new BigDataProcessingSystem();
+            system.ingestBatch(records).join();
+            BigDataProcessingSystem.AnalysisResult before = system.processData().get();
+            system.shutdown();
+
+            BigDataProcessingSystem restarted = new BigDataProcessingSystem();
+            try {
+                assertSameRecords(records, restarted.getRecordStore());
+                assertEquals(before.getSummary(), restarted.processData().get().getSummary());
+                assertEquals(5_000, restarted.checkpoint());
+            } finally {
+                restarted.shutdown();
+            }
+        } finally {
+            if (previous != null) {
+                System.setProperty("bigdata.config", previous);
+            } else {
+                System.clearProperty("bigdata.config");
+            }
+        }
+    }
+}